@@ -11,6 +11,9 @@ public interface Constants {
 
 	public static final int CUBE_SIZE = 32; // pixels per cube
 
+	public static final double MAX_TIME_STEP = 0.20; // seconds, the longest step the model accepts
+	public static final double SIMULATION_TIME_STEP = 0.05; // seconds per tick on the simulation thread
+
 	public static final double WORLD_VIEW_WIDTH = CUBE_SIZE * ((int) ((WINDOW_WIDTH - SIDEBAR_WIDTH - 50) / CUBE_SIZE));
 	public static final double WORLD_VIEW_HEIGHT = CUBE_SIZE * ((int) ((WINDOW_HEIGHT - 50) / CUBE_SIZE));
 
@@ -20,6 +20,7 @@ import javafx.scene.layout.GridPane;
 import javafx.scene.layout.RowConstraints;
 import javafx.stage.Stage;
 import ogp.framework.game.GameLoop;
+import ogp.framework.game.IFixedStepGameController;
 import ogp.framework.ui.OptionsPanel;
 import ogp.framework.util.ModelException;
 import ogp.framework.util.internal.ResourceUtils;
@@ -125,8 +126,13 @@ public abstract class HillbilliesApplication<O extends HillbilliesOptions, F, V
 				scene.getStylesheets().add("resources/style.css");
 				stage.setScene(scene);
 				stage.centerOnScreen();
-				GameLoop loop = new GameLoop(game);
-				loop.setMaxTimeStep(0.20);
+				GameLoop loop;
+				if (options.simulationThreadEnabled().getValue() && game instanceof IFixedStepGameController) {
+					loop = new GameLoop((IFixedStepGameController<?>) game, Constants.SIMULATION_TIME_STEP);
+				} else {
+					loop = new GameLoop(game);
+					loop.setMaxTimeStep(Constants.MAX_TIME_STEP);
+				}
 				loop.start();
 			});
 
@@ -6,13 +6,11 @@ import hillbillies.common.internal.providers.ActionExecutor;
 import ogp.framework.util.ModelException;
 
 public abstract class BaseActionExecutor implements ActionExecutor {
-	private final Object facade;
 	private final Consumer<ModelException> errorHandler;
 	private final HillbilliesGameController<?> game;
 	
 	public BaseActionExecutor(HillbilliesGameController<?> game, Consumer<ModelException> errorHandler) {
 		this.game = game;
-		this.facade = game.getFacade();
 		this.errorHandler = errorHandler;
 	}
 	
@@ -21,7 +19,7 @@ public abstract class BaseActionExecutor implements ActionExecutor {
 	}
 	
 	public Object getFacade() {
-		return facade;
+		return game.getFacade();
 	}
 	
 	protected void handleError(ModelException e) {
@@ -1,6 +1,9 @@
 package hillbillies.common.internal.controller;
 
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.Set;
 
 import hillbillies.common.internal.inputmodes.InputMode;
@@ -21,12 +24,14 @@ import ogp.framework.util.ModelException;
 
 public abstract class GameController<V extends IHillbilliesView> implements HillbilliesGameController<V> {
 
-	private final Object facade;
+	private Object facade;
+	private Object facadeLock;
 	private V view;
 	private final HillbilliesOptions options;
 
 	public GameController(Object facade, HillbilliesOptions options) {
 		this.facade = facade;
+		this.facadeLock = facade;
 		this.options = options;
 		switchInputMode(createDefaultInputMode());
 	}
@@ -73,6 +78,29 @@ public abstract class GameController<V extends IHillbilliesView> implements Hill
 		return facade;
 	}
 
+	/**
+	 * Let all calls to the facade from now on lock it, so the model can be advanced on
+	 * another thread than the JavaFX thread. Sets returned by the facade are copied
+	 * while it is locked, since the originals may change as soon as it is released.
+	 */
+	protected void serializeFacadeCalls() {
+		Object target = facadeLock;
+		facade = Proxy.newProxyInstance(target.getClass().getClassLoader(), target.getClass().getInterfaces(),
+				(proxy, method, args) -> {
+					synchronized (target) {
+						try {
+							Object result = method.invoke(target, args);
+							if (result instanceof Set) {
+								return new LinkedHashSet<>((Set<?>) result);
+							}
+							return result;
+						} catch (InvocationTargetException e) {
+							throw e.getCause();
+						}
+					}
+				});
+	}
+
 	protected void handleError(ModelException e) {
 		if (getOptions().printModelExceptionTraces().getValue()) {
 			//getView().setStatusText("ERROR: " + e.getMessage());
@@ -80,6 +108,14 @@ public abstract class GameController<V extends IHillbilliesView> implements Hill
 		}
 	}
 
+	/**
+	 * Return the object that calls to the facade lock, if they are serialized; holding
+	 * it keeps the model from changing in between several calls.
+	 */
+	protected Object getFacadeLock() {
+		return facadeLock;
+	}
+
 	@Override
 	public V getView() {
 		return view;
@@ -1,5 +1,7 @@
 package hillbillies.common.internal.map;
 
+import java.util.BitSet;
+
 /**
  * For internal GUI use only.
  * 
@@ -19,6 +21,16 @@ public interface IByteMap3D {
 		public void onChange(int x, int y, int z, byte oldValue, byte newValue);
 	}
 
+	/**
+	 * Listener that is notified once per bulk change, with the indices
+	 * x + y * nbX + z * nbX * nbY of all cells whose value changed.
+	 * The given set must not be modified or kept after the call.
+	 */
+	@FunctionalInterface
+	public static interface BulkListener {
+		public void onChanges(BitSet indices);
+	}
+
 
 	default void fill(ValueProvider provider) {
 		for (int x = 0; x < getNbX(); x++) {
@@ -30,6 +42,18 @@ public interface IByteMap3D {
 		}
 	}
 
+	/**
+	 * Set the cells with the given indices x + y * nbX + z * nbX * nbY to the values of
+	 * the given provider.
+	 */
+	default void setValues(BitSet indices, ValueProvider provider) {
+		int nbX = getNbX(), nbXY = nbX * getNbY();
+		for (int index = indices.nextSetBit(0); index >= 0; index = indices.nextSetBit(index + 1)) {
+			int x = index % nbX, y = (index % nbXY) / nbX, z = index / nbXY;
+			setValue(x, y, z, provider.getValue(x, y, z));
+		}
+	}
+
 	boolean isValidIndex(int worldX, int worldY, int worldZ);
 	
 	byte getValue(int worldX, int worldY, int worldZ);
@@ -40,5 +64,6 @@ public interface IByteMap3D {
 	int getNbZ();
 
 	void addListener(Listener listener);
+	void addBulkListener(BulkListener listener);
 
 }
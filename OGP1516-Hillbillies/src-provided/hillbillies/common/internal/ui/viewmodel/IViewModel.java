@@ -86,5 +86,17 @@ public interface IViewModel {
 
 	void addVisibleTileRefreshListener(VisibleTileRefreshListener listener);
 
+	/**
+	 * Listener that is notified when the view scrolls by (dx, dy) tiles, before the
+	 * newly exposed tiles are refreshed. The tile shown at (visibleX + dx, visibleY + dy)
+	 * is then shown at (visibleX, visibleY); the other visible tiles are not refreshed.
+	 */
+	@FunctionalInterface
+	public static interface VisibleTilesShiftListener {
+		public void shiftVisibleTiles(int dx, int dy);
+	}
+
+	void addVisibleTilesShiftListener(VisibleTilesShiftListener listener);
+
 	
 }
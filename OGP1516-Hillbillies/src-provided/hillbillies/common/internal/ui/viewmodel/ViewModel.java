@@ -1,5 +1,6 @@
 package hillbillies.common.internal.ui.viewmodel;
 
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
@@ -73,17 +74,80 @@ public abstract class ViewModel implements IViewModel {
 		setupSpriteFactory();
 
 		currentZLevelProperty().addListener(e -> updateAllInformation());
-		xTileOffset.addListener(e -> updateAllVisibleTiles());
-		yTileOffset.addListener(e -> updateAllVisibleTiles());
+		xTileOffset.addListener(e -> visibleTilesScrolled());
+		yTileOffset.addListener(e -> visibleTilesScrolled());
 
-		mapCache.addListener(this::worldTileChanged);
+		mapCache.addBulkListener(this::worldTilesChanged);
 	}
 
-	protected void worldTileChanged(int worldX, int worldY, int worldZ, byte oldValue, byte newValue) {
-		if (isWorldTileVisible(worldX, worldY, worldZ)) {
+	/** Visible tiles (visibleX * nbVisibleTilesY + visibleY) to update after a bulk change */
+	private final BitSet changedVisibleTiles = new BitSet();
+
+	/**
+	 * Update every visible tile that shows one of the changed world tiles, once, no
+	 * matter how many of the world tiles above each other changed.
+	 */
+	protected void worldTilesChanged(BitSet indices) {
+		int nbX = mapCache.getNbX(), nbXY = nbX * mapCache.getNbY();
+		for (int index = indices.nextSetBit(0); index >= 0; index = indices.nextSetBit(index + 1)) {
+			int worldX = index % nbX, worldY = (index % nbXY) / nbX, worldZ = index / nbXY;
 			int visibleX = worldTileToVisibleTileX(worldX);
 			int visibleY = worldTileToVisibleTileY(worldY);
-			updateVisibleTileAndNotify(visibleX, visibleY);
+			if (0 <= visibleX && visibleX < nbVisibleTilesX && 0 <= visibleY && visibleY < nbVisibleTilesY
+					&& !changedVisibleTiles.get(visibleX * nbVisibleTilesY + visibleY)
+					&& isWorldTileVisible(worldX, worldY, worldZ)) {
+				changedVisibleTiles.set(visibleX * nbVisibleTilesY + visibleY);
+			}
+		}
+		for (int tile = changedVisibleTiles.nextSetBit(0); tile >= 0; tile = changedVisibleTiles.nextSetBit(tile + 1)) {
+			updateVisibleTileAndNotify(tile / nbVisibleTilesY, tile % nbVisibleTilesY);
+		}
+		changedVisibleTiles.clear();
+	}
+
+	/** Tile offsets for which the visible tiles were last updated */
+	private int shownXTileOffset;
+	private int shownYTileOffset;
+
+	/**
+	 * Shift the visible tiles that stay in view and only update the strips of tiles
+	 * that scrolled into view, rather than every visible tile.
+	 */
+	protected void visibleTilesScrolled() {
+		int dx = xTileOffset.get() - shownXTileOffset;
+		int dy = yTileOffset.get() - shownYTileOffset;
+		shownXTileOffset = xTileOffset.get();
+		shownYTileOffset = yTileOffset.get();
+		if (dx == 0 && dy == 0) {
+			return;
+		}
+		if (Math.abs(dx) >= nbVisibleTilesX || Math.abs(dy) >= nbVisibleTilesY) {
+			updateAllVisibleTiles();
+			return;
+		}
+
+		shiftVisibleTileZs(dx, dy);
+		for (VisibleTilesShiftListener listener : visibleTilesShiftListeners) {
+			listener.shiftVisibleTiles(dx, dy);
+		}
+
+		// exposed columns, then the exposed rows of the other columns
+		int minX = dx > 0 ? nbVisibleTilesX - dx : 0;
+		int maxX = dx > 0 ? nbVisibleTilesX : -dx;
+		int minY = dy > 0 ? nbVisibleTilesY - dy : 0;
+		int maxY = dy > 0 ? nbVisibleTilesY : -dy;
+		for (int visibleX = minX; visibleX < maxX; visibleX++) {
+			for (int visibleY = 0; visibleY < nbVisibleTilesY; visibleY++) {
+				updateVisibleTileAndNotify(visibleX, visibleY);
+			}
+		}
+		for (int visibleX = 0; visibleX < nbVisibleTilesX; visibleX++) {
+			if (minX <= visibleX && visibleX < maxX) {
+				continue;
+			}
+			for (int visibleY = minY; visibleY < maxY; visibleY++) {
+				updateVisibleTileAndNotify(visibleX, visibleY);
+			}
 		}
 	}
 
@@ -251,6 +315,12 @@ public abstract class ViewModel implements IViewModel {
 
 	protected abstract void updateVisibleTileZAt(int visibleX, int visibleY, int visibleZ);
 
+	/**
+	 * Shift the stored z-coordinates of the visible tiles, so that the one of
+	 * (visibleX + dx, visibleY + dy) becomes the one of (visibleX, visibleY).
+	 */
+	protected abstract void shiftVisibleTileZs(int dx, int dy);
+
 	private Set<AbstractSprite<?, ?>> visibleSprites = new HashSet<>();
 
 	protected void refreshSprites() {
@@ -314,6 +384,13 @@ public abstract class ViewModel implements IViewModel {
 		visibleTileRefreshListeners.add(listener);
 	}
 
+	private final Set<VisibleTilesShiftListener> visibleTilesShiftListeners = new HashSet<>();
+
+	@Override
+	public void addVisibleTilesShiftListener(VisibleTilesShiftListener listener) {
+		visibleTilesShiftListeners.add(listener);
+	}
+
 
 	private final Set<NewSpriteListener> spriteListeners = new HashSet<>();
 
@@ -1,5 +1,7 @@
 package hillbillies.common.internal.ui.viewparts;
 
+import java.util.BitSet;
+
 import hillbillies.common.internal.Constants;
 import hillbillies.common.internal.map.IByteMap3D;
 import hillbillies.common.internal.ui.viewmodel.IViewModel;
@@ -49,7 +51,7 @@ public class MiniMap<T> {
 		root.getChildren().add(viewport);
 
 		viewModel.currentZLevelProperty().addListener(c -> updateImage());
-		map.addListener((x, y, z, oldValue, newValue) -> updateImageAt(x, y, z, getTypeFor(newValue)));
+		map.addBulkListener(this::updateImageAt);
 		updateImage();
 	}
 
@@ -104,6 +106,22 @@ public class MiniMap<T> {
 		gc.fillRect(x * mmPixelsPerTile, y * mmPixelsPerTile, Math.ceil(mmPixelsPerTile), Math.ceil(mmPixelsPerTile));
 	}
 
+	/**
+	 * Redraw the tiles of the current z level among the given changed map indices.
+	 */
+	protected void updateImageAt(BitSet indices) {
+		int nbX = map.getNbX();
+		int nbXY = nbX * map.getNbY();
+		int z = viewModel.currentZLevelProperty().get();
+
+		int index = indices.nextSetBit(z * nbXY);
+		while (index >= 0 && index < (z + 1) * nbXY) {
+			int x = index % nbX, y = (index % nbXY) / nbX;
+			updateImageAt(x, y, z, getTypeFor(map.getValue(x, y, z)));
+			index = indices.nextSetBit(index + 1);
+		}
+	}
+
 	protected void updateImage() {
 		int nbX = map.getNbX();
 		int nbY = map.getNbY();
@@ -92,6 +92,7 @@ public class WorldView {
 
 	protected void setupViewModel() {
 		viewModel.addVisibleTileRefreshListener(this::refreshVisibleTile);
+		viewModel.addVisibleTilesShiftListener(this::shiftVisibleTiles);
 		viewModel.addNewSpriteListener(this::attachNewSprite);
 
 		for (int visibleX = 0; visibleX < viewModel.getNbVisibleTilesX(); visibleX++) {
@@ -109,6 +110,10 @@ public class WorldView {
 
 	}
 
+	protected void shiftVisibleTiles(int dx, int dy) {
+
+	}
+
 	protected int getMaxDepth() {
 		int maxDepth = optionShowUnderlying + 1;
 		if (optionShowUnderlying < 0) {
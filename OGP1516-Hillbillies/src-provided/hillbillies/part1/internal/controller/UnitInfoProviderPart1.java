@@ -10,18 +10,16 @@ import hillbillies.part1.facade.IFacade;
 import ogp.framework.util.ModelException;
 
 public class UnitInfoProviderPart1 implements UnitInfoProvider {
-	private final IFacade facade;
 	private final Consumer<ModelException> errorHandler;
 	private final IGameController1<?> game;
 
 	public UnitInfoProviderPart1(IGameController1<?> game, Consumer<ModelException> errorHandler) {
 		this.game = game;
-		this.facade = game.getFacade();
 		this.errorHandler = errorHandler;
 	}
 
 	protected IFacade getFacade() {
-		return facade;
+		return game.getFacade();
 	}
 
 	protected IGameController1<?> getGame() {
@@ -169,7 +167,7 @@ public class UnitInfoProviderPart1 implements UnitInfoProvider {
 	@Override
 	public int getOrientationInDegrees(Unit unit) {
 		try {
-			double orientationInRadians = facade.getOrientation(unit);
+			double orientationInRadians = getFacade().getOrientation(unit);
 			return (int) ((180.0 * orientationInRadians / Math.PI) + 360) % 360;
 		} catch (ModelException e) {
 			handleError(e);
@@ -54,4 +54,8 @@ public class EmptyMap implements IByteMap3D {
 	public void addListener(Listener listener) {
 	}
 
+	@Override
+	public void addBulkListener(BulkListener listener) {
+	}
+
 }
@@ -52,4 +52,9 @@ public class ViewModelPart1 extends ViewModel implements IViewModel1 {
 		// TODO: ignore
 	}
 
+	@Override
+	protected void shiftVisibleTileZs(int dx, int dy) {
+		// nothing stored
+	}
+
 }
@@ -435,4 +435,26 @@ public interface IFacade extends hillbillies.part1.facade.IFacade {
 	 */
 	public Set<Log> getLogs(World world) throws ModelException;
 
+	/* QUERIES */
+
+	/**
+	 * Return all living units, boulders and logs of the given world whose
+	 * position lies in the given box.
+	 * 
+	 * @param world
+	 *            The world from which to retrieve the objects.
+	 * @param min
+	 *            The lower corner of the box, as an array with 3 doubles {x,
+	 *            y, z}. Positions on this corner are part of the box.
+	 * @param max
+	 *            The upper corner of the box, as an array with 3 doubles {x,
+	 *            y, z}. Positions on this corner are not part of the box.
+	 * @return A set containing all objects in the box. The set may be reused
+	 *         by the next call to this method, so callers that want to keep
+	 *         the objects must copy them.
+	 * @throws ModelException
+	 *             A precondition was violated or an exception was thrown.
+	 */
+	public Set<?> getObjectsInBox(World world, double[] min, double[] max) throws ModelException;
+
 }
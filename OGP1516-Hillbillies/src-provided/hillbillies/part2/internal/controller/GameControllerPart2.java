@@ -1,5 +1,7 @@
 package hillbillies.part2.internal.controller;
 
+import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -7,45 +9,87 @@ import java.util.Iterator;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
-import java.util.stream.Collectors;
 
 import hillbillies.common.internal.controller.GameController;
 import hillbillies.common.internal.inputmodes.InputMode;
 import hillbillies.common.internal.selection.Selection;
-import hillbillies.model.Boulder;
 import hillbillies.model.Faction;
-import hillbillies.model.Log;
 import hillbillies.model.Unit;
 import hillbillies.model.World;
+import hillbillies.model.WorldSnapshot;
 import hillbillies.part2.facade.IFacade;
 import hillbillies.part2.internal.Constants;
 import hillbillies.part2.internal.Part2Options;
 import hillbillies.part2.internal.map.CubeType;
 import hillbillies.part2.internal.map.GameMap;
 import hillbillies.part2.internal.providers.IGameObjectInfoProvider;
+import hillbillies.part2.internal.providers.TerrainBatchListener;
 import hillbillies.part2.internal.providers.WorldInfoProvider2;
 import hillbillies.part2.internal.ui.IHillbilliesView2;
 import hillbillies.part2.internal.ui.ViewProviders2;
 import hillbillies.part2.listener.TerrainChangeListener;
+import ogp.framework.game.IFixedStepGameController;
 import ogp.framework.util.ModelException;
 
-public class GameControllerPart2 extends GameController<IHillbilliesView2> implements IGameController2 {
+public class GameControllerPart2 extends GameController<IHillbilliesView2>
+		implements IGameController2, IFixedStepGameController<IHillbilliesView2> {
 
 	private World world;
 
 	private final GameMap map;
 
 	private final Set<TerrainChangeListener> listeners = new HashSet<>();
+	private final Set<TerrainBatchListener> batchListeners = new HashSet<>();
+
+	/*
+	 * The cubes (x + y * nbX + z * nbX * nbY) that changed since the previous frame.
+	 * They are delivered to the listeners in bulk, once per frame, however many ticks
+	 * and changes there were in between.
+	 */
+	private final BitSet changedCubes = new BitSet();
+
 	private TerrainChangeListener modelListener = new TerrainChangeListener() {
 
 		@Override
 		public void notifyTerrainChanged(int x, int y, int z) {
-			for (TerrainChangeListener listener : new HashSet<>(listeners)) {
-				listener.notifyTerrainChanged(x, y, z);
+			if (renderedSnapshot != null) {
+				// the changes reach the views through the snapshots of the world
+				return;
 			}
+			changedCubes.set(x + y * map.getNbTilesX() + z * map.getNbTilesX() * map.getNbTilesY());
 		}
 	};
 
+	private void fireTerrainChanged() {
+		if (changedCubes.isEmpty()) {
+			return;
+		}
+		for (TerrainBatchListener listener : new ArrayList<>(batchListeners)) {
+			listener.notifyTerrainChanged(changedCubes);
+		}
+		if (!listeners.isEmpty()) {
+			int nbX = map.getNbTilesX(), nbXY = nbX * map.getNbTilesY();
+			TerrainChangeListener[] copy = listeners.toArray(new TerrainChangeListener[listeners.size()]);
+			for (int cube = changedCubes.nextSetBit(0); cube >= 0; cube = changedCubes.nextSetBit(cube + 1)) {
+				for (TerrainChangeListener listener : copy) {
+					listener.notifyTerrainChanged(cube % nbX, (cube % nbXY) / nbX, cube / nbXY);
+				}
+			}
+		}
+		changedCubes.clear();
+	}
+
+	/*
+	 * When the world is advanced on a simulation thread, the JavaFX thread renders the
+	 * snapshot of the world that was the latest when the current frame started,
+	 * interpolated between its tick and the one before. The terrain is read from a copy
+	 * that is brought up to date with every snapshot.
+	 */
+	private volatile WorldSnapshot renderedSnapshot;
+	private double interpolation = 1;
+	private byte[] renderedTypes;
+	private BitSet renderedAnchored;
+
 	public GameControllerPart2(IFacade facade, Part2Options options, GameMap map) throws ModelException {
 		super(facade, options);
 		this.map = map;
@@ -103,6 +147,16 @@ public class GameControllerPart2 extends GameController<IHillbilliesView2> imple
 			listeners.remove(listener);
 		}
 
+		@Override
+		public void addTerrainBatchListener(TerrainBatchListener listener) {
+			batchListeners.add(listener);
+		}
+
+		@Override
+		public void removeTerrainBatchListener(TerrainBatchListener listener) {
+			batchListeners.remove(listener);
+		}
+
 		@Override
 		public int getNbZTiles() {
 			try {
@@ -135,6 +189,13 @@ public class GameControllerPart2 extends GameController<IHillbilliesView2> imple
 
 		@Override
 		public CubeType getCubeTypeAt(int x, int y, int z) {
+			WorldSnapshot snapshot = renderedSnapshot;
+			if (snapshot != null) {
+				if (x < 0 || y < 0 || z < 0 || x >= snapshot.getNbX() || y >= snapshot.getNbY() || z >= snapshot.getNbZ()) {
+					return CubeType.EMPTY;
+				}
+				return CubeType.fromByte(renderedTypes[x + y * snapshot.getNbX() + z * snapshot.getNbX() * snapshot.getNbY()]);
+			}
 			try {
 				CubeType result = CubeType.fromByte((byte) getFacade().getCubeType(world, x, y, z));
 				return result;
@@ -145,6 +206,13 @@ public class GameControllerPart2 extends GameController<IHillbilliesView2> imple
 
 		@Override
 		public boolean isAnchored(int x, int y, int z) {
+			WorldSnapshot snapshot = renderedSnapshot;
+			if (snapshot != null) {
+				if (x < 0 || y < 0 || z < 0 || x >= snapshot.getNbX() || y >= snapshot.getNbY() || z >= snapshot.getNbZ()) {
+					return false;
+				}
+				return renderedAnchored.get(x + y * snapshot.getNbX() + z * snapshot.getNbX() * snapshot.getNbY());
+			}
 			try {
 				return getFacade().isSolidConnectedToBorder(world, x, y, z);
 			} catch (ModelException e) {
@@ -153,53 +221,33 @@ public class GameControllerPart2 extends GameController<IHillbilliesView2> imple
 			return false;
 		};
 
+		private final double[] boxMin = new double[3];
+		private final double[] boxMax = new double[3];
+
 		@Override
 		public Set<?> getObjectsInBox(double minX, double minY, double minZ, double maxX, double maxY, double maxZ) {
-			Set<Object> result = new HashSet<>();
-			result.addAll(getObjectsOfTypeInBox(Unit.class, minX, minY, minZ, maxX, maxY, maxZ, getFacade()::getUnits,
-					getFacade()::isAlive, getFacade()::getPosition));
-			result.addAll(getObjectsOfTypeInBox(Boulder.class, minX, minY, minZ, maxX, maxY, maxZ,
-					getFacade()::getBoulders, b -> true, getFacade()::getPosition));
-			result.addAll(getObjectsOfTypeInBox(Log.class, minX, minY, minZ, maxX, maxY, maxZ, getFacade()::getLogs,
-					l -> true, getFacade()::getPosition));
-			return result;
-		}
-
-	};
-
-	@FunctionalInterface
-	private static interface MEFunction<T, R> {
-		public R apply(T obj) throws ModelException;
-	}
-
-	protected <T> Set<T> getObjectsOfTypeInBox(Class<T> type, double minX, double minY, double minZ, double maxX,
-			double maxY, double maxZ, MEFunction<World, Set<T>> objects, MEFunction<T, Boolean> isAlive,
-			MEFunction<T, double[]> position) {
-		try {
-			Set<T> objs = objects.apply(world);
-			if (objs != null) {
-				final double[] min = new double[] { minX, minY, minZ };
-				final double[] max = new double[] { maxX, maxY, maxZ };
-				return objs.stream().filter(o -> {
-					try {
-						return isAlive.apply(o) && liesInBox(position.apply(o), min, max);
-					} catch (ModelException e) {
-						handleError(e);
-						return false;
-					}
-				}).collect(Collectors.toSet());
+			WorldSnapshot snapshot = renderedSnapshot;
+			if (snapshot != null) {
+				return snapshot.collectInBox(minX, minY, minZ, maxX, maxY, maxZ, new HashSet<>());
 			}
-		} catch (ModelException e) {
-			handleError(e);
+			boxMin[0] = minX;
+			boxMin[1] = minY;
+			boxMin[2] = minZ;
+			boxMax[0] = maxX;
+			boxMax[1] = maxY;
+			boxMax[2] = maxZ;
+			try {
+				Set<?> result = getFacade().getObjectsInBox(world, boxMin, boxMax);
+				if (result != null) {
+					return result;
+				}
+			} catch (ModelException e) {
+				handleError(e);
+			}
+			return Collections.emptySet();
 		}
-		return Collections.emptySet();
-	}
-
-	protected static boolean liesInBox(double[] position, double[] low, double[] high) {
-		return position != null && low[0] <= position[0] && position[0] < high[0] && low[1] <= position[1]
-				&& position[1] < high[1] && low[2] <= position[2] && position[2] < high[2];
 
-	}
+	};
 
 	@Override
 	protected InputMode createDefaultInputMode() {
@@ -221,6 +269,63 @@ public class GameControllerPart2 extends GameController<IHillbilliesView2> imple
 		}
 	}
 
+	@Override
+	public void useSimulationThread() {
+		serializeFacadeCalls();
+		WorldSnapshot snapshot;
+		synchronized (getFacadeLock()) {
+			world.publishSnapshot();
+			snapshot = world.getSnapshot();
+		}
+		// the first snapshot lists all cubes, which the views already show
+		renderedTypes = new byte[snapshot.getNbX() * snapshot.getNbY() * snapshot.getNbZ()];
+		renderedAnchored = new BitSet(renderedTypes.length);
+		applyTerrainChanges(snapshot, false);
+		renderedSnapshot = snapshot;
+	}
+
+	@Override
+	public void publishTick() {
+		synchronized (getFacadeLock()) {
+			world.publishSnapshot();
+		}
+	}
+
+	@Override
+	public void prepareFrame(double alpha) {
+		WorldSnapshot snapshot = renderedSnapshot;
+		if (snapshot != null) {
+			for (WorldSnapshot next = snapshot.getNext(); next != null; next = next.getNext()) {
+				applyTerrainChanges(next, true);
+				snapshot = next;
+			}
+			renderedSnapshot = snapshot;
+			interpolation = alpha;
+		}
+		fireTerrainChanged();
+	}
+
+	private void applyTerrainChanges(WorldSnapshot snapshot, boolean notify) {
+		for (int i = 0; i < snapshot.getNbChangedCubes(); i++) {
+			int cube = snapshot.getChangedCube(i);
+			renderedTypes[cube] = (byte) snapshot.getChangedType(i);
+			renderedAnchored.set(cube, snapshot.isChangedAnchored(i));
+			if (notify) {
+				changedCubes.set(cube);
+			}
+		}
+	}
+
+	@Override
+	public WorldSnapshot getRenderedSnapshot() {
+		return renderedSnapshot;
+	}
+
+	@Override
+	public double getInterpolation() {
+		return interpolation;
+	}
+
 	@Override
 	public WorldInfoProvider2 getWorldInfoProvider() {
 		return wip;
@@ -1,11 +1,15 @@
 package hillbillies.part2.internal.controller;
 
+import java.util.Optional;
 import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.function.ToIntFunction;
 
 import hillbillies.model.Boulder;
 import hillbillies.model.Faction;
 import hillbillies.model.Log;
 import hillbillies.model.Unit;
+import hillbillies.model.WorldSnapshot;
 import hillbillies.part1.internal.controller.UnitInfoProviderPart1;
 import hillbillies.part2.facade.IFacade;
 import hillbillies.part2.internal.providers.IGameObjectInfoProvider;
@@ -27,8 +31,155 @@ public class GameObjectInfoProvider extends UnitInfoProviderPart1 implements IGa
 		return (IFacade) super.getFacade();
 	}
 
+	/*
+	 * The information below is read from the snapshot of the world that is being rendered,
+	 * if the world is advanced on a simulation thread, and from the facade otherwise, or
+	 * for units that are not part of the snapshot.
+	 */
+
+	private WorldSnapshot getSnapshot() {
+		return getGame().getRenderedSnapshot();
+	}
+
+	private int indexOf(WorldSnapshot snapshot, Unit unit) {
+		return (snapshot == null) ? -1 : snapshot.indexOf(unit);
+	}
+
+	@Override
+	public Optional<double[]> getPosition(Unit unit) {
+		WorldSnapshot snapshot = getSnapshot();
+		int index = indexOf(snapshot, unit);
+		if (index >= 0) {
+			return Optional.of(snapshot.getPosition(index, getGame().getInterpolation()));
+		}
+		return super.getPosition(unit);
+	}
+
+	@Override
+	public int getOrientationInDegrees(Unit unit) {
+		WorldSnapshot snapshot = getSnapshot();
+		int index = indexOf(snapshot, unit);
+		if (index >= 0) {
+			return (int) ((180.0 * snapshot.getOrientation(index) / Math.PI) + 360) % 360;
+		}
+		return super.getOrientationInDegrees(unit);
+	}
+
+	@Override
+	public boolean isAttacking(Unit unit) {
+		return hasFlags(unit, WorldSnapshot.ATTACKING, super::isAttacking);
+	}
+
+	@Override
+	public boolean isWorking(Unit unit) {
+		return hasFlags(unit, WorldSnapshot.WORKING, super::isWorking);
+	}
+
+	@Override
+	public boolean isWalking(Unit unit) {
+		return hasFlags(unit, WorldSnapshot.MOVING, super::isWalking);
+	}
+
+	@Override
+	public boolean isResting(Unit unit) {
+		return hasFlags(unit, WorldSnapshot.RESTING, super::isResting);
+	}
+
+	@Override
+	public boolean isSprinting(Unit unit) {
+		return hasFlags(unit, WorldSnapshot.SPRINTING, super::isSprinting);
+	}
+
+	@Override
+	public boolean isDefaultBehaviorEnabled(Unit unit) {
+		return hasFlags(unit, WorldSnapshot.DEFAULT_BEHAVIOR, super::isDefaultBehaviorEnabled);
+	}
+
+	private boolean hasFlags(Unit unit, int flags, Predicate<Unit> fallback) {
+		WorldSnapshot snapshot = getSnapshot();
+		int index = indexOf(snapshot, unit);
+		if (index >= 0) {
+			return snapshot.hasFlags(index, flags);
+		}
+		return fallback.test(unit);
+	}
+
+	@Override
+	public String getName(Unit unit) {
+		WorldSnapshot snapshot = getSnapshot();
+		int index = indexOf(snapshot, unit);
+		return (index >= 0) ? snapshot.getName(index) : super.getName(unit);
+	}
+
+	@Override
+	public double getSpeed(Unit unit) {
+		WorldSnapshot snapshot = getSnapshot();
+		int index = indexOf(snapshot, unit);
+		return (index >= 0) ? snapshot.getSpeed(index) : super.getSpeed(unit);
+	}
+
+	@Override
+	public int getHitpoints(Unit unit) {
+		return getStat(unit, WorldSnapshot::getHitpoints, super::getHitpoints);
+	}
+
+	@Override
+	public int getMaxHitpoints(Unit unit) {
+		return getStat(unit, WorldSnapshot::getMaxHitpoints, super::getMaxHitpoints);
+	}
+
+	@Override
+	public int getStaminapoints(Unit unit) {
+		return getStat(unit, WorldSnapshot::getStamina, super::getStaminapoints);
+	}
+
+	@Override
+	public int getMaxStaminapoints(Unit unit) {
+		// the facade reports the maximum number of hitpoints as well
+		return getStat(unit, WorldSnapshot::getMaxHitpoints, super::getMaxStaminapoints);
+	}
+
+	@Override
+	public int getAgility(Unit unit) {
+		return getStat(unit, WorldSnapshot::getAgility, super::getAgility);
+	}
+
+	@Override
+	public int getStrength(Unit unit) {
+		return getStat(unit, WorldSnapshot::getStrength, super::getStrength);
+	}
+
+	@Override
+	public int getToughness(Unit unit) {
+		return getStat(unit, WorldSnapshot::getToughness, super::getToughness);
+	}
+
+	@Override
+	public int getWeight(Unit unit) {
+		return getStat(unit, WorldSnapshot::getWeight, super::getWeight);
+	}
+
+	private int getStat(Unit unit, ObjIntFunction stat, ToIntFunction<Unit> fallback) {
+		WorldSnapshot snapshot = getSnapshot();
+		int index = indexOf(snapshot, unit);
+		if (index >= 0) {
+			return stat.apply(snapshot, index);
+		}
+		return fallback.applyAsInt(unit);
+	}
+
+	@FunctionalInterface
+	private interface ObjIntFunction {
+		int apply(WorldSnapshot snapshot, int index);
+	}
+
 	@Override
 	public int getExperiencePoints(Unit unit) {
+		WorldSnapshot snapshot = getSnapshot();
+		int index = indexOf(snapshot, unit);
+		if (index >= 0) {
+			return snapshot.getExperience(index);
+		}
 		try {
 			return getFacade().getExperiencePoints(unit);
 		} catch (ModelException e) {
@@ -39,6 +190,11 @@ public class GameObjectInfoProvider extends UnitInfoProviderPart1 implements IGa
 
 	@Override
 	public boolean isCarryingLog(Unit unit) {
+		WorldSnapshot snapshot = getSnapshot();
+		int index = indexOf(snapshot, unit);
+		if (index >= 0) {
+			return snapshot.hasFlags(index, WorldSnapshot.CARRYING_LOG);
+		}
 		try {
 			return getFacade().isCarryingLog(unit);
 		} catch (ModelException e) {
@@ -49,6 +205,11 @@ public class GameObjectInfoProvider extends UnitInfoProviderPart1 implements IGa
 
 	@Override
 	public boolean isCarryingBoulder(Unit unit) {
+		WorldSnapshot snapshot = getSnapshot();
+		int index = indexOf(snapshot, unit);
+		if (index >= 0) {
+			return snapshot.hasFlags(index, WorldSnapshot.CARRYING_BOULDER);
+		}
 		try {
 			return getFacade().isCarryingBoulder(unit);
 		} catch (ModelException e) {
@@ -59,6 +220,11 @@ public class GameObjectInfoProvider extends UnitInfoProviderPart1 implements IGa
 
 	@Override
 	public Faction getFaction(Unit unit) {
+		WorldSnapshot snapshot = getSnapshot();
+		int index = indexOf(snapshot, unit);
+		if (index >= 0) {
+			return snapshot.getFaction(index);
+		}
 		try {
 			return getFacade().getFaction(unit);
 		} catch (ModelException e) {
@@ -79,6 +245,11 @@ public class GameObjectInfoProvider extends UnitInfoProviderPart1 implements IGa
 
 	@Override
 	public double[] getPosition(Boulder object) {
+		WorldSnapshot snapshot = getSnapshot();
+		double[] position = (snapshot == null) ? null : snapshot.getPosition(object);
+		if (position != null) {
+			return position;
+		}
 		try {
 			return getFacade().getPosition(object);
 		} catch (ModelException e) {
@@ -89,6 +260,11 @@ public class GameObjectInfoProvider extends UnitInfoProviderPart1 implements IGa
 
 	@Override
 	public double[] getPosition(Log object) {
+		WorldSnapshot snapshot = getSnapshot();
+		double[] position = (snapshot == null) ? null : snapshot.getPosition(object);
+		if (position != null) {
+			return position;
+		}
 		try {
 			return getFacade().getPosition(object);
 		} catch (ModelException e) {
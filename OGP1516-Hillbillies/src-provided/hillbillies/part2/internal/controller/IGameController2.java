@@ -3,6 +3,7 @@ package hillbillies.part2.internal.controller;
 import hillbillies.model.Faction;
 import hillbillies.model.Unit;
 import hillbillies.model.World;
+import hillbillies.model.WorldSnapshot;
 import hillbillies.part1.internal.controller.IGameController1;
 import hillbillies.part2.facade.IFacade;
 import hillbillies.part2.internal.Part2Options;
@@ -22,6 +23,18 @@ public interface IGameController2 extends IGameController1<IHillbilliesView2> {
 	void spawnUnits(int n);
 
 	boolean isPlayerUnit(Unit u);
+
+	/**
+	 * Return the snapshot of the world that is being rendered, or null if the game
+	 * does not run on a simulation thread.
+	 */
+	WorldSnapshot getRenderedSnapshot();
+
+	/**
+	 * Return how far the units are rendered between the tick before the rendered
+	 * snapshot, at 0, and the tick of the snapshot itself, at 1.
+	 */
+	double getInterpolation();
 	
 	@Override
 	Part2Options getOptions();
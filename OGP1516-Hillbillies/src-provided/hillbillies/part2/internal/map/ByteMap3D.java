@@ -1,5 +1,6 @@
 package hillbillies.part2.internal.map;
 
+import java.util.BitSet;
 import java.util.HashSet;
 import java.util.Set;
 
@@ -64,6 +65,8 @@ public class ByteMap3D implements IByteMap3D {
 		if (oldValue != value) {
 			tileTypes[index] = value;
 			fireChange(x, y, z, oldValue, value);
+			changed.set(index);
+			fireChanges();
 		}
 	}
 	
@@ -73,7 +76,20 @@ public class ByteMap3D implements IByteMap3D {
 		}
 	}
 
+	private void fireChanges() {
+		if (!changed.isEmpty()) {
+			for (BulkListener listener : bulkListeners) {
+				listener.onChanges(changed);
+			}
+			changed.clear();
+		}
+	}
+
 	private final Set<Listener> listeners = new HashSet<>();
+	private final Set<BulkListener> bulkListeners = new HashSet<>();
+
+	/** Indices of the cells changed by the bulk change in progress */
+	private final BitSet changed = new BitSet();
 
 	@Override
 	public void addListener(Listener listener) {
@@ -84,6 +100,15 @@ public class ByteMap3D implements IByteMap3D {
 		listeners.remove(listener);
 	}
 
+	@Override
+	public void addBulkListener(BulkListener listener) {
+		bulkListeners.add(listener);
+	}
+
+	public void removeBulkListener(BulkListener listener) {
+		bulkListeners.remove(listener);
+	}
+
 	@Override
 	public void fill(ValueProvider provider) {
 		for (int z = 0; z < nbZ; z++) {
@@ -91,16 +116,31 @@ public class ByteMap3D implements IByteMap3D {
 			for (int y = 0; y < nbY; y++) {
 				int offsetY = offsetZ + y * nbX;
 				for (int x = 0; x < nbX; x++) {
-					int index = offsetY + x;
-					byte oldValue = tileTypes[index];
-					byte value = provider.getValue(x, y, z);
-					if (oldValue != value) {
-						tileTypes[index] = value;
-						fireChange(x, y, z, oldValue, value);
-					}
+					setValueInBulk(offsetY + x, x, y, z, provider.getValue(x, y, z));
 				}
 			}
 		}
+		fireChanges();
+	}
+
+	@Override
+	public void setValues(BitSet indices, ValueProvider provider) {
+		for (int index = indices.nextSetBit(0); index >= 0; index = indices.nextSetBit(index + 1)) {
+			if (index >= tileTypes.length)
+				throw new AssertionError("Invalid index: " + index);
+			int x = index % nbX, y = (index % nbXY) / nbX, z = index / nbXY;
+			setValueInBulk(index, x, y, z, provider.getValue(x, y, z));
+		}
+		fireChanges();
+	}
+
+	private void setValueInBulk(int index, int x, int y, int z, byte value) {
+		byte oldValue = tileTypes[index];
+		if (oldValue != value) {
+			tileTypes[index] = value;
+			changed.set(index);
+			fireChange(x, y, z, oldValue, value);
+		}
 	}
 
 	@Override
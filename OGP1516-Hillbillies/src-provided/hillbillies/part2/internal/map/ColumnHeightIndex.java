@@ -0,0 +1,85 @@
+package hillbillies.part2.internal.map;
+
+import java.util.BitSet;
+
+import hillbillies.common.internal.map.IByteMap3D;
+
+/**
+ * For every (x, y) column of a map, the z-coordinates of its solid cells as a bitset,
+ * to find the highest solid cell at or below a given z without scanning the column.
+ * Cells with the empty value or with a negative (unset) value are not solid.
+ * 
+ * For internal GUI use only.
+ */
+public class ColumnHeightIndex {
+
+	private final IByteMap3D map;
+	private final byte emptyValue;
+
+	private final int nbWordsPerColumn;
+	/** word w of column (x, y) at (x + y * nbX) * nbWordsPerColumn + w */
+	private final long[] solidZs;
+
+	public ColumnHeightIndex(IByteMap3D map, byte emptyValue) {
+		this.map = map;
+		this.emptyValue = emptyValue;
+		this.nbWordsPerColumn = (map.getNbZ() + 63) >> 6;
+		this.solidZs = new long[map.getNbX() * map.getNbY() * nbWordsPerColumn];
+		for (int z = 0; z < map.getNbZ(); z++) {
+			for (int y = 0; y < map.getNbY(); y++) {
+				for (int x = 0; x < map.getNbX(); x++) {
+					update(x, y, z);
+				}
+			}
+		}
+	}
+
+	private boolean isSolid(byte value) {
+		return value >= 0 && value != emptyValue;
+	}
+
+	/**
+	 * Update the index with the value of the map at the given cell.
+	 */
+	public void update(int x, int y, int z) {
+		int word = (x + y * map.getNbX()) * nbWordsPerColumn + (z >> 6);
+		if (isSolid(map.getValue(x, y, z))) {
+			solidZs[word] |= 1L << z;
+		} else {
+			solidZs[word] &= ~(1L << z);
+		}
+	}
+
+	/**
+	 * Update the index with the values of the map at the given indices
+	 * x + y * nbX + z * nbX * nbY.
+	 */
+	public void update(BitSet indices) {
+		int nbX = map.getNbX(), nbXY = nbX * map.getNbY();
+		for (int index = indices.nextSetBit(0); index >= 0; index = indices.nextSetBit(index + 1)) {
+			update(index % nbX, (index % nbXY) / nbX, index / nbXY);
+		}
+	}
+
+	/**
+	 * Return the highest z-coordinate at or below the given one of a solid cell in
+	 * column (x, y), or -1 if there is none.
+	 */
+	public int getHighestSolidZ(int x, int y, int z) {
+		if (x < 0 || x >= map.getNbX() || y < 0 || y >= map.getNbY() || z < 0) {
+			return -1;
+		}
+		z = Math.min(z, map.getNbZ() - 1);
+		int column = (x + y * map.getNbX()) * nbWordsPerColumn;
+		int word = z >> 6;
+		long bits = solidZs[column + word] & (-1L >>> (63 - (z & 63)));
+		while (bits == 0) {
+			if (--word < 0) {
+				return -1;
+			}
+			bits = solidZs[column + word];
+		}
+		return (word << 6) + 63 - Long.numberOfLeadingZeros(bits);
+	}
+
+}
@@ -10,7 +10,9 @@ public enum CubeType {
 		return (byte) this.ordinal();
 	}
 
+	private static final CubeType[] VALUES = values();
+
 	public static CubeType fromByte(byte value) {
-		return values()[value];
+		return VALUES[value];
 	}
 }
@@ -0,0 +1,17 @@
+package hillbillies.part2.internal.providers;
+
+import java.util.BitSet;
+
+/**
+ * Listener that is notified of the terrain changes of a world once per frame, in bulk.
+ */
+@FunctionalInterface
+public interface TerrainBatchListener {
+
+	/**
+	 * Called with the indices x + y * nbX + z * nbX * nbY of all cubes that changed
+	 * since the previous call. The given set must not be modified or kept after the call.
+	 */
+	public void notifyTerrainChanged(BitSet cubes);
+
+}
@@ -10,5 +10,8 @@ public interface WorldInfoProvider2 extends WorldInfoProvider {
 	public void addTerrainChangeListener(TerrainChangeListener listener);
 	public void removeTerrainChangeListener(TerrainChangeListener listener);
 
+	public void addTerrainBatchListener(TerrainBatchListener listener);
+	public void removeTerrainBatchListener(TerrainBatchListener listener);
+
 	public boolean isAnchored(int x, int y, int z);
 }
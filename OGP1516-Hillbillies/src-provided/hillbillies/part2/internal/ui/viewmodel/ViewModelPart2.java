@@ -1,7 +1,10 @@
 package hillbillies.part2.internal.ui.viewmodel;
 
+import java.util.BitSet;
 import java.util.Collection;
+import java.util.HashSet;
 import java.util.Optional;
+import java.util.Set;
 
 import hillbillies.common.internal.map.IByteMap3D;
 import hillbillies.common.internal.ui.sprites.SpriteFactory;
@@ -10,6 +13,7 @@ import hillbillies.model.Boulder;
 import hillbillies.model.Log;
 import hillbillies.model.Unit;
 import hillbillies.part2.internal.map.ByteMap3D;
+import hillbillies.part2.internal.map.ColumnHeightIndex;
 import hillbillies.part2.internal.map.CubeType;
 import hillbillies.part2.internal.providers.IGameObjectInfoProvider;
 import hillbillies.part2.internal.providers.WorldInfoProvider2;
@@ -24,9 +28,13 @@ public class ViewModelPart2 extends ViewModel implements IViewModel2 {
 	private final Matrix<Integer> depthValues;
 	private final Matrix<Boolean> anchored;
 
+	/** Highest solid cube at or below every z, per column of the map cache */
+	private final ColumnHeightIndex heights;
+
 	public ViewModelPart2(WorldInfoProvider2 wip, IGameObjectInfoProvider uip, Rectangle2D initialView, int tileSize) {
 		super(wip, uip, initialView, tileSize);
-		getWorldInfoProvider().addTerrainChangeListener(this::updateMapCacheAt);
+		this.heights = new ColumnHeightIndex(getMap(), CubeType.EMPTY.getByteValue());
+		getWorldInfoProvider().addTerrainBatchListener(this::updateMapCache);
 		this.depthValues = new Matrix<>(getNbVisibleTilesX(), getNbVisibleTilesY(), 0);
 		this.anchored = new Matrix<>(getNbVisibleTilesX(), getNbVisibleTilesY(), false);
 	}
@@ -73,6 +81,54 @@ public class ViewModelPart2 extends ViewModel implements IViewModel2 {
 				visibleTileToWorldPointY(visibleY + 1), (getCurrentZLevel() + 1) * getMeterPerTile());
 	}
 
+	/**
+	 * Collect the visible objects of all tiles in a single pass: one box query covers
+	 * the whole view, after which every object is put on the tile it lies on and
+	 * checked against the depth range of that tile.
+	 */
+	@Override
+	public Set<Object> getVisibleObjects() {
+		int nbVisibleTilesX = getNbVisibleTilesX();
+		int nbVisibleTilesY = getNbVisibleTilesY();
+		int maxDepth = 0;
+		for (int visibleX = 0; visibleX < nbVisibleTilesX; visibleX++) {
+			for (int visibleY = 0; visibleY < nbVisibleTilesY; visibleY++) {
+				maxDepth = Math.max(maxDepth, getDepthValueAt(visibleX, visibleY));
+			}
+		}
+
+		Set<?> candidates = getWorldInfoProvider().getObjectsInBox(visibleTileToWorldPointX(0),
+				visibleTileToWorldPointY(0), (getCurrentZLevel() - maxDepth) * getMeterPerTile(),
+				visibleTileToWorldPointX(nbVisibleTilesX), visibleTileToWorldPointY(nbVisibleTilesY),
+				(getCurrentZLevel() + 1) * getMeterPerTile());
+
+		Set<Object> result = new HashSet<>();
+		for (Object object : candidates) {
+			double[] position = getPositionOf(object);
+			if (position == null) {
+				continue;
+			}
+			int visibleX = worldTileToVisibleTileX(worldPointToWorldCube(position[0]));
+			int visibleY = worldTileToVisibleTileY(worldPointToWorldCube(position[1]));
+			if (0 <= visibleX && visibleX < nbVisibleTilesX && 0 <= visibleY && visibleY < nbVisibleTilesY
+					&& visibleTileToWorldTileZ(visibleX, visibleY) * getMeterPerTile() <= position[2]) {
+				result.add(object);
+			}
+		}
+		return result;
+	}
+
+	private double[] getPositionOf(Object object) {
+		if (object instanceof Unit) {
+			return getUnitInfoProvider().getPosition((Unit) object).orElse(null);
+		} else if (object instanceof Boulder) {
+			return getUnitInfoProvider().getPosition((Boulder) object);
+		} else if (object instanceof Log) {
+			return getUnitInfoProvider().getPosition((Log) object);
+		}
+		return null;
+	}
+
 	public int visibleTileToWorldTileZ(int visibleX, int visibleY) {
 		return getCurrentZLevel() - getDepthValueAt(visibleX, visibleY);
 	}
@@ -82,6 +138,11 @@ public class ViewModelPart2 extends ViewModel implements IViewModel2 {
 		setDepthValueAt(visibleX, visibleY, getCurrentZLevel() - visibleZ);
 	}
 
+	@Override
+	protected void shiftVisibleTileZs(int dx, int dy) {
+		depthValues.shift(dx, dy);
+	}
+
 	@Override
 	protected IByteMap3D createMapCache() {
 		return new ByteMap3D(getWorldInfoProvider().getNbXTiles(), getWorldInfoProvider().getNbYTiles(),
@@ -98,8 +159,15 @@ public class ViewModelPart2 extends ViewModel implements IViewModel2 {
 		getMap().fill((x, y, z) -> getWorldInfoProvider().getCubeTypeAt(x, y, z).getByteValue());
 	}
 
-	protected void updateMapCacheAt(int x, int y, int z) {
-		getMap().setValue(x, y, z, getWorldInfoProvider().getCubeTypeAt(x, y, z).getByteValue());
+	protected void updateMapCache(BitSet cubes) {
+		getMap().setValues(cubes, (x, y, z) -> getWorldInfoProvider().getCubeTypeAt(x, y, z).getByteValue());
+	}
+
+	@Override
+	protected void worldTilesChanged(BitSet indices) {
+		// the heights must be up to date before the visible tiles are
+		heights.update(indices);
+		super.worldTilesChanged(indices);
 	}
 
 	@Override
@@ -140,20 +208,12 @@ public class ViewModelPart2 extends ViewModel implements IViewModel2 {
 	public int getLowestVisibleZ(int visibleX, int visibleY) {
 		int worldX = visibleTileToWorldTileX(visibleX);
 		int worldY = visibleTileToWorldTileY(visibleY);
-
-		int currentZ = getCurrentZLevel();
-		CubeType type = readTypeFromMap(worldX, worldY, currentZ);
-		while (currentZ > 0 && (type == null || type == CubeType.EMPTY)) {
-			currentZ -= 1;
-			type = readTypeFromMap(worldX, worldY, currentZ);
-		}
-		return currentZ;
+		return Math.max(0, heights.getHighestSolidZ(worldX, worldY, getCurrentZLevel()));
 	}
 
 	public CubeType readTypeFromMap(int worldX, int worldY, int z) {
 		if (getMap().isValidIndex(worldX, worldY, z)) {
-			int index = getMap().getValue(worldX, worldY, z);
-			return CubeType.values()[index];
+			return CubeType.fromByte(getMap().getValue(worldX, worldY, z));
 		} else {
 			return CubeType.EMPTY;
 		}
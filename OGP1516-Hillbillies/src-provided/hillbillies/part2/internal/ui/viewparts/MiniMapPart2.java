@@ -13,7 +13,7 @@ public class MiniMapPart2 extends MiniMap<CubeType> {
 
 	@Override
 	protected CubeType getTypeFor(byte newValue) {
-		return CubeType.values()[newValue];
+		return CubeType.fromByte(newValue);
 	}
 	
 	@Override
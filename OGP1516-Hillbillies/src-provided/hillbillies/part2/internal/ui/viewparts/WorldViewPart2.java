@@ -146,6 +146,11 @@ public class WorldViewPart2 extends WorldView {
 		visibleTileImageIndices.setValueAt(visibleX, visibleY, index);
 	}
 
+	@Override
+	protected void shiftVisibleTiles(int dx, int dy) {
+		visibleTileImageIndices.shift(dx, dy);
+	}
+
 	protected int getTileIndexFor(int visibleX, int visibleY, int visibleZ) {
 		if (getViewModel().getCurrentZLevel() - visibleZ > getMaxDepth()) {
 			return -1;
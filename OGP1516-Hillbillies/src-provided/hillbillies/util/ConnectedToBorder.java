@@ -25,7 +25,8 @@ import java.util.stream.Stream;
  * to be completely composed of SOLID tiles. Update the algorithm state using
  * the {@link #changeSolidToPassable(int, int, int)} method. At any point, use
  * the {@link #isSolidConnectedToBorder(int, int, int)} method to find out if a
- * cube is connected to the world.
+ * cube is connected to the world. A world that does not start out entirely
+ * solid can be loaded at once using {@link #initializePassable(boolean[])}.
  * 
  * @author Koen Yskout
  * 
@@ -71,6 +72,59 @@ public class ConnectedToBorder {
 		return isSolid(index) && !notConnected[index];
 	}
 
+	/**
+	 * Replace the state of the algorithm by the given passable cubes, and
+	 * determine all solid cubes that are connected to a border of the world
+	 * using a single flood fill from the solid cubes at the border.
+	 * 
+	 * The resulting state is the same as when
+	 * {@link #changeSolidToPassable(int, int, int)} is invoked for every
+	 * passable cube of an entirely solid world, but this operation only takes
+	 * time linear in the size of the world.
+	 * 
+	 * @param passable
+	 *            An array with, for every cube index x + y * nbX + z * nbX *
+	 *            nbY, whether that cube is passable
+	 * @throws IllegalArgumentException
+	 *             The length of the given array is not the number of cubes of
+	 *             the world
+	 */
+	public void initializePassable(boolean[] passable) throws IllegalArgumentException {
+		if (passable.length != this.passable.length) {
+			throw new IllegalArgumentException();
+		}
+		System.arraycopy(passable, 0, this.passable, 0, passable.length);
+		Arrays.fill(notConnected, true);
+
+		int[] queue = new int[passable.length];
+		int head = 0;
+		int tail = 0;
+		for (int index = 0; index < passable.length; index++) {
+			if (isSolid(index) && isBorder(index)) {
+				notConnected[index] = false;
+				queue[tail++] = index;
+			}
+		}
+		while (head < tail) {
+			int index = queue[head++];
+			int x = index % nbX;
+			int y = (index / nbX) % nbY;
+			int z = index / (nbX * nbY);
+			for (int[] offset : directAdjacentOffsets) {
+				int nx = x + offset[0];
+				int ny = y + offset[1];
+				int nz = z + offset[2];
+				if (nx >= 0 && nx < nbX && ny >= 0 && ny < nbY && nz >= 0 && nz < nbZ) {
+					int neighbour = getIndex(nx, ny, nz);
+					if (isSolid(neighbour) && notConnected[neighbour]) {
+						notConnected[neighbour] = false;
+						queue[tail++] = neighbour;
+					}
+				}
+			}
+		}
+	}
+
 	/**
 	 * Make the cube at the given position solid instead of passable, and return
 	 * the list of coordinates that became connected to a border of the world
@@ -211,6 +265,13 @@ public class ConnectedToBorder {
 		return !passable[index];
 	}
 
+	private boolean isBorder(int index) {
+		int x = index % nbX;
+		int y = (index / nbX) % nbY;
+		int z = index / (nbX * nbY);
+		return x == 0 || x == nbX - 1 || y == 0 || y == nbY - 1 || z == 0 || z == nbZ - 1;
+	}
+
 	private boolean isBorder(List<Integer> coord) {
 		int x = coord.get(0);
 		int y = coord.get(1);
@@ -0,0 +1,473 @@
+package hillbillies.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Alternative implementation of {@link ConnectedToBorder} that works on flat
+ * integer cube indices instead of boxed coordinate lists.
+ *
+ * The cubes are laid out exactly as in {@link ConnectedToBorder}, i.e. the
+ * index of (x, y, z) is <code>x + y * nbX + z * nbX * nbY</code>. All searches
+ * use preallocated integer work stacks, and the cubes visited by a search are
+ * recognized through generation stamps, so that no bookkeeping has to be
+ * cleared between two searches. Apart from the coordinate arrays in the
+ * returned lists, the operations of this class do not allocate any objects.
+ *
+ * The contract of {@link #changeSolidToPassable(int, int, int)},
+ * {@link #changePassableToSolid(int, int, int)} and
+ * {@link #isSolidConnectedToBorder(int, int, int)} is the same as that of
+ * {@link ConnectedToBorder}; the returned lists contain the same cubes, but
+ * possibly in a different order.
+ */
+public class IndexedConnectedToBorder {
+
+	/**
+	 * Create a new instance of the algorithm, initialized for a world of the
+	 * given dimensions where all cubes are solid.
+	 *
+	 * @param nbX
+	 * @param nbY
+	 * @param nbZ
+	 */
+	public IndexedConnectedToBorder(int nbX, int nbY, int nbZ) {
+		this.nbX = nbX;
+		this.nbY = nbY;
+		this.nbZ = nbZ;
+		this.nbXY = nbX * nbY;
+		int size = nbX * nbY * nbZ;
+		this.passable = new boolean[size];
+		this.notConnected = new boolean[size];
+		this.stamp = new int[size];
+		this.stack = new int[size];
+		this.visited = new int[size];
+	}
+
+	/**
+	 * Return the index of the cube with the given coordinates.
+	 *
+	 * @param x
+	 *            The x-coordinate of the cube
+	 * @param y
+	 *            The y-coordinate of the cube
+	 * @param z
+	 *            The z-coordinate of the cube
+	 * @return x + y * nbX + z * nbX * nbY
+	 */
+	public int getIndex(int x, int y, int z) {
+		return x + y * nbX + z * nbXY;
+	}
+
+	/**
+	 * Returns whether the cube at the given position is a solid cube that is
+	 * connected to a border of the world through other directly adjacent solid
+	 * cubes.
+	 *
+	 * @note The result is pre-computed, so this query returns immediately.
+	 *
+	 * @param x
+	 *            The x-coordinate of the cube to test
+	 * @param y
+	 *            The y-coordinate of the cube to test
+	 * @param z
+	 *            The z-coordinate of the cube to test
+	 * @return true if the cube is connected; false otherwise
+	 */
+	public boolean isSolidConnectedToBorder(int x, int y, int z) {
+		return isSolidConnectedToBorder(getIndex(x, y, z));
+	}
+
+	/**
+	 * Returns whether the cube with the given index is a solid cube that is
+	 * connected to a border of the world.
+	 *
+	 * @param index
+	 *            The index of the cube to test
+	 * @return true if the cube is connected; false otherwise
+	 */
+	public boolean isSolidConnectedToBorder(int index) {
+		return !passable[index] && !notConnected[index];
+	}
+
+	/**
+	 * Replace the state of the algorithm by the given passable cubes, and
+	 * determine all solid cubes that are connected to a border of the world
+	 * using a single flood fill from the solid cubes at the border.
+	 *
+	 * The resulting state is the same as when
+	 * {@link #changeSolidToPassable(int, int, int)} is invoked for every
+	 * passable cube of an entirely solid world, but this operation only takes
+	 * time linear in the size of the world.
+	 *
+	 * @param passable
+	 *            An array with, for every cube index (see
+	 *            {@link #getIndex(int, int, int)}), whether that cube is
+	 *            passable
+	 * @throws IllegalArgumentException
+	 *             The length of the given array is not the number of cubes of
+	 *             the world
+	 */
+	public void initializePassable(boolean[] passable) throws IllegalArgumentException {
+		if (passable.length != this.passable.length) {
+			throw new IllegalArgumentException();
+		}
+		System.arraycopy(passable, 0, this.passable, 0, passable.length);
+		Arrays.fill(notConnected, true);
+
+		// the work stack doubles as a queue here: every cube enters it once
+		int head = 0;
+		int tail = 0;
+		for (int index = 0; index < passable.length; index++) {
+			if (!passable[index] && isBorder(index)) {
+				notConnected[index] = false;
+				stack[tail++] = index;
+			}
+		}
+		while (head < tail) {
+			int cube = stack[head++];
+			int cx = cube % nbX;
+			int cy = (cube / nbX) % nbY;
+			int cz = cube / nbXY;
+			for (int dir = 0; dir < 6; dir++) {
+				int neighbour = getNeighbour(cube, cx, cy, cz, dir);
+				if (neighbour >= 0 && !passable[neighbour] && notConnected[neighbour]) {
+					notConnected[neighbour] = false;
+					stack[tail++] = neighbour;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Make the cube at the given position solid instead of passable, and return
+	 * the list of coordinates that became connected to a border of the world
+	 * due to this change.
+	 *
+	 * @param x
+	 *            The x-coordinate of the cube to make solid
+	 * @param y
+	 *            The y-coordinate of the cube to make solid
+	 * @param z
+	 *            The z-coordinate of the cube to make solid
+	 *
+	 * @return The list of cube coordinates (where each coordinate is an array
+	 *         {x, y, z}) that have become connected to the border by performing
+	 *         this change. If non-empty, this always includes the provided
+	 *         coordinate itself.
+	 */
+	public List<int[]> changePassableToSolid(int x, int y, int z) {
+		int index = getIndex(x, y, z);
+		if (!passable[index]) {
+			return Collections.emptyList();
+		}
+		passable[index] = false;
+		if (!isBorder(index) && !hasConnectedNeighbour(index)) {
+			return Collections.emptyList();
+		}
+		reserveGenerations(1);
+		int mark = ++generation;
+		List<int[]> result = new ArrayList<>();
+		int top = 0;
+		stack[top++] = index;
+		stamp[index] = mark;
+		while (top > 0) {
+			int cube = stack[--top];
+			notConnected[cube] = false;
+			result.add(getCoordinate(cube));
+			int cx = cube % nbX;
+			int cy = (cube / nbX) % nbY;
+			int cz = cube / nbXY;
+			for (int dir = 0; dir < 6; dir++) {
+				int neighbour = getNeighbour(cube, cx, cy, cz, dir);
+				if (neighbour >= 0 && !passable[neighbour] && notConnected[neighbour] && stamp[neighbour] != mark) {
+					stamp[neighbour] = mark;
+					stack[top++] = neighbour;
+				}
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Make the cube at the given position passable instead of solid, and return
+	 * the list of coordinates that are no longer connected to a border of the
+	 * world due to this change.
+	 *
+	 * @param x
+	 *            The x-coordinate of the cube to make passable
+	 * @param y
+	 *            The y-coordinate of the cube to make passable
+	 * @param z
+	 *            The z-coordinate of the cube to make passable
+	 *
+	 * @return The list of cube coordinates (where each coordinate is an array
+	 *         {x, y, z}) that have become disconnected from the border by
+	 *         performing this change.
+	 */
+	public List<int[]> changeSolidToPassable(int x, int y, int z) {
+		int index = getIndex(x, y, z);
+		if (passable[index]) {
+			return Collections.emptyList();
+		}
+		passable[index] = true;
+		notConnected[index] = true;
+
+		List<int[]> changed = new ArrayList<>();
+		// every search started from a neighbour gets its own stamp; stamps
+		// above callBase belong to searches of this call
+		reserveGenerations(6);
+		int callBase = generation;
+		for (int dir = 0; dir < 6; dir++) {
+			int neighbour = getNeighbour(index, x, y, z, dir);
+			if (neighbour < 0 || passable[neighbour] || isStampedSince(neighbour, callBase)) {
+				continue;
+			}
+			int count = searchComponent(neighbour, callBase);
+			if (count >= 0) {
+				// no path to the border: the whole component has been visited
+				for (int i = 0; i < count; i++) {
+					int cube = visited[i];
+					notConnected[cube] = true;
+					changed.add(getCoordinate(cube));
+				}
+			}
+		}
+		return changed;
+	}
+
+	/**
+	 * Make all cubes with the given indices passable at once, and return the
+	 * list of coordinates that are no longer connected to a border of the
+	 * world due to these changes.
+	 *
+	 * All cubes are made passable before any connectivity search starts, so
+	 * every solid blob that is cut off is searched only once, no matter how
+	 * many of the changed cubes it touches. The resulting state is the same as
+	 * when {@link #changeSolidToPassable(int, int, int)} is invoked for every
+	 * cube separately. Indices of cubes that are already passable, and
+	 * duplicate indices, are ignored.
+	 *
+	 * @param indices
+	 *            An array holding the indices of the cubes to make passable
+	 *            (see {@link #getIndex(int, int, int)})
+	 * @param count
+	 *            The number of indices in the given array to use
+	 *
+	 * @return The list of cube coordinates (where each coordinate is an array
+	 *         {x, y, z}) of all solid cubes next to one of the changed cubes
+	 *         that are not connected to the border after performing these
+	 *         changes.
+	 */
+	public List<int[]> changeSolidsToPassable(int[] indices, int count) {
+		int nbChanged = 0;
+		for (int i = 0; i < count; i++) {
+			int index = indices[i];
+			if (!passable[index]) {
+				passable[index] = true;
+				notConnected[index] = true;
+				nbChanged++;
+			}
+		}
+		if (nbChanged == 0) {
+			return Collections.emptyList();
+		}
+
+		List<int[]> changed = new ArrayList<>();
+		reserveGenerations(6 * count);
+		int callBase = generation;
+		for (int i = 0; i < count; i++) {
+			int index = indices[i];
+			int x = index % nbX;
+			int y = (index / nbX) % nbY;
+			int z = index / nbXY;
+			for (int dir = 0; dir < 6; dir++) {
+				int neighbour = getNeighbour(index, x, y, z, dir);
+				if (neighbour < 0 || passable[neighbour] || isStampedSince(neighbour, callBase)) {
+					continue;
+				}
+				int nbVisited = searchComponent(neighbour, callBase);
+				if (nbVisited >= 0) {
+					for (int j = 0; j < nbVisited; j++) {
+						int cube = visited[j];
+						notConnected[cube] = true;
+						changed.add(getCoordinate(cube));
+					}
+				}
+			}
+		}
+		return changed;
+	}
+
+	/**
+	 * Make the solid cube with the given index, which is not connected to a
+	 * border of the world, passable.
+	 *
+	 * Since none of the solid neighbours of such a cube can be connected to
+	 * the border either, no other cube changes state and no search is needed.
+	 * This is the operation to use when a disconnected cube caves in.
+	 *
+	 * @param index
+	 *            The index of the cube to make passable
+	 * @throws IllegalArgumentException
+	 *             The cube is passable or connected to the border
+	 */
+	public void changeDisconnectedSolidToPassable(int index) throws IllegalArgumentException {
+		if (passable[index] || !notConnected[index]) {
+			throw new IllegalArgumentException();
+		}
+		passable[index] = true;
+	}
+
+	/*
+	 * Internal state and helpers.
+	 */
+
+	private final int nbX;
+	private final int nbY;
+	private final int nbZ;
+	private final int nbXY;
+
+	private final boolean[] passable;
+	private final boolean[] notConnected;
+
+	/**
+	 * Generation stamps of the cubes; a cube has been visited by the current
+	 * search if and only if its stamp equals the current generation.
+	 */
+	private final int[] stamp;
+
+	/**
+	 * Work stack shared by all searches.
+	 */
+	private final int[] stack;
+
+	/**
+	 * Cubes visited by the last call to searchComponent, in visiting order.
+	 */
+	private final int[] visited;
+
+	private int generation;
+
+	/**
+	 * Make sure the given number of fresh generation stamps is available,
+	 * clearing all stamps when the counter would overflow.
+	 */
+	private void reserveGenerations(int amount) {
+		if (generation > Integer.MAX_VALUE - amount) {
+			Arrays.fill(stamp, 0);
+			generation = 0;
+		}
+	}
+
+	private boolean isStampedSince(int index, int base) {
+		return stamp[index] > base;
+	}
+
+	/**
+	 * Search the solid component of the given origin for a path to the border.
+	 *
+	 * @return -1 if a path to the border exists; otherwise the number of cubes
+	 *         in the component, which are then stored in the visited array.
+	 */
+	private int searchComponent(int origin, int callBase) {
+		int mark = ++generation;
+		int top = 0;
+		int count = 0;
+		stack[top++] = origin;
+		stamp[origin] = mark;
+		visited[count++] = origin;
+		while (top > 0) {
+			// this might take a long time - check if the impatient user has
+			// stopped us yet
+			if (Thread.currentThread().isInterrupted()) {
+				throw new IllegalStateException();
+			}
+			int cube = stack[--top];
+			int cx = cube % nbX;
+			int cy = (cube / nbX) % nbY;
+			int cz = cube / nbXY;
+			if (cx == 0 || cx == nbX - 1 || cy == 0 || cy == nbY - 1 || cz == 0 || cz == nbZ - 1) {
+				return -1;
+			}
+			for (int dir = 0; dir < 6; dir++) {
+				int neighbour = getNeighbour(cube, cx, cy, cz, dir);
+				if (neighbour < 0 || passable[neighbour] || stamp[neighbour] == mark) {
+					continue;
+				}
+				if (stamp[neighbour] > callBase && stamp[neighbour] < mark) {
+					// reached by an earlier search of this call; a component
+					// that is not connected is always visited completely, so
+					// that search must have found the border
+					return -1;
+				}
+				stamp[neighbour] = mark;
+				stack[top++] = neighbour;
+				visited[count++] = neighbour;
+			}
+		}
+		return count;
+	}
+
+	private boolean hasConnectedNeighbour(int index) {
+		int x = index % nbX;
+		int y = (index / nbX) % nbY;
+		int z = index / nbXY;
+		for (int dir = 0; dir < 6; dir++) {
+			int neighbour = getNeighbour(index, x, y, z, dir);
+			if (neighbour >= 0 && isSolidConnectedToBorder(neighbour)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Return the index of the directly adjacent cube in the given direction
+	 * (0 to 5 for -x, +x, -y, +y, -z, +z), or -1 if it lies outside the world.
+	 */
+	private int getNeighbour(int index, int x, int y, int z, int dir) {
+		switch (dir) {
+		case 0:
+			return x > 0 ? index - 1 : -1;
+		case 1:
+			return x < nbX - 1 ? index + 1 : -1;
+		case 2:
+			return y > 0 ? index - nbX : -1;
+		case 3:
+			return y < nbY - 1 ? index + nbX : -1;
+		case 4:
+			return z > 0 ? index - nbXY : -1;
+		default:
+			return z < nbZ - 1 ? index + nbXY : -1;
+		}
+	}
+
+	private boolean isBorder(int index) {
+		int x = index % nbX;
+		int y = (index / nbX) % nbY;
+		int z = index / nbXY;
+		return x == 0 || x == nbX - 1 || y == 0 || y == nbY - 1 || z == 0 || z == nbZ - 1;
+	}
+
+	private int[] getCoordinate(int index) {
+		return new int[] { index % nbX, (index / nbX) % nbY, index / nbXY };
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder result = new StringBuilder();
+		for (int z = 0; z < nbZ; z++) {
+			for (int y = 0; y < nbY; y++) {
+				for (int x = 0; x < nbX; x++) {
+					int index = getIndex(x, y, z);
+					result.append((isSolidConnectedToBorder(index) ? "@@" : (!passable[index] ? "oo" : "..")));
+				}
+				result.append("\n");
+			}
+			result.append("\n");
+		}
+		return result.toString();
+	}
+}
@@ -1,5 +1,7 @@
 package ogp.framework.game;
 
+import java.util.concurrent.locks.LockSupport;
+
 import javafx.animation.AnimationTimer;
 import javafx.beans.property.BooleanProperty;
 import javafx.beans.property.DoubleProperty;
@@ -14,11 +16,35 @@ public class GameLoop {
 
 	private final double DEFAULT_MAX_IN_GAME_TIMESTEP = Double.POSITIVE_INFINITY;
 
+	/**
+	 * The maximum number of steps a single frame, or a single wake-up of the simulation
+	 * thread, catches up with. Time beyond that is dropped, so a slow machine runs the
+	 * game slower instead of falling further and further behind.
+	 */
+	private static final int MAX_STEPS_PER_FRAME = 5;
+
 	private double maxTimeStep;
 
+	/*
+	 * The game that runs on a simulation thread of its own, if any, and the state of
+	 * that thread.
+	 */
+	private final IFixedStepGameController<?> fixedStepGame;
+	private final double timeStep;
+	private volatile boolean running;
+	private volatile boolean simulationPaused;
+	private volatile long nbTicks;
+	private volatile long lastTickNanos;
+
+	/**
+	 * Create a loop that advances and renders the given game on the JavaFX thread, once
+	 * per frame, in steps of at most the maximum time step.
+	 */
 	public GameLoop(IGameController<?> game) {
 		IGameView view = game.getView();
 		this.maxTimeStep = DEFAULT_MAX_IN_GAME_TIMESTEP;
+		this.fixedStepGame = null;
+		this.timeStep = 0;
 		mainLoop = new AnimationTimer() {
 			private long previous = 0;
 
@@ -27,12 +53,17 @@ public class GameLoop {
 				if (!paused.get()) {
 					if (previous > 0) {
 						double dt = (now - previous) / 1e9;
-						double dtStep = Math.min(dt, getMaxTimeStep());
-						for (int i = 0; i < dtStep / dt; i++) {
+						int nbSteps = (int) Math.max(1, Math.ceil(dt / getMaxTimeStep()));
+						nbSteps = Math.min(nbSteps, MAX_STEPS_PER_FRAME);
+						double dtStep = Math.min(dt / nbSteps, getMaxTimeStep());
+						for (int i = 0; i < nbSteps; i++) {
 							inGameTime.set(inGameTime.get() + dtStep);
 							game.updateGame(dtStep);
 						}
 					}
+					if (game instanceof IFixedStepGameController) {
+						((IFixedStepGameController<?>) game).prepareFrame(1);
+					}
 					view.refreshDisplay();
 				}
 				previous = now;
@@ -40,6 +71,68 @@ public class GameLoop {
 		};
 	}
 
+	/**
+	 * Create a loop that advances the given game by the given fixed time step on a
+	 * simulation thread of its own, and renders it on the JavaFX thread, interpolated
+	 * between the last two ticks. A slow tick then no longer drops frames, and a slow
+	 * frame no longer slows down the game.
+	 */
+	public GameLoop(IFixedStepGameController<?> game, double timeStep) {
+		if (!(timeStep > 0)) {
+			throw new IllegalArgumentException("Invalid time step: " + timeStep);
+		}
+		IGameView view = game.getView();
+		this.maxTimeStep = timeStep;
+		this.fixedStepGame = game;
+		this.timeStep = timeStep;
+		game.useSimulationThread();
+		paused.addListener((obs, oldValue, newValue) -> simulationPaused = newValue);
+		mainLoop = new AnimationTimer() {
+
+			@Override
+			public void handle(long now) {
+				if (!paused.get()) {
+					double alpha = (System.nanoTime() - lastTickNanos) / (getTimeStep() * 1e9);
+					game.prepareFrame(Math.max(0, Math.min(1, alpha)));
+					inGameTime.set(nbTicks * getTimeStep());
+					view.refreshDisplay();
+				}
+			}
+		};
+	}
+
+	/*
+	 * Advance the given game by the fixed time step of this loop for as long as it runs,
+	 * paced against the wall clock.
+	 */
+	private void simulate(IFixedStepGameController<?> game) {
+		long stepNanos = (long) (getTimeStep() * 1e9);
+		long previous = System.nanoTime();
+		long accumulator = 0;
+		while (running) {
+			long now = System.nanoTime();
+			if (simulationPaused) {
+				accumulator = 0;
+			} else {
+				accumulator = Math.min(accumulator + now - previous, MAX_STEPS_PER_FRAME * stepNanos);
+				while (accumulator >= stepNanos) {
+					try {
+						game.updateGame(getTimeStep());
+					} catch (RuntimeException e) {
+						e.printStackTrace();
+						System.out.println("Error while advancing time; continuing...");
+					}
+					game.publishTick();
+					lastTickNanos = System.nanoTime();
+					nbTicks++;
+					accumulator -= stepNanos;
+				}
+			}
+			previous = now;
+			LockSupport.parkNanos(stepNanos - accumulator);
+		}
+	}
+
 	protected double getMaxTimeStep() {
 		return maxTimeStep;
 	}
@@ -48,6 +141,14 @@ public class GameLoop {
 		this.maxTimeStep = maxTimeStep;
 	}
 
+	/**
+	 * Return the fixed time step of the simulation thread, or 0 if the game is advanced
+	 * on the JavaFX thread.
+	 */
+	public double getTimeStep() {
+		return timeStep;
+	}
+
 	public DoubleProperty inGameTimeProperty() {
 		return inGameTime;
 	}
@@ -57,11 +158,19 @@ public class GameLoop {
 	}
 
 	public void start() {
+		if (fixedStepGame != null && !running) {
+			running = true;
+			lastTickNanos = System.nanoTime();
+			Thread simulationThread = new Thread(() -> simulate(fixedStepGame), "Simulation");
+			simulationThread.setDaemon(true);
+			simulationThread.start();
+		}
 		mainLoop.start();
 	}
 
 	public void stop() {
 		mainLoop.stop();
+		running = false;
 	}
 
 	public void togglePause() {
@@ -0,0 +1,30 @@
+package ogp.framework.game;
+
+/**
+ * A game controller whose game can be advanced by a {@link GameLoop} on a simulation
+ * thread of its own, by fixed time steps, while the JavaFX thread only renders.
+ */
+public interface IFixedStepGameController<V extends IGameView> extends IGameController<V> {
+
+	/**
+	 * Prepare this controller for {@link #updateGame(double)} being called on another
+	 * thread than the JavaFX thread. Called once, before the simulation thread starts.
+	 */
+	public void useSimulationThread();
+
+	/**
+	 * Publish the state of the game for the view to render. Called on the simulation
+	 * thread after every tick.
+	 */
+	public void publishTick();
+
+	/**
+	 * Prepare the next frame, rendering the state published after the last tick,
+	 * interpolated with the state of the tick before by the given fraction between
+	 * 0 (the tick before) and 1 (the last tick). Called on the JavaFX thread before
+	 * every frame, also when the game is advanced on the JavaFX thread itself, with 1
+	 * as fraction.
+	 */
+	public void prepareFrame(double alpha);
+
+}
@@ -77,6 +77,22 @@ public class Matrix<T> {
 		return true;
 	}
 
+	/**
+	 * Shift the values of this matrix, so that the value at (row + dRows, col + dCols)
+	 * ends up at (row, col). Cells without such a value keep theirs. Listeners are
+	 * notified of every cell whose value changes.
+	 */
+	public void shift(int dRows, int dCols) {
+		List<T> oldValues = new ArrayList<>(values);
+		for (int row = 0; row < nbRows; row++) {
+			for (int col = 0; col < nbCols; col++) {
+				if (isValid(row + dRows, col + dCols)) {
+					setValueAt(row, col, oldValues.get((row + dRows) * nbCols + col + dCols));
+				}
+			}
+		}
+	}
+
 	protected void notifyListenersChange(int row, int col, T oldValue, T newValue) {
 		for (MatrixChangeListener<T> listener : new HashSet<>(listeners)) {
 			listener.onMatrixChanged(row, col, oldValue, newValue);
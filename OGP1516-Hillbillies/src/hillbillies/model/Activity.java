@@ -0,0 +1,64 @@
+package hillbillies.model;
+
+/**
+ * An enumeration of the activities a unit can be doing, together with the table of
+ * activities that may interrupt each of them.
+ *
+ * Since there are fewer than eight activities, an activity fits in three bits, which
+ * allows the whole state of a unit to be packed into a single byte
+ * (see {@link Unit#getPackedState()}).
+ *
+ * @author Joris Schrauwen, Wim Schmitz
+ */
+public enum Activity {
+
+	IDLE, MOVING, WORKING, ATTACKING, DEFENDING, INIT_RESTING, RESTING;
+
+	/**
+	 * Table registering, for every activity in order of declaration, which activities
+	 * may interrupt it, again in order of declaration. A unit in its initial resting
+	 * phase can only be interrupted by fighting, and a fighting unit not at all.
+	 */
+	private static final boolean[][] INTERRUPTIONS = {
+		//	 IDLE	MOVING	WORKING	ATTACK	DEFEND	INITRES	RESTING
+		{	true,	true,	true,	true,	true,	true,	true	},	// IDLE
+		{	true,	true,	false,	true,	true,	true,	true	},	// MOVING
+		{	true,	true,	false,	true,	true,	true,	true	},	// WORKING
+		{	false,	false,	false,	false,	false,	false,	false	},	// ATTACKING
+		{	false,	false,	false,	false,	false,	false,	false	},	// DEFENDING
+		{	false,	false,	false,	true,	true,	false,	false	},	// INIT_RESTING
+		{	true,	true,	true,	true,	true,	false,	false	},	// RESTING
+	};
+
+	/**
+	 * Array registering all activities in order of declaration.
+	 */
+	private static final Activity[] VALUES = values();
+
+	/**
+	 * Check whether this activity can be interrupted by the given activity.
+	 *
+	 * @param	interruptor
+	 * 			The activity that is to be started instead of this one.
+	 * @throws	NullPointerException
+	 * 			The given activity is not effective.
+	 * 			| interruptor == null
+	 */
+	public boolean canBeInterruptedBy(Activity interruptor) throws NullPointerException {
+		return INTERRUPTIONS[this.ordinal()][interruptor.ordinal()];
+	}
+
+	/**
+	 * Return the activity with the given ordinal.
+	 *
+	 * @throws	IllegalArgumentException
+	 * 			No activity has the given ordinal.
+	 * 			| (ordinal < 0) || (ordinal >= values().length)
+	 */
+	public static Activity fromOrdinal(int ordinal) throws IllegalArgumentException {
+		if ((ordinal < 0) || (ordinal >= VALUES.length)) {
+			throw new IllegalArgumentException();
+		}
+		return VALUES[ordinal];
+	}
+}
@@ -1,5 +1,7 @@
 package hillbillies.model;
 
+import java.util.Random;
+
 import helperclasses.OutOfBoundsException;
 import helperclasses.Vector3d;
 
@@ -21,6 +23,25 @@ public class Boulder extends GameObject {
 		this.world = null;
 	}
 	
+	/**
+	 * Initialize a new Boulder on a given location with a random weight 
+	 * between 10 and 50, inclusively, drawn from the given random number generator.
+	 * 
+	 * @param   position
+	 * 			The starting postion of this Boulder
+	 * @param	random
+	 * 			The random number generator to draw the weight from.
+	 * @throws 	OutOfBoundsException
+	 * 			The given postion is out of bounds.
+	 * 			|!isValidPostion(position)
+	 */
+	public Boulder(Vector3d position, Random random) throws OutOfBoundsException{
+		super(position, random);
+		Boulder.type = TYPE;
+		this.carrier = null;
+		this.world = null;
+	}
+	
 	private static int type;
 	private Unit carrier;
 	private World world;
@@ -51,19 +72,10 @@ public class Boulder extends GameObject {
 	 * 
 	 * @param   duration
 	 * 			The duration to advance the time with.
-	 * @effect	if this Boulder is falling, the new Z-coordinate of this Boulder will be 3*duration lower.
+	 * @effect	This Boulder falls for the given duration, if it has no solid ground beneath it.
+	 * 			| fall(duration)
 	 */
 	public void advanceTime(double duration){
-		if (!this.canStand() && !this.isFalling()){
-			this.startFalling();
-		}
-		
-		this.updatePosition(duration);
-		Vector3d curPos = this.getPosition();
-		double newZ = curPos.getZ()-duration*3;
-		Vector3d newPos = new Vector3d(curPos.getX(),curPos.getY(),newZ);
-		try {
-			this.setPosition(newPos);
-		} catch (OutOfBoundsException e) {}
+		this.fall(duration);
 	}	
 }
@@ -7,38 +7,88 @@ public class Faction {
 	public Faction(){
 		this.unitSet = new HashSet<Unit>();
 	}
-	
-	public static final int MAX_MEMBERS = 50;
+
 	private Set<Unit> unitSet;
-	
+
+	/*
+	 * Variables registering the unit registry in which this faction is active, the
+	 * order in which it was added to it, and its index in the heap of that registry.
+	 */
+	private UnitRegistry registry;
+	private long order;
+	private int heapIndex;
+
 	public Set<Unit> getUnits() {
 		return this.unitSet;
 	}
-	
+
 	public void addUnit(Unit unit) {
 		unit.setFaction(this);
-		this.unitSet.add(unit);
+		if (this.unitSet.add(unit) && (this.registry != null)) {
+			this.registry.factionChanged(this);
+		}
 	}
-	
+
 	public void removeUnit(Unit unit){
-		try { 
-			this.unitSet.remove(unit);
+		try {
+			if (this.unitSet.remove(unit) && (this.registry != null)) {
+				this.registry.factionChanged(this);
+			}
 		} catch (NullPointerException e) {
 			e.printStackTrace();
 		}
-		
+
 		unit.setFaction(null);
 	}
-	
+
 	public int getNbUnits() {
 		return this.unitSet.size();
 	}
-	
+
+	/**
+	 * Return the maximum number of members of this faction: that of the registry in
+	 * which it is active, or the default maximum if it is not active.
+	 */
+	public int getMaxNbMembers() {
+		if (this.registry == null) {
+			return UnitRegistry.DEFAULT_MAX_NB_MEMBERS;
+		}
+		return this.registry.getMaxNbMembers();
+	}
+
 	/**
 	 * Check whether the given faction has reached its member limit.
-	 * @return	True if and only if this faction currently has MAX_MEMBERS units
+	 * @return	True if and only if this faction currently has at least getMaxNbMembers() units
 	 */
 	public boolean isFactionFull() {
-		return this.getNbUnits() == MAX_MEMBERS;
+		return this.getNbUnits() >= this.getMaxNbMembers();
+	}
+
+	/**
+	 * Return the unit registry in which this faction is active, or null if it is not active.
+	 */
+	public UnitRegistry getRegistry() {
+		return this.registry;
+	}
+
+	/*
+	 * Set the registry in which this faction is active, and the order in which it was
+	 * added to it.
+	 */
+	void setRegistry(UnitRegistry registry, long order) {
+		this.registry = registry;
+		this.order = order;
+	}
+
+	long getOrder() {
+		return this.order;
+	}
+
+	int getHeapIndex() {
+		return this.heapIndex;
+	}
+
+	void setHeapIndex(int heapIndex) {
+		this.heapIndex = heapIndex;
 	}
 }
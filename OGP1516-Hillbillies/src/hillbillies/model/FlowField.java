@@ -0,0 +1,279 @@
+package hillbillies.model;
+
+import java.util.Arrays;
+
+import be.kuleuven.cs.som.annotate.Basic;
+import be.kuleuven.cs.som.annotate.Immutable;
+
+/**
+ * A class of flow fields, registering for every cube of a world from which a given
+ * goal cube can be reached the first step of a shortest path towards that goal.
+ *
+ * A flow field is computed once with a reverse Dijkstra search from the goal, after
+ * which any number of units can look up their next step in constant time. Steps and
+ * costs are the same as those of a {@link PathFinder}. A flow field does not follow
+ * changes of the terrain by itself: it must be invalidated when the terrain near the
+ * cubes it reaches changes (see {@link #isAffectedBy(int, int, int)}).
+ *
+ * @author Joris Schrauwen, Wim Schmitz
+ */
+public class FlowField {
+
+	/**
+	 * Initialize this new flow field towards the given goal cube in the given world.
+	 *
+	 * @param 	world
+	 * 			The world in which the flow field is computed.
+	 * @param 	goalX
+	 * 			The x coordinate of the goal cube.
+	 * @param 	goalY
+	 * 			The y coordinate of the goal cube.
+	 * @param 	goalZ
+	 * 			The z coordinate of the goal cube.
+	 * @post	The new flow field is valid.
+	 * 			| new.isValid()
+	 */
+	public FlowField(World world, int goalX, int goalY, int goalZ) {
+		this.nbX = world.getNbX();
+		this.nbY = world.getNbY();
+		this.nbZ = world.getNbZ();
+		this.nbXY = nbX * nbY;
+		this.goal = this.getIndex(goalX, goalY, goalZ);
+		this.distance = new float[nbXY * nbZ];
+		this.next = new int[nbXY * nbZ];
+		Arrays.fill(this.distance, Float.POSITIVE_INFINITY);
+		Arrays.fill(this.next, -1);
+		this.valid = true;
+		if (world.isValidPosition(goalX, goalY, goalZ)) {
+			this.compute(world);
+		}
+	}
+
+	/**
+	 * Variables registering the dimensions of the world.
+	 */
+	private final int nbX;
+	private final int nbY;
+	private final int nbZ;
+	private final int nbXY;
+
+	/**
+	 * Variable registering the index of the goal cube.
+	 */
+	private final int goal;
+
+	/**
+	 * Array registering the length of a shortest path from every cube to the goal.
+	 */
+	private final float[] distance;
+
+	/**
+	 * Array registering the index of the next cube on a shortest path from every
+	 * cube to the goal, or -1 if there is none.
+	 */
+	private final int[] next;
+
+	/**
+	 * Variable registering whether this flow field still matches the terrain.
+	 */
+	private boolean valid;
+
+	/**
+	 * Variable registering the number of cubes from which the goal can be reached.
+	 */
+	private int nbReached;
+
+	/**
+	 * Return the index of the goal cube of this flow field.
+	 */
+	@Basic @Immutable
+	public int getGoal() {
+		return this.goal;
+	}
+
+	/**
+	 * Check whether this flow field still matches the terrain of its world.
+	 */
+	@Basic
+	public boolean isValid() {
+		return this.valid;
+	}
+
+	/**
+	 * Mark this flow field as no longer matching the terrain of its world.
+	 *
+	 * @post	| !new.isValid()
+	 */
+	public void invalidate() {
+		this.valid = false;
+	}
+
+	/**
+	 * Return the number of cubes from which the goal of this flow field can be reached,
+	 * including the goal itself.
+	 */
+	public int getNbReached() {
+		return this.nbReached;
+	}
+
+	/**
+	 * Return the index of the cube with the given coordinates.
+	 */
+	public int getIndex(int x, int y, int z) {
+		return x + y * nbX + z * nbXY;
+	}
+
+	/**
+	 * Return the coordinates {x, y, z} of the cube with the given index.
+	 */
+	public int[] getCube(int index) {
+		return new int[] { index % nbX, (index / nbX) % nbY, index / nbXY };
+	}
+
+	/**
+	 * Check whether the goal of this flow field can be reached from the given cube.
+	 */
+	public boolean isReachableFrom(int x, int y, int z) {
+		return (this.isInside(x, y, z)) && (this.distance[this.getIndex(x, y, z)] != Float.POSITIVE_INFINITY);
+	}
+
+	/**
+	 * Return the length of a shortest path from the given cube to the goal of this
+	 * flow field, or positive infinity if the goal cannot be reached from it.
+	 */
+	public double getDistance(int x, int y, int z) {
+		if (!this.isInside(x, y, z)) {
+			return Double.POSITIVE_INFINITY;
+		}
+		return this.distance[this.getIndex(x, y, z)];
+	}
+
+	/**
+	 * Return the index of the next cube on a shortest path from the given cube to the
+	 * goal of this flow field, or -1 if the given cube is the goal or the goal cannot
+	 * be reached from it.
+	 */
+	public int getNext(int x, int y, int z) {
+		if (!this.isInside(x, y, z)) {
+			return -1;
+		}
+		return this.next[this.getIndex(x, y, z)];
+	}
+
+	/**
+	 * Check whether a change of the type or the support of the cube with the given
+	 * coordinates may change the shortest paths of this flow field. That is the case
+	 * if the goal can be reached from the given cube, from the cube above it, or from
+	 * any cube next to one of these, since only those two cubes can become valid or
+	 * invalid positions.
+	 */
+	public boolean isAffectedBy(int x, int y, int z) {
+		for (int dz = -1; dz <= 2; dz++) {
+			for (int dy = -1; dy <= 1; dy++) {
+				for (int dx = -1; dx <= 1; dx++) {
+					if (this.isReachableFrom(x + dx, y + dy, z + dz)) {
+						return true;
+					}
+				}
+			}
+		}
+		return false;
+	}
+
+	/*
+	 * Check whether the given coordinates lie within the world of this flow field.
+	 */
+	private boolean isInside(int x, int y, int z) {
+		return (0 <= x) && (x < nbX) && (0 <= y) && (y < nbY) && (0 <= z) && (z < nbZ);
+	}
+
+	/*
+	 * Compute the distances and next steps of all cubes from which the goal can be
+	 * reached, using Dijkstra's algorithm from the goal. Since every step can be
+	 * taken in both directions at the same cost, searching backwards from the goal
+	 * gives the shortest paths towards it.
+	 */
+	private void compute(World world) {
+		// binary heap with lazy deletion of outdated entries
+		float[] keys = new float[64];
+		int[] cubes = new int[64];
+		int size = 0;
+
+		this.distance[this.goal] = 0;
+		keys[0] = 0;
+		cubes[0] = this.goal;
+		size = 1;
+		while (size > 0) {
+			float key = keys[0];
+			int current = cubes[0];
+			size--;
+			if (size > 0) {
+				// move the last entry to the root and sift it down
+				float lastKey = keys[size];
+				int lastCube = cubes[size];
+				int position = 0;
+				while (true) {
+					int child = 2 * position + 1;
+					if (child >= size) {
+						break;
+					}
+					if ((child + 1 < size) && (keys[child + 1] < keys[child])) {
+						child++;
+					}
+					if (keys[child] >= lastKey) {
+						break;
+					}
+					keys[position] = keys[child];
+					cubes[position] = cubes[child];
+					position = child;
+				}
+				keys[position] = lastKey;
+				cubes[position] = lastCube;
+			}
+			if (key > this.distance[current]) {
+				continue;
+			}
+			this.nbReached++;
+
+			int x = current % nbX;
+			int y = (current / nbX) % nbY;
+			int z = current / nbXY;
+			for (int dz = -1; dz <= 1; dz++) {
+				for (int dy = -1; dy <= 1; dy++) {
+					for (int dx = -1; dx <= 1; dx++) {
+						int nx = x + dx;
+						int ny = y + dy;
+						int nz = z + dz;
+						if (((dx == 0) && (dy == 0) && (dz == 0)) || (!this.isInside(nx, ny, nz))) {
+							continue;
+						}
+						int neighbour = current + dx + dy * nbX + dz * nbXY;
+						float cost = key + (float) Math.sqrt(dx * dx + dy * dy + dz * dz);
+						if ((cost >= this.distance[neighbour]) || (!world.isValidPosition(nx, ny, nz))) {
+							continue;
+						}
+						this.distance[neighbour] = cost;
+						this.next[neighbour] = current;
+
+						if (size == keys.length) {
+							keys = Arrays.copyOf(keys, 2 * size);
+							cubes = Arrays.copyOf(cubes, 2 * size);
+						}
+						int position = size++;
+						while (position > 0) {
+							int parent = (position - 1) / 2;
+							if (keys[parent] <= cost) {
+								break;
+							}
+							keys[position] = keys[parent];
+							cubes[position] = cubes[parent];
+							position = parent;
+						}
+						keys[position] = cost;
+						cubes[position] = neighbour;
+					}
+				}
+			}
+		}
+	}
+}
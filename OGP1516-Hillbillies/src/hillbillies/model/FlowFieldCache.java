@@ -0,0 +1,214 @@
+package hillbillies.model;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import be.kuleuven.cs.som.annotate.Basic;
+import be.kuleuven.cs.som.annotate.Immutable;
+
+/**
+ * A class of flow field caches, keeping the flow fields towards the most popular
+ * destinations of a world.
+ *
+ * A flow field only pays off if several units head for the same cube, so a field is
+ * only computed once its goal has been requested at least getMinNbRequests() times.
+ * When the cache is full, the field that was used least recently is evicted. When the
+ * terrain changes, only the fields that reach the changed cube are dropped.
+ *
+ * A flow field cache must not be used by several threads at the same time.
+ *
+ * @invar	The capacity of each flow field cache is strictly positive.
+ * 			| getCapacity() > 0
+ * @invar	Each flow field cache holds no more fields than its capacity.
+ * 			| getNbFlowFields() <= getCapacity()
+ *
+ * @author Joris Schrauwen, Wim Schmitz
+ */
+public class FlowFieldCache {
+
+	/**
+	 * Initialize this new, empty flow field cache for the given world.
+	 *
+	 * @param 	world
+	 * 			The world for which flow fields are cached.
+	 * @param 	capacity
+	 * 			The maximal number of flow fields in the new cache.
+	 * @throws	IllegalArgumentException
+	 * 			The given capacity is not strictly positive.
+	 * 			| capacity <= 0
+	 */
+	public FlowFieldCache(World world, int capacity) throws IllegalArgumentException {
+		if (capacity <= 0) {
+			throw new IllegalArgumentException();
+		}
+		this.world = world;
+		this.capacity = capacity;
+		this.fields = new LinkedHashMap<Integer, FlowField>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Integer, FlowField> eldest) {
+				if (size() <= FlowFieldCache.this.getCapacity()) {
+					return false;
+				}
+				// evicted fields no longer hear of terrain changes
+				eldest.getValue().invalidate();
+				return true;
+			}
+		};
+		this.nbRequests = new LinkedHashMap<Integer, Integer>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Integer, Integer> eldest) {
+				return size() > MAX_TRACKED_GOALS;
+			}
+		};
+	}
+
+	/**
+	 * Constant reflecting the default capacity of a flow field cache.
+	 */
+	public static final int DEFAULT_CAPACITY = 8;
+
+	/**
+	 * Constant reflecting the number of requests for the same goal after which a flow
+	 * field towards that goal is computed.
+	 */
+	private static final int MIN_NB_REQUESTS = 2;
+
+	/**
+	 * Constant reflecting the maximal number of goals for which the requests are counted.
+	 */
+	private static final int MAX_TRACKED_GOALS = 64;
+
+	/**
+	 * Variable registering the world for which flow fields are cached.
+	 */
+	private final World world;
+
+	/**
+	 * Variable registering the maximal number of flow fields in this cache.
+	 */
+	private final int capacity;
+
+	/**
+	 * Map registering the cached flow fields by the index of their goal, in the order
+	 * in which they were last used.
+	 */
+	private final Map<Integer, FlowField> fields;
+
+	/**
+	 * Map registering how many times a flow field towards the cubes with the given
+	 * indices was requested without being cached.
+	 */
+	private final Map<Integer, Integer> nbRequests;
+
+	/**
+	 * Return the world for which this cache keeps flow fields.
+	 */
+	@Basic @Immutable
+	public World getWorld() {
+		return this.world;
+	}
+
+	/**
+	 * Return the maximal number of flow fields in this cache.
+	 */
+	@Basic @Immutable
+	public int getCapacity() {
+		return this.capacity;
+	}
+
+	/**
+	 * Return the number of requests for the same goal after which a flow field
+	 * towards that goal is computed.
+	 */
+	@Immutable
+	public static int getMinNbRequests() {
+		return MIN_NB_REQUESTS;
+	}
+
+	/**
+	 * Return the number of flow fields in this cache.
+	 */
+	public int getNbFlowFields() {
+		return this.fields.size();
+	}
+
+	/**
+	 * Check whether this cache holds a flow field towards the given cube.
+	 */
+	public boolean hasFlowField(int x, int y, int z) {
+		return this.fields.containsKey(this.getIndex(x, y, z));
+	}
+
+	/**
+	 * Return a flow field towards the given cube, if that cube is a popular goal.
+	 *
+	 * @return	The cached flow field towards the given cube, which becomes the most
+	 * 			recently used one. If there is none, a new flow field is computed and
+	 * 			cached if the given cube has now been requested getMinNbRequests()
+	 * 			times, and null is returned otherwise.
+	 * 			| result == null || (result.isValid() &&
+	 * 			|	result.getGoal() == result.getIndex(x, y, z))
+	 */
+	public FlowField getFlowField(int x, int y, int z) {
+		if ((x < 0) || (x >= this.world.getNbX()) || (y < 0) || (y >= this.world.getNbY())
+				|| (z < 0) || (z >= this.world.getNbZ())) {
+			return null;
+		}
+		int goal = this.getIndex(x, y, z);
+		FlowField field = this.fields.get(goal);
+		if (field != null) {
+			return field;
+		}
+		Integer count = this.nbRequests.get(goal);
+		int nbRequests = (count == null) ? 1 : count + 1;
+		if (nbRequests < MIN_NB_REQUESTS) {
+			this.nbRequests.put(goal, nbRequests);
+			return null;
+		}
+		this.nbRequests.remove(goal);
+		field = new FlowField(this.world, x, y, z);
+		this.fields.put(goal, field);
+		return field;
+	}
+
+	/**
+	 * Drop the flow fields of this cache that may have changed because the type or
+	 * the support of the given cube changed.
+	 *
+	 * @effect	| for each field in the cache:
+	 * 			|	if (field.isAffectedBy(x, y, z)) then field.invalidate()
+	 * @post	| for each field in the cache:
+	 * 			|	!field.isAffectedBy(x, y, z)
+	 */
+	public void terrainChanged(int x, int y, int z) {
+		Iterator<FlowField> iterator = this.fields.values().iterator();
+		while (iterator.hasNext()) {
+			FlowField field = iterator.next();
+			if (field.isAffectedBy(x, y, z)) {
+				field.invalidate();
+				iterator.remove();
+			}
+		}
+	}
+
+	/**
+	 * Drop all flow fields of this cache.
+	 *
+	 * @post	| new.getNbFlowFields() == 0
+	 */
+	public void clear() {
+		for (FlowField field: this.fields.values()) {
+			field.invalidate();
+		}
+		this.fields.clear();
+		this.nbRequests.clear();
+	}
+
+	/*
+	 * Return the index of the cube with the given coordinates.
+	 */
+	private int getIndex(int x, int y, int z) {
+		return x + y * this.world.getNbX() + z * this.world.getNbX() * this.world.getNbY();
+	}
+}
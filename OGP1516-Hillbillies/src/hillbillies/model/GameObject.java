@@ -8,12 +8,27 @@ import helperclasses.Vector3d;
 public abstract class GameObject {
 	
 	public GameObject(Vector3d position) throws OutOfBoundsException{
+		this(position, new Random());
+	}
+	
+	/**
+	 * Initialize a new game object in the center of the given cube, with a random weight
+	 * drawn from the given random number generator.
+	 * 
+	 * @param   position
+	 * 			The cube in which this game object is placed.
+	 * @param	r
+	 * 			The random number generator to draw the weight from.
+	 * @throws 	OutOfBoundsException
+	 * 			The center of the given cube is out of bounds.
+	 * 			|!isValidPosition(position.add(0.5))
+	 */
+	public GameObject(Vector3d position, Random r) throws OutOfBoundsException{
 		Vector3d middle = new Vector3d(position.getX() + 0.5, position.getY() + 0.5, position.getZ() + 0.5 );
 		
-		if (!position.isValidPosition()){
-			throw new OutOfBoundsException(position.getDoubleArray());
+		if (!middle.isValidPosition()){
+			throw new OutOfBoundsException(middle.getDoubleArray());
 		}
-		Random r = new Random();
 		int weight = (int) (10 + 40 * r.nextDouble());
 		this.weight = weight;
 		this.position = middle;
@@ -49,6 +64,9 @@ public abstract class GameObject {
 			throw new OutOfBoundsException(position.getDoubleArray());
 		}
 		this.position = position;
+		if (this.getWorld() != null) {
+			this.getWorld().updateIndex(this);
+		}
 	}
 	
 	/**
@@ -85,13 +103,13 @@ public abstract class GameObject {
 	
 	/**
 	 * Checks if this  has solid ground beneath it.
-	 * @return	true if the cube below this game object is solid.
-	 * 			| blockType(x,y,z-1) == Solid
+	 * @return	true if this game object lies in a valid position of its world, on a
+	 * 			solid cube that is connected to the border, or at the bottom of the world.
+	 * 			| getPosition().getZ() < 1 || getWorld().isValidPosition(getPosition())
 	 */
 	public boolean canStand(){
-		Vector3d position = this.getPosition();
-		position.setZ(position.getZ()-1);
-		return this.getWorld().isSolid(position);
+		int[] cube = this.getPosition().getIntArray();
+		return (cube[2] == 0) || (this.getWorld().isValidPosition(cube[0], cube[1], cube[2]));
 	}
 	
 	/**
@@ -133,6 +151,43 @@ public abstract class GameObject {
 		this.falling = false;
 	}
 	
+	/**
+	 * Let this game object fall for the given duration, if it has no solid ground
+	 * beneath it, until it lands in the first cube below it that is a valid position
+	 * of its world.
+	 * 
+	 * @param	dt
+	 * 			The duration to fall for.
+	 * @effect	If this game object cannot stand, it starts falling.
+	 * 			| if (!canStand() && !isFalling()) then startFalling()
+	 * @effect	A falling game object that reaches the centre of the cube it lands in
+	 * 			stops falling there.
+	 */
+	protected void fall(double dt) {
+		if (!this.isFalling()) {
+			if (this.canStand()) {
+				return;
+			}
+			this.startFalling();
+		}
+		Vector3d position = this.getPosition();
+		int[] cube = position.getIntArray();
+		double landingZ = this.getWorld().getLandingZ(cube[0], cube[1], cube[2]) + 0.5;
+		double newZ = position.getZ() + (dt * this.getVelocity().getZ());
+		try {
+			if (newZ <= landingZ) {
+				this.setPosition(new Vector3d(position.getX(), position.getY(), landingZ));
+				this.stopFalling();
+			}
+			else {
+				this.setPosition(new Vector3d(position.getX(), position.getY(), newZ));
+			}
+		} catch (OutOfBoundsException e) {
+			// the landing cube lies within the world
+			throw new IllegalStateException(e);
+		}
+	}
+	
 	/**
 	 * Update this game objects location, caused by its velocity and a specified duration.
 	 * @param   dt
@@ -0,0 +1,822 @@
+package hillbillies.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+import be.kuleuven.cs.som.annotate.Basic;
+import be.kuleuven.cs.som.annotate.Immutable;
+
+/**
+ * A class of hierarchical path finders, searching paths between two cubes of a world
+ * on which a unit can stand in two levels (HPA*).
+ *
+ * The world is partitioned into chunks of getChunkSize() cubes in every direction.
+ * Where two neighbouring chunks touch, the steps between them are grouped into
+ * entrances, and every entrance gets a single pair of portal cubes, one on each side.
+ * The abstract graph links the portals of every entrance, and the portals of each
+ * chunk among each other, at the cost of the shortest path between them inside the
+ * chunk. A path query first searches the abstract graph and then refines every part
+ * of the abstract path with a search that is restricted to a single chunk.
+ *
+ * A path is found whenever one exists, but since all paths through an entrance pass
+ * through its portals, the path found may be slightly longer than a shortest path.
+ *
+ * When the terrain changes, only the chunks that contain a cube whose validity may
+ * have changed are rebuilt, together with the neighbouring chunks whose portals
+ * changed as a result. Chunks are rebuilt lazily, on the next query.
+ *
+ * @invar	The chunk size of each hierarchical path finder is strictly positive.
+ * 			| getChunkSize() > 0
+ *
+ * @author Joris Schrauwen, Wim Schmitz
+ */
+public class HierarchicalPathFinder {
+
+	/**
+	 * Initialize this new hierarchical path finder for the given world, with
+	 * chunks of the given size.
+	 *
+	 * @param 	world
+	 * 			The world in which paths are searched.
+	 * @param 	chunkSize
+	 * 			The number of cubes of a chunk in every direction.
+	 * @throws	IllegalArgumentException
+	 * 			The given chunk size is not strictly positive.
+	 * 			| chunkSize <= 0
+	 */
+	public HierarchicalPathFinder(World world, int chunkSize) throws IllegalArgumentException {
+		if (chunkSize <= 0) {
+			throw new IllegalArgumentException();
+		}
+		this.world = world;
+		this.chunkSize = chunkSize;
+		this.nbX = world.getNbX();
+		this.nbY = world.getNbY();
+		this.nbZ = world.getNbZ();
+		this.nbXY = nbX * nbY;
+		this.nbChunksX = (nbX + chunkSize - 1) / chunkSize;
+		this.nbChunksY = (nbY + chunkSize - 1) / chunkSize;
+		this.nbChunksZ = (nbZ + chunkSize - 1) / chunkSize;
+		int nbChunks = nbChunksX * nbChunksY * nbChunksZ;
+		this.portals = new HashMap<Integer, Portal>();
+		this.chunkPortals = new ArrayList<List<Portal>>(nbChunks);
+		for (int chunk = 0; chunk < nbChunks; chunk++) {
+			this.chunkPortals.add(new ArrayList<Portal>());
+		}
+		this.chunkCosts = new float[nbChunks][];
+		this.dirtyChunks = new BitSet(nbChunks);
+		this.dirtyChunks.set(0, nbChunks);
+		this.changedChunks = new BitSet(nbChunks);
+		int chunkVolume = chunkSize * chunkSize * chunkSize;
+		this.localDistance = new float[chunkVolume];
+		this.localHeapKeys = new float[64];
+		this.localHeapCubes = new int[64];
+	}
+
+	/**
+	 * Constant reflecting the default number of cubes of a chunk in every direction.
+	 */
+	public static final int DEFAULT_CHUNK_SIZE = 16;
+
+	/**
+	 * Variable registering the world in which paths are searched.
+	 */
+	private final World world;
+
+	/**
+	 * Variable registering the number of cubes of a chunk in every direction.
+	 */
+	private final int chunkSize;
+
+	/**
+	 * Variables registering the dimensions of the world, in cubes and in chunks.
+	 */
+	private final int nbX;
+	private final int nbY;
+	private final int nbZ;
+	private final int nbXY;
+	private final int nbChunksX;
+	private final int nbChunksY;
+	private final int nbChunksZ;
+
+	/**
+	 * A class of portals, being the cubes of the abstract graph.
+	 */
+	private static class Portal {
+
+		private Portal(int cube, int chunk) {
+			this.cube = cube;
+			this.chunk = chunk;
+		}
+
+		/**
+		 * The index of the cube of this portal, and of the chunk containing it.
+		 */
+		private final int cube;
+		private final int chunk;
+
+		/**
+		 * The position of this portal in the list of portals of its chunk.
+		 */
+		private int slot;
+
+		/**
+		 * The portals in other chunks that can be entered in a single step from this portal.
+		 */
+		private final List<Portal> links = new ArrayList<Portal>(2);
+
+		/**
+		 * The state of this portal in the abstract search with the given number.
+		 */
+		private int search;
+		private boolean closed;
+		private double g;
+		private Portal parent;
+	}
+
+	/**
+	 * Map registering the portal of every cube that is a portal.
+	 */
+	private final Map<Integer, Portal> portals;
+
+	/**
+	 * List registering the portals of every chunk.
+	 */
+	private final List<List<Portal>> chunkPortals;
+
+	/**
+	 * Array registering, for every chunk with n portals, an n by n matrix of the costs
+	 * of the shortest paths between its portals inside the chunk.
+	 */
+	private final float[][] chunkCosts;
+
+	/**
+	 * Set registering the chunks whose entrances must be rebuilt before the next query.
+	 */
+	private final BitSet dirtyChunks;
+
+	/**
+	 * Set registering the chunks whose portals changed since their costs were computed.
+	 */
+	private final BitSet changedChunks;
+
+	/**
+	 * Arrays used by the searches restricted to a single chunk.
+	 */
+	private final float[] localDistance;
+	private float[] localHeapKeys;
+	private int[] localHeapCubes;
+
+	/**
+	 * Variable registering the number of the current abstract search.
+	 */
+	private int search;
+
+	/**
+	 * Variable registering the number of portals expanded by the last abstract search.
+	 */
+	private int nbExpanded;
+
+	/**
+	 * Return the world in which this path finder searches.
+	 */
+	@Basic @Immutable
+	public World getWorld() {
+		return this.world;
+	}
+
+	/**
+	 * Return the number of cubes of a chunk of this path finder in every direction.
+	 */
+	@Basic @Immutable
+	public int getChunkSize() {
+		return this.chunkSize;
+	}
+
+	/**
+	 * Return the number of portals expanded by the last abstract search of this path finder.
+	 */
+	@Basic
+	public int getNbExpanded() {
+		return this.nbExpanded;
+	}
+
+	/**
+	 * Return the number of portals in the abstract graph of this path finder.
+	 */
+	public int getNbPortals() {
+		this.rebuildDirtyChunks();
+		return this.portals.size();
+	}
+
+	/**
+	 * Return the number of chunks that must be rebuilt before the next query.
+	 */
+	public int getNbDirtyChunks() {
+		return this.dirtyChunks.cardinality();
+	}
+
+	/**
+	 * Return the index of the chunk containing the cube with the given coordinates.
+	 */
+	public int getChunk(int x, int y, int z) {
+		return (x / chunkSize) + (y / chunkSize) * nbChunksX + (z / chunkSize) * nbChunksX * nbChunksY;
+	}
+
+	/**
+	 * Register that the type or the support of the cube with the given coordinates
+	 * changed. The chunks containing the cubes whose validity may have changed, being
+	 * the given cube and the cube above it, are rebuilt before the next query.
+	 */
+	public void terrainChanged(int x, int y, int z) {
+		if (this.isInside(x, y, z)) {
+			this.dirtyChunks.set(this.getChunk(x, y, z));
+		}
+		if (this.isInside(x, y, z + 1)) {
+			this.dirtyChunks.set(this.getChunk(x, y, z + 1));
+		}
+	}
+
+	/**
+	 * Return a path from the given start cube to the given goal cube, only passing
+	 * through cubes that are a valid position in the world of this path finder.
+	 *
+	 * @return	The indices of the cubes on the path, excluding the start cube and
+	 * 			including the goal cube, or null if the goal cannot be reached. The
+	 * 			result is empty if the start cube is the goal cube.
+	 * 			| result == null || for each index in result:
+	 * 			|	getWorld().isValidPosition(getWorld().getPathFinder().getCube(index))
+	 */
+	public int[] findPath(int startX, int startY, int startZ, int goalX, int goalY, int goalZ) {
+		this.nbExpanded = 0;
+		if ((!this.isInside(startX, startY, startZ)) || (!this.world.isValidPosition(goalX, goalY, goalZ))) {
+			return null;
+		}
+		int startCube = this.getIndex(startX, startY, startZ);
+		int goalCube = this.getIndex(goalX, goalY, goalZ);
+		if (startCube == goalCube) {
+			return new int[0];
+		}
+		this.rebuildDirtyChunks();
+
+		// connect the start and the goal to the portals of their chunks
+		Portal start = new Portal(startCube, this.getChunk(startX, startY, startZ));
+		Portal goal = new Portal(goalCube, this.getChunk(goalX, goalY, goalZ));
+		List<Portal> startPortals = this.chunkPortals.get(start.chunk);
+		List<Portal> goalPortals = this.chunkPortals.get(goal.chunk);
+		float[] startCosts = this.searchChunk(start.chunk, startCube, startPortals,
+				(start.chunk == goal.chunk) ? goalCube : -1);
+		float startToGoal = (start.chunk == goal.chunk) ? this.localDistance[this.getLocalIndex(goalCube)] : Float.POSITIVE_INFINITY;
+		float[] goalCosts = this.searchChunk(goal.chunk, goalCube, goalPortals, -1);
+
+		Portal[] route = this.searchAbstract(start, goal, startCosts, startToGoal, goalCosts);
+		if (route == null) {
+			return null;
+		}
+		return this.refine(route);
+	}
+
+	/*
+	 * Search the abstract graph from the given start to the given goal, and return the
+	 * portals on the cheapest route, including the start and the goal.
+	 */
+	private Portal[] searchAbstract(Portal start, Portal goal, float[] startCosts, float startToGoal,
+			float[] goalCosts) {
+		if (this.search == Integer.MAX_VALUE) {
+			for (Portal portal: this.portals.values()) {
+				portal.search = 0;
+			}
+			this.search = 0;
+		}
+		this.search++;
+		int[] goalCoordinates = this.getCube(goal.cube);
+		PriorityQueue<Entry> open = new PriorityQueue<Entry>();
+		this.visit(open, start, null, 0, goalCoordinates);
+		while (!open.isEmpty()) {
+			Entry entry = open.poll();
+			Portal current = entry.portal;
+			if ((current.closed) || (entry.g > current.g)) {
+				continue;
+			}
+			if (current == goal) {
+				int length = 0;
+				for (Portal portal = goal; portal != null; portal = portal.parent) {
+					length++;
+				}
+				Portal[] route = new Portal[length];
+				for (Portal portal = goal; portal != null; portal = portal.parent) {
+					route[--length] = portal;
+				}
+				return route;
+			}
+			current.closed = true;
+			this.nbExpanded++;
+
+			if (current == start) {
+				List<Portal> chunkPortals = this.chunkPortals.get(start.chunk);
+				for (int slot = 0; slot < chunkPortals.size(); slot++) {
+					this.visit(open, chunkPortals.get(slot), start, startCosts[slot], goalCoordinates);
+				}
+				this.visit(open, goal, start, startToGoal, goalCoordinates);
+				continue;
+			}
+			for (Portal link: current.links) {
+				this.visit(open, link, current, current.g + this.getStepCost(current.cube, link.cube), goalCoordinates);
+			}
+			List<Portal> chunkPortals = this.chunkPortals.get(current.chunk);
+			float[] costs = this.chunkCosts[current.chunk];
+			int offset = current.slot * chunkPortals.size();
+			for (int slot = 0; slot < chunkPortals.size(); slot++) {
+				if (slot != current.slot) {
+					this.visit(open, chunkPortals.get(slot), current, current.g + costs[offset + slot], goalCoordinates);
+				}
+			}
+			if (current.chunk == goal.chunk) {
+				this.visit(open, goal, current, current.g + goalCosts[current.slot], goalCoordinates);
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * A class of entries in the open list of the abstract search.
+	 */
+	private static class Entry implements Comparable<Entry> {
+
+		private Entry(Portal portal, double g, double f) {
+			this.portal = portal;
+			this.g = g;
+			this.f = f;
+		}
+
+		private final Portal portal;
+		private final double g;
+		private final double f;
+
+		@Override
+		public int compareTo(Entry other) {
+			return Double.compare(this.f, other.f);
+		}
+	}
+
+	/*
+	 * Record the given cost of reaching the given portal from the given parent, if it
+	 * is finite and better than the cost known so far.
+	 */
+	private void visit(PriorityQueue<Entry> open, Portal portal, Portal parent, double cost, int[] goal) {
+		if (cost == Double.POSITIVE_INFINITY) {
+			return;
+		}
+		if (portal.search != this.search) {
+			portal.search = this.search;
+			portal.closed = false;
+			portal.g = Double.POSITIVE_INFINITY;
+		}
+		if ((portal.closed) || (cost >= portal.g)) {
+			return;
+		}
+		portal.g = cost;
+		portal.parent = parent;
+		int[] cube = this.getCube(portal.cube);
+		open.add(new Entry(portal, cost,
+				cost + PathFinder.getOctileDistance(goal[0] - cube[0], goal[1] - cube[1], goal[2] - cube[2])));
+	}
+
+	/*
+	 * Return the cubes of a path along the given route of portals. Consecutive portals
+	 * in the same chunk are connected by a search restricted to that chunk; portals in
+	 * different chunks are a single step apart.
+	 */
+	private int[] refine(Portal[] route) {
+		PathFinder finder = this.world.getPathFinder();
+		int[] path = new int[16];
+		int length = 0;
+		for (int i = 1; i < route.length; i++) {
+			int[] from = this.getCube(route[i - 1].cube);
+			int[] to = this.getCube(route[i].cube);
+			int[] part;
+			if (route[i - 1].chunk == route[i].chunk) {
+				int[] min = this.getChunkOrigin(route[i].chunk);
+				part = finder.findPathInBox(from[0], from[1], from[2], to[0], to[1], to[2],
+						min[0], min[1], min[2], min[0] + chunkSize - 1, min[1] + chunkSize - 1, min[2] + chunkSize - 1);
+			}
+			else {
+				part = new int[] { route[i].cube };
+			}
+			if (part == null) {
+				return null;
+			}
+			if (length + part.length > path.length) {
+				path = Arrays.copyOf(path, Math.max(2 * path.length, length + part.length));
+			}
+			System.arraycopy(part, 0, path, length, part.length);
+			length += part.length;
+		}
+		return Arrays.copyOf(path, length);
+	}
+
+	/*
+	 * Rebuild the entrances of all dirty chunks, and recompute the costs between the
+	 * portals of all chunks whose portals changed as a result.
+	 */
+	private void rebuildDirtyChunks() {
+		if (this.dirtyChunks.isEmpty()) {
+			return;
+		}
+		boolean initial = this.portals.isEmpty() && (this.dirtyChunks.cardinality() == this.chunkPortals.size());
+		for (int chunk = this.dirtyChunks.nextSetBit(0); chunk >= 0; chunk = this.dirtyChunks.nextSetBit(chunk + 1)) {
+			this.removePortals(chunk);
+		}
+		for (int chunk = this.dirtyChunks.nextSetBit(0); chunk >= 0; chunk = this.dirtyChunks.nextSetBit(chunk + 1)) {
+			int[] c = this.getChunkCoordinates(chunk);
+			for (int dz = -1; dz <= 1; dz++) {
+				for (int dy = -1; dy <= 1; dy++) {
+					for (int dx = -1; dx <= 1; dx++) {
+						int nx = c[0] + dx, ny = c[1] + dy, nz = c[2] + dz;
+						if (((dx == 0) && (dy == 0) && (dz == 0)) || (nx < 0) || (nx >= nbChunksX)
+								|| (ny < 0) || (ny >= nbChunksY) || (nz < 0) || (nz >= nbChunksZ)) {
+							continue;
+						}
+						int other = nx + ny * nbChunksX + nz * nbChunksX * nbChunksY;
+						// link every pair of chunks only once, from the chunk with the lowest index
+						if ((this.dirtyChunks.get(other)) && (other < chunk)) {
+							continue;
+						}
+						this.linkChunks(Math.min(chunk, other), Math.max(chunk, other));
+					}
+				}
+			}
+		}
+		if (!initial) {
+			for (int chunk = this.dirtyChunks.nextSetBit(0); chunk >= 0; chunk = this.dirtyChunks.nextSetBit(chunk + 1)) {
+				this.removeUnlinkedPortals(chunk);
+			}
+		}
+		this.changedChunks.or(this.dirtyChunks);
+		this.dirtyChunks.clear();
+		for (int chunk = this.changedChunks.nextSetBit(0); chunk >= 0; chunk = this.changedChunks.nextSetBit(chunk + 1)) {
+			this.computeCosts(chunk);
+		}
+		this.changedChunks.clear();
+	}
+
+	/*
+	 * Remove all portals of the given chunk, and their links with portals of other chunks.
+	 */
+	private void removePortals(int chunk) {
+		for (Portal portal: this.chunkPortals.get(chunk)) {
+			for (Portal link: portal.links) {
+				link.links.remove(portal);
+			}
+			this.portals.remove(portal.cube);
+		}
+		this.chunkPortals.get(chunk).clear();
+	}
+
+	/*
+	 * Remove the portals of the neighbours of the given chunk that are no longer
+	 * linked to any other portal.
+	 */
+	private void removeUnlinkedPortals(int chunk) {
+		int[] c = this.getChunkCoordinates(chunk);
+		for (int dz = -1; dz <= 1; dz++) {
+			for (int dy = -1; dy <= 1; dy++) {
+				for (int dx = -1; dx <= 1; dx++) {
+					int nx = c[0] + dx, ny = c[1] + dy, nz = c[2] + dz;
+					if ((nx < 0) || (nx >= nbChunksX) || (ny < 0) || (ny >= nbChunksY) || (nz < 0) || (nz >= nbChunksZ)) {
+						continue;
+					}
+					int other = nx + ny * nbChunksX + nz * nbChunksX * nbChunksY;
+					List<Portal> otherPortals = this.chunkPortals.get(other);
+					for (int i = otherPortals.size() - 1; i >= 0; i--) {
+						if (otherPortals.get(i).links.isEmpty()) {
+							this.portals.remove(otherPortals.remove(i).cube);
+							this.changedChunks.set(other);
+						}
+					}
+				}
+			}
+		}
+	}
+
+	/*
+	 * Find the entrances between the given neighbouring chunks, and add a pair of
+	 * linked portals for each of them.
+	 *
+	 * Every step from a valid cube a in the first chunk to a valid cube b in the second
+	 * chunk is a transition. Two transitions belong to the same entrance if their cubes
+	 * a are adjacent or equal and their cubes b are adjacent or equal, so that all cubes
+	 * of an entrance on either side are connected within their own chunk. The portals
+	 * of an entrance are the cubes of its middle transition.
+	 */
+	private void linkChunks(int first, int second) {
+		int[] min1 = this.getChunkOrigin(first);
+		int[] max1 = this.getChunkEnd(first);
+		int[] min2 = this.getChunkOrigin(second);
+		int[] max2 = this.getChunkEnd(second);
+
+		// the transitions, ordered by their cube in the first chunk
+		int[] from = new int[16];
+		int[] to = new int[16];
+		int nbTransitions = 0;
+		Map<Integer, int[]> transitionsOf = new HashMap<Integer, int[]>();
+		for (int z = Math.max(min1[2], min2[2] - 1); z <= Math.min(max1[2], max2[2] + 1); z++) {
+			for (int y = Math.max(min1[1], min2[1] - 1); y <= Math.min(max1[1], max2[1] + 1); y++) {
+				for (int x = Math.max(min1[0], min2[0] - 1); x <= Math.min(max1[0], max2[0] + 1); x++) {
+					if (!this.world.isValidPosition(x, y, z)) {
+						continue;
+					}
+					int firstTransition = nbTransitions;
+					for (int bz = Math.max(z - 1, min2[2]); bz <= Math.min(z + 1, max2[2]); bz++) {
+						for (int by = Math.max(y - 1, min2[1]); by <= Math.min(y + 1, max2[1]); by++) {
+							for (int bx = Math.max(x - 1, min2[0]); bx <= Math.min(x + 1, max2[0]); bx++) {
+								if (!this.world.isValidPosition(bx, by, bz)) {
+									continue;
+								}
+								if (nbTransitions == from.length) {
+									from = Arrays.copyOf(from, 2 * nbTransitions);
+									to = Arrays.copyOf(to, 2 * nbTransitions);
+								}
+								from[nbTransitions] = this.getIndex(x, y, z);
+								to[nbTransitions] = this.getIndex(bx, by, bz);
+								nbTransitions++;
+							}
+						}
+					}
+					if (nbTransitions > firstTransition) {
+						transitionsOf.put(this.getIndex(x, y, z), new int[] { firstTransition, nbTransitions });
+					}
+				}
+			}
+		}
+		if (nbTransitions == 0) {
+			return;
+		}
+
+		// group the transitions into entrances with a union-find structure
+		int[] group = new int[nbTransitions];
+		for (int t = 0; t < nbTransitions; t++) {
+			group[t] = t;
+		}
+		for (int t = 0; t < nbTransitions; t++) {
+			int[] a = this.getCube(from[t]);
+			for (int dz = -1; dz <= 1; dz++) {
+				for (int dy = -1; dy <= 1; dy++) {
+					for (int dx = -1; dx <= 1; dx++) {
+						if (!this.isInside(a[0] + dx, a[1] + dy, a[2] + dz)) {
+							continue;
+						}
+						int[] range = transitionsOf.get(this.getIndex(a[0] + dx, a[1] + dy, a[2] + dz));
+						if (range == null) {
+							continue;
+						}
+						for (int other = range[0]; (other < range[1]) && (other < t); other++) {
+							if (this.areAdjacent(to[t], to[other])) {
+								group[find(group, t)] = find(group, other);
+							}
+						}
+					}
+				}
+			}
+		}
+
+		// link the portals of the middle transition of every entrance
+		int[] size = new int[nbTransitions];
+		for (int t = 0; t < nbTransitions; t++) {
+			size[find(group, t)]++;
+		}
+		int[] seen = new int[nbTransitions];
+		for (int t = 0; t < nbTransitions; t++) {
+			int root = find(group, t);
+			if (seen[root]++ == size[root] / 2) {
+				Portal a = this.getOrCreatePortal(from[t], first);
+				Portal b = this.getOrCreatePortal(to[t], second);
+				if (!a.links.contains(b)) {
+					a.links.add(b);
+					b.links.add(a);
+				}
+			}
+		}
+	}
+
+	/*
+	 * Return the root of the group of the given transition, compressing the path to it.
+	 */
+	private static int find(int[] group, int t) {
+		while (group[t] != t) {
+			group[t] = group[group[t]];
+			t = group[t];
+		}
+		return t;
+	}
+
+	/*
+	 * Return the portal at the given cube, creating it if the cube is not a portal yet.
+	 */
+	private Portal getOrCreatePortal(int cube, int chunk) {
+		Portal portal = this.portals.get(cube);
+		if (portal == null) {
+			portal = new Portal(cube, chunk);
+			List<Portal> chunkPortals = this.chunkPortals.get(chunk);
+			portal.slot = chunkPortals.size();
+			chunkPortals.add(portal);
+			this.portals.put(cube, portal);
+			this.changedChunks.set(chunk);
+		}
+		return portal;
+	}
+
+	/*
+	 * Compute the costs of the shortest paths between all portals of the given chunk
+	 * inside the chunk.
+	 */
+	private void computeCosts(int chunk) {
+		List<Portal> chunkPortals = this.chunkPortals.get(chunk);
+		int n = chunkPortals.size();
+		for (int slot = 0; slot < n; slot++) {
+			chunkPortals.get(slot).slot = slot;
+		}
+		float[] costs = new float[n * n];
+		for (int slot = 0; slot < n; slot++) {
+			float[] row = this.searchChunk(chunk, chunkPortals.get(slot).cube, chunkPortals, -1);
+			System.arraycopy(row, 0, costs, slot * n, n);
+		}
+		this.chunkCosts[chunk] = costs;
+	}
+
+	/*
+	 * Compute the costs of the shortest paths inside the given chunk from the given
+	 * source cube to all cubes of the chunk, stopping as soon as the given portals and
+	 * the given extra target, if it is not -1, have been reached. The source cube need
+	 * not be a valid position.
+	 *
+	 * @return	The costs to the given portals, in the same order.
+	 */
+	private float[] searchChunk(int chunk, int source, List<Portal> targets, int extraTarget) {
+		int[] origin = this.getChunkOrigin(chunk);
+		int[] end = this.getChunkEnd(chunk);
+		Arrays.fill(this.localDistance, Float.POSITIVE_INFINITY);
+		int remaining = targets.size() + ((extraTarget >= 0) ? 1 : 0);
+		BitSet isTarget = new BitSet(this.localDistance.length);
+		for (Portal target: targets) {
+			isTarget.set(this.getLocalIndex(target.cube));
+		}
+		if (extraTarget >= 0) {
+			isTarget.set(this.getLocalIndex(extraTarget));
+		}
+
+		float[] keys = this.localHeapKeys;
+		int[] cubes = this.localHeapCubes;
+		int size = 1;
+		this.localDistance[this.getLocalIndex(source)] = 0;
+		keys[0] = 0;
+		cubes[0] = source;
+		while ((size > 0) && (remaining > 0)) {
+			float key = keys[0];
+			int current = cubes[0];
+			size--;
+			if (size > 0) {
+				float lastKey = keys[size];
+				int lastCube = cubes[size];
+				int position = 0;
+				while (true) {
+					int child = 2 * position + 1;
+					if (child >= size) {
+						break;
+					}
+					if ((child + 1 < size) && (keys[child + 1] < keys[child])) {
+						child++;
+					}
+					if (keys[child] >= lastKey) {
+						break;
+					}
+					keys[position] = keys[child];
+					cubes[position] = cubes[child];
+					position = child;
+				}
+				keys[position] = lastKey;
+				cubes[position] = lastCube;
+			}
+			int local = this.getLocalIndex(current);
+			if (key > this.localDistance[local]) {
+				continue;
+			}
+			if (isTarget.get(local)) {
+				isTarget.clear(local);
+				remaining--;
+			}
+
+			int x = current % nbX;
+			int y = (current / nbX) % nbY;
+			int z = current / nbXY;
+			for (int nz = Math.max(z - 1, origin[2]); nz <= Math.min(z + 1, end[2]); nz++) {
+				for (int ny = Math.max(y - 1, origin[1]); ny <= Math.min(y + 1, end[1]); ny++) {
+					for (int nx = Math.max(x - 1, origin[0]); nx <= Math.min(x + 1, end[0]); nx++) {
+						int neighbour = this.getIndex(nx, ny, nz);
+						if (neighbour == current) {
+							continue;
+						}
+						int dx = nx - x, dy = ny - y, dz = nz - z;
+						float cost = key + (float) Math.sqrt(dx * dx + dy * dy + dz * dz);
+						int neighbourLocal = this.getLocalIndex(neighbour);
+						if ((cost >= this.localDistance[neighbourLocal]) || (!this.world.isValidPosition(nx, ny, nz))) {
+							continue;
+						}
+						this.localDistance[neighbourLocal] = cost;
+						if (size == keys.length) {
+							keys = Arrays.copyOf(keys, 2 * size);
+							cubes = Arrays.copyOf(cubes, 2 * size);
+							this.localHeapKeys = keys;
+							this.localHeapCubes = cubes;
+						}
+						int position = size++;
+						while (position > 0) {
+							int parent = (position - 1) / 2;
+							if (keys[parent] <= cost) {
+								break;
+							}
+							keys[position] = keys[parent];
+							cubes[position] = cubes[parent];
+							position = parent;
+						}
+						keys[position] = cost;
+						cubes[position] = neighbour;
+					}
+				}
+			}
+		}
+		float[] result = new float[targets.size()];
+		for (int i = 0; i < result.length; i++) {
+			result[i] = this.localDistance[this.getLocalIndex(targets.get(i).cube)];
+		}
+		return result;
+	}
+
+	/*
+	 * Return the index of the given cube within the chunk containing it.
+	 */
+	private int getLocalIndex(int cube) {
+		int x = (cube % nbX) % chunkSize;
+		int y = ((cube / nbX) % nbY) % chunkSize;
+		int z = (cube / nbXY) % chunkSize;
+		return x + y * chunkSize + z * chunkSize * chunkSize;
+	}
+
+	/*
+	 * Return the cost of a single step between the given adjacent cubes.
+	 */
+	private double getStepCost(int from, int to) {
+		int[] a = this.getCube(from);
+		int[] b = this.getCube(to);
+		int dx = a[0] - b[0], dy = a[1] - b[1], dz = a[2] - b[2];
+		return Math.sqrt(dx * dx + dy * dy + dz * dz);
+	}
+
+	/*
+	 * Check whether the given cubes are equal or adjacent.
+	 */
+	private boolean areAdjacent(int first, int second) {
+		int[] a = this.getCube(first);
+		int[] b = this.getCube(second);
+		return (Math.abs(a[0] - b[0]) <= 1) && (Math.abs(a[1] - b[1]) <= 1) && (Math.abs(a[2] - b[2]) <= 1);
+	}
+
+	private int getIndex(int x, int y, int z) {
+		return x + y * nbX + z * nbXY;
+	}
+
+	private int[] getCube(int index) {
+		return new int[] { index % nbX, (index / nbX) % nbY, index / nbXY };
+	}
+
+	private boolean isInside(int x, int y, int z) {
+		return (0 <= x) && (x < nbX) && (0 <= y) && (y < nbY) && (0 <= z) && (z < nbZ);
+	}
+
+	private int[] getChunkCoordinates(int chunk) {
+		return new int[] { chunk % nbChunksX, (chunk / nbChunksX) % nbChunksY, chunk / (nbChunksX * nbChunksY) };
+	}
+
+	/*
+	 * Return the coordinates of the cube of the given chunk with the lowest coordinates.
+	 */
+	private int[] getChunkOrigin(int chunk) {
+		int[] c = this.getChunkCoordinates(chunk);
+		return new int[] { c[0] * chunkSize, c[1] * chunkSize, c[2] * chunkSize };
+	}
+
+	/*
+	 * Return the coordinates of the cube of the given chunk with the highest coordinates.
+	 */
+	private int[] getChunkEnd(int chunk) {
+		int[] origin = this.getChunkOrigin(chunk);
+		return new int[] { Math.min(origin[0] + chunkSize, nbX) - 1,
+				Math.min(origin[1] + chunkSize, nbY) - 1,
+				Math.min(origin[2] + chunkSize, nbZ) - 1 };
+	}
+}
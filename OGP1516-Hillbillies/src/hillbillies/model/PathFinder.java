@@ -0,0 +1,435 @@
+package hillbillies.model;
+
+import java.util.Arrays;
+
+import be.kuleuven.cs.som.annotate.Basic;
+import be.kuleuven.cs.som.annotate.Immutable;
+
+/**
+ * A class of path finders, searching the shortest path between two cubes of a world
+ * on which a unit can stand, using A* over the 26-connected voxel grid.
+ *
+ * Cubes are identified by their index x + y * nbX + z * nbX * nbY, as in {@link Terrain}.
+ * Every step costs the euclidean distance between the centres of both cubes, and the
+ * search is guided by the matching three-dimensional octile distance, so the paths
+ * found are shortest paths.
+ *
+ * All bookkeeping is done in primitive arrays that are allocated once and reused by
+ * every search, using a generation counter to tell stale entries apart. A path finder
+ * is therefore cheap to query repeatedly, but must not be used by several threads at
+ * the same time. A path finder that searches a snapshot of the terrain instead of the
+ * world itself may be used by another thread than the one changing the world.
+ *
+ * @author Joris Schrauwen, Wim Schmitz
+ */
+public class PathFinder {
+
+	/**
+	 * Initialize this new path finder for the given world.
+	 *
+	 * @param 	world
+	 * 			The world in which paths are searched.
+	 */
+	public PathFinder(World world) {
+		this.world = world;
+		this.nbX = world.getNbX();
+		this.nbY = world.getNbY();
+		this.nbZ = world.getNbZ();
+		this.nbXY = nbX * nbY;
+	}
+
+	/**
+	 * Variable registering the world in which paths are searched.
+	 */
+	private final World world;
+
+	/**
+	 * Variable registering the snapshot of the terrain of the world that is searched
+	 * instead of the world itself, or null if the world itself is searched.
+	 */
+	private TerrainSnapshot snapshot;
+
+	/**
+	 * Variables registering the dimensions of the world.
+	 */
+	private final int nbX;
+	private final int nbY;
+	private final int nbZ;
+	private final int nbXY;
+
+	/**
+	 * Constants reflecting the offsets and costs of the 26 steps to adjacent cubes.
+	 */
+	private static final int[] STEP_X = new int[26];
+	private static final int[] STEP_Y = new int[26];
+	private static final int[] STEP_Z = new int[26];
+	private static final double[] STEP_COST = new double[26];
+
+	static {
+		int step = 0;
+		for (int dz = -1; dz <= 1; dz++) {
+			for (int dy = -1; dy <= 1; dy++) {
+				for (int dx = -1; dx <= 1; dx++) {
+					if ((dx != 0) || (dy != 0) || (dz != 0)) {
+						STEP_X[step] = dx;
+						STEP_Y[step] = dy;
+						STEP_Z[step] = dz;
+						STEP_COST[step] = Math.sqrt(dx * dx + dy * dy + dz * dz);
+						step++;
+					}
+				}
+			}
+		}
+	}
+
+	private static final double SQRT2 = Math.sqrt(2);
+	private static final double SQRT3 = Math.sqrt(3);
+
+	/**
+	 * Constants reflecting the state of a cube in the current search.
+	 */
+	private static final byte OPEN = 1;
+	private static final byte CLOSED = 2;
+
+	/**
+	 * Arrays registering, for every cube, the generation in which its other entries
+	 * were last written, its state, the cost of the best known path to it, its
+	 * estimated total cost, the cube it is reached from and its position in the heap.
+	 */
+	private int[] stamp;
+	private byte[] state;
+	private double[] g;
+	private double[] f;
+	private int[] parent;
+	private int[] heapPos;
+
+	/**
+	 * Binary min-heap of the open cubes, ordered by their estimated total cost.
+	 */
+	private int[] heap;
+	private int heapSize;
+
+	/**
+	 * Variable registering the generation of the current search.
+	 */
+	private int generation;
+
+	/**
+	 * Variables registering the box to which the current search is restricted.
+	 */
+	private int minX;
+	private int minY;
+	private int minZ;
+	private int maxX;
+	private int maxY;
+	private int maxZ;
+
+	/**
+	 * Variable registering the number of cubes expanded by the last search.
+	 */
+	private int nbExpanded;
+
+	/**
+	 * Return the world in which this path finder searches.
+	 */
+	@Basic @Immutable
+	public World getWorld() {
+		return this.world;
+	}
+
+	/**
+	 * Return the snapshot of the terrain searched by this path finder, or null if it
+	 * searches the current terrain of its world.
+	 */
+	@Basic
+	public TerrainSnapshot getSnapshot() {
+		return this.snapshot;
+	}
+
+	/**
+	 * Let this path finder search the given snapshot of the terrain of its world, or
+	 * the current terrain of its world if the given snapshot is null.
+	 *
+	 * @param	snapshot
+	 * 			The snapshot to search.
+	 * @post	| new.getSnapshot() == snapshot
+	 * @throws	IllegalArgumentException
+	 * 			The given snapshot does not have the dimensions of the world of this path finder.
+	 * 			| snapshot != null && (snapshot.getNbX() != getWorld().getNbX() ||
+	 * 			|	snapshot.getNbY() != getWorld().getNbY() || snapshot.getNbZ() != getWorld().getNbZ())
+	 */
+	public void setSnapshot(TerrainSnapshot snapshot) throws IllegalArgumentException {
+		if ((snapshot != null) && ((snapshot.getNbX() != nbX) || (snapshot.getNbY() != nbY) || (snapshot.getNbZ() != nbZ))) {
+			throw new IllegalArgumentException();
+		}
+		this.snapshot = snapshot;
+	}
+
+	/**
+	 * Return the number of cubes expanded by the last search of this path finder.
+	 */
+	@Basic
+	public int getNbExpanded() {
+		return this.nbExpanded;
+	}
+
+	/**
+	 * Return the index of the cube with the given coordinates.
+	 */
+	public int getIndex(int x, int y, int z) {
+		return x + y * nbX + z * nbXY;
+	}
+
+	/**
+	 * Return the coordinates {x, y, z} of the cube with the given index.
+	 */
+	public int[] getCube(int index) {
+		return new int[] { index % nbX, (index / nbX) % nbY, index / nbXY };
+	}
+
+	/**
+	 * Return the three-dimensional octile distance between two cubes, which is the
+	 * length of the shortest path between them in an empty world.
+	 *
+	 * @return	| let d1 >= d2 >= d3 be |dx|, |dy| and |dz| in
+	 * 			|	result == d1 + (sqrt(2) - 1) * d2 + (sqrt(3) - sqrt(2)) * d3
+	 */
+	public static double getOctileDistance(int dx, int dy, int dz) {
+		dx = Math.abs(dx);
+		dy = Math.abs(dy);
+		dz = Math.abs(dz);
+		int max = Math.max(dx, Math.max(dy, dz));
+		int min = Math.min(dx, Math.min(dy, dz));
+		int mid = dx + dy + dz - max - min;
+		return max + (SQRT2 - 1) * mid + (SQRT3 - SQRT2) * min;
+	}
+
+	/**
+	 * Return a shortest path from the given start cube to the given goal cube, only
+	 * passing through cubes that are a valid position in the world of this path finder,
+	 * or in its snapshot if it has one.
+	 *
+	 * @return	The indices of the cubes on the path, excluding the start cube and
+	 * 			including the goal cube, or null if the goal cannot be reached. The
+	 * 			result is empty if the start cube is the goal cube.
+	 * 			| result == null || for each index in result:
+	 * 			|	getWorld().isValidPosition(getCube(index))
+	 */
+	public int[] findPath(int startX, int startY, int startZ, int goalX, int goalY, int goalZ) {
+		return this.findPathInBox(startX, startY, startZ, goalX, goalY, goalZ,
+				0, 0, 0, nbX - 1, nbY - 1, nbZ - 1);
+	}
+
+	/**
+	 * Return a shortest path from the given start cube to the given goal cube, only
+	 * passing through cubes that are a valid position in the world of this path finder
+	 * and that lie in the box from (minX, minY, minZ) up to and including (maxX, maxY, maxZ).
+	 *
+	 * @return	The indices of the cubes on the path, excluding the start cube and
+	 * 			including the goal cube, or null if the goal cannot be reached within the
+	 * 			box. The result is empty if the start cube is the goal cube.
+	 * 			| result == null || for each index in result:
+	 * 			|	getWorld().isValidPosition(getCube(index)) &&
+	 * 			|	getCube(index) lies in the given box
+	 */
+	public int[] findPathInBox(int startX, int startY, int startZ, int goalX, int goalY, int goalZ,
+			int minX, int minY, int minZ, int maxX, int maxY, int maxZ) {
+		this.nbExpanded = 0;
+		this.minX = Math.max(minX, 0);
+		this.minY = Math.max(minY, 0);
+		this.minZ = Math.max(minZ, 0);
+		this.maxX = Math.min(maxX, nbX - 1);
+		this.maxY = Math.min(maxY, nbY - 1);
+		this.maxZ = Math.min(maxZ, nbZ - 1);
+		if ((!this.isInside(startX, startY, startZ)) || (!this.isInside(goalX, goalY, goalZ))
+				|| (!this.isValidPosition(goalX, goalY, goalZ))) {
+			return null;
+		}
+		int start = this.getIndex(startX, startY, startZ);
+		int goal = this.getIndex(goalX, goalY, goalZ);
+		if (start == goal) {
+			return new int[0];
+		}
+		this.startSearch();
+
+		this.visit(start, -1, 0, getOctileDistance(goalX - startX, goalY - startY, goalZ - startZ));
+		while (this.heapSize > 0) {
+			int current = this.pop();
+			if (current == goal) {
+				return this.buildPath(start, goal);
+			}
+			this.state[current] = CLOSED;
+			this.nbExpanded++;
+
+			int x = current % nbX;
+			int y = (current / nbX) % nbY;
+			int z = current / nbXY;
+			for (int step = 0; step < 26; step++) {
+				int nx = x + STEP_X[step];
+				int ny = y + STEP_Y[step];
+				int nz = z + STEP_Z[step];
+				if (!this.isInside(nx, ny, nz)) {
+					continue;
+				}
+				int next = current + STEP_X[step] + STEP_Y[step] * nbX + STEP_Z[step] * nbXY;
+				boolean seen = (this.stamp[next] == this.generation);
+				if ((seen) && (this.state[next] == CLOSED)) {
+					continue;
+				}
+				double cost = this.g[current] + STEP_COST[step];
+				if ((seen) && (cost >= this.g[next])) {
+					continue;
+				}
+				if ((!seen) && (!this.isValidPosition(nx, ny, nz))) {
+					// remember the cube cannot be entered for the rest of this search
+					this.stamp[next] = this.generation;
+					this.state[next] = CLOSED;
+					continue;
+				}
+				this.visit(next, current, cost, cost + getOctileDistance(goalX - nx, goalY - ny, goalZ - nz));
+			}
+		}
+		return null;
+	}
+
+	/*
+	 * Check whether the given cube is a valid position in the terrain searched.
+	 */
+	private boolean isValidPosition(int x, int y, int z) {
+		if (this.snapshot != null) {
+			return this.snapshot.isValidPosition(x, y, z);
+		}
+		return this.world.isValidPosition(x, y, z);
+	}
+
+	/*
+	 * Check whether the given coordinates lie within the box of the current search.
+	 */
+	private boolean isInside(int x, int y, int z) {
+		return (minX <= x) && (x <= maxX) && (minY <= y) && (y <= maxY) && (minZ <= z) && (z <= maxZ);
+	}
+
+	/*
+	 * Prepare the arrays of this path finder for a new search.
+	 */
+	private void startSearch() {
+		if (this.stamp == null) {
+			int nbCubes = nbXY * nbZ;
+			this.stamp = new int[nbCubes];
+			this.state = new byte[nbCubes];
+			this.g = new double[nbCubes];
+			this.f = new double[nbCubes];
+			this.parent = new int[nbCubes];
+			this.heapPos = new int[nbCubes];
+			this.heap = new int[64];
+		}
+		if (this.generation == Integer.MAX_VALUE) {
+			Arrays.fill(this.stamp, 0);
+			this.generation = 0;
+		}
+		this.generation++;
+		this.heapSize = 0;
+	}
+
+	/*
+	 * Record the given path to the given cube, and add the cube to the open set or
+	 * move it up in the heap.
+	 */
+	private void visit(int cube, int from, double cost, double estimate) {
+		boolean isOpen = (this.stamp[cube] == this.generation) && (this.state[cube] == OPEN);
+		this.stamp[cube] = this.generation;
+		this.state[cube] = OPEN;
+		this.g[cube] = cost;
+		this.f[cube] = estimate;
+		this.parent[cube] = from;
+		if (!isOpen) {
+			if (this.heapSize == this.heap.length) {
+				this.heap = Arrays.copyOf(this.heap, 2 * this.heap.length);
+			}
+			this.heap[this.heapSize] = cube;
+			this.heapPos[cube] = this.heapSize;
+			this.heapSize++;
+		}
+		this.siftUp(this.heapPos[cube]);
+	}
+
+	/*
+	 * Remove and return the open cube with the lowest estimated total cost.
+	 */
+	private int pop() {
+		int result = this.heap[0];
+		this.heapSize--;
+		if (this.heapSize > 0) {
+			this.heap[0] = this.heap[this.heapSize];
+			this.heapPos[this.heap[0]] = 0;
+			this.siftDown(0);
+		}
+		return result;
+	}
+
+	/*
+	 * Check whether the first cube must come before the second one in the heap. Ties
+	 * are broken in favour of the cube that is furthest from the start, which is
+	 * closest to the goal.
+	 */
+	private boolean precedes(int first, int second) {
+		if (this.f[first] != this.f[second]) {
+			return this.f[first] < this.f[second];
+		}
+		return this.g[first] > this.g[second];
+	}
+
+	private void siftUp(int position) {
+		int cube = this.heap[position];
+		while (position > 0) {
+			int parentPosition = (position - 1) / 2;
+			int other = this.heap[parentPosition];
+			if (!this.precedes(cube, other)) {
+				break;
+			}
+			this.heap[position] = other;
+			this.heapPos[other] = position;
+			position = parentPosition;
+		}
+		this.heap[position] = cube;
+		this.heapPos[cube] = position;
+	}
+
+	private void siftDown(int position) {
+		int cube = this.heap[position];
+		while (true) {
+			int child = 2 * position + 1;
+			if (child >= this.heapSize) {
+				break;
+			}
+			if ((child + 1 < this.heapSize) && (this.precedes(this.heap[child + 1], this.heap[child]))) {
+				child++;
+			}
+			int other = this.heap[child];
+			if (!this.precedes(other, cube)) {
+				break;
+			}
+			this.heap[position] = other;
+			this.heapPos[other] = position;
+			position = child;
+		}
+		this.heap[position] = cube;
+		this.heapPos[cube] = position;
+	}
+
+	/*
+	 * Return the path from the given start cube to the given goal cube, by following
+	 * the parents from the goal back to the start.
+	 */
+	private int[] buildPath(int start, int goal) {
+		int length = 0;
+		for (int cube = goal; cube != start; cube = this.parent[cube]) {
+			length++;
+		}
+		int[] path = new int[length];
+		for (int cube = goal; cube != start; cube = this.parent[cube]) {
+			path[--length] = cube;
+		}
+		return path;
+	}
+}
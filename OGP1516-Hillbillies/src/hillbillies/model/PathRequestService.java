@@ -0,0 +1,345 @@
+package hillbillies.model;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import be.kuleuven.cs.som.annotate.Basic;
+import be.kuleuven.cs.som.annotate.Immutable;
+
+/**
+ * A class of path request services, searching paths for the units of a world on a
+ * pool of worker threads, so that long searches do not hold up the simulation.
+ *
+ * Units submit a request and keep waiting, or finish the step they are taking, while
+ * a worker searches a {@link TerrainSnapshot} of the terrain at the time the request
+ * was dispatched. The service hands the results back to the units at tick boundaries,
+ * in the order in which the requests were submitted. Since the terrain may have
+ * changed in the meantime, units check a path against the current terrain before
+ * following it.
+ *
+ * Requests submitted while a terrain batch of the world is open are only dispatched
+ * once the batch has been committed, so that the snapshot reflects a consistent terrain.
+ *
+ * All methods of a path request service must be called from the thread that changes
+ * its world.
+ *
+ * @author Joris Schrauwen, Wim Schmitz
+ */
+public class PathRequestService {
+
+	/**
+	 * Initialize this new path request service for the given world, with the given
+	 * number of worker threads.
+	 *
+	 * @param 	world
+	 * 			The world for which paths are searched.
+	 * @param 	nbThreads
+	 * 			The number of worker threads.
+	 * @throws	IllegalArgumentException
+	 * 			The given number of threads is not strictly positive.
+	 * 			| nbThreads <= 0
+	 */
+	public PathRequestService(World world, int nbThreads) throws IllegalArgumentException {
+		if (nbThreads <= 0) {
+			throw new IllegalArgumentException();
+		}
+		this.world = world;
+		this.nbThreads = nbThreads;
+		this.executor = Executors.newFixedThreadPool(nbThreads, runnable -> {
+			Thread thread = new Thread(runnable, "path-request-worker");
+			thread.setDaemon(true);
+			return thread;
+		});
+		this.finders = ThreadLocal.withInitial(() -> new PathFinder(world));
+		this.validCubes = new BitSet(world.getNbX() * world.getNbY() * world.getNbZ());
+		this.changedCubes = new BitSet();
+		for (int z = 0; z < world.getNbZ(); z++) {
+			for (int y = 0; y < world.getNbY(); y++) {
+				for (int x = 0; x < world.getNbX(); x++) {
+					this.validCubes.set(this.getIndex(x, y, z), world.isValidPosition(x, y, z));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Return the default number of worker threads of a path request service, being
+	 * one less than the number of processors, but at least one.
+	 */
+	public static int getDefaultNbThreads() {
+		return Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+	}
+
+	/**
+	 * A class of path requests, asking for a path from a start cube to a goal cube
+	 * on behalf of a unit.
+	 */
+	public static final class Request {
+
+		private Request(Unit unit, int start, int goalX, int goalY, int goalZ) {
+			this.unit = unit;
+			this.start = start;
+			this.goal = new int[] { goalX, goalY, goalZ };
+		}
+
+		/**
+		 * Variables registering the unit asking for the path, the index of the start
+		 * cube and the coordinates of the goal cube.
+		 */
+		private final Unit unit;
+		private final int start;
+		private final int[] goal;
+
+		/**
+		 * Variables registering the snapshot the path is searched in, and the search.
+		 */
+		private TerrainSnapshot snapshot;
+		private Future<int[]> result;
+
+		/**
+		 * Return the unit that asked for the path.
+		 */
+		@Basic @Immutable
+		public Unit getUnit() {
+			return this.unit;
+		}
+
+		/**
+		 * Return the index of the start cube of the path.
+		 */
+		@Basic @Immutable
+		public int getStart() {
+			return this.start;
+		}
+
+		/**
+		 * Return the terrain version of the world at which the path was searched, or
+		 * -1 if the search has not been dispatched yet.
+		 */
+		public long getTerrainVersion() {
+			return (this.snapshot == null) ? -1 : this.snapshot.getVersion();
+		}
+
+		/**
+		 * Check whether the search for the path has finished.
+		 */
+		public boolean isDone() {
+			return (this.result != null) && (this.result.isDone());
+		}
+	}
+
+	/**
+	 * Variable registering the world for which paths are searched.
+	 */
+	private final World world;
+
+	/**
+	 * Variable registering the number of worker threads.
+	 */
+	private final int nbThreads;
+
+	/**
+	 * Variable registering the pool of worker threads.
+	 */
+	private final ExecutorService executor;
+
+	/**
+	 * Variable registering the path finder of every worker thread.
+	 */
+	private final ThreadLocal<PathFinder> finders;
+
+	/**
+	 * List registering the requests that have not been handed back yet, in the order
+	 * in which they were submitted.
+	 */
+	private final List<Request> requests = new ArrayList<Request>();
+
+	/**
+	 * Set registering the valid cubes of the world, as far as known.
+	 */
+	private final BitSet validCubes;
+
+	/**
+	 * Set registering the cubes whose validity must be checked again before the next
+	 * snapshot is taken.
+	 */
+	private final BitSet changedCubes;
+
+	/**
+	 * Variable registering the last snapshot taken.
+	 */
+	private TerrainSnapshot snapshot;
+
+	/**
+	 * Return the world for which this service searches paths.
+	 */
+	@Basic @Immutable
+	public World getWorld() {
+		return this.world;
+	}
+
+	/**
+	 * Return the number of worker threads of this service.
+	 */
+	@Basic @Immutable
+	public int getNbThreads() {
+		return this.nbThreads;
+	}
+
+	/**
+	 * Return the number of requests that have not been handed back yet.
+	 */
+	public int getNbPending() {
+		return this.requests.size();
+	}
+
+	/**
+	 * Submit a request for a path from the given start cube to the given goal cube on
+	 * behalf of the given unit. The request is dispatched to the workers right away,
+	 * unless a terrain batch of the world is open.
+	 *
+	 * @return	The new request.
+	 */
+	public Request submit(Unit unit, int startX, int startY, int startZ, int goalX, int goalY, int goalZ) {
+		Request request = new Request(unit, this.getIndex(startX, startY, startZ), goalX, goalY, goalZ);
+		this.requests.add(request);
+		if (!this.world.isInTerrainBatch()) {
+			this.dispatch();
+		}
+		return request;
+	}
+
+	/**
+	 * Register that the type or the support of the cube with the given coordinates
+	 * changed, so that the validity of the cube and the cube above it must be checked
+	 * again before the next snapshot.
+	 */
+	public void terrainChanged(int x, int y, int z) {
+		if ((x < 0) || (x >= world.getNbX()) || (y < 0) || (y >= world.getNbY()) || (z < 0) || (z >= world.getNbZ())) {
+			return;
+		}
+		this.changedCubes.set(this.getIndex(x, y, z));
+		if (z + 1 < world.getNbZ()) {
+			this.changedCubes.set(this.getIndex(x, y, z + 1));
+		}
+	}
+
+	/**
+	 * Dispatch all requests that have not been dispatched yet to the workers, with a
+	 * snapshot of the current terrain of the world.
+	 */
+	public void dispatch() {
+		TerrainSnapshot snapshot = null;
+		for (Request request: this.requests) {
+			if (request.result != null) {
+				continue;
+			}
+			if (snapshot == null) {
+				snapshot = this.getSnapshot();
+			}
+			request.snapshot = snapshot;
+			request.result = this.executor.submit(() -> {
+				PathFinder finder = this.finders.get();
+				finder.setSnapshot(request.snapshot);
+				int[] start = finder.getCube(request.start);
+				return finder.findPath(start[0], start[1], start[2],
+						request.goal[0], request.goal[1], request.goal[2]);
+			});
+		}
+	}
+
+	/**
+	 * Hand the paths of all finished requests back to the units that asked for them,
+	 * in the order in which the requests were submitted.
+	 *
+	 * @effect	| for each finished request:
+	 * 			|	request.getUnit().pathFound(request, path of request)
+	 */
+	public void deliver() {
+		List<Request> done = new ArrayList<Request>();
+		Iterator<Request> iterator = this.requests.iterator();
+		while (iterator.hasNext()) {
+			Request request = iterator.next();
+			if (request.isDone()) {
+				iterator.remove();
+				done.add(request);
+			}
+		}
+		// units may submit new requests when their path turns out to be blocked
+		for (Request request: done) {
+			request.getUnit().pathFound(request, this.getPath(request));
+		}
+	}
+
+	/**
+	 * Wait until all dispatched requests have finished, and hand their paths back.
+	 *
+	 * @effect	| deliver()
+	 */
+	public void deliverAll() {
+		this.dispatch();
+		for (Request request: this.requests) {
+			this.getPath(request);
+		}
+		this.deliver();
+	}
+
+	/**
+	 * Stop the workers of this service. Requests that have not been handed back are dropped.
+	 */
+	public void shutdown() {
+		this.executor.shutdownNow();
+		this.requests.clear();
+	}
+
+	/*
+	 * Wait for the path of the given dispatched request, and return it.
+	 */
+	private int[] getPath(Request request) {
+		boolean interrupted = false;
+		try {
+			while (true) {
+				try {
+					return request.result.get();
+				} catch (InterruptedException e) {
+					interrupted = true;
+				} catch (ExecutionException e) {
+					throw new IllegalStateException(e.getCause());
+				}
+			}
+		} finally {
+			if (interrupted) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	/*
+	 * Return a snapshot of the current terrain of the world, taking a new one only
+	 * if the terrain changed since the last one.
+	 */
+	private TerrainSnapshot getSnapshot() {
+		long version = this.world.getTerrainVersion();
+		if ((this.snapshot == null) || (this.snapshot.getVersion() != version)) {
+			for (int cube = this.changedCubes.nextSetBit(0); cube >= 0; cube = this.changedCubes.nextSetBit(cube + 1)) {
+				int x = cube % world.getNbX();
+				int y = (cube / world.getNbX()) % world.getNbY();
+				int z = cube / (world.getNbX() * world.getNbY());
+				this.validCubes.set(cube, this.world.isValidPosition(x, y, z));
+			}
+			this.changedCubes.clear();
+			this.snapshot = new TerrainSnapshot(world.getNbX(), world.getNbY(), world.getNbZ(), version, this.validCubes);
+		}
+		return this.snapshot;
+	}
+
+	private int getIndex(int x, int y, int z) {
+		return x + y * world.getNbX() + z * world.getNbX() * world.getNbY();
+	}
+}
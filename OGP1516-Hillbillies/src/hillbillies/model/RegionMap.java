@@ -0,0 +1,403 @@
+package hillbillies.model;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+import be.kuleuven.cs.som.annotate.Basic;
+import be.kuleuven.cs.som.annotate.Immutable;
+
+/**
+ * A class of region maps, labelling the cubes of a world on which a unit can stand
+ * with the region they belong to, where two cubes belong to the same region if and
+ * only if a unit can walk from one to the other. Whether a cube can be reached from
+ * another one is then known without searching a path.
+ *
+ * Cubes are identified by their index x + y * nbX + z * nbX * nbY, as in {@link Terrain}.
+ * Regions are merged with a union-find structure as soon as cubes become valid
+ * positions. When a valid cube stops being one, its region may split up; unless the
+ * neighbours of the cube are still connected around it, the region is marked dirty
+ * and only split up by a flood fill when a query needs it.
+ *
+ * Changes of the terrain are registered with {@link #terrainChanged(int, int, int)},
+ * and only looked at when the next query comes in.
+ *
+ * @author Joris Schrauwen, Wim Schmitz
+ */
+public class RegionMap {
+
+	/**
+	 * Initialize this new region map for the given world.
+	 *
+	 * @param 	world
+	 * 			The world whose cubes are labelled.
+	 */
+	public RegionMap(World world) {
+		this.world = world;
+		this.nbX = world.getNbX();
+		this.nbY = world.getNbY();
+		this.nbZ = world.getNbZ();
+		this.nbXY = nbX * nbY;
+		this.label = new int[nbXY * nbZ];
+		this.parent = new int[64];
+		this.size = new int[64];
+		this.dirtyRegions = new BitSet();
+		this.changedCubes = new BitSet();
+		this.queue = new int[64];
+		for (int cube = 0; cube < this.label.length; cube++) {
+			if ((this.label[cube] == 0) && (this.isValid(cube))) {
+				this.fill(cube, this.newRegion());
+			}
+		}
+		this.isInitialized = true;
+	}
+
+	/**
+	 * Variable registering the world whose cubes are labelled.
+	 */
+	private final World world;
+
+	/**
+	 * Variables registering the dimensions of the world.
+	 */
+	private final int nbX;
+	private final int nbY;
+	private final int nbZ;
+	private final int nbXY;
+
+	/**
+	 * Array registering the region label of every cube, or 0 for cubes that are not
+	 * a valid position. Labels of merged regions are resolved through the parent array.
+	 */
+	private final int[] label;
+
+	/**
+	 * Arrays registering the parent of every region label in the union-find structure,
+	 * and the number of cubes of every root label.
+	 */
+	private int[] parent;
+	private int[] size;
+
+	/**
+	 * Variable registering the number of region labels handed out, including the
+	 * unused label 0.
+	 */
+	private int nbLabels = 1;
+
+	/**
+	 * Set registering the root labels of the regions that may have split up.
+	 */
+	private final BitSet dirtyRegions;
+
+	/**
+	 * Set registering the cubes whose validity may have changed since the last query.
+	 */
+	private final BitSet changedCubes;
+
+	/**
+	 * Queue used by the flood fills.
+	 */
+	private int[] queue;
+
+	/**
+	 * Variable registering whether the initial labels have been computed.
+	 */
+	private boolean isInitialized;
+
+	/**
+	 * Return the world whose cubes this region map labels.
+	 */
+	@Basic @Immutable
+	public World getWorld() {
+		return this.world;
+	}
+
+	/**
+	 * Register that the type or the support of the cube with the given coordinates
+	 * changed, so that the cube and the cube above it may have started or stopped
+	 * being a valid position.
+	 */
+	public void terrainChanged(int x, int y, int z) {
+		if (!this.isInside(x, y, z)) {
+			return;
+		}
+		this.changedCubes.set(this.getIndex(x, y, z));
+		if (z + 1 < nbZ) {
+			this.changedCubes.set(this.getIndex(x, y, z + 1));
+		}
+	}
+
+	/**
+	 * Return the region of the given cube, or 0 if the cube is not a valid position.
+	 * Two cubes have the same region if and only if a unit can walk from one to the other.
+	 */
+	public int getRegion(int x, int y, int z) {
+		if (!this.isInside(x, y, z)) {
+			return 0;
+		}
+		this.update();
+		int cube = this.getIndex(x, y, z);
+		int region = this.find(this.label[cube]);
+		if ((region != 0) && (this.dirtyRegions.get(region))) {
+			this.split(cube, region);
+			region = this.find(this.label[cube]);
+		}
+		return region;
+	}
+
+	/**
+	 * Check whether a unit in the given start cube can walk to the given goal cube.
+	 * If the start cube is not a valid position itself, the unit can walk to the goal
+	 * if it can walk there from one of the neighbours of the start cube.
+	 *
+	 * @return	| result == (getRegion(goalX, goalY, goalZ) != 0) &&
+	 * 			|	(getRegion(startX, startY, startZ) == getRegion(goalX, goalY, goalZ) ||
+	 * 			|	 (getRegion(startX, startY, startZ) == 0 && for some neighbour of the start cube:
+	 * 			|		getRegion(neighbour) == getRegion(goalX, goalY, goalZ)))
+	 */
+	public boolean isReachable(int startX, int startY, int startZ, int goalX, int goalY, int goalZ) {
+		int goal = this.getRegion(goalX, goalY, goalZ);
+		if (goal == 0) {
+			return false;
+		}
+		int start = this.getRegion(startX, startY, startZ);
+		if (start != 0) {
+			// the goal region may have been split up by the start region
+			return start == this.getRegion(goalX, goalY, goalZ);
+		}
+		for (int dz = -1; dz <= 1; dz++) {
+			for (int dy = -1; dy <= 1; dy++) {
+				for (int dx = -1; dx <= 1; dx++) {
+					int region = this.getRegion(startX + dx, startY + dy, startZ + dz);
+					if ((region != 0) && (region == this.getRegion(goalX, goalY, goalZ))) {
+						return true;
+					}
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Return the number of cubes in the region of the given cube, or 0 if the cube is
+	 * not a valid position.
+	 */
+	public int getRegionSize(int x, int y, int z) {
+		int region = this.getRegion(x, y, z);
+		return (region == 0) ? 0 : this.size[region];
+	}
+
+	/*
+	 * Bring the labels up to date with the cubes whose validity may have changed.
+	 */
+	private void update() {
+		for (int cube = this.changedCubes.nextSetBit(0); cube >= 0; cube = this.changedCubes.nextSetBit(cube + 1)) {
+			boolean valid = this.isValid(cube);
+			if (valid == (this.label[cube] != 0)) {
+				continue;
+			}
+			if (valid) {
+				this.addCube(cube);
+			}
+			else {
+				this.removeCube(cube);
+			}
+		}
+		this.changedCubes.clear();
+	}
+
+	/*
+	 * Label the given cube, which became a valid position, merging the regions of its
+	 * valid neighbours.
+	 */
+	private void addCube(int cube) {
+		int region = 0;
+		int x = cube % nbX, y = (cube / nbX) % nbY, z = cube / nbXY;
+		for (int dz = -1; dz <= 1; dz++) {
+			for (int dy = -1; dy <= 1; dy++) {
+				for (int dx = -1; dx <= 1; dx++) {
+					if (!this.isInside(x + dx, y + dy, z + dz)) {
+						continue;
+					}
+					int other = this.find(this.label[cube + dx + dy * nbX + dz * nbXY]);
+					if ((other != 0) && (other != region)) {
+						region = (region == 0) ? other : this.union(region, other);
+					}
+				}
+			}
+		}
+		if (region == 0) {
+			region = this.newRegion();
+		}
+		this.label[cube] = region;
+		this.size[region]++;
+	}
+
+	/*
+	 * Remove the label of the given cube, which stopped being a valid position, and
+	 * mark its region dirty unless its neighbours are still connected around it.
+	 */
+	private void removeCube(int cube) {
+		int region = this.find(this.label[cube]);
+		this.label[cube] = 0;
+		this.size[region]--;
+		if (!this.areNeighboursConnected(cube)) {
+			this.dirtyRegions.set(region);
+		}
+	}
+
+	/*
+	 * Check whether all valid neighbours of the given cube are connected to each other
+	 * through valid cubes next to the given cube.
+	 */
+	private boolean areNeighboursConnected(int cube) {
+		int x = cube % nbX, y = (cube / nbX) % nbY, z = cube / nbXY;
+		// the 27 cubes around and including the given cube, in a 3x3x3 block
+		boolean[] valid = new boolean[27];
+		int nbValid = 0;
+		int first = -1;
+		for (int i = 0; i < 27; i++) {
+			int dx = i % 3 - 1, dy = (i / 3) % 3 - 1, dz = i / 9 - 1;
+			if ((i != 13) && (this.isInside(x + dx, y + dy, z + dz))
+					&& (this.label[cube + dx + dy * nbX + dz * nbXY] != 0)) {
+				valid[i] = true;
+				nbValid++;
+				first = i;
+			}
+		}
+		if (nbValid <= 1) {
+			return true;
+		}
+		int[] stack = new int[27];
+		int top = 0;
+		stack[top++] = first;
+		valid[first] = false;
+		int nbReached = 1;
+		while (top > 0) {
+			int i = stack[--top];
+			int ix = i % 3, iy = (i / 3) % 3, iz = i / 9;
+			for (int j = 0; j < 27; j++) {
+				if ((valid[j]) && (Math.abs(j % 3 - ix) <= 1) && (Math.abs((j / 3) % 3 - iy) <= 1)
+						&& (Math.abs(j / 9 - iz) <= 1)) {
+					valid[j] = false;
+					nbReached++;
+					stack[top++] = j;
+				}
+			}
+		}
+		return nbReached == nbValid;
+	}
+
+	/*
+	 * Give the part of the given dirty region that is connected to the given cube a
+	 * region of its own. The rest of the region stays dirty, unless it is empty.
+	 */
+	private void split(int cube, int region) {
+		int fresh = this.newRegion();
+		int filled = this.fill(cube, fresh);
+		this.size[region] -= filled;
+		if (this.size[region] == 0) {
+			this.dirtyRegions.clear(region);
+		}
+	}
+
+	/*
+	 * Give all valid cubes connected to the given cube the given root label, and
+	 * return their number.
+	 */
+	private int fill(int start, int region) {
+		int head = 0;
+		int tail = 0;
+		this.queue[tail++] = start;
+		this.label[start] = region;
+		while (head < tail) {
+			int cube = this.queue[head++];
+			int x = cube % nbX, y = (cube / nbX) % nbY, z = cube / nbXY;
+			for (int dz = -1; dz <= 1; dz++) {
+				for (int dy = -1; dy <= 1; dy++) {
+					for (int dx = -1; dx <= 1; dx++) {
+						if (!this.isInside(x + dx, y + dy, z + dz)) {
+							continue;
+						}
+						int other = cube + dx + dy * nbX + dz * nbXY;
+						if ((this.label[other] == region) || (!this.isLabelledOrNew(other))) {
+							continue;
+						}
+						this.label[other] = region;
+						if (tail == this.queue.length) {
+							this.queue = Arrays.copyOf(this.queue, 2 * tail);
+						}
+						this.queue[tail++] = other;
+					}
+				}
+			}
+		}
+		this.size[region] = tail;
+		return tail;
+	}
+
+	/*
+	 * Check whether the given cube takes part in a flood fill, which is the case if it
+	 * already has a label, or, while the initial labels are computed, if it is valid.
+	 */
+	private boolean isLabelledOrNew(int cube) {
+		if (this.label[cube] != 0) {
+			return true;
+		}
+		return (!this.isInitialized) && (this.isValid(cube));
+	}
+
+	/*
+	 * Return a new root label.
+	 */
+	private int newRegion() {
+		if (this.nbLabels == this.parent.length) {
+			this.parent = Arrays.copyOf(this.parent, 2 * this.nbLabels);
+			this.size = Arrays.copyOf(this.size, 2 * this.nbLabels);
+		}
+		int region = this.nbLabels++;
+		this.parent[region] = region;
+		this.size[region] = 0;
+		return region;
+	}
+
+	/*
+	 * Return the root label of the given label.
+	 */
+	private int find(int region) {
+		while (this.parent[region] != region) {
+			this.parent[region] = this.parent[this.parent[region]];
+			region = this.parent[region];
+		}
+		return region;
+	}
+
+	/*
+	 * Merge the regions with the given root labels, and return the root label of the result.
+	 */
+	private int union(int first, int second) {
+		if (this.size[first] < this.size[second]) {
+			int swap = first;
+			first = second;
+			second = swap;
+		}
+		this.parent[second] = first;
+		this.size[first] += this.size[second];
+		if (this.dirtyRegions.get(second)) {
+			this.dirtyRegions.clear(second);
+			this.dirtyRegions.set(first);
+		}
+		return first;
+	}
+
+	private boolean isValid(int cube) {
+		return this.world.isValidPosition(cube % nbX, (cube / nbX) % nbY, cube / nbXY);
+	}
+
+	private int getIndex(int x, int y, int z) {
+		return x + y * nbX + z * nbXY;
+	}
+
+	private boolean isInside(int x, int y, int z) {
+		return (0 <= x) && (x < nbX) && (0 <= y) && (y < nbY) && (0 <= z) && (z < nbZ);
+	}
+}
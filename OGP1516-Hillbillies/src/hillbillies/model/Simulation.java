@@ -0,0 +1,200 @@
+package hillbillies.model;
+
+import java.util.Random;
+import java.util.concurrent.locks.LockSupport;
+
+import be.kuleuven.cs.som.annotate.Basic;
+import be.kuleuven.cs.som.annotate.Immutable;
+import hillbillies.part2.listener.DefaultTerrainChangeListener;
+
+/**
+ * A class of headless simulation drivers, that advance a world by fixed time steps
+ * without any user interface.
+ *
+ * By default a simulation runs faster than real time: every tick is computed as
+ * soon as the previous one is done. Setting a speed factor paces the ticks against
+ * the wall clock instead, e.g. a speed factor of 1 runs the world in real time.
+ *
+ * @invar	The time step of each simulation is a valid duration for units.
+ * 			| Unit.isValidDuration(getTimeStep()) && getTimeStep() > 0
+ *
+ * @author Joris Schrauwen, Wim Schmitz
+ */
+public class Simulation {
+
+	/**
+	 * Initialize this new simulation for the given world with the given time step.
+	 *
+	 * @param 	world
+	 * 			The world to simulate.
+	 * @param 	timeStep
+	 * 			The simulated duration of a single tick.
+	 * @post	The new simulation runs as fast as possible.
+	 * 			| new.getSpeedFactor() == Double.POSITIVE_INFINITY
+	 * @throws	IllegalArgumentException
+	 * 			The given time step is not a valid time step.
+	 * 			| !isValidTimeStep(timeStep)
+	 */
+	public Simulation(World world, double timeStep) throws IllegalArgumentException {
+		if (!isValidTimeStep(timeStep)) {
+			throw new IllegalArgumentException();
+		}
+		this.world = world;
+		this.timeStep = timeStep;
+		this.speedFactor = Double.POSITIVE_INFINITY;
+		this.nbTicks = 0;
+	}
+
+	/**
+	 * Create a new world with the given terrain, whose random events are drawn from
+	 * a random number generator with the given seed, and that ignores terrain changes.
+	 *
+	 * @param 	terrainTypes
+	 * 			The terrain of the new world, as in {@link World#World(int[][][], hillbillies.part2.listener.TerrainChangeListener)}.
+	 * @param 	seed
+	 * 			The seed for the random number generator of the new world.
+	 */
+	public static World createWorld(int[][][] terrainTypes, long seed) {
+		return new World(terrainTypes, new DefaultTerrainChangeListener(), new Random(seed));
+	}
+
+	/**
+	 * Variable registering the world of this simulation.
+	 */
+	private final World world;
+
+	/**
+	 * Variable registering the simulated duration of a tick.
+	 */
+	private final double timeStep;
+
+	/**
+	 * Variable registering how many times faster than real time this simulation runs.
+	 */
+	private double speedFactor;
+
+	/**
+	 * Variable registering the number of ticks this simulation has advanced.
+	 */
+	private long nbTicks;
+
+	/**
+	 * Check whether the given duration is a valid time step for a simulation.
+	 *
+	 * @return	| result == (timeStep > 0) && Unit.isValidDuration(timeStep)
+	 */
+	public static boolean isValidTimeStep(double timeStep) {
+		return (timeStep > 0) && (Unit.isValidDuration(timeStep));
+	}
+
+	/**
+	 * Return the world of this simulation.
+	 */
+	@Basic @Immutable
+	public World getWorld() {
+		return this.world;
+	}
+
+	/**
+	 * Return the simulated duration of a single tick.
+	 */
+	@Basic @Immutable
+	public double getTimeStep() {
+		return this.timeStep;
+	}
+
+	/**
+	 * Return how many times faster than real time this simulation runs.
+	 * Positive infinity means that ticks are not paced at all.
+	 */
+	@Basic
+	public double getSpeedFactor() {
+		return this.speedFactor;
+	}
+
+	/**
+	 * Set the speed factor of this simulation to the given value.
+	 *
+	 * @param 	speedFactor
+	 * 			How many times faster than real time the simulation must run,
+	 * 			or positive infinity to run as fast as possible.
+	 * @throws	IllegalArgumentException
+	 * 			The given speed factor is not strictly positive.
+	 * 			| !(speedFactor > 0)
+	 */
+	public void setSpeedFactor(double speedFactor) throws IllegalArgumentException {
+		if (!(speedFactor > 0)) {
+			throw new IllegalArgumentException();
+		}
+		this.speedFactor = speedFactor;
+	}
+
+	/**
+	 * Check whether this simulation runs as fast as possible.
+	 */
+	public boolean isUnpaced() {
+		return this.getSpeedFactor() == Double.POSITIVE_INFINITY;
+	}
+
+	/**
+	 * Return the number of ticks this simulation has advanced.
+	 */
+	@Basic
+	public long getNbTicks() {
+		return this.nbTicks;
+	}
+
+	/**
+	 * Return the total simulated time of this simulation.
+	 *
+	 * @return	| result == getNbTicks() * getTimeStep()
+	 */
+	public double getSimulatedTime() {
+		return this.getNbTicks() * this.getTimeStep();
+	}
+
+	/**
+	 * Advance the world of this simulation by a single tick.
+	 *
+	 * @effect	| getWorld().advanceTime(getTimeStep())
+	 * @post	| new.getNbTicks() == getNbTicks() + 1
+	 */
+	public void step() {
+		this.getWorld().advanceTime(this.getTimeStep());
+		this.nbTicks++;
+	}
+
+	/**
+	 * Advance the world of this simulation by the given number of ticks, paced
+	 * according to the speed factor of this simulation.
+	 *
+	 * @param 	nbTicks
+	 * 			The number of ticks to advance.
+	 * @effect	| for i in 1..nbTicks: step()
+	 */
+	public void run(long nbTicks) {
+		long start = System.nanoTime();
+		double nanosPerTick = this.getTimeStep() * 1e9 / this.getSpeedFactor();
+		for (long i = 1; i <= nbTicks; i++) {
+			this.step();
+			if (!this.isUnpaced()) {
+				long due = start + (long) (i * nanosPerTick);
+				long remaining;
+				while ((remaining = due - System.nanoTime()) > 0) {
+					LockSupport.parkNanos(remaining);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Advance the world of this simulation by at least the given simulated time.
+	 *
+	 * @param 	seconds
+	 * 			The simulated time to advance.
+	 * @effect	| run((long) Math.ceil(seconds / getTimeStep()))
+	 */
+	public void runFor(double seconds) {
+		this.run((long) Math.ceil(seconds / this.getTimeStep()));
+	}
+}
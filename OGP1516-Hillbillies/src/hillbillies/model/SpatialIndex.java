@@ -0,0 +1,353 @@
+package hillbillies.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import be.kuleuven.cs.som.annotate.Basic;
+import be.kuleuven.cs.som.annotate.Immutable;
+import helperclasses.Vector3d;
+
+/**
+ * A class of spatial indices, registering objects by the cube they occupy, so that
+ * the objects in or near a cube can be found without looking at all other objects.
+ *
+ * Cubes are identified by their index x + y * nbX + z * nbX * nbY, as in {@link Terrain}.
+ * Every object takes up a slot, and the objects in a cube are chained through their
+ * slots, so an object that moves to another cube is relinked without allocating
+ * anything. Objects whose position lies outside the indexed box are registered under
+ * the index -1, and are never returned by the queries on cubes.
+ *
+ * @param	<T>
+ * 			The type of the indexed objects.
+ *
+ * @author Joris Schrauwen, Wim Schmitz
+ */
+public class SpatialIndex<T> {
+
+	/**
+	 * Initialize this new, empty spatial index for a box with the given dimensions.
+	 *
+	 * @param 	nbX
+	 * 			The number of cubes in the x-direction.
+	 * @param 	nbY
+	 * 			The number of cubes in the y-direction.
+	 * @param 	nbZ
+	 * 			The number of cubes in the z-direction.
+	 */
+	public SpatialIndex(int nbX, int nbY, int nbZ) {
+		this.nbX = nbX;
+		this.nbY = nbY;
+		this.nbZ = nbZ;
+		this.firstInCube = new int[nbX * nbY * nbZ + 1];
+		Arrays.fill(this.firstInCube, -1);
+		this.objects = new Object[INITIAL_NB_SLOTS];
+		this.cubeOfSlot = new int[INITIAL_NB_SLOTS];
+		this.nextInCube = new int[INITIAL_NB_SLOTS];
+		this.previousInCube = new int[INITIAL_NB_SLOTS];
+		this.slots = new HashMap<T, int[]>();
+	}
+
+	/**
+	 * Variables registering the dimensions of the indexed box.
+	 */
+	private final int nbX;
+	private final int nbY;
+	private final int nbZ;
+
+	/**
+	 * Constant registering the number of slots an index starts with.
+	 */
+	private static final int INITIAL_NB_SLOTS = 16;
+
+	/**
+	 * Array registering, for the index of every cube plus one, the slot of the object
+	 * that entered that cube first, or -1 if the cube is empty.
+	 */
+	private final int[] firstInCube;
+
+	/**
+	 * Arrays registering, for every slot, the object in it, the index of the cube in
+	 * which that object is registered, and the slots of the next and the previous object
+	 * in that cube. The objects in a cube form a ring in the order in which they entered
+	 * the cube, so the previous object of the first one is the last one. The next slots
+	 * of free slots chain them together.
+	 */
+	private Object[] objects;
+	private int[] cubeOfSlot;
+	private int[] nextInCube;
+	private int[] previousInCube;
+
+	/**
+	 * Variables registering the number of slots ever taken, and the first free slot
+	 * below that number, or -1 if there is none.
+	 */
+	private int nbSlots;
+	private int firstFreeSlot = -1;
+
+	/**
+	 * Map registering the slot of every object, in an array of length 1.
+	 */
+	private final Map<T, int[]> slots;
+
+	/**
+	 * Return the number of cubes of the indexed box in the x-direction.
+	 */
+	@Basic @Immutable
+	public int getNbX() {
+		return this.nbX;
+	}
+
+	/**
+	 * Return the number of cubes of the indexed box in the y-direction.
+	 */
+	@Basic @Immutable
+	public int getNbY() {
+		return this.nbY;
+	}
+
+	/**
+	 * Return the number of cubes of the indexed box in the z-direction.
+	 */
+	@Basic @Immutable
+	public int getNbZ() {
+		return this.nbZ;
+	}
+
+	/**
+	 * Return the number of objects in this index.
+	 */
+	public int getNbObjects() {
+		return this.slots.size();
+	}
+
+	/**
+	 * Check whether the given object is registered in this index.
+	 */
+	public boolean contains(T object) {
+		return this.slots.containsKey(object);
+	}
+
+	/**
+	 * Return the index of the cube with the given coordinates, or -1 if the cube
+	 * does not lie in the indexed box.
+	 */
+	public int getCubeIndex(int x, int y, int z) {
+		if ((x < 0) || (x >= nbX) || (y < 0) || (y >= nbY) || (z < 0) || (z >= nbZ)) {
+			return -1;
+		}
+		return x + y * nbX + z * nbX * nbY;
+	}
+
+	/**
+	 * Return the index of the cube containing the given position, or -1 if that
+	 * cube does not lie in the indexed box.
+	 */
+	public int getCubeIndex(Vector3d position) {
+		return this.getCubeIndex((int) Math.floor(position.getX()),
+				(int) Math.floor(position.getY()),
+				(int) Math.floor(position.getZ()));
+	}
+
+	/**
+	 * Register the given object at the given position. If the object was already
+	 * registered in another cube, it is moved to the cube containing the given position.
+	 *
+	 * @param 	object
+	 * 			The object to register.
+	 * @param 	position
+	 * 			The current position of the given object.
+	 * @return	True if and only if the object was not registered in the cube containing
+	 * 			the given position before.
+	 */
+	public boolean update(T object, Vector3d position) {
+		return this.update(object, position.getX(), position.getY(), position.getZ());
+	}
+
+	/**
+	 * Register the given object at the position with the given coordinates. If the
+	 * object was already registered in another cube, it is moved to the cube containing
+	 * that position. Nothing is allocated if the object was already registered.
+	 *
+	 * @return	True if and only if the object was not registered in the cube containing
+	 * 			the given position before.
+	 */
+	public boolean update(T object, double x, double y, double z) {
+		int cube = this.getCubeIndex((int) Math.floor(x), (int) Math.floor(y), (int) Math.floor(z));
+		int[] slot = this.slots.get(object);
+		if (slot != null) {
+			if (this.cubeOfSlot[slot[0]] == cube) {
+				return false;
+			}
+			this.unlink(slot[0]);
+			this.link(slot[0], cube);
+			return true;
+		}
+		int newSlot = this.takeSlot();
+		this.objects[newSlot] = object;
+		this.link(newSlot, cube);
+		this.slots.put(object, new int[] {newSlot});
+		return true;
+	}
+
+	/**
+	 * Remove the given object from this index, if it is registered.
+	 */
+	public void remove(T object) {
+		int[] slot = this.slots.remove(object);
+		if (slot != null) {
+			this.unlink(slot[0]);
+			this.objects[slot[0]] = null;
+			this.nextInCube[slot[0]] = this.firstFreeSlot;
+			this.firstFreeSlot = slot[0];
+		}
+	}
+
+	/*
+	 * Return a free slot, growing the slot arrays if all of them are taken.
+	 */
+	private int takeSlot() {
+		if (this.firstFreeSlot >= 0) {
+			int slot = this.firstFreeSlot;
+			this.firstFreeSlot = this.nextInCube[slot];
+			return slot;
+		}
+		if (this.nbSlots == this.objects.length) {
+			int length = 2 * this.objects.length;
+			this.objects = Arrays.copyOf(this.objects, length);
+			this.cubeOfSlot = Arrays.copyOf(this.cubeOfSlot, length);
+			this.nextInCube = Arrays.copyOf(this.nextInCube, length);
+			this.previousInCube = Arrays.copyOf(this.previousInCube, length);
+		}
+		return this.nbSlots++;
+	}
+
+	/*
+	 * Append the object in the given slot to the objects in the given cube.
+	 */
+	private void link(int slot, int cube) {
+		this.cubeOfSlot[slot] = cube;
+		int first = this.firstInCube[cube + 1];
+		if (first < 0) {
+			this.firstInCube[cube + 1] = slot;
+			this.nextInCube[slot] = slot;
+			this.previousInCube[slot] = slot;
+		}
+		else {
+			int last = this.previousInCube[first];
+			this.nextInCube[last] = slot;
+			this.previousInCube[slot] = last;
+			this.nextInCube[slot] = first;
+			this.previousInCube[first] = slot;
+		}
+	}
+
+	/*
+	 * Remove the object in the given slot from the objects in its cube.
+	 */
+	private void unlink(int slot) {
+		int cube = this.cubeOfSlot[slot];
+		int next = this.nextInCube[slot];
+		if (next == slot) {
+			this.firstInCube[cube + 1] = -1;
+			return;
+		}
+		int previous = this.previousInCube[slot];
+		this.nextInCube[previous] = next;
+		this.previousInCube[next] = previous;
+		if (this.firstInCube[cube + 1] == slot) {
+			this.firstInCube[cube + 1] = next;
+		}
+	}
+
+	/*
+	 * Add the objects in the given cube of the indexed box to the given collection,
+	 * in the order in which they entered the cube.
+	 */
+	@SuppressWarnings("unchecked")
+	private void addObjectsIn(int cube, Collection<? super T> result) {
+		int first = this.firstInCube[cube + 1];
+		if (first < 0) {
+			return;
+		}
+		int slot = first;
+		do {
+			result.add((T) this.objects[slot]);
+			slot = this.nextInCube[slot];
+		} while (slot != first);
+	}
+
+	/**
+	 * Return the objects in the cube with the given coordinates, in the order in
+	 * which they entered the cube.
+	 *
+	 * @return	An unmodifiable list of the objects in the given cube, which is empty if
+	 * 			the cube does not lie in the indexed box. Later changes to this index
+	 * 			are not reflected in it.
+	 */
+	public List<T> getObjectsAt(int x, int y, int z) {
+		int cube = this.getCubeIndex(x, y, z);
+		if ((cube < 0) || (this.firstInCube[cube + 1] < 0)) {
+			return Collections.emptyList();
+		}
+		List<T> result = new ArrayList<T>(2);
+		this.addObjectsIn(cube, result);
+		return Collections.unmodifiableList(result);
+	}
+
+	/**
+	 * Add all objects in the cubes from (minX, minY, minZ) up to and including
+	 * (maxX, maxY, maxZ) to the given collection. The bounds are clipped to the
+	 * indexed box.
+	 *
+	 * If the box holds more cubes than there are objects, the objects are visited
+	 * instead of the cubes.
+	 *
+	 * @param	result
+	 * 			The collection to add the objects to.
+	 * @return	The given collection.
+	 */
+	@SuppressWarnings("unchecked")
+	public <C extends Collection<? super T>> C collectInBox(int minX, int minY, int minZ,
+			int maxX, int maxY, int maxZ, C result) {
+		minX = Math.max(minX, 0);
+		minY = Math.max(minY, 0);
+		minZ = Math.max(minZ, 0);
+		maxX = Math.min(maxX, nbX - 1);
+		maxY = Math.min(maxY, nbY - 1);
+		maxZ = Math.min(maxZ, nbZ - 1);
+		if ((minX > maxX) || (minY > maxY) || (minZ > maxZ)) {
+			return result;
+		}
+		long volume = (long) (maxX - minX + 1) * (maxY - minY + 1) * (maxZ - minZ + 1);
+		if (volume > this.getNbObjects()) {
+			for (int slot = 0; slot < this.nbSlots; slot++) {
+				int cube = this.cubeOfSlot[slot];
+				if ((this.objects[slot] == null) || (cube < 0)) {
+					continue;
+				}
+				int x = cube % nbX;
+				int y = (cube / nbX) % nbY;
+				int z = cube / (nbX * nbY);
+				if ((minX <= x) && (x <= maxX) && (minY <= y) && (y <= maxY)
+						&& (minZ <= z) && (z <= maxZ)) {
+					result.add((T) this.objects[slot]);
+				}
+			}
+			return result;
+		}
+		for (int z = minZ; z <= maxZ; z++) {
+			for (int y = minY; y <= maxY; y++) {
+				int cube = this.getCubeIndex(minX, y, z);
+				for (int x = minX; x <= maxX; x++, cube++) {
+					this.addObjectsIn(cube, result);
+				}
+			}
+		}
+		return result;
+	}
+}
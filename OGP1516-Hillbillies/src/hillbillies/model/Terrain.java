@@ -0,0 +1,200 @@
+package hillbillies.model;
+
+import be.kuleuven.cs.som.annotate.Basic;
+import be.kuleuven.cs.som.annotate.Immutable;
+
+/**
+ * A class of memory-efficient terrain stores, holding the terrain type of every
+ * cube of a world in a single flat array of bytes.
+ *
+ * The cube (x, y, z) is stored at index x + y * nbX + z * nbX * nbY, which is the
+ * same layout as the one used by {@link hillbillies.util.IndexedConnectedToBorder}.
+ * The methods taking an index do not check their arguments, and are meant for
+ * hot loops that already know the index is valid.
+ *
+ * @author Joris Schrauwen, Wim Schmitz
+ */
+public class Terrain {
+
+	/**
+	 * Initialize this new terrain with the given terrain types.
+	 *
+	 * @param 	terrainTypes
+	 * 			A three-dimensional array (structured as [x][y][z]) with the types
+	 * 			of the terrain, as in {@link World#World(int[][][], hillbillies.part2.listener.TerrainChangeListener)}.
+	 * @throws	IllegalArgumentException
+	 * 			The given array is not box shaped or contains an invalid type.
+	 */
+	public Terrain(int[][][] terrainTypes) throws IllegalArgumentException {
+		this(terrainTypes.length, terrainTypes[0].length, terrainTypes[0][0].length);
+
+		for (int x = 0; x < nbX; x++) {
+			if (terrainTypes[x].length != nbY) {
+				throw new IllegalArgumentException();
+			}
+			for (int y = 0; y < nbY; y++) {
+				if (terrainTypes[x][y].length != nbZ) {
+					throw new IllegalArgumentException();
+				}
+				for (int z = 0; z < nbZ; z++) {
+					int type = terrainTypes[x][y][z];
+					if (!isValidType(type)) {
+						throw new IllegalArgumentException();
+					}
+					this.types[this.getIndex(x, y, z)] = (byte) type;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Initialize this new terrain with the given dimensions, consisting of air only.
+	 *
+	 * @param 	nbX
+	 * 			The number of cubes in the x-direction.
+	 * @param 	nbY
+	 * 			The number of cubes in the y-direction.
+	 * @param 	nbZ
+	 * 			The number of cubes in the z-direction.
+	 */
+	public Terrain(int nbX, int nbY, int nbZ) {
+		this.nbX = nbX;
+		this.nbY = nbY;
+		this.nbZ = nbZ;
+		this.nbXY = nbX * nbY;
+		this.types = new byte[nbX * nbY * nbZ];
+	}
+
+	/**
+	 * Variable registering the terrain types of all cubes.
+	 */
+	private final byte[] types;
+
+	/**
+	 * Variables registering the dimensions of this terrain.
+	 */
+	private final int nbX;
+	private final int nbY;
+	private final int nbZ;
+	private final int nbXY;
+
+	/**
+	 * Table registering for every terrain type whether it is passable.
+	 */
+	private static final boolean[] PASSABLE = { true, false, false, true };
+
+	/**
+	 * Check whether the given integer is a valid terrain type.
+	 */
+	public static boolean isValidType(int type) {
+		return (type >= World.TYPE_AIR) && (type <= World.TYPE_WORKSHOP);
+	}
+
+	/**
+	 * Return the number of cubes of this terrain in the x-direction.
+	 */
+	@Basic @Immutable
+	public int getNbX() {
+		return this.nbX;
+	}
+
+	/**
+	 * Return the number of cubes of this terrain in the y-direction.
+	 */
+	@Basic @Immutable
+	public int getNbY() {
+		return this.nbY;
+	}
+
+	/**
+	 * Return the number of cubes of this terrain in the z-direction.
+	 */
+	@Basic @Immutable
+	public int getNbZ() {
+		return this.nbZ;
+	}
+
+	/**
+	 * Return the total number of cubes of this terrain.
+	 */
+	public int getNbCubes() {
+		return this.types.length;
+	}
+
+	/**
+	 * Check whether the given coordinates lie within this terrain.
+	 */
+	public boolean isValidIndex(int x, int y, int z) {
+		return (0 <= x) && (x < nbX) && (0 <= y) && (y < nbY) && (0 <= z) && (z < nbZ);
+	}
+
+	/**
+	 * Return the index of the cube with the given coordinates.
+	 *
+	 * @return	| result == x + y * getNbX() + z * getNbX() * getNbY()
+	 */
+	public int getIndex(int x, int y, int z) {
+		return x + y * nbX + z * nbXY;
+	}
+
+	/**
+	 * Return the terrain type of the cube with the given coordinates.
+	 *
+	 * @throws	IndexOutOfBoundsException
+	 * 			The given coordinates do not lie within this terrain.
+	 * 			| !isValidIndex(x, y, z)
+	 */
+	public int getType(int x, int y, int z) throws IndexOutOfBoundsException {
+		if (!this.isValidIndex(x, y, z)) {
+			throw new IndexOutOfBoundsException(x + ", " + y + ", " + z);
+		}
+		return this.types[this.getIndex(x, y, z)];
+	}
+
+	/**
+	 * Return the terrain type of the cube with the given index.
+	 */
+	public int getType(int index) {
+		return this.types[index];
+	}
+
+	/**
+	 * Set the terrain type of the cube with the given coordinates to the given type.
+	 *
+	 * @throws	IndexOutOfBoundsException
+	 * 			The given coordinates do not lie within this terrain.
+	 * 			| !isValidIndex(x, y, z)
+	 * @throws	IllegalArgumentException
+	 * 			The given type is not a valid terrain type.
+	 * 			| !isValidType(type)
+	 */
+	public void setType(int x, int y, int z, int type) throws IndexOutOfBoundsException, IllegalArgumentException {
+		if (!this.isValidIndex(x, y, z)) {
+			throw new IndexOutOfBoundsException(x + ", " + y + ", " + z);
+		}
+		if (!isValidType(type)) {
+			throw new IllegalArgumentException();
+		}
+		this.types[this.getIndex(x, y, z)] = (byte) type;
+	}
+
+	/**
+	 * Check whether the cube with the given coordinates is passable.
+	 *
+	 * @throws	IndexOutOfBoundsException
+	 * 			The given coordinates do not lie within this terrain.
+	 * 			| !isValidIndex(x, y, z)
+	 */
+	public boolean isPassable(int x, int y, int z) throws IndexOutOfBoundsException {
+		return PASSABLE[this.getType(x, y, z)];
+	}
+
+	/**
+	 * Check whether the cube with the given index is passable.
+	 *
+	 * @return	True if and only if the cube is air or a workshop.
+	 */
+	public boolean isPassable(int index) {
+		return PASSABLE[this.types[index]];
+	}
+}
@@ -0,0 +1,96 @@
+package hillbillies.model;
+
+import java.util.BitSet;
+
+import be.kuleuven.cs.som.annotate.Basic;
+import be.kuleuven.cs.som.annotate.Immutable;
+
+/**
+ * A class of immutable snapshots of the terrain of a world, registering which cubes
+ * were a valid position for a unit at a given terrain version of the world.
+ *
+ * Since a snapshot never changes, it can be read by any number of threads while the
+ * world itself keeps changing.
+ *
+ * @author Joris Schrauwen, Wim Schmitz
+ */
+public final class TerrainSnapshot {
+
+	/**
+	 * Initialize this new snapshot with the given dimensions, version and valid cubes.
+	 *
+	 * @param	valid
+	 * 			The set of indices x + y * nbX + z * nbX * nbY of the valid cubes, which
+	 * 			is copied and may therefore be changed afterwards.
+	 */
+	TerrainSnapshot(int nbX, int nbY, int nbZ, long version, BitSet valid) {
+		this.nbX = nbX;
+		this.nbY = nbY;
+		this.nbZ = nbZ;
+		this.version = version;
+		this.valid = (BitSet) valid.clone();
+	}
+
+	/**
+	 * Variables registering the dimensions of the terrain.
+	 */
+	private final int nbX;
+	private final int nbY;
+	private final int nbZ;
+
+	/**
+	 * Variable registering the terrain version of the world this snapshot was taken at.
+	 */
+	private final long version;
+
+	/**
+	 * Set registering the indices of the cubes that are a valid position.
+	 */
+	private final BitSet valid;
+
+	/**
+	 * Return the number of cubes of this snapshot in the x-direction.
+	 */
+	@Basic @Immutable
+	public int getNbX() {
+		return this.nbX;
+	}
+
+	/**
+	 * Return the number of cubes of this snapshot in the y-direction.
+	 */
+	@Basic @Immutable
+	public int getNbY() {
+		return this.nbY;
+	}
+
+	/**
+	 * Return the number of cubes of this snapshot in the z-direction.
+	 */
+	@Basic @Immutable
+	public int getNbZ() {
+		return this.nbZ;
+	}
+
+	/**
+	 * Return the terrain version of the world at which this snapshot was taken.
+	 */
+	@Basic @Immutable
+	public long getVersion() {
+		return this.version;
+	}
+
+	/**
+	 * Check whether the given cube was a valid position when this snapshot was taken.
+	 *
+	 * @return	False if the given cube lies outside the terrain.
+	 * 			| if (x < 0 || x >= getNbX() || y < 0 || y >= getNbY() || z < 0 || z >= getNbZ())
+	 * 			| then result == false
+	 */
+	public boolean isValidPosition(int x, int y, int z) {
+		if ((x < 0) || (x >= nbX) || (y < 0) || (y >= nbY) || (z < 0) || (z >= nbZ)) {
+			return false;
+		}
+		return this.valid.get(x + y * nbX + z * nbX * nbY);
+	}
+}
@@ -79,8 +79,12 @@ public class Unit {
 			throw new IllegalArgumentException(name);
 		}
 
+		this.store = new UnitStore(1);
+		this.slot = this.store.add(this);
+		this.setPositionCoordinates(pos.getX(), pos.getY(), pos.getZ());
 		this.position = pos;
 		this.name = name;
+		this.alive = true;
 
 		if (isWithinRange(strength)) {
 			this.setStrength(strength);
@@ -107,20 +111,17 @@ public class Unit {
 		}
 
 		this.orientation = (float) Math.PI / 2;
-		this.stamina = getMaxHitpoints();
-		this.hitpoints = getMaxHitpoints();
-		this.movement = "Walking";
+		this.store.stamina[this.slot] = getMaxHitpoints();
+		this.store.hitpoints[this.slot] = getMaxHitpoints();
 		this.enableDefaultBehavior = enableDefaultBehavior;
-		this.status = "Idle";
+		this.setActivity(Activity.IDLE);
 		this.speed = 0;
-		this.velocity = new Vector3d();
-		this.activityProgress = 0;
-		this.timeNeeded = 0;
+		this.store.activityProgress[this.slot] = 0;
+		this.store.timeNeeded[this.slot] = 0;
 		this.destination = new Vector3d(-1,-1,-1);
-		this.nextPosition = this.getPosition();
-		this.movingTime = 0;
+		this.setNextPosition(this.getPosition());
+		this.store.movingTime[this.slot] = 0;
 		this.sprintingTime = 0;
-		this.waitingTo = null;
 		this.opponent = null;
 		this.experience = 0;
 		this.faction = new Faction();
@@ -131,7 +132,16 @@ public class Unit {
 	}
 
 	/**
-	 * Variable registering the position of this unit.
+	 * Variables registering the store holding the state of this unit that changes
+	 * every tick, such as its position, velocity, stamina, hitpoints, activity progress
+	 * and packed state, and the slot of this unit in that store.
+	 */
+	private UnitStore store;
+	private int slot;
+	
+	/**
+	 * Variable registering the position of this unit as a vector, or null if it has
+	 * not been asked for since the position last changed.
 	 */
 	private Vector3d position;
 
@@ -165,26 +175,6 @@ public class Unit {
 	 */
 	private float orientation;
 
-	/**
-	 * Variable registering the stamina of this unit.
-	 */
-	private int stamina;
-
-	/**
-	 * Variable registering the hitpoints of this unit.
-	 */
-	private int hitpoints;
-
-	/**
-	 * Variable registering the status of this unit.
-	 */
-	private String status;
-
-	/**
-	 * Variable registering the unit's movement status.
-	 */
-	private String movement;
-
 	/**
 	 * Variable registering the passed time since the unit started its current activity
 	 */
@@ -200,46 +190,22 @@ public class Unit {
 	 */
 	private double speed;
 	
-	/**
-	 * Three-dimensional vector registering the units current vectorial speed.
-	 */
-	private Vector3d velocity;
-
-	/**
-	 * Variable registering the units current activity progress.
-	 */
-	private double activityProgress;
-	
-	/**
-	 * Variable registering the time needed for this unit to end its current activity
-	 */
-	private double timeNeeded;
-
 	/**
 	 * Three-dimensional vector registering the units current destination.
 	 */
 	private Vector3d destination;
 	
 	/**
-	 * Three-dimensional vector registering the units positon to move to after it has moved to .
+	 * Variable registering the next position of this unit as a vector, or null if it
+	 * has not been asked for since the next position last changed.
 	 */
 	private Vector3d nextPosition;
 
-	/**
-	 * Variable registering the time that this unit has been moving.
-	 */
-	private double movingTime;
-	
 	/**
 	 * Variable registering the time that this unit has been sprinting.
 	 */
 	private double sprintingTime;
 	
-	/**
-	 * String registering the activity that this unit is waiting to do after his current activity.
-	 */
-	private String waitingTo;
-	
 	/**
 	 * Unit registering this units current opponent in a fight.
 	 */
@@ -255,6 +221,11 @@ public class Unit {
 	 */
 	private boolean alive;
 	
+	/**
+	 * Variable registering the identifier of this unit in the registry of its world.
+	 */
+	private int id = -1;
+	
 	private GameObject carries;
 	private World world;
 	private Vector3d target;
@@ -273,9 +244,33 @@ public class Unit {
 	 */
 	@Basic
 	public Vector3d getPosition() {
+		if (this.position == null) {
+			this.position = new Vector3d(this.store.positionX[this.slot], this.store.positionY[this.slot], this.store.positionZ[this.slot]);
+		}
 		return this.position;
 	}
 	
+	/**
+	 * Return the x-coordinate of the position of this unit.
+	 */
+	public double getPositionX() {
+		return this.store.positionX[this.slot];
+	}
+	
+	/**
+	 * Return the y-coordinate of the position of this unit.
+	 */
+	public double getPositionY() {
+		return this.store.positionY[this.slot];
+	}
+	
+	/**
+	 * Return the z-coordinate of the position of this unit.
+	 */
+	public double getPositionZ() {
+		return this.store.positionZ[this.slot];
+	}
+	
 	/**
 	 * Set this units position to the specified position
 	 * @param  newPos
@@ -286,14 +281,35 @@ public class Unit {
 	 * 			|this.position == newPos
 	 */
 	public void setPosition(Vector3d newPos) throws OutOfBoundsException {
-		if (!this.getWorld().isValidPosition(newPos)) {
-			throw new OutOfBoundsException(newPos.getDoubleArray());
-		}
+		this.setPosition(newPos.getX(), newPos.getY(), newPos.getZ());
 		this.position = newPos;
 	}
 	
+	/*
+	 * Set the position of this unit to the given coordinates, without allocating
+	 * a vector for it.
+	 */
+	private void setPosition(double x, double y, double z) throws OutOfBoundsException {
+		if (!this.getWorld().isValidPosition((int) x, (int) y, (int) z)) {
+			throw new OutOfBoundsException(new double[] {x, y, z});
+		}
+		this.setPositionCoordinates(x, y, z);
+		// while computing its intent, this unit may run concurrently with other
+		// units, so its world is only told about the move in applyIntent
+		if (!this.isComputingIntent) {
+			this.getWorld().updateIndex(this);
+		}
+	}
+	
+	private void setPositionCoordinates(double x, double y, double z) {
+		this.store.positionX[this.slot] = x;
+		this.store.positionY[this.slot] = y;
+		this.store.positionZ[this.slot] = z;
+		this.position = null;
+	}
+	
 	public int[] getOccupyingCube(){
-		return this.getPosition().getIntArray();
+		return new int[] {(int) this.store.positionX[this.slot], (int) this.store.positionY[this.slot], (int) this.store.positionZ[this.slot]};
 	}
 	
 	/**
@@ -312,12 +328,14 @@ public class Unit {
 	 * 		   | result == (distance < sqrt(2))
 	 */
 	public boolean isAdjacentTo(Unit other){
+		Vector3d thisPos = this.getPosition();
+		Vector3d otherPos = other.getPosition();
 		
-		Vector3d thisCube = this.getPosition().getCubeCenter();
-		Vector3d otherCube = other.getPosition().getCubeCenter();
-
-		return (thisCube.subtract(otherCube).calcNorm() <= Math.sqrt(2));
+		double dx = Math.floor(thisPos.getX()) - Math.floor(otherPos.getX());
+		double dy = Math.floor(thisPos.getY()) - Math.floor(otherPos.getY());
+		double dz = Math.floor(thisPos.getZ()) - Math.floor(otherPos.getZ());
 
+		return (dx * dx + dy * dy + dz * dz <= 2);
 	}
 	
 	/**
@@ -588,7 +606,7 @@ public class Unit {
 	public void dropItem() {
 		this.getCarry().setCarrier(null);
 		this.setWeight(this.getWeight() - this.getCarry().getWeight());
-		this.pickUp(null);
+		this.carries = null;
 	}
 	
 	/**
@@ -623,6 +641,33 @@ public class Unit {
 		return this.world;
 	}
 	
+	/**
+	 * Return the identifier of this unit among the units of its world, or -1 if this
+	 * unit is not part of a world (see {@link UnitRegistry}).
+	 */
+	@Basic
+	public int getId() {
+		return this.id;
+	}
+	
+	/*
+	 * Set the identifier of this unit to the given identifier.
+	 */
+	void setId(int id) {
+		this.id = id;
+	}
+	
+	/*
+	 * Return the random number generator for the random choices of this unit:
+	 * the one of its world, so that seeded worlds are reproducible.
+	 */
+	private Random getRandom() {
+		if (this.getWorld() == null) {
+			return ThreadLocalRandom.current();
+		}
+		return this.getWorld().getRandom();
+	}
+	
 	/**
 	 * Upgrade the equipment of a unit by increasing its toughness and weight by 1.
 	 * 
@@ -665,7 +710,7 @@ public class Unit {
 	 * Return the current amount of hitpoints of this unit.
 	 */
 	public int getHitpoints() {
-		return this.hitpoints;
+		return this.store.hitpoints[this.slot];
 	}
 	
 	/**
@@ -677,15 +722,15 @@ public class Unit {
 	public void setHitpoints(int hitpoints){
 
 		if ((hitpoints >= getMinHitpoints()) && (hitpoints <= this.getMaxHitpoints())) {
-			this.hitpoints = hitpoints;
+			this.store.hitpoints[this.slot] = hitpoints;
 		}
 
 		else if (hitpoints > this.getMaxHitpoints()) {
-			this.hitpoints = this.getMaxHitpoints();
+			this.store.hitpoints[this.slot] = this.getMaxHitpoints();
 		}
 
 		else if (hitpoints < getMinHitpoints()) {
-			this.hitpoints = getMinHitpoints();
+			this.store.hitpoints[this.slot] = getMinHitpoints();
 		}
 	}
 	
@@ -713,7 +758,7 @@ public class Unit {
 	 * Return the current amount of stamina of this unit.
 	 */
 	public int getStamina() {
-		return this.stamina;
+		return this.store.stamina[this.slot];
 	}
 	
 	/**
@@ -724,13 +769,13 @@ public class Unit {
 	 */
 	public void setStamina(int stamina) {
 		if ((stamina >= 0) && (stamina <= this.getMaxHitpoints()))
-			this.stamina = stamina;
+			this.store.stamina[this.slot] = stamina;
 
 		else if (stamina > this.getMaxHitpoints())
-			this.stamina = this.getMaxHitpoints();
+			this.store.stamina[this.slot] = this.getMaxHitpoints();
 
 		else if (stamina < getMinHitpoints())
-			this.stamina = getMinHitpoints();
+			this.store.stamina[this.slot] = getMinHitpoints();
 	}
 	
 	
@@ -772,19 +817,30 @@ public class Unit {
 	}
 
 	public Vector3d getNextPosition() {
+		if (this.nextPosition == null) {
+			this.nextPosition = new Vector3d(this.store.nextPositionX[this.slot], this.store.nextPositionY[this.slot], this.store.nextPositionZ[this.slot]);
+		}
 		return this.nextPosition;
 	}
 
 	public void setNextPosition(Vector3d nextPosition) {
+		this.setNextPosition(nextPosition.getX(), nextPosition.getY(), nextPosition.getZ());
 		this.nextPosition = nextPosition;
 	}
 	
+	private void setNextPosition(double x, double y, double z) {
+		this.store.nextPositionX[this.slot] = x;
+		this.store.nextPositionY[this.slot] = y;
+		this.store.nextPositionZ[this.slot] = z;
+		this.nextPosition = null;
+	}
+	
 	public double getMovingTime() {
-		return this.movingTime;
+		return this.store.movingTime[this.slot];
 	}
 	
 	public void setMovingTime(double time) {
-		this.movingTime = time;
+		this.store.movingTime[this.slot] = time;
 	}
 	
 	public double getSprintingTime() {
@@ -812,14 +868,20 @@ public class Unit {
 	 * Return the velocity of a Unit.
 	 */
 	public double[] getVelocity() {
-		return this.velocity.getDoubleArray();
+		return new double[] {this.store.velocityX[this.slot], this.store.velocityY[this.slot], this.store.velocityZ[this.slot]};
 	}
 
 	/**
 	 * Set the velocity of a unit.
 	 */
 	public void setVelocity(Vector3d velocity) {
-		this.velocity = velocity;
+		this.setVelocity(velocity.getX(), velocity.getY(), velocity.getZ());
+	}
+	
+	private void setVelocity(double x, double y, double z) {
+		this.store.velocityX[this.slot] = x;
+		this.store.velocityY[this.slot] = y;
+		this.store.velocityZ[this.slot] = z;
 	}
 
 	/**
@@ -837,21 +899,45 @@ public class Unit {
 	 * @throws OutOfBoundsException 
 	 */
 	public void updatePosition(double dt) throws OutOfBoundsException {
-		Vector3d oldPos = this.getPosition();
-		double[] velocity = this.getVelocity();
-
-		Vector3d newPos = new Vector3d(oldPos.getX() + (dt * velocity[0]),
-							oldPos.getY() + (dt * velocity[1]),
-							oldPos.getZ() + (dt * velocity[2]));
-		
+		// called for every moving unit in every tick, so no vectors are allocated here
+		if (!this.getWorld().isValidPosition((int) this.store.nextPositionX[this.slot], 
+				(int) this.store.nextPositionY[this.slot], (int) this.store.nextPositionZ[this.slot])) {
+			this.turnBack(dt);
+		}
 		if (this.getMovingTime() >= this.getTimeNeeded()) {
-			this.setPosition(this.getNextPosition());
+			this.setPosition(this.store.nextPositionX[this.slot], this.store.nextPositionY[this.slot], this.store.nextPositionZ[this.slot]);
 		} 
 		else {
-			this.setPosition(newPos);
+			this.setPosition(this.store.positionX[this.slot] + (dt * this.store.velocityX[this.slot]),
+					this.store.positionY[this.slot] + (dt * this.store.velocityY[this.slot]),
+					this.store.positionZ[this.slot] + (dt * this.store.velocityZ[this.slot]));
 		}
 	}
 
+	/*
+	 * Head back to the centre of the cube this unit occupies, because the cube it was
+	 * moving to can no longer be entered since the terrain changed. Once there, this
+	 * unit continues towards its destination along a new path.
+	 */
+	private void turnBack(double dt) {
+		double x = Math.floor(this.store.positionX[this.slot]) + 0.5;
+		double y = Math.floor(this.store.positionY[this.slot]) + 0.5;
+		double z = Math.floor(this.store.positionZ[this.slot]) + 0.5;
+		double dx = x - this.store.positionX[this.slot];
+		double dy = y - this.store.positionY[this.slot];
+		double dz = z - this.store.positionZ[this.slot];
+		double norm = Math.sqrt(dx * dx + dy * dy + dz * dz);
+		this.setNextPosition(x, y, z);
+		this.setMovingTime(dt);
+		if (norm == 0) {
+			this.setTimeNeeded(0);
+			return;
+		}
+		double factor = this.getCurrentSpeed() / norm;
+		this.setVelocity(dx * factor, dy * factor, dz * factor);
+		this.setTimeNeeded(norm / this.getCurrentSpeed());
+	}
+
 	/**
 	 * Initiate a more complex movement from the unit's current position to
 	 * another arbitrary cube of the game world.
@@ -859,57 +945,263 @@ public class Unit {
 	 * @param  destination
 	 *            The new location to which the unit has to move.
 	 *            
-	 * @effect this unit will start moving to the specified location, if its current activity can be interrupted.
+	 * @effect this unit will start moving to the specified location along a shortest path
+	 * 			found by the path finder of its world, if its current activity can be interrupted.
 	 * 
-	 * @post   If this units current activity is interruptable, this units status will be "Moving".
-	 * 			 |this.status == "Moving"
+	 * @post   If this units current activity is interruptable, this units activity will be moving.
+	 * 			 |new.getActivity() == Activity.MOVING
 	 * @post   If this units current activity is interruptable, this units destination will be the vector location.
 	 * 			 |this.destination = location
+	 * @throws IllegalArgumentException
+	 * 			The given location cannot be reached from the position of this unit. This is
+	 * 			known from the region map of its world before any path is searched, also when
+	 * 			the world searches paths asynchronously.
+	 * 			| !getWorld().isReachable(getOccupyingCube(), location)
+	 */
+	public void moveTo(Vector3d  location) throws IllegalArgumentException {
+		if (!this.startPathTo(location)) {
+			throw new IllegalArgumentException("unreachable destination");
+		}
+	}
+	
+	/**
+	 * Variable registering the indices of the cubes this unit still has to pass on its
+	 * way to its destination, or null if this unit is not following a path.
+	 */
+	private int[] path;
+	
+	/**
+	 * Variable registering the index of the cube from which the path of this unit starts.
+	 */
+	private int pathStart;
+	
+	/**
+	 * Variable registering the position in the path of the next cube to move to.
 	 */
-	public void moveTo(Vector3d  location) {
-		if (this.canBeInterrupted("Moving")){
-			this.setStatus("Moving");
+	private int pathStep;
+	
+	/**
+	 * Variable registering the terrain version of the world of this unit for which
+	 * all remaining cubes of the path of this unit were last known to be valid positions.
+	 */
+	private long pathVersion;
+	
+	/**
+	 * Variable registering the flow field this unit follows to its destination instead
+	 * of a path of its own, or null if this unit is not following a flow field.
+	 */
+	private FlowField flowField;
+	
+	/*
+	 * Start following a shortest path to the given location, if the location can be
+	 * reached. The path starts at the cube this unit is moving to, or the cube it
+	 * occupies if it is not between two cubes.
+	 * 
+	 * If this unit still has a path to the same location that it has not left and that
+	 * the terrain has not blocked, it keeps following that path. Otherwise, if the location
+	 * is a popular destination, the shared flow field towards it is followed, and else a
+	 * new path is searched.
+	 * 
+	 * @return	True if and only if the location can be reached.
+	 */
+	private boolean startPathTo(Vector3d location) {
+		if (!this.isMoving()) {
+			this.setNextPosition(this.getPosition());
+		}
+		int[] start = this.getNextPosition().getIntArray();
+		int[] goal = location.getIntArray();
+		PathFinder finder = this.getWorld().getPathFinder();
+		int[] path = null;
+		FlowField field = null;
+		if ((this.path != null) && (this.path.length > 0)
+				&& (this.path[this.path.length - 1] == finder.getIndex(goal[0], goal[1], goal[2]))
+				&& (this.rejoinPath(finder.getIndex(start[0], start[1], start[2])))) {
+			path = this.path;
+		}
+		else {
+			if (!this.getWorld().isReachable(start[0], start[1], start[2], goal[0], goal[1], goal[2])) {
+				return false;
+			}
+			field = this.getWorld().getFlowFieldCache().getFlowField(goal[0], goal[1], goal[2]);
+			if ((field == null) || (!field.isReachableFrom(start[0], start[1], start[2]))) {
+				field = null;
+				if (this.getWorld().isAsynchronousPathFinding()) {
+					// wait for the path, and check it once it has been found
+					this.pathRequest = this.getWorld().getPathRequestService().submit(this,
+							start[0], start[1], start[2], goal[0], goal[1], goal[2]);
+				}
+				else {
+					path = this.getWorld().findPath(start[0], start[1], start[2],
+							goal[0], goal[1], goal[2]);
+					if (path == null) {
+						return false;
+					}
+				}
+			}
+			this.pathStart = finder.getIndex(start[0], start[1], start[2]);
+			this.pathStep = 0;
+			this.pathVersion = this.getWorld().getTerrainVersion();
+		}
+		if ((field != null) || (path != null)) {
+			this.pathRequest = null;
+		}
+		if (this.canBeInterrupted(Activity.MOVING)){
+			this.setActivity(Activity.MOVING);
 		}
-			
-		
 		this.setDestination(location);
-
-		int[] nextPos = new int[3];
-
-		for (int i = 0; i < 3; i++) {
-
-			if (this.getPosition().getCube().getDimension(i) == location.getDimension(i)) {
-				nextPos[i] = 0;
-			} else if (this.getPosition().getCube().getDimension(i) < location.getDimension(i)) {
-				nextPos[i] = 1;
-			} else {
-				nextPos[i] = -1;
+		this.flowField = field;
+		this.path = path;
+		this.moveAlongPath();
+		return true;
+	}
+	
+	/**
+	 * Variable registering the request for a path this unit is waiting for, or null
+	 * if it is not waiting for a path.
+	 */
+	private PathRequestService.Request pathRequest;
+	
+	/**
+	 * Start following the given path, found for the given request of this unit, unless
+	 * this unit no longer waits for that request.
+	 * 
+	 * @param	request
+	 * 			The request for which the path was found.
+	 * @param	path
+	 * 			The path found, which starts at the start cube of the request, or null
+	 * 			if the goal of the request cannot be reached.
+	 * @effect	If this unit still waits for the given request and the path is null, it
+	 * 			stops moving.
+	 * @effect	If this unit still waits for the given request and the path is not null,
+	 * 			it follows the path, after checking the path against the current terrain.
+	 */
+	void pathFound(PathRequestService.Request request, int[] path) {
+		if (request != this.pathRequest) {
+			return;
+		}
+		this.pathRequest = null;
+		if (path == null) {
+			if (this.isMoving()) {
+				this.setActivity(Activity.IDLE);
 			}
+			this.setDestination(new Vector3d(-1,-1,-1));
+			return;
 		}
-		this.moveToAdjacent(new Vector3d(nextPos[0], nextPos[1], nextPos[2]));
+		this.path = path;
+		this.pathStart = request.getStart();
+		this.pathStep = 0;
+		this.pathVersion = request.getTerrainVersion();
+		this.moveAlongPath();
 	}
 	
-	public ArrayList<Vector3d> getSuitableCubes(Vector3d c) {
-		ArrayList<Vector3d> l = c.createAdjacentVectors();
-		World w = this.getWorld();
-		
-		for (Vector3d cube: l) {
-			int[] a = cube.getIntArray();
-			if ((cube.equals(c)) || (!w.isPassable(a[0], a[1], a[2])) 
-					|| (!w.isSolidConnectedToBorder(a[0], a[1], a[2] - 1))) {
-				l.remove(cube);
+	/*
+	 * Check whether this unit can continue along its path from the given cube, and if so,
+	 * continue with the step after that cube. That is the case if the given cube lies on
+	 * the path, and if the terrain changed since the path was last checked, all cubes
+	 * of the path after it are still valid positions.
+	 */
+	private boolean rejoinPath(int cube) {
+		int step = -1;
+		if ((this.pathStep > 0) && (this.path[this.pathStep - 1] == cube)) {
+			step = this.pathStep;
+		}
+		else if ((this.pathStep == 0) && (this.pathStart == cube)) {
+			step = 0;
+		}
+		else {
+			// the unit left its path, e.g. by dodging
+			step = (this.pathStart == cube) ? 0 : -1;
+			for (int i = 0; (step < 0) && (i < this.path.length); i++) {
+				if (this.path[i] == cube) {
+					step = i + 1;
+				}
+			}
+			if (step < 0) {
+				return false;
 			}
 		}
-		return l;
+		long version = this.getWorld().getTerrainVersion();
+		if (version != this.pathVersion) {
+			PathFinder finder = this.getWorld().getPathFinder();
+			for (int i = step; i < this.path.length; i++) {
+				int[] next = finder.getCube(this.path[i]);
+				if (!this.getWorld().isValidPosition(next[0], next[1], next[2])) {
+					return false;
+				}
+			}
+			this.pathVersion = version;
+		}
+		this.pathStep = step;
+		return true;
 	}
 	
-	//TODO: finish this function and movement as a whole.
-	public void search(Vector3d c0, int n) {
-		ArrayList<Vector3d> l = getSuitableCubes(c0);
-		for (Vector3d c: l) {
-
+	/*
+	 * Move to the next cube on the path of this unit, as soon as this unit has reached
+	 * the previous one. If this unit left its path, the terrain changed so that the path
+	 * can no longer be followed, or the flow field this unit follows is no longer valid,
+	 * a new path is searched, and the unit stops if there is none.
+	 */
+	private void moveAlongPath() {
+		if ((this.pathRequest != null) || (!this.nextPositionReached())) {
+			return;
+		}
+		PathFinder finder = this.getWorld().getPathFinder();
+		int x = (int) this.store.positionX[this.slot], y = (int) this.store.positionY[this.slot], z = (int) this.store.positionZ[this.slot];
+		int next;
+		if (this.flowField != null) {
+			next = this.flowField.isValid() ? this.flowField.getNext(x, y, z) : -1;
+			if ((next == -1) && (this.flowField.getGoal() == finder.getIndex(x, y, z))) {
+				// the goal has been reached
+				this.flowField = null;
+				return;
+			}
+		}
+		else if ((this.path != null) && (this.pathStep < this.path.length)) {
+			next = this.rejoinPath(finder.getIndex(x, y, z)) ? this.path[this.pathStep] : -1;
+		}
+		else {
+			return;
+		}
+		if (next < 0) {
+			this.path = null;
+			this.flowField = null;
+			if (!this.startPathTo(this.getDestination())) {
+				this.setActivity(Activity.IDLE);
+				this.setDestination(new Vector3d(-1,-1,-1));
+			}
+			return;
 		}
+		int nbX = this.getWorld().getNbX(), nbY = this.getWorld().getNbY();
+		this.pathStep++;
+		this.moveToAdjacent(next % nbX - x, (next / nbX) % nbY - y, next / (nbX * nbY) - z);
+	}
+	
+	/**
+	 * Return the cubes adjacent to the given cube on which this unit can stand.
+	 * 
+	 * @param 	c
+	 * 			The cube of which the neighbours are checked.
+	 * @return	All cubes different from c and adjacent to c that are a valid position
+	 * 			in this units world.
+	 * 			| for each cube in result: this.getWorld().isValidPosition(cube)
+	 */
+	public ArrayList<Vector3d> getSuitableCubes(Vector3d c) {
+		ArrayList<Vector3d> l = new ArrayList<Vector3d>();
+		World w = this.getWorld();
+		int cx = (int) c.getX();
+		int cy = (int) c.getY();
+		int cz = (int) c.getZ();
 		
+		for (int x = cx - 1; x <= cx + 1; x++) {
+			for (int y = cy - 1; y <= cy + 1; y++) {
+				for (int z = cz - 1; z <= cz + 1; z++) {
+					if (((x != cx) || (y != cy) || (z != cz)) && (w.isValidPosition(x, y, z))) {
+						l.add(new Vector3d(x, y, z));
+					}
+				}
+			}
+		}
+		return l;
 	}
 
 	/**
@@ -923,32 +1215,40 @@ public class Unit {
 	 * 			  |this.Speed == vector.getZ()
 	 * 			  |this.Velocity == this.calcVelocity()
 	 * 			  |this.orientation = atan2(this.velocity.getY(),this.velocity.getX())
-	 * 			  |this.timeNeeded == (distance to next cube)/(this.velocity)
+	 * 			  |this.store.timeNeeded[this.slot] == (distance to next cube)/(this.velocity)
 	 * @post    If this unit has reached the next cube, its xp will be incremented by 1
 	 * 			  |this.xp += 1
 	 *            
 	 */
 	public void moveToAdjacent(Vector3d vector) {	
-		Vector3d oldPos = this.getPosition().getCube();	
-		Vector3d nextPos = oldPos.add(0.5).add(vector);
+		this.moveToAdjacent((int) vector.getX(), (int) vector.getY(), (int) vector.getZ());
+	}
+	
+	/*
+	 * Initiate movement to the cube at the given offset from the cube this unit
+	 * occupies, without allocating vectors.
+	 */
+	private void moveToAdjacent(int dx, int dy, int dz) {
+		double nextX = Math.floor(this.store.positionX[this.slot]) + 0.5 + dx;
+		double nextY = Math.floor(this.store.positionY[this.slot]) + 0.5 + dy;
+		double nextZ = Math.floor(this.store.positionZ[this.slot]) + 0.5 + dz;
 
-		if (this.getWaitingTo() == "Resting")
+		if (this.getWaitingTo() == Activity.RESTING)
 			this.rest();
 		
-		if (this.canBeInterrupted("Moving")) {
-			this.setStatus("Moving");
-			if(this.getWorld().isValidPosition(nextPos)) {
+		if (this.canBeInterrupted(Activity.MOVING)) {
+			this.setActivity(Activity.MOVING);
+			if(this.getWorld().isValidPosition((int) nextX, (int) nextY, (int) nextZ)) {
 				if(this.nextPositionReached()) {
-					this.setNextPosition(nextPos);
-					this.setSpeed((int) vector.getZ());
-					this.setVelocity(this.calcVelocity(vector));			
-					this.setTimeNeeded(vector.calcNorm() / this.getCurrentSpeed());
+					this.setNextPosition(nextX, nextY, nextZ);
+					this.setSpeed(dz);
+					double norm = Math.sqrt(dx * dx + dy * dy + dz * dz);
+					double factor = this.getCurrentSpeed() / norm;
+					this.setVelocity(dx * factor, dy * factor, dz * factor);
+					this.setTimeNeeded(norm / this.getCurrentSpeed());
 					this.setMovingTime(0);
 					
-		
-					float vy = (float) this.getVelocity()[1];
-					float vx = (float) this.getVelocity()[0];
-					this.setOrientation((float) Math.atan2(vy, vx));
+					this.setOrientation((float) Math.atan2((float) this.store.velocityY[this.slot], (float) this.store.velocityX[this.slot]));
 					
 					this.setXP(this.getExperience() + 1);
 				}				
@@ -961,28 +1261,23 @@ public class Unit {
 	 */
 	public boolean destinationReached() {
 		Vector3d dest = this.getDestination();
-		Vector3d pos = this.getPosition();
-		
-		if (!pos.equals(dest.add(0.5))) {
-			return false;
-		}		
-		return true;
+		return (this.store.positionX[this.slot] == dest.getX() + 0.5) && (this.store.positionY[this.slot] == dest.getY() + 0.5)
+				&& (this.store.positionZ[this.slot] == dest.getZ() + 0.5);
 	}
 	
 	/**
 	 * Check whether the unit has reached a neighboring cube.
 	 */
 	public boolean nextPositionReached() {
-		Vector3d nextPos = this.getNextPosition();
-		Vector3d pos = this.getPosition();
-		return pos.equals(nextPos);
+		return (this.store.positionX[this.slot] == this.store.nextPositionX[this.slot]) && (this.store.positionY[this.slot] == this.store.nextPositionY[this.slot])
+				&& (this.store.positionZ[this.slot] == this.store.nextPositionZ[this.slot]);
 	}
 
 	/**
 	 * Check whether this unit is sprinting.
 	 */
 	public boolean isSprinting() {
-		return this.movement == "Sprinting";
+		return (this.store.state[this.slot] & SPRINTING) != 0;
 	}
 
 	/**
@@ -990,14 +1285,14 @@ public class Unit {
 	 */
 	public void startSprinting() {
 		if (this.getStamina() > 0)
-			this.movement = "Sprinting";
+			this.store.state[this.slot] |= SPRINTING;
 	}
 
 	/**
 	 * Stop this unit from sprinting.
 	 */
 	public void stopSprinting() {
-		this.movement = "Walking";
+		this.store.state[this.slot] &= ~SPRINTING;
 	}
 	
 	
@@ -1007,34 +1302,86 @@ public class Unit {
 	/// STATUS AND ACTIVITY PROGRESS ///
 	////////////////////////////////////
 	/**
-	 * Return the current status of this unit.
+	 * Return the current activity of this unit.
 	 */
-	public String getStatus() {
-		return this.status;
+	@Basic
+	public Activity getActivity() {
+		return Activity.fromOrdinal(this.store.state[this.slot] & ACTIVITY);
 	}
 
 	/**
-	 * Set the units current status to the specified activity.
+	 * Set the units current activity to the given activity.
 	 * 
-	 * @post The units activity is changed to the given activity.
+	 * @param	activity
+	 * 			The new activity of this unit.
+	 * @post	The units activity is changed to the given activity.
+	 * 			| new.getActivity() == activity
+	 * @throws	IllegalArgumentException
+	 * 			The given activity is not effective.
+	 * 			| activity == null
+	 */
+	public void setActivity(Activity activity) throws IllegalArgumentException {
+		if (activity == null) {
+			throw new IllegalArgumentException();
+		}
+		this.store.state[this.slot] = (byte) ((this.store.state[this.slot] & ~ACTIVITY) | activity.ordinal());
+	}
+	
+	/**
+	 * Return the activity of this unit, whether it is sprinting and the activity it is
+	 * waiting to do, packed into a single byte. Bits 0 to 2 hold the ordinal of the
+	 * activity, bit 3 is set if this unit is sprinting, and bits 4 to 6 hold one more
+	 * than the ordinal of the activity this unit is waiting to do, or 0 if it is not
+	 * waiting to do anything.
+	 * 
+	 * @return	| Activity.fromOrdinal(result & 7) == getActivity() &&
+	 * 			| ((result & 8) != 0) == isSprinting() &&
+	 * 			| ((result >> 4) == 0 ? getWaitingTo() == null 
+	 * 			|	: Activity.fromOrdinal((result >> 4) - 1) == getWaitingTo())
+	 */
+	public byte getPackedState() {
+		return this.store.state[this.slot];
+	}
+	
+	/**
+	 * Masks selecting the activity, the sprinting flag and the activity this unit is
+	 * waiting to do from a packed state.
 	 */
-	public void setStatus(String activity) {
-		this.status = activity;
+	private static final int ACTIVITY = 7;
+	private static final int SPRINTING = 8;
+	private static final int WAITING_TO = 7 << 4;
+	
+	/**
+	 * Set the activity of this unit, whether it is sprinting and the activity it is
+	 * waiting to do to the state packed into the given byte.
+	 * 
+	 * @param	state
+	 * 			The packed state, as returned by {@link #getPackedState()}.
+	 * @post	| new.getPackedState() == state
+	 * @throws	IllegalArgumentException
+	 * 			The given byte does not hold a packed state.
+	 */
+	public void setPackedState(byte state) throws IllegalArgumentException {
+		int nbActivities = Activity.values().length;
+		if ((state < 0) || ((state & ACTIVITY) >= nbActivities) || ((state >> 4) > nbActivities)) {
+			throw new IllegalArgumentException();
+		}
+		this.store.state[this.slot] = state;
 	}
 
 	public double getActivityProgress() {
-		return this.activityProgress;
+		return this.store.activityProgress[this.slot];
 	}
 
 	public void setActivityProgress(double progress) {
-		this.activityProgress = progress;
+		this.store.activityProgress[this.slot] = progress;
 	}
 
 	/**
 	 * Return the time needed for a unit to complete an activity.
 	 */
 	public double getTimeNeeded() {
-		return this.timeNeeded;
+		return this.store.timeNeeded[this.slot];
 	}
 
 	/**
@@ -1045,17 +1392,17 @@ public class Unit {
 	 */
 	private void setTimeNeeded() {
 		if (this.isWorking())
-			this.timeNeeded = 500 / this.getStrength();
+			this.store.timeNeeded[this.slot] = 500 / this.getStrength();
 
 		if (this.isResting() || this.isInitResting())
-			this.timeNeeded = (0.2 * 200 / this.getToughness());
+			this.store.timeNeeded[this.slot] = (0.2 * 200 / this.getToughness());
 		
 		if (this.isAttacking())
-			this.timeNeeded = 1;
+			this.store.timeNeeded[this.slot] = 1;
 	}
 	
 	public void setTimeNeeded(double time) {
-		this.timeNeeded = time;
+		this.store.timeNeeded[this.slot] = time;
 	}
 
 	public double getCounter() {
@@ -1067,12 +1414,31 @@ public class Unit {
 	}
 
 	
-	public String getWaitingTo() {
-		return this.waitingTo;
+	public Activity getWaitingTo() {
+		int waiting = (this.store.state[this.slot] & WAITING_TO) >> 4;
+		return (waiting == 0) ? null : Activity.fromOrdinal(waiting - 1);
+	}
+	
+	public void setWaitingTo(Activity activity) {
+		int waiting = (activity == null) ? 0 : activity.ordinal() + 1;
+		this.store.state[this.slot] = (byte) ((this.store.state[this.slot] & ~WAITING_TO) | (waiting << 4));
 	}
 	
-	public void setWaitingTo(String arg) {
-		this.waitingTo = arg;
+	/*
+	 * Register that the state of this unit is kept in the given slot of the given store.
+	 */
+	void setSlot(UnitStore store, int slot) {
+		this.store = store;
+		this.slot = slot;
+	}
+	
+	/*
+	 * Move the state of this unit to a new slot of the given store.
+	 */
+	void moveToStore(UnitStore store) {
+		if (store != this.store) {
+			this.setSlot(store, store.moveFrom(this.store, this.slot));
+		}
 	}
 
 	public static String getRandomActivity(String[] activities) {
@@ -1085,49 +1451,49 @@ public class Unit {
 	 * Check whether this unit is idle.
 	 */
 	public boolean isIdle() {
-		return this.getStatus() == "Idle";
+		return this.getActivity() == Activity.IDLE;
 	}
 
 	/*
 	 * Check whether this unit is moving.
 	 */
 	public boolean isMoving() {
-		return this.getStatus() == "Moving";
+		return this.getActivity() == Activity.MOVING;
 	}
 
 	/*
 	 * Check whether this unit is working.
 	 */
 	public boolean isWorking() {
-		return this.getStatus() == "Working";
+		return this.getActivity() == Activity.WORKING;
 	}
 
 	/*
 	 * Check whether this unit is attacking another unit.
 	 */
 	public boolean isAttacking() {
-		return this.getStatus() == "Attacking";
+		return this.getActivity() == Activity.ATTACKING;
 	}
 
 	/*
 	 * Check whether this unit is defending itself.
 	 */
 	public boolean isDefending() {
-		return this.getStatus() == "Defending";
+		return this.getActivity() == Activity.DEFENDING;
 	}
 
 	/*
 	 * Check whether this unit is resting.
 	 */
 	public boolean isResting() {
-		return this.getStatus() == "Resting";
+		return this.getActivity() == Activity.RESTING;
 	}
 	
 	/*
 	 * Check whether this unit is in its initial resting phase.
 	 */
 	public boolean isInitResting() {
-		return this.getStatus() == "InitResting";
+		return this.getActivity() == Activity.INIT_RESTING;
 	}
 	
 	/*
@@ -1152,28 +1518,29 @@ public class Unit {
 	 * 
 	 * @post   This units default behaviour state will be true
 	 * 			|this.defaultBehaviour == true
-	 * @post   This units status will we 'Idle'.
-	 * 			|this.status == "Idle"
+	 * @post   This units activity will be idle.
+	 * 			|new.getActivity() == Activity.IDLE
 	 */
 	public void startDefaultBehavior() {
 		if ((this.isIdle()) && (this.isDefaultBehaviorEnabled())) {
-			int rnd = ThreadLocalRandom.current().nextInt(0, 2 + 1);
-			Vector3d randomLoc = new Vector3d();
+			int rnd = this.getRandom().nextInt(2 + 1);
 
 			if (rnd == 0) {
 				// TODO: random cube kiezen waarschijnlijk
 				// we nemen de cube eronder.
-				Vector3d target = this.getPosition();
+				Vector3d target = this.getPosition().getCube();
 				target.setZ(target.getZ() - 1);
 				this.workAt(target);
 				
 			} else if (rnd == 1) {
 				this.rest();
 			} else if (rnd == 2) {
-				for (int i = 0; i < 2; i++) {
-					randomLoc.setDimension(i, ThreadLocalRandom.current().nextInt(0, 49 + 1));
-				}
-				this.moveTo(randomLoc);
+				World world = this.getWorld();
+				Vector3d randomLoc = new Vector3d(this.getRandom().nextInt(world.getNbX()),
+						this.getRandom().nextInt(world.getNbY()),
+						this.getRandom().nextInt(world.getNbZ()));
+				// unreachable locations are skipped, the unit chooses again next time
+				this.startPathTo(randomLoc);
 			}
 		}
 	}
@@ -1194,27 +1561,10 @@ public class Unit {
 	 * 
 	 * @param 	interruptor
 	 *          The interruptor
+	 * @return	| result == getActivity().canBeInterruptedBy(interruptor)
 	 */
-	public boolean canBeInterrupted(String interruptor) {
-		if (this.isIdle()) {
-			return true;
-		}
-		if ((this.isWorking()) && (interruptor != "Working"))
-			return true;
-
-		if ((this.isResting()) && (interruptor != "Resting"))
-			return true;
-
-		if ((this.isInitResting()) && (interruptor == "Fighting"))
-			return true;
-
-		if ((this.isMoving()) && (interruptor != "Working"))
-			return true;
-
-		if (this.getStatus() == null)
-			return true;
-
-		return false;
+	public boolean canBeInterrupted(Activity interruptor) {
+		return this.getActivity().canBeInterruptedBy(interruptor);
 	}
 	
 	////////////////
@@ -1246,8 +1596,8 @@ public class Unit {
 			this.setActivityProgress(0);
 			defender.setActivityProgress(0);
 
-			this.setStatus("Attacking");
-			defender.setStatus("Defending");
+			this.setActivity(Activity.ATTACKING);
+			defender.setActivity(Activity.DEFENDING);
 			this.setTimeNeeded();
 
 			this.setOpponent(defender);
@@ -1292,7 +1642,7 @@ public class Unit {
 	public void defend(Unit attacker) {
 
 		double dodgeProb = 0.2 * this.getAgility() / attacker.getAgility();
-		boolean dodged = (new Random().nextDouble() <= dodgeProb);
+		boolean dodged = (this.getRandom().nextDouble() <= dodgeProb);
 
 		if (dodged == true) {
 			this.dodge();
@@ -1301,7 +1651,7 @@ public class Unit {
 		} else {
 			double blockProb = 0.25 * (this.getStrength() - this.getAgility())
 					/ (attacker.getStrength() - attacker.getAgility());
-			boolean blocked = (new Random().nextDouble() <= blockProb);
+			boolean blocked = (this.getRandom().nextDouble() <= blockProb);
 			if (blocked != true) {
 				attacker.doDamage(this);
 				int curXP = attacker.getExperience();
@@ -1312,9 +1662,9 @@ public class Unit {
 			}
 
 		attacker.setOpponent(null);
-		attacker.setStatus("Idle");
+		attacker.setActivity(Activity.IDLE);
 		this.setOpponent(null);
-		this.setStatus("Idle");
+		this.setActivity(Activity.IDLE);
 		}
 	}
 	
@@ -1336,17 +1686,57 @@ public class Unit {
 		}
 	}
 	
+	/**
+	 * Let this unit fall straight down, after the terrain supporting it disappeared,
+	 * into the first cube below it that is a valid position. It lands in the centre
+	 * of that cube. Solid cubes that are no longer connected to the border do not
+	 * stop its fall, as they are about to cave in themselves.
+	 * 
+	 * @effect	This unit stops what it was doing.
+	 * 			| setActivity(Activity.IDLE)
+	 * @effect	This unit loses 10 hitpoints for every cube it falls, and dies if it has
+	 * 			no hitpoints left.
+	 */
+	void fall() {
+		World world = this.getWorld();
+		int[] cube = this.getOccupyingCube();
+		int z = world.getLandingZ(cube[0], cube[1], cube[2]);
+		this.setPositionCoordinates(cube[0] + 0.5, cube[1] + 0.5, z + 0.5);
+		world.updateIndex(this);
+		this.path = null;
+		this.flowField = null;
+		this.pathRequest = null;
+		this.setActivity(Activity.IDLE);
+		this.setDestination(new Vector3d(-1,-1,-1));
+		
+		int hitpoints = this.getHitpoints() - 10 * (cube[2] - z);
+		if (hitpoints <= 0) {
+			this.setHitpoints(0);
+			this.die();
+		}
+		else {
+			this.setHitpoints(hitpoints);
+		}
+	}
+	
 	/**
 	 * Terminate the unit. Drop its' object if it was carrying something, remove it from its' faction, and change its' state to not alive.
+	 * The unit is removed from its world as well, at the latest at the end of the current tick.
 	 * 
 	 */
 	public void die(){
+		if (!this.alive) {
+			return;
+		}
 		if (this.carries!=null){
 			this.dropItem();
 		}
 		
 		this.getFaction().removeUnit(this);
 		this.alive = false;
+		if (this.getWorld() != null) {
+			this.getWorld().unitDied(this);
+		}
 	}
 	
 	/**
@@ -1366,7 +1756,7 @@ public class Unit {
 		 while (foundNewPos == false) {
 			for (int i = 0; i < 2; i++) {
 
-				double plus = new Random().nextInt(3);
+				double plus = this.getRandom().nextInt(3);
 				double randomValue = -1 +  plus;
 				evasion.setDimension(i,randomValue);
 			}
@@ -1398,15 +1788,15 @@ public class Unit {
 	 * @post The units current status will be resting.
 	 */
 	public void rest() {
-		if ((this.isMoving()) && (!(this.getWaitingTo() == "Resting"))) {
-			this.setWaitingTo("Resting");
+		if ((this.isMoving()) && (!(this.getWaitingTo() == Activity.RESTING))) {
+			this.setWaitingTo(Activity.RESTING);
 		}
-		else if (this.canBeInterrupted("Resting")) {
+		else if (this.canBeInterrupted(Activity.RESTING)) {
 			if (this.isMoving()) {
-				this.setWaitingTo("Moving");
+				this.setWaitingTo(Activity.MOVING);
 			}
 			this.setActivityProgress(0);
-			this.setStatus("InitResting");
+			this.setActivity(Activity.INIT_RESTING);
 			this.setTimeNeeded();
 		}
 	}
@@ -1422,19 +1812,19 @@ public class Unit {
 	 *       this unit is at full health, its status will be set to default.
 	 *       Else its hitpoints will be increased by 1. | if ((this.getStamina()
 	 *       == this.getMaxHitpoints()) && | (this.getHitpoints !=
-	 *       this.getMaxHitpoints())) | then new.getStatus() = "Default" | else
+	 *       this.getMaxHitpoints())) | then new.getActivity() = Activity.IDLE | else
 	 *       | new.getHitpoints() = this.getHitpoints() + 1
 	 */
 	public void restore() {
 
 		if (this.getHitpoints() == this.getMaxHitpoints()) {
 			if (this.getStamina() == this.getMaxHitpoints()) {
-				if (this.getWaitingTo() == "Moving") {
-					this.setStatus("Moving");
+				if (this.getWaitingTo() == Activity.MOVING) {
+					this.setActivity(Activity.MOVING);
 					this.setWaitingTo(null);
 				}
 				else {
-					this.setStatus("Idle");
+					this.setActivity(Activity.IDLE);
 				}
 			}
 			else {
@@ -1460,12 +1850,12 @@ public class Unit {
 	 * 			and the given position is adjacent to the units current position,
 	 * 			the unit will start working by updating its status, activity progress, 
 	 * 			time needed, target position and orientation.
-	 * 			| if (this.canBeInterrupted("Working")) 
-	 *			|	if ((this.getWorld().isValidPosition(pos)) &&
+	 * 			| if (this.canBeInterrupted(Activity.WORKING)) 
+	 *			|	if ((!this.getWorld().posOutOfBounds(pos)) &&
 	 *			|		(this.isAdjacentTo(pos.roundDown()))) 
 	 *			|	then
 	 *			| 		new.getActivityProgress() == 0
-	 *			|		new.getStatus() == "Working"
+	 *			|		new.getActivity() == Activity.WORKING
 	 *			|		new.getTimeNeeded() == this.setTimeNeeded()
 	 *			|		new.getTarget() == pos
 	 *			|		Vector3d diff = pos.subtract(this.getPosition())
@@ -1474,11 +1864,12 @@ public class Unit {
 	 */
 	public void workAt(Vector3d pos) {
 
-		if (this.canBeInterrupted("Working")) {
-			if ((this.getWorld().isValidPosition(pos)) &&
+		if (this.canBeInterrupted(Activity.WORKING)) {
+			int[] cube = pos.getIntArray();
+			if ((!this.getWorld().posOutOfBounds(cube[0], cube[1], cube[2])) &&
 					(this.isAdjacentTo(pos.roundDown()))) {
 				this.setActivityProgress(0);
-				this.setStatus("Working");
+				this.setActivity(Activity.WORKING);
 				this.setTimeNeeded();
 				this.setTarget(pos.roundDown());
 				Vector3d diff = pos.subtract(this.getPosition());
@@ -1491,11 +1882,11 @@ public class Unit {
 	public void workDone(){
 		// TODO: A LOT OF WORK HAS TO BE DONE HERE.
 		this.setActivityProgress(0);
-		this.setStatus("Idle");
+		this.setActivity(Activity.IDLE);
 		
 		World world = this.getWorld();
 		Vector3d pos = this.getPosition();
-		int cubeType = world.getCubeType(pos);
+		int cubeType = world.getCubeType(this.getTarget());
 		
 		if ((this.isCarryingBoulder()) || (this.isCarryingLog())) {
 			this.dropItem();
@@ -1528,15 +1919,66 @@ public class Unit {
 	 * according to it's current status.
 	 * @param 	dt
 	 * 			The amount of time a unit will advance.
-	 * @throws 	InterruptedException
+	 * @effect	The unit first updates its own state, and then applies the effects
+	 * 			this update has on the rest of the world.
+	 * 			| computeIntent(dt); applyIntent()
 	 * @throws 	IllegalArgumentException
 	 * 			Throws an IllegalArgumentException if the given dt is larger than 0.2 .
 	 */
 	public void advanceTime(double dt) {
+		this.computeIntent(dt);
+		this.applyIntent();
+	}
+	
+	/**
+	 * Enumeration of the effects a unit can have left to apply at the end of
+	 * a call to computeIntent.
+	 */
+	private static enum Intent {
+		NONE, START_DEFAULT_BEHAVIOR, CONTINUE_MOVING, FINISH_WORK, FINISH_ATTACK
+	}
+	
+	/**
+	 * Variable registering the effect this unit still has to apply.
+	 */
+	private Intent intent = Intent.NONE;
+	
+	/**
+	 * Variable registering whether this unit is computing its intent.
+	 */
+	private boolean isComputingIntent = false;
+	
+	/**
+	 * Advance the game time of this unit, only updating the state of this unit itself.
+	 * Everything that affects other units, the terrain or the random number generator
+	 * of the world is recorded as an intent, to be carried out by applyIntent.
+	 * 
+	 * This method only reads the terrain of the world of this unit. Calls on
+	 * different units of the same world may therefore run concurrently, as long as
+	 * no terrain changes happen at the same time.
+	 * 
+	 * @param 	dt
+	 * 			The amount of time a unit will advance.
+	 * @throws 	IllegalArgumentException
+	 * 			Throws an IllegalArgumentException if the given dt is larger than 0.2 .
+	 */
+	public void computeIntent(double dt) throws IllegalArgumentException {
 		if (!isValidDuration(dt)) {
 			throw new IllegalArgumentException();
 		}
-
+		this.intent = Intent.NONE;
+		this.isComputingIntent = true;
+		try {
+			this.advanceOwnState(dt);
+		} finally {
+			this.isComputingIntent = false;
+		}
+	}
+	
+	/*
+	 * Advance the game time of this unit, only updating the state of this unit itself.
+	 */
+	private void advanceOwnState(double dt) {
 		this.setCounter(this.getCounter() + dt);
 
 		if (this.getCounter() >= REST_INTERVAL) {
@@ -1545,10 +1987,10 @@ public class Unit {
 		}
 		if (this.isIdle()) {
 			if (this.isDefaultBehaviorEnabled()) {
-				this.startDefaultBehavior();
+				this.intent = Intent.START_DEFAULT_BEHAVIOR;
 			}
 		}
-		if (this.isMoving()) {		
+		else if (this.isMoving()) {		
 			this.setMovingTime(this.getMovingTime() + dt);
 			
 			if (this.isSprinting()) {				
@@ -1558,16 +2000,18 @@ public class Unit {
 			try {
 				this.updatePosition(dt);
 			} catch (OutOfBoundsException e) {
-				e.printStackTrace();
+				// a step towards a cube that can no longer be entered is turned back,
+				// and units that lose their support fall, so this is a bug
+				throw new IllegalStateException(e);
 			}
 			
-			if (this.getPosition() == this.getNextPosition()) {
+			if (this.nextPositionReached()) {
 				if ((this.destinationReached()) || (this.getDestination().getX() == -1)) {				
-					this.setStatus("Idle");	
+					this.setActivity(Activity.IDLE);	
 					this.setDestination(new Vector3d(-1,-1,-1));
 				}
 				else {
-					this.moveTo(this.getDestination());
+					this.intent = Intent.CONTINUE_MOVING;
 				}
 			}	
 		}		
@@ -1576,7 +2020,7 @@ public class Unit {
 			this.setActivityProgress(this.getActivityProgress() + dt);
 
 			if (this.getActivityProgress() >= this.getTimeNeeded()) {
-				this.setStatus("Resting");
+				this.setActivity(Activity.RESTING);
 				this.restore();
 				this.setActivityProgress(0);
 			}
@@ -1584,23 +2028,60 @@ public class Unit {
 		else if (this.isWorking()) {
 			this.setActivityProgress(this.getActivityProgress() + dt);
 			if (this.getActivityProgress() >= this.getTimeNeeded()) {
-				this.workDone();				
-							
-				int curXP = this.getExperience();
-				this.setXP (curXP + 10);
+				this.intent = Intent.FINISH_WORK;
 			}
 		} 
 		else if (this.isAttacking()) {
-			Unit defender = this.getOpponent();
-
 			double attacked = this.getActivityProgress();
 			this.setActivityProgress(attacked + dt);
 
 			if (this.getActivityProgress() >= 1) {
-				defender.defend(this);
+				this.intent = Intent.FINISH_ATTACK;
 			}
 		}
 	}
+	
+	/**
+	 * Apply the effect recorded by the last call to computeIntent, if any.
+	 * 
+	 * @effect	The world of this unit registers the cube this unit moved to.
+	 * @effect	If this unit became idle with default behaviour enabled, it starts its
+	 * 			default behaviour.
+	 * 			| if (intent == START_DEFAULT_BEHAVIOR) then startDefaultBehavior()
+	 * @effect	If this unit reached the next cube on its way, it continues towards
+	 * 			its destination.
+	 * 			| if (intent == CONTINUE_MOVING) then moveAlongPath()
+	 * @effect	If this unit finished its work, the work is done and it gains 10
+	 * 			experience points.
+	 * 			| if (intent == FINISH_WORK) then workDone(); setXP(getExperience() + 10)
+	 * @effect	If this unit finished its attack, its opponent defends itself.
+	 * 			| if (intent == FINISH_ATTACK) then getOpponent().defend(this)
+	 */
+	public void applyIntent() {
+		if (this.getWorld() != null) {
+			this.getWorld().updateIndex(this);
+		}
+		Intent intent = this.intent;
+		this.intent = Intent.NONE;
+		switch (intent) {
+		case START_DEFAULT_BEHAVIOR:
+			this.startDefaultBehavior();
+			break;
+		case CONTINUE_MOVING:
+			this.moveAlongPath();
+			break;
+		case FINISH_WORK:
+			this.workDone();
+			int curXP = this.getExperience();
+			this.setXP (curXP + 10);
+			break;
+		case FINISH_ATTACK:
+			this.getOpponent().defend(this);
+			break;
+		default:
+			break;
+		}
+	}
 
 
 	/**
@@ -1647,7 +2128,7 @@ public class Unit {
 		int strength = this.getStrength();
 		int agility = this.getAgility();
 		int toughness = this.getToughness();
-		int attribute = ThreadLocalRandom.current().nextInt(0, 2 + 1);
+		int attribute = this.getRandom().nextInt(2 + 1);
 		
 		if (attribute == 0) {
 			this.setStrength(strength + 1);
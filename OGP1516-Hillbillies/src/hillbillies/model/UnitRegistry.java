@@ -0,0 +1,396 @@
+package hillbillies.model;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import be.kuleuven.cs.som.annotate.Basic;
+
+/**
+ * A class of unit registries, keeping track of the units and the factions of a world
+ * and of the limits on their numbers.
+ *
+ * Every registered unit gets an identifier that is unique among the units of the
+ * registry. Identifiers are dense: they lie between 0 and {@link #getIdBound()}, and the
+ * identifier of a unit that leaves the registry is handed out again to the next unit
+ * that joins it. Information about the units of a world can thus be kept in arrays
+ * indexed by identifier instead of in maps.
+ *
+ * The active factions are kept in a binary heap ordered by their number of members, so
+ * the smallest faction, that new units join once the maximum number of factions has been
+ * reached, is known at all times.
+ *
+ * @author Joris Schrauwen, Wim Schmitz
+ */
+public class UnitRegistry {
+
+	/**
+	 * Initialize this new, empty unit registry with the default limits.
+	 *
+	 * @post	| new.getMaxNbUnits() == DEFAULT_MAX_NB_UNITS
+	 * @post	| new.getMaxNbFactions() == DEFAULT_MAX_NB_FACTIONS
+	 * @post	| new.getMaxNbMembers() == DEFAULT_MAX_NB_MEMBERS
+	 */
+	public UnitRegistry() {
+		this.maxNbUnits = DEFAULT_MAX_NB_UNITS;
+		this.maxNbFactions = DEFAULT_MAX_NB_FACTIONS;
+		this.maxNbMembers = DEFAULT_MAX_NB_MEMBERS;
+	}
+
+	/**
+	 * Constant reflecting the default maximum number of units in a world.
+	 */
+	public static final int DEFAULT_MAX_NB_UNITS = 100;
+
+	/**
+	 * Constant reflecting the default maximum number of active factions in a world.
+	 */
+	public static final int DEFAULT_MAX_NB_FACTIONS = 5;
+
+	/**
+	 * Constant reflecting the default maximum number of members of a faction.
+	 */
+	public static final int DEFAULT_MAX_NB_MEMBERS = 50;
+
+	/**
+	 * Variables registering the maximum number of units, of active factions and of
+	 * members of a faction in this registry.
+	 */
+	private int maxNbUnits;
+	private int maxNbFactions;
+	private int maxNbMembers;
+
+	/**
+	 * Variable registering the unit with every identifier, or null for the identifiers
+	 * that are free.
+	 */
+	private Unit[] units = new Unit[16];
+
+	/**
+	 * Variable registering the number of identifiers handed out so far.
+	 */
+	private int idBound;
+
+	/**
+	 * Variables registering the free identifiers below the identifier bound, as a stack.
+	 */
+	private int[] freeIds = new int[16];
+	private int nbFreeIds;
+
+	/**
+	 * Variable registering the active factions, with the smallest one first, as a binary heap.
+	 */
+	private Faction[] heap = new Faction[8];
+	private int nbFactions;
+
+	/**
+	 * Variable registering the active factions in the order in which they were added.
+	 */
+	private final Set<Faction> factions = new LinkedHashSet<Faction>();
+
+	/**
+	 * Variable registering the number of factions added to this registry so far.
+	 */
+	private long nbFactionsAdded;
+
+	/**
+	 * Return the maximum number of units in this registry.
+	 */
+	@Basic
+	public int getMaxNbUnits() {
+		return this.maxNbUnits;
+	}
+
+	/**
+	 * Set the maximum number of units in this registry to the given number.
+	 * Units that are already registered stay registered.
+	 *
+	 * @param	maxNbUnits
+	 * 			The new maximum number of units.
+	 * @post	| new.getMaxNbUnits() == maxNbUnits
+	 * @throws	IllegalArgumentException
+	 * 			| maxNbUnits <= 0
+	 */
+	public void setMaxNbUnits(int maxNbUnits) throws IllegalArgumentException {
+		if (maxNbUnits <= 0) {
+			throw new IllegalArgumentException();
+		}
+		this.maxNbUnits = maxNbUnits;
+	}
+
+	/**
+	 * Return the maximum number of active factions in this registry.
+	 */
+	@Basic
+	public int getMaxNbFactions() {
+		return this.maxNbFactions;
+	}
+
+	/**
+	 * Set the maximum number of active factions in this registry to the given number.
+	 * Factions that are already active stay active.
+	 *
+	 * @param	maxNbFactions
+	 * 			The new maximum number of active factions.
+	 * @post	| new.getMaxNbFactions() == maxNbFactions
+	 * @throws	IllegalArgumentException
+	 * 			| maxNbFactions <= 0
+	 */
+	public void setMaxNbFactions(int maxNbFactions) throws IllegalArgumentException {
+		if (maxNbFactions <= 0) {
+			throw new IllegalArgumentException();
+		}
+		this.maxNbFactions = maxNbFactions;
+	}
+
+	/**
+	 * Return the maximum number of members of a faction in this registry.
+	 */
+	@Basic
+	public int getMaxNbMembers() {
+		return this.maxNbMembers;
+	}
+
+	/**
+	 * Set the maximum number of members of a faction in this registry to the given number.
+	 * Members that already belong to a faction stay in it.
+	 *
+	 * @param	maxNbMembers
+	 * 			The new maximum number of members.
+	 * @post	| new.getMaxNbMembers() == maxNbMembers
+	 * @throws	IllegalArgumentException
+	 * 			| maxNbMembers <= 0
+	 */
+	public void setMaxNbMembers(int maxNbMembers) throws IllegalArgumentException {
+		if (maxNbMembers <= 0) {
+			throw new IllegalArgumentException();
+		}
+		this.maxNbMembers = maxNbMembers;
+	}
+
+	/**
+	 * Return the number of units in this registry.
+	 */
+	public int getNbUnits() {
+		return this.idBound - this.nbFreeIds;
+	}
+
+	/**
+	 * Return a bound on the identifiers of the units in this registry: every registered
+	 * unit has an identifier between 0 and this bound, exclusive.
+	 */
+	@Basic
+	public int getIdBound() {
+		return this.idBound;
+	}
+
+	/**
+	 * Return the unit with the given identifier, or null if no unit in this registry has it.
+	 *
+	 * @param	id
+	 * 			The identifier of the unit to return.
+	 */
+	public Unit getUnit(int id) {
+		if ((id < 0) || (id >= this.idBound)) {
+			return null;
+		}
+		return this.units[id];
+	}
+
+	/**
+	 * Return the active factions of this registry, in the order in which they became active.
+	 */
+	public Set<Faction> getFactions() {
+		return Collections.unmodifiableSet(this.factions);
+	}
+
+	/**
+	 * Return the active faction of this registry with the fewest members, or null if there
+	 * are no active factions. Of several equally small factions, the one that became active
+	 * first is returned.
+	 */
+	public Faction getSmallestFaction() {
+		return (this.nbFactions == 0) ? null : this.heap[0];
+	}
+
+	/**
+	 * Check whether another unit can be registered in this registry.
+	 *
+	 * @return	| result == (getNbUnits() < getMaxNbUnits()) &&
+	 * 			|	((getFactions().size() < getMaxNbFactions()) || !getSmallestFaction().isFactionFull())
+	 */
+	public boolean canRegister() {
+		if (this.getNbUnits() >= this.getMaxNbUnits()) {
+			return false;
+		}
+		return (this.nbFactions < this.getMaxNbFactions()) || !this.getSmallestFaction().isFactionFull();
+	}
+
+	/**
+	 * Register the given unit in this registry, give it a free identifier and let it
+	 * join a faction: a new one as long as the maximum number of factions has not been
+	 * reached, the smallest active one otherwise.
+	 *
+	 * @param	unit
+	 * 			The unit to register.
+	 * @post	| getUnit(unit.getId()) == unit
+	 * @post	| getFactions().contains(unit.getFaction())
+	 * @throws	IllegalArgumentException
+	 * 			The given unit is already registered, or there is no room for it.
+	 * 			| (unit.getId() >= 0) || !canRegister()
+	 */
+	public void register(Unit unit) throws IllegalArgumentException {
+		if ((unit.getId() >= 0) || !this.canRegister()) {
+			throw new IllegalArgumentException();
+		}
+		int id;
+		if (this.nbFreeIds > 0) {
+			id = this.freeIds[--this.nbFreeIds];
+		}
+		else {
+			id = this.idBound++;
+			if (id == this.units.length) {
+				this.units = Arrays.copyOf(this.units, 2 * id);
+			}
+		}
+		this.units[id] = unit;
+		unit.setId(id);
+		if (this.nbFactions < this.getMaxNbFactions()) {
+			Faction faction = new Faction();
+			this.addFaction(faction);
+			faction.addUnit(unit);
+		}
+		else {
+			this.getSmallestFaction().addUnit(unit);
+		}
+	}
+
+	/**
+	 * Remove the given unit from this registry and from its faction, and free its
+	 * identifier for the next unit to register.
+	 *
+	 * @param	unit
+	 * 			The unit to remove.
+	 * @post	| new.getUnit(unit.getId()) == null
+	 * @post	| unit.getId() == -1
+	 */
+	public void unregister(Unit unit) {
+		int id = unit.getId();
+		if ((id < 0) || (this.getUnit(id) != unit)) {
+			return;
+		}
+		Faction faction = unit.getFaction();
+		if ((faction != null) && (faction.getRegistry() == this)) {
+			faction.removeUnit(unit);
+		}
+		this.units[id] = null;
+		unit.setId(-1);
+		if (this.nbFreeIds == this.freeIds.length) {
+			this.freeIds = Arrays.copyOf(this.freeIds, 2 * this.nbFreeIds);
+		}
+		this.freeIds[this.nbFreeIds++] = id;
+	}
+
+	/**
+	 * Add the given faction to the active factions of this registry.
+	 *
+	 * @param	faction
+	 * 			The faction to add.
+	 * @post	| new.getFactions().contains(faction)
+	 * @throws	IllegalArgumentException
+	 * 			The given faction already belongs to another registry.
+	 * 			| (faction.getRegistry() != null) && (faction.getRegistry() != this)
+	 */
+	public void addFaction(Faction faction) throws IllegalArgumentException {
+		if (faction.getRegistry() == this) {
+			return;
+		}
+		if (faction.getRegistry() != null) {
+			throw new IllegalArgumentException();
+		}
+		if (this.nbFactions == this.heap.length) {
+			this.heap = Arrays.copyOf(this.heap, 2 * this.nbFactions);
+		}
+		faction.setRegistry(this, this.nbFactionsAdded++);
+		this.factions.add(faction);
+		this.heap[this.nbFactions] = faction;
+		faction.setHeapIndex(this.nbFactions);
+		this.nbFactions++;
+		this.siftUp(faction.getHeapIndex());
+	}
+
+	/*
+	 * Restore the order of the given faction of this registry after its number of
+	 * members changed, and remove it from the active factions once it has none left.
+	 */
+	void factionChanged(Faction faction) {
+		int index = faction.getHeapIndex();
+		if (faction.getNbUnits() == 0) {
+			Faction last = this.heap[--this.nbFactions];
+			this.heap[this.nbFactions] = null;
+			this.factions.remove(faction);
+			faction.setRegistry(null, 0);
+			if (last != faction) {
+				this.heap[index] = last;
+				last.setHeapIndex(index);
+				this.siftDown(this.siftUp(index));
+			}
+		}
+		else {
+			this.siftDown(this.siftUp(index));
+		}
+	}
+
+	/*
+	 * Check whether the first given faction comes before the second one in the heap.
+	 */
+	private static boolean precedes(Faction first, Faction second) {
+		if (first.getNbUnits() != second.getNbUnits()) {
+			return first.getNbUnits() < second.getNbUnits();
+		}
+		return first.getOrder() < second.getOrder();
+	}
+
+	/*
+	 * Move the faction at the given index of the heap up as long as it precedes its
+	 * parent, and return its final index.
+	 */
+	private int siftUp(int index) {
+		Faction faction = this.heap[index];
+		while (index > 0) {
+			int parent = (index - 1) / 2;
+			if (!precedes(faction, this.heap[parent])) {
+				break;
+			}
+			this.heap[index] = this.heap[parent];
+			this.heap[index].setHeapIndex(index);
+			index = parent;
+		}
+		this.heap[index] = faction;
+		faction.setHeapIndex(index);
+		return index;
+	}
+
+	/*
+	 * Move the faction at the given index of the heap down as long as one of its
+	 * children precedes it.
+	 */
+	private void siftDown(int index) {
+		Faction faction = this.heap[index];
+		while (2 * index + 1 < this.nbFactions) {
+			int child = 2 * index + 1;
+			if ((child + 1 < this.nbFactions) && precedes(this.heap[child + 1], this.heap[child])) {
+				child++;
+			}
+			if (!precedes(this.heap[child], faction)) {
+				break;
+			}
+			this.heap[index] = this.heap[child];
+			this.heap[index].setHeapIndex(index);
+			index = child;
+		}
+		this.heap[index] = faction;
+		faction.setHeapIndex(index);
+	}
+}
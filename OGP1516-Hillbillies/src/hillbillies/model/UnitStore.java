@@ -0,0 +1,225 @@
+package hillbillies.model;
+
+import java.util.Arrays;
+
+import be.kuleuven.cs.som.annotate.Basic;
+
+/**
+ * A class of unit stores, keeping the state of units that changes every tick in
+ * parallel primitive arrays, one slot per unit, rather than in the units themselves.
+ * A unit is then a handle on its slot, and a world can walk over the state of all its
+ * units in the order in which it is laid out in memory, or hand contiguous ranges of
+ * slots to different threads.
+ *
+ * The slots of a store are dense: slots 0 up to {@link #getNbUnits()} are occupied.
+ * A unit that does not belong to a world has a store of its own; adding it to a world
+ * moves its state into the store of the world.
+ *
+ * @author Joris Schrauwen, Wim Schmitz
+ */
+public class UnitStore {
+
+	/**
+	 * Initialize this new, empty unit store with room for the given number of units.
+	 *
+	 * @param	capacity
+	 * 			The number of units this store can hold before its arrays grow.
+	 * @throws	IllegalArgumentException
+	 * 			The given capacity is not strictly positive.
+	 * 			| capacity <= 0
+	 */
+	public UnitStore(int capacity) throws IllegalArgumentException {
+		if (capacity <= 0) {
+			throw new IllegalArgumentException();
+		}
+		this.units = new Unit[capacity];
+		this.positionX = new double[capacity];
+		this.positionY = new double[capacity];
+		this.positionZ = new double[capacity];
+		this.nextPositionX = new double[capacity];
+		this.nextPositionY = new double[capacity];
+		this.nextPositionZ = new double[capacity];
+		this.velocityX = new double[capacity];
+		this.velocityY = new double[capacity];
+		this.velocityZ = new double[capacity];
+		this.movingTime = new double[capacity];
+		this.activityProgress = new double[capacity];
+		this.timeNeeded = new double[capacity];
+		this.stamina = new int[capacity];
+		this.hitpoints = new int[capacity];
+		this.state = new byte[capacity];
+	}
+
+	/**
+	 * Variable registering the number of occupied slots of this store.
+	 */
+	private int nbUnits;
+
+	/**
+	 * Array registering the unit in every slot of this store.
+	 */
+	private Unit[] units;
+
+	/**
+	 * Arrays registering the coordinates of the position and the next position, and the
+	 * components of the velocity of the unit in every slot.
+	 */
+	double[] positionX;
+	double[] positionY;
+	double[] positionZ;
+	double[] nextPositionX;
+	double[] nextPositionY;
+	double[] nextPositionZ;
+	double[] velocityX;
+	double[] velocityY;
+	double[] velocityZ;
+
+	/**
+	 * Arrays registering the time the unit in every slot has been moving to its next
+	 * position, its progress in its current activity, and the time that activity takes.
+	 */
+	double[] movingTime;
+	double[] activityProgress;
+	double[] timeNeeded;
+
+	/**
+	 * Arrays registering the stamina and the hitpoints of the unit in every slot.
+	 */
+	int[] stamina;
+	int[] hitpoints;
+
+	/**
+	 * Array registering the packed state of the unit in every slot, as described
+	 * in {@link Unit#getPackedState()}.
+	 */
+	byte[] state;
+
+	/**
+	 * Return the number of units in this store.
+	 */
+	@Basic
+	public int getNbUnits() {
+		return this.nbUnits;
+	}
+
+	/**
+	 * Return the number of units this store can hold before its arrays grow.
+	 */
+	public int getCapacity() {
+		return this.units.length;
+	}
+
+	/**
+	 * Return the unit in the given slot of this store.
+	 *
+	 * @throws	IndexOutOfBoundsException
+	 * 			The given slot is not occupied.
+	 * 			| (slot < 0) || (slot >= getNbUnits())
+	 */
+	public Unit getUnitAt(int slot) throws IndexOutOfBoundsException {
+		if ((slot < 0) || (slot >= this.nbUnits)) {
+			throw new IndexOutOfBoundsException();
+		}
+		return this.units[slot];
+	}
+
+	/**
+	 * Let all units in the slots from the given start slot up to the given end slot,
+	 * exclusive, compute their intent for the given duration.
+	 *
+	 * @effect	| for slot in from..to-1: getUnitAt(slot).computeIntent(dt)
+	 */
+	public void computeIntents(int from, int to, double dt) {
+		for (int slot = from; slot < to; slot++) {
+			this.units[slot].computeIntent(dt);
+		}
+	}
+
+	/*
+	 * Add the given unit to this store with all its state set to 0, and return its slot.
+	 */
+	int add(Unit unit) {
+		if (this.nbUnits == this.units.length) {
+			this.grow(2 * this.nbUnits);
+		}
+		int slot = this.nbUnits++;
+		this.units[slot] = unit;
+		return slot;
+	}
+
+	/*
+	 * Move the given unit from its slot in the given store to a new slot of this store,
+	 * together with its state, and return the new slot.
+	 */
+	int moveFrom(UnitStore store, int slot) {
+		int target = this.add(store.units[slot]);
+		this.positionX[target] = store.positionX[slot];
+		this.positionY[target] = store.positionY[slot];
+		this.positionZ[target] = store.positionZ[slot];
+		this.nextPositionX[target] = store.nextPositionX[slot];
+		this.nextPositionY[target] = store.nextPositionY[slot];
+		this.nextPositionZ[target] = store.nextPositionZ[slot];
+		this.velocityX[target] = store.velocityX[slot];
+		this.velocityY[target] = store.velocityY[slot];
+		this.velocityZ[target] = store.velocityZ[slot];
+		this.movingTime[target] = store.movingTime[slot];
+		this.activityProgress[target] = store.activityProgress[slot];
+		this.timeNeeded[target] = store.timeNeeded[slot];
+		this.stamina[target] = store.stamina[slot];
+		this.hitpoints[target] = store.hitpoints[slot];
+		this.state[target] = store.state[slot];
+		store.remove(slot);
+		return target;
+	}
+
+	/*
+	 * Remove the unit in the given slot from this store, moving the unit in the last
+	 * slot to the given slot to keep the slots dense.
+	 */
+	void remove(int slot) {
+		int last = --this.nbUnits;
+		if (slot != last) {
+			Unit moved = this.units[last];
+			this.units[slot] = moved;
+			this.positionX[slot] = this.positionX[last];
+			this.positionY[slot] = this.positionY[last];
+			this.positionZ[slot] = this.positionZ[last];
+			this.nextPositionX[slot] = this.nextPositionX[last];
+			this.nextPositionY[slot] = this.nextPositionY[last];
+			this.nextPositionZ[slot] = this.nextPositionZ[last];
+			this.velocityX[slot] = this.velocityX[last];
+			this.velocityY[slot] = this.velocityY[last];
+			this.velocityZ[slot] = this.velocityZ[last];
+			this.movingTime[slot] = this.movingTime[last];
+			this.activityProgress[slot] = this.activityProgress[last];
+			this.timeNeeded[slot] = this.timeNeeded[last];
+			this.stamina[slot] = this.stamina[last];
+			this.hitpoints[slot] = this.hitpoints[last];
+			this.state[slot] = this.state[last];
+			moved.setSlot(this, slot);
+		}
+		this.units[last] = null;
+	}
+
+	/*
+	 * Grow all arrays of this store to the given capacity.
+	 */
+	private void grow(int capacity) {
+		this.units = Arrays.copyOf(this.units, capacity);
+		this.positionX = Arrays.copyOf(this.positionX, capacity);
+		this.positionY = Arrays.copyOf(this.positionY, capacity);
+		this.positionZ = Arrays.copyOf(this.positionZ, capacity);
+		this.nextPositionX = Arrays.copyOf(this.nextPositionX, capacity);
+		this.nextPositionY = Arrays.copyOf(this.nextPositionY, capacity);
+		this.nextPositionZ = Arrays.copyOf(this.nextPositionZ, capacity);
+		this.velocityX = Arrays.copyOf(this.velocityX, capacity);
+		this.velocityY = Arrays.copyOf(this.velocityY, capacity);
+		this.velocityZ = Arrays.copyOf(this.velocityZ, capacity);
+		this.movingTime = Arrays.copyOf(this.movingTime, capacity);
+		this.activityProgress = Arrays.copyOf(this.activityProgress, capacity);
+		this.timeNeeded = Arrays.copyOf(this.timeNeeded, capacity);
+		this.stamina = Arrays.copyOf(this.stamina, capacity);
+		this.hitpoints = Arrays.copyOf(this.hitpoints, capacity);
+		this.state = Arrays.copyOf(this.state, capacity);
+	}
+}
@@ -1,15 +1,22 @@
 package hillbillies.model;
 
-import java.util.HashSet;
+import java.util.ArrayDeque;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Queue;
 import java.util.Random;
 import java.util.Set;
-import java.util.concurrent.ThreadLocalRandom;
-import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
 
 import helperclasses.*;
 import hillbillies.part2.listener.DefaultTerrainChangeListener;
 import hillbillies.part2.listener.TerrainChangeListener;
-import hillbillies.util.ConnectedToBorder;
+import hillbillies.util.IndexedConnectedToBorder;
 import ogp.framework.util.ModelException;
 
 public class World {
@@ -45,40 +52,77 @@ public class World {
 	 * @throws ModelException
 	 */
 	public World(int[][][] terrainTypes, TerrainChangeListener modelListener) {
-		this.terrain = terrainTypes;
+		this(terrainTypes, modelListener, new Random());
+	}
+	
+	/**
+	 * Create a new world of the given size and with the given terrain, which uses
+	 * the given random number generator for all random events of the world itself,
+	 * such as spawning debris. Worlds with the same terrain and equally seeded
+	 * generators behave the same.
+	 * 
+	 * @param terrainTypes
+	 *            The terrain of the new world, as in {@link #World(int[][][], TerrainChangeListener)}.
+	 * @param modelListener
+	 *            The terrain change listener of the new world.
+	 * @param random
+	 *            The random number generator of the new world.
+	 */
+	public World(int[][][] terrainTypes, TerrainChangeListener modelListener, Random random) {
+		this(new Terrain(terrainTypes), modelListener, random);
+	}
+	
+	/**
+	 * Create a new world with the given terrain store.
+	 * 
+	 * @param terrain
+	 *            The terrain of the new world. The new world takes ownership of
+	 *            the given terrain.
+	 * @param modelListener
+	 *            The terrain change listener of the new world.
+	 * @param random
+	 *            The random number generator of the new world.
+	 */
+	public World(Terrain terrain, TerrainChangeListener modelListener, Random random) {
+		this.terrain = terrain;
 		
-		this.nbX = terrainTypes.length;
-		this.nbY = terrainTypes[0].length;
-		this.nbZ = terrainTypes[0][0].length;
+		this.nbX = terrain.getNbX();
+		this.nbY = terrain.getNbY();
+		this.nbZ = terrain.getNbZ();
 		
-		this.connections = new ConnectedToBorder(this.getNbX(),
+		this.connections = new IndexedConnectedToBorder(this.getNbX(),
 												this.getNbY(),
 												this.getNbZ());
 		
 		this.updateConnections();
 		
-		this.nbUnits = 0;
-		this.unitSet = new HashSet<Unit>() ;
-		this.factionSet = new HashSet<Faction>();
-		this.boulderSet = new HashSet<Boulder>();
-		this.logSet = new HashSet<Log>();
+		this.unitSet = new LinkedHashSet<Unit>() ;
+		this.boulderSet = new LinkedHashSet<Boulder>();
+		this.logSet = new LinkedHashSet<Log>();
+		this.unitIndex = new SpatialIndex<Unit>(nbX, nbY, nbZ);
+		this.boulderIndex = new SpatialIndex<Boulder>(nbX, nbY, nbZ);
+		this.logIndex = new SpatialIndex<Log>(nbX, nbY, nbZ);
 		this.selectedBoulder = null;
 		this.selectedLog = null;
 		this.terrainChangeListener = modelListener;
+		this.pendingCubes = new BitSet(nbX * nbY * nbZ);
+		this.batchDepth = 0;
+		this.caveIns = new ArrayDeque<int[]>();
+		this.maxCollapsesPerTick = DEFAULT_MAX_COLLAPSES_PER_TICK;
+		this.random = random;
 	}
 	
+	/*
+	 * Initialize the connections of this world with all of its passable cubes at once,
+	 * in time linear in the number of cubes.
+	 */
 	private void updateConnections() {
-		for (int k = 0; k < nbZ; k++) {
-			for (int j = 0; j < nbY; j++) {
-				for (int i =0; i < nbX; i++) {
-					if ((getCubeType(i, j, k) == TYPE_AIR) || (getCubeType(i, j ,k) == TYPE_WORKSHOP)) {
-						connections.changeSolidToPassable(i, j, k);
-					}
-				}
-			}
-			
+		// the terrain and the connections share the same index layout
+		boolean[] passable = new boolean[terrain.getNbCubes()];
+		for (int index = 0; index < passable.length; index++) {
+			passable[index] = terrain.isPassable(index);
 		}
-		
+		connections.initializePassable(passable);
 	}
 
 	public static double getLowerBound() {
@@ -106,7 +150,10 @@ public class World {
 		return (this.getNbZ() - 0.5);
 	}
 	
-	public int[][][] getTerrain() {
+	/**
+	 * Return the terrain store of this world.
+	 */
+	public Terrain getTerrain() {
 		return this.terrain;
 	}
 	/**
@@ -115,15 +162,27 @@ public class World {
 	 */
 	private static final double LOWER_BOUND = 0.5;
 
-	private static final int MAX_UNITS = 100;
-	private static final int MAX_FACTIONS = 5;
+	/**
+	 * Constant reflecting the default number of cubes that may cave in during a
+	 * single call to advanceTime.
+	 */
+	public static final int DEFAULT_MAX_COLLAPSES_PER_TICK = 100;
 	
+	/**
+	 * Constant reflecting the probability that a cube leaves a boulder or log
+	 * behind when it is destroyed or caves in.
+	 */
+	public static final double DEBRIS_PROBABILITY = 0.25;
+
 	public static final int TYPE_AIR = 0;
 	public static final int TYPE_ROCK = 1;
 	public static final int TYPE_TREE = 2;
 	public static final int TYPE_WORKSHOP = 3;
 	
-	private int[][][] terrain;
+	/*
+	 * Variable registering the terrain type of every cube of this world.
+	 */
+	private final Terrain terrain;
 	
 	/*
 	 * Variable registering the number of cubes in the world in the x-direction.
@@ -143,19 +202,155 @@ public class World {
 	/*
 	 * Variable registering
 	 */
-	private ConnectedToBorder connections;
+	private IndexedConnectedToBorder connections;
+	
+	private Set<Unit> unitSet;	
 	
 	/*
-	 * Variable registering the amount living units in this world.
+	 * Variable registering the identifiers and factions of the units of this world,
+	 * and the limits on their numbers.
 	 */
-	private int nbUnits;	
-	private Set<Unit> unitSet;	
-	private Set<Faction> factionSet;
+	private final UnitRegistry unitRegistry = new UnitRegistry();
+	
+	/*
+	 * Variables registering whether the units of this world are applying their intents,
+	 * and the units that died meanwhile and still have to be removed from this world.
+	 */
+	private boolean isApplyingIntents;
+	private final List<Unit> deadUnits = new ArrayList<Unit>();
+	
+	/*
+	 * Variable registering the store holding the state of the units of this world that
+	 * changes every tick.
+	 */
+	private final UnitStore unitStore = new UnitStore(16);
+	
 	private Set<Boulder> boulderSet;
 	private Set<Log> logSet;
+	
+	/*
+	 * Variables registering the units, boulders and logs of this world by the cube
+	 * they occupy.
+	 */
+	private final SpatialIndex<Unit> unitIndex;
+	private final SpatialIndex<Boulder> boulderIndex;
+	private final SpatialIndex<Log> logIndex;
+	
+	/*
+	 * Variable registering the objects found by the last box query, and a read-only
+	 * set view on them that is handed out as its result.
+	 */
+	private final List<Object> boxResult = new ArrayList<Object>();
+	private final Set<Object> boxResultView = new AbstractSet<Object>() {
+		
+		@Override
+		public Iterator<Object> iterator() {
+			return Collections.unmodifiableList(boxResult).iterator();
+		}
+		
+		@Override
+		public int size() {
+			return boxResult.size();
+		}
+	};
 	private Boulder selectedBoulder;
 	private Log selectedLog;
 	private TerrainChangeListener terrainChangeListener;
+	
+	/*
+	 * Variable registering the indices of the cubes that became passable
+	 * in the current terrain batch.
+	 */
+	private final BitSet pendingCubes;
+	
+	/*
+	 * Variable registering how many terrain batches are currently open.
+	 */
+	private int batchDepth;
+	
+	/*
+	 * Queue registering the coordinates of the cubes that are no longer connected
+	 * to the border and still have to cave in.
+	 */
+	private final Queue<int[]> caveIns;
+	
+	/*
+	 * Variable registering the maximal number of cubes that cave in per call to advanceTime.
+	 */
+	private int maxCollapsesPerTick;
+	
+	/*
+	 * Variable registering the random number generator of this world.
+	 */
+	private final Random random;
+	
+	/*
+	 * Variable registering the path finder of this world, created when first needed.
+	 */
+	private PathFinder pathFinder;
+	
+	/*
+	 * Variable registering the cache of flow fields of this world, created when first needed.
+	 */
+	private FlowFieldCache flowFieldCache;
+	
+	/*
+	 * Variable registering the hierarchical path finder of this world, created when first needed.
+	 */
+	private HierarchicalPathFinder hierarchicalPathFinder;
+	
+	/*
+	 * Variable registering the service searching paths for the units of this world on
+	 * worker threads, created when first needed.
+	 */
+	private PathRequestService pathRequestService;
+	
+	/*
+	 * Variable registering the region map of this world, created when first needed.
+	 */
+	private RegionMap regionMap;
+	
+	/*
+	 * Variable registering whether the units of this world search their paths on
+	 * the worker threads of the path request service.
+	 */
+	private boolean asynchronousPathFinding;
+	
+	/*
+	 * Variable registering the number of changes to the type or the support of the
+	 * cubes of this world.
+	 */
+	private long terrainVersion;
+	
+	/*
+	 * Variables registering the last snapshot published of this world, and the cubes
+	 * that changed since.
+	 */
+	private volatile WorldSnapshot snapshot;
+	private final BitSet snapshotCubes = new BitSet();
+	
+	/*
+	 * Variable registering the cubes right above cubes whose type or support changed,
+	 * whose units may have lost their support.
+	 */
+	private final BitSet supportCubes = new BitSet();
+	
+	/*
+	 * Variable registering the number of paths searched in this world.
+	 */
+	private long nbPathSearches;
+	
+	/*
+	 * Variable registering the number of cubes in every direction of the chunks of the
+	 * hierarchical path finder of this world.
+	 */
+	private int chunkSize = HierarchicalPathFinder.DEFAULT_CHUNK_SIZE;
+	
+	/*
+	 * Variable registering whether the units of this world update their own state
+	 * in parallel, on the common fork-join pool.
+	 */
+	private boolean parallelUnitUpdates;
 
 	/*
 	 * Return the number of cubes in the world in the x-direction.
@@ -192,13 +387,13 @@ public class World {
 	 *         {@link #createWorld(int[][][], TerrainChangeListener)}.
 	 */
 	public int getCubeType(int x, int y, int z) {
-		return this.terrain[x][y][z];
+		return this.terrain.getType(x, y, z);
 	}
 	
 	public int getCubeType(Vector3d position) {
-		Vector3d cube = position.getCube();
-		
-		return this.terrain[(int) cube.getX()][(int) cube.getY()][(int) cube.getZ()];
+		return this.terrain.getType((int) Math.floor(position.getX()), 
+									(int) Math.floor(position.getY()), 
+									(int) Math.floor(position.getZ()));
 	}
 	
 	/**
@@ -222,15 +417,36 @@ public class World {
 	 */
 	public void setCubeType(int x, int y, int z, int value) {
 		if ((value >= TYPE_AIR) && (value < TYPE_WORKSHOP)) {
-			this.terrain[x][y][z] = value;
+			this.terrain.setType(x, y, z, value);
+			this.cubeChanged(x, y, z);
 		}
 	}
 	
-	public void setCubeType(Vector3d cubePos, int value) {
-		if ((value >= TYPE_AIR) && (value < TYPE_WORKSHOP)) {
-			int[] coord = cubePos.getIntArray();
-			this.terrain[coord[0]][coord[1]][coord[2]] = value;
+	/*
+	 * Drop the cached results that may depend on the type or the support of the given cube.
+	 */
+	private void cubeChanged(int x, int y, int z) {
+		this.terrainVersion++;
+		this.snapshotCubes.set(x + y * this.getNbX() + z * this.getNbX() * this.getNbY());
+		if (z + 1 < this.getNbZ()) {
+			this.supportCubes.set(x + y * this.getNbX() + (z + 1) * this.getNbX() * this.getNbY());
+		}
+		if (this.flowFieldCache != null) {
+			this.flowFieldCache.terrainChanged(x, y, z);
 		}
+		if (this.hierarchicalPathFinder != null) {
+			this.hierarchicalPathFinder.terrainChanged(x, y, z);
+		}
+		if (this.pathRequestService != null) {
+			this.pathRequestService.terrainChanged(x, y, z);
+		}
+		if (this.regionMap != null) {
+			this.regionMap.terrainChanged(x, y, z);
+		}
+	}
+	
+	public void setCubeType(Vector3d cubePos, int value) {
+		this.setCubeType((int) cubePos.getX(), (int) cubePos.getY(), (int) cubePos.getZ(), value);
 	}
 	
 	/**
@@ -239,8 +455,9 @@ public class World {
 	 * 	    	| ((getCubeType(position.getCube) == 1) || (getCubeType(position.getCube()) == 2))
 	 */
 	public boolean isSolid(Vector3d position) {
-		return ((getCubeType(position.getCube()) == TYPE_ROCK) || 
-				(getCubeType(position.getCube()) == TYPE_TREE));
+		return !this.terrain.isPassable((int) Math.floor(position.getX()), 
+										(int) Math.floor(position.getY()), 
+										(int) Math.floor(position.getZ()));
 	}
 	
 	/**
@@ -274,38 +491,34 @@ public class World {
 	 * @return 	True if the type of the cube to check is air or workshop, false otherwise.
 	 */
 	public boolean isPassable(int x, int y, int z) {
-		if ((this.getCubeType(x, y, z) == TYPE_AIR) || (this.getCubeType(x, y, z) == TYPE_WORKSHOP)) {
-			return true;
-		}
-		return false;
+		return this.terrain.isPassable(x, y, z);
 	}
 	
 	/*
 	 * Return the amount of living units in this world.
 	 */
 	public int getNbUnits() {
-		return this.nbUnits;
+		return this.unitRegistry.getNbUnits();
 	}
 	
-	/*
-	 * Set the number of living units in this world to nb.
-	 * 
-	 * @param	nb
-	 * 			The new number of living units.
+	/**
+	 * Return the registry of the units and factions of this world, through which the
+	 * maximum numbers of units, factions and members of a faction can be changed.
 	 */
-	public void setNbUnits(int nb) {
-		this.nbUnits = nb;
+	public UnitRegistry getUnitRegistry() {
+		return this.unitRegistry;
 	}
 	
 	public Unit spawnUnit(boolean enableDefaultBehavior) {
-		
-		this.setNbUnits(this.getNbUnits() + 1);
+		if (!this.unitRegistry.canRegister()) {
+			return null;
+		}
 		String name = "Hillbilly";
 		Vector3d pos = this.getRndValidPos();
-		int weight = ThreadLocalRandom.current().nextInt(25, 100 + 1);
-		int agility = ThreadLocalRandom.current().nextInt(25, 100 + 1);
-		int strength = ThreadLocalRandom.current().nextInt(25, 100 + 1);
-		int toughness = ThreadLocalRandom.current().nextInt(25, 100 + 1);
+		int weight = 25 + this.getRandom().nextInt(100 - 25 + 1);
+		int agility = 25 + this.getRandom().nextInt(100 - 25 + 1);
+		int strength = 25 + this.getRandom().nextInt(100 - 25 + 1);
+		int toughness = 25 + this.getRandom().nextInt(100 - 25 + 1);
 						
 		try {
 			Unit unit = new Unit(name, pos, weight, agility, strength, toughness, enableDefaultBehavior);
@@ -320,20 +533,23 @@ public class World {
 
 	}
 	
+	/**
+	 * Add the given unit to this world, unless this world has no room for it.
+	 * 
+	 * @param	unit
+	 * 			The unit to add.
+	 * @effect	If there is room for the unit, it is registered, which gives it an
+	 * 			identifier and a faction.
+	 * 			| if (getUnitRegistry().canRegister() && !getUnits().contains(unit))
+	 * 			|	then getUnitRegistry().register(unit)
+	 */
 	public void addUnit(Unit unit) {
-		if (this.getNbUnits() < MAX_UNITS) {
-
-			if (this.getActiveFactions().size() < MAX_FACTIONS) {
-				
-				Faction faction = new Faction();
-				this.addFaction(faction);
-				faction.addUnit(unit);				
-			}
-			else if (!this.getSmallestFaction().isFactionFull()) {
-				this.getSmallestFaction().addUnit(unit);
-			}
+		if (this.unitRegistry.canRegister() && !this.unitSet.contains(unit)) {
+			this.unitRegistry.register(unit);
 			unit.setWorld(this);
-			this.unitSet.add(unit);			
+			unit.moveToStore(this.unitStore);
+			this.unitSet.add(unit);
+			this.unitIndex.update(unit, unit.getPosition());
 		}
 	}
 	
@@ -341,6 +557,13 @@ public class World {
 		return this.unitSet;
 	}
 	
+	/**
+	 * Return the store holding the state of the units of this world that changes every tick.
+	 */
+	public UnitStore getUnitStore() {
+		return this.unitStore;
+	}
+	
 	public boolean posOutOfBounds(int x, int y, int z) {
 		if ((x > this.getUBX()) || (y > this.getUBY()) || (z > this.getUBZ())) {
 			return true;
@@ -365,14 +588,13 @@ public class World {
 	 * 			(or has z coordinate  = 0).
 	 */
 	public boolean isValidPosition(int x, int y, int z) {	
-		if (!posOutOfBounds(x, y, z)) {
-			if (isPassable(x, y, z)) {
-				if ((isSolidConnectedToBorder(x, y, z - 1)) || (z == 0)) {
-					return true;
-				}
-			}					
-		}		
-		return false;
+		if (!this.terrain.isValidIndex(x, y, z)) {
+			return false;
+		}
+		int index = this.terrain.getIndex(x, y, z);
+		// the terrain and the connections share the same index layout
+		return (this.terrain.isPassable(index)) && 
+				((z == 0) || (this.connections.isSolidConnectedToBorder(index - this.getNbX() * this.getNbY())));
 	}
 	
 	public boolean isValidPosition(Vector3d vector) {
@@ -380,21 +602,84 @@ public class World {
 		return isValidPosition(pos[0], pos[1], pos[2]);
 	}
 	
+	/**
+	 * Return the z coordinate of the first cube at or below the given cube that is a
+	 * valid position, or 0 if there is none. This is where an object that falls
+	 * straight down from the given cube comes to rest.
+	 */
+	int getLandingZ(int x, int y, int z) {
+		while ((z > 0) && (!this.isValidPosition(x, y, z))) {
+			z--;
+		}
+		return z;
+	}
+	
 	private Vector3d getRndValidPos() {
 		Vector3d rndPos = new Vector3d(-1, -1, -1);
 		
 		while (!isValidPosition(rndPos)) {
-			rndPos = rndPos.genRndVector3d((int) this.getUBX(),(int) this.getUBY(),(int) this.getUBZ());
+			rndPos = new Vector3d(this.getRandom().nextInt((int) this.getUBX()),
+								this.getRandom().nextInt((int) this.getUBY()),
+								this.getRandom().nextInt((int) this.getUBZ()));
 		}	    
 		return rndPos;
 	}
 	
-	public void advanceTime(double dt) throws InterruptedException {
-		
-		TimeUnit.MILLISECONDS.sleep((long) dt * 1000);
-		for (Unit unit: this.getUnits()) {
-				unit.advanceTime(dt);
+	/**
+	 * Constant registering the number of units whose intent is computed by the same
+	 * thread in one go, when units are updated in parallel.
+	 */
+	private static final int UNITS_PER_RANGE = 64;
+	
+	/**
+	 * Advance the time of this world and everything in it by the given duration.
+	 * This method returns as soon as the world has been updated; pacing the
+	 * simulation is up to the caller (see {@link Simulation}).
+	 * 
+	 * @param	dt
+	 * 			The duration to advance the time with.
+	 * @throws	IllegalArgumentException
+	 * 			The given duration is not a valid duration for the units of this world.
+	 * 			| !Unit.isValidDuration(dt)
+	 */
+	public void advanceTime(double dt) throws IllegalArgumentException {
+		if (!Unit.isValidDuration(dt)) {
+			throw new IllegalArgumentException();
+		}
+		if (this.pathRequestService != null) {
+			this.pathRequestService.deliver();
 		}
+		// the terrain may have changed since the previous tick
+		this.dropUnsupportedUnits();
+		// all units first update their own state, only reading the terrain, and
+		// then apply their effects in iteration order, so both modes give the same result
+		UnitStore store = this.getUnitStore();
+		int nbUnits = store.getNbUnits();
+		if (this.isParallelUnitUpdates()) {
+			// every thread gets contiguous slots of the store, rather than units spread over the heap
+			int nbRanges = (nbUnits + UNITS_PER_RANGE - 1) / UNITS_PER_RANGE;
+			IntStream.range(0, nbRanges).parallel().forEach(range -> store.computeIntents(
+					range * UNITS_PER_RANGE, Math.min(nbUnits, (range + 1) * UNITS_PER_RANGE), dt));
+		}
+		else {
+			store.computeIntents(0, nbUnits, dt);
+		}
+		this.beginTerrainBatch();
+		this.isApplyingIntents = true;
+		try {
+			for (Unit unit: this.getUnits()) {
+				unit.applyIntent();
+			}
+		} finally {
+			this.isApplyingIntents = false;
+			this.commitTerrainBatch();
+		}
+		for (Unit unit: this.deadUnits) {
+			this.removeUnit(unit);
+		}
+		this.deadUnits.clear();
+		this.processCaveIns();
+		this.dropUnsupportedUnits();
 		 
 		for (Boulder boulder: this.getBoulders()){
 			boulder.advanceTime(dt);
@@ -403,35 +688,76 @@ public class World {
 		for (Log log: this.getLogs()){
 				log.advanceTime(dt);
 		}
+		if (this.pathRequestService != null) {
+			// search the paths requested during this tick until the next one
+			this.pathRequestService.dispatch();
+		}
+	}
+	
+	/*
+	 * Let the units that stand in a cube that is no longer a valid position fall down,
+	 * after the terrain beneath them changed.
+	 */
+	private void dropUnsupportedUnits() {
+		int nbX = this.getNbX(), nbXY = nbX * this.getNbY();
+		for (int index = this.supportCubes.nextSetBit(0); index >= 0; index = this.supportCubes.nextSetBit(index + 1)) {
+			int x = index % nbX, y = (index % nbXY) / nbX, z = index / nbXY;
+			if (!this.isValidPosition(x, y, z)) {
+				for (Unit unit: this.getUnitsAt(x, y, z)) {
+					unit.fall();
+				}
+			}
+		}
+		this.supportCubes.clear();
+	}
+	
+	/*
+	 * Remove the given dead unit from this world, once no units are iterated over.
+	 */
+	void unitDied(Unit unit) {
+		if (this.isApplyingIntents) {
+			this.deadUnits.add(unit);
+		}
+		else {
+			this.removeUnit(unit);
+		}
+	}
+	
+	/*
+	 * Remove the given unit from this world, keeping its state in a store of its own,
+	 * and free its identifier.
+	 */
+	private void removeUnit(Unit unit) {
+		if (this.unitSet.remove(unit)) {
+			this.unitIndex.remove(unit);
+			unit.moveToStore(new UnitStore(1));
+			this.unitRegistry.unregister(unit);
+		}
 	}
 	
 	public void addFaction(Faction faction) {
-		this.factionSet.add(faction);
+		this.unitRegistry.addFaction(faction);
 	}
 	
 	public Set<Faction> getActiveFactions() {
-		return this.factionSet;
+		return this.unitRegistry.getFactions();
 	}
 
 	
 	/**
 	 * Return the smallest active faction of this world. 
 	 * (IE. the faction with the least number of members)
+	 * 
+	 * @return	| result == getUnitRegistry().getSmallestFaction()
 	 */
 	public Faction getSmallestFaction() {
-		Faction smallestFaction = new Faction();
-		int nbMembers = Faction.MAX_MEMBERS + 1;
-		for (Faction faction: this.getActiveFactions()) {
-			if (faction.getNbUnits() < nbMembers) {
-				nbMembers = faction.getNbUnits();
-				smallestFaction = faction;
-			}
-		}
-		return smallestFaction;
+		return this.unitRegistry.getSmallestFaction();
 	}
 	
 	public void addBoulder(Boulder boulder) {
+		boulder.setWorld(this);
 		this.boulderSet.add(boulder);
+		this.boulderIndex.update(boulder, boulder.getPosition());
 	}
 	
 	public Set<Boulder> getBoulders() {
@@ -459,7 +785,8 @@ public class World {
 	 * @return	True if and only if a boulder has the same position as the given position.
 	 */
 	public boolean isBoulderAvailable(Vector3d pos) {
-		for (Boulder boulder: this.getBoulders()) {
+		int[] cube = pos.getCube().getIntArray();
+		for (Boulder boulder: this.boulderIndex.getObjectsAt(cube[0], cube[1], cube[2])) {
 			if(boulder.getPosition().equals(pos)) {
 				this.setSelectedBoulder(boulder);
 				return true;
@@ -469,7 +796,9 @@ public class World {
 	}
 	
 	public void addLog(Log log) {
+		log.setWorld(this);
 		this.logSet.add(log);
+		this.logIndex.update(log, log.getPosition());
 	}
 	
 	public Set<Log> getLogs() {
@@ -497,7 +826,8 @@ public class World {
 	 * @return	True if and only if a log has the same position as the given position.
 	 */
 	public boolean isLogAvailable(Vector3d pos) {
-		for (Log log: this.getLogs()) {
+		int[] cube = pos.getCube().getIntArray();
+		for (Log log: this.logIndex.getObjectsAt(cube[0], cube[1], cube[2])) {
 			if (log.getPosition().equals(pos)) {
 				this.setSelectedLog(log);
 				return true;
@@ -506,6 +836,270 @@ public class World {
 		return false;
 	}
 	
+	/**
+	 * Return the path finder of this world.
+	 */
+	public PathFinder getPathFinder() {
+		if (this.pathFinder == null) {
+			this.pathFinder = new PathFinder(this);
+		}
+		return this.pathFinder;
+	}
+	
+	/**
+	 * Return the terrain version of this world, which changes whenever the type of a
+	 * cube changes or a solid cube gets disconnected from the border, so whenever a
+	 * cube may stop or start being a valid position.
+	 */
+	public long getTerrainVersion() {
+		return this.terrainVersion;
+	}
+	
+	/**
+	 * Return the number of paths searched by findPath in this world.
+	 */
+	public long getNbPathSearches() {
+		return this.nbPathSearches;
+	}
+	
+	/**
+	 * Return the hierarchical path finder of this world.
+	 */
+	public HierarchicalPathFinder getHierarchicalPathFinder() {
+		if (this.hierarchicalPathFinder == null) {
+			this.hierarchicalPathFinder = new HierarchicalPathFinder(this, this.getChunkSize());
+		}
+		return this.hierarchicalPathFinder;
+	}
+	
+	/**
+	 * Return the number of cubes in every direction of the chunks of the hierarchical
+	 * path finder of this world.
+	 */
+	public int getChunkSize() {
+		return this.chunkSize;
+	}
+	
+	/**
+	 * Set the number of cubes in every direction of the chunks of the hierarchical
+	 * path finder of this world to the given value.
+	 * 
+	 * @param	chunkSize
+	 * 			The new chunk size.
+	 * @post	| new.getChunkSize() == chunkSize
+	 * @post	| new.getHierarchicalPathFinder().getChunkSize() == chunkSize
+	 * @throws	IllegalArgumentException
+	 * 			The given chunk size is not strictly positive.
+	 * 			| chunkSize <= 0
+	 */
+	public void setChunkSize(int chunkSize) throws IllegalArgumentException {
+		if (chunkSize <= 0) {
+			throw new IllegalArgumentException();
+		}
+		if (chunkSize != this.chunkSize) {
+			this.chunkSize = chunkSize;
+			this.hierarchicalPathFinder = null;
+		}
+	}
+	
+	/**
+	 * Return a path from the given start cube to the given goal cube, only passing
+	 * through cubes that are a valid position in this world.
+	 * 
+	 * Goals that lie at least two chunks away from the start, in some direction, are
+	 * searched with the hierarchical path finder of this world, and closer goals with
+	 * its path finder.
+	 * 
+	 * @return	The indices of the cubes on the path, excluding the start cube and
+	 * 			including the goal cube, or null if the goal cannot be reached.
+	 * 			| if (!isReachable(startX, startY, startZ, goalX, goalY, goalZ))
+	 * 			| then result == null
+	 * 			| else if (max(|goalX - startX|, |goalY - startY|, |goalZ - startZ|) >= 2 * getChunkSize())
+	 * 			| then result == getHierarchicalPathFinder().findPath(startX, startY, startZ, goalX, goalY, goalZ)
+	 * 			| else result == getPathFinder().findPath(startX, startY, startZ, goalX, goalY, goalZ)
+	 */
+	public int[] findPath(int startX, int startY, int startZ, int goalX, int goalY, int goalZ) {
+		if (!this.isReachable(startX, startY, startZ, goalX, goalY, goalZ)) {
+			return null;
+		}
+		this.nbPathSearches++;
+		int distance = Math.max(Math.abs(goalX - startX), Math.max(Math.abs(goalY - startY), Math.abs(goalZ - startZ)));
+		if (distance >= 2 * this.getChunkSize()) {
+			return this.getHierarchicalPathFinder().findPath(startX, startY, startZ, goalX, goalY, goalZ);
+		}
+		return this.getPathFinder().findPath(startX, startY, startZ, goalX, goalY, goalZ);
+	}
+	
+	/**
+	 * Return the region map of this world, labelling its valid positions with the
+	 * region of cubes that can be reached from them.
+	 */
+	public RegionMap getRegionMap() {
+		if (this.regionMap == null) {
+			this.regionMap = new RegionMap(this);
+		}
+		return this.regionMap;
+	}
+	
+	/**
+	 * Check whether a unit in the given start cube can walk to the given goal cube in
+	 * this world, without searching a path.
+	 * 
+	 * @return	| result == getRegionMap().isReachable(startX, startY, startZ, goalX, goalY, goalZ)
+	 */
+	public boolean isReachable(int startX, int startY, int startZ, int goalX, int goalY, int goalZ) {
+		return this.getRegionMap().isReachable(startX, startY, startZ, goalX, goalY, goalZ);
+	}
+	
+	/**
+	 * Return the service searching paths for the units of this world on worker threads.
+	 */
+	public PathRequestService getPathRequestService() {
+		if (this.pathRequestService == null) {
+			this.pathRequestService = new PathRequestService(this, PathRequestService.getDefaultNbThreads());
+		}
+		return this.pathRequestService;
+	}
+	
+	/**
+	 * Check whether the units of this world search their paths on the worker threads
+	 * of the path request service of this world.
+	 */
+	public boolean isAsynchronousPathFinding() {
+		return this.asynchronousPathFinding;
+	}
+	
+	/**
+	 * Set whether the units of this world search their paths on the worker threads of
+	 * the path request service of this world.
+	 * 
+	 * A unit that searches its paths asynchronously accepts every move order, and
+	 * waits where it is until its path has been found. If there turns out to be no
+	 * path, it stops moving. Since the moment at which a path is handed back depends
+	 * on the workers, a world that searches paths asynchronously does not evolve
+	 * deterministically.
+	 * 
+	 * @param	asynchronous
+	 * 			Whether paths must be searched asynchronously.
+	 * @post	| new.isAsynchronousPathFinding() == asynchronous
+	 * @effect	If paths are no longer searched asynchronously, all pending paths are
+	 * 			handed back to their units.
+	 * 			| if (!asynchronous) then getPathRequestService().deliverAll()
+	 */
+	public void setAsynchronousPathFinding(boolean asynchronous) {
+		this.asynchronousPathFinding = asynchronous;
+		if ((!asynchronous) && (this.pathRequestService != null)) {
+			this.pathRequestService.deliverAll();
+		}
+	}
+	
+	/**
+	 * Return the cache of flow fields towards the popular destinations of this world.
+	 */
+	public FlowFieldCache getFlowFieldCache() {
+		if (this.flowFieldCache == null) {
+			this.flowFieldCache = new FlowFieldCache(this, FlowFieldCache.DEFAULT_CAPACITY);
+		}
+		return this.flowFieldCache;
+	}
+	
+	/**
+	 * Return the units of this world in the cube with the given coordinates.
+	 */
+	public List<Unit> getUnitsAt(int x, int y, int z) {
+		return this.unitIndex.getObjectsAt(x, y, z);
+	}
+	
+	/**
+	 * Return the units of this world in the given cube and the 26 cubes around it.
+	 */
+	public List<Unit> getUnitsAround(int x, int y, int z) {
+		return this.unitIndex.collectInBox(x - 1, y - 1, z - 1, x + 1, y + 1, z + 1, new ArrayList<Unit>());
+	}
+	
+	/**
+	 * Return all living units, boulders and logs of this world whose position lies in
+	 * the given box, in that order.
+	 * 
+	 * Only the cubes overlapping the box are looked at. The result is a read-only view
+	 * that is reused by the next call to this method, so callers that want to keep
+	 * the objects must copy them.
+	 * 
+	 * @param	min
+	 * 			The lower corner {x, y, z} of the box, which is part of the box.
+	 * @param	max
+	 * 			The upper corner {x, y, z} of the box, which is not part of the box.
+	 * @return	| for each object in result:
+	 * 			|	for each i in 0..2: min[i] <= object.getPosition()[i] < max[i]
+	 */
+	public Set<Object> getObjectsInBox(double[] min, double[] max) {
+		this.boxResult.clear();
+		int minX = (int) Math.floor(min[0]);
+		int minY = (int) Math.floor(min[1]);
+		int minZ = (int) Math.floor(min[2]);
+		int maxX = (int) Math.floor(max[0]);
+		int maxY = (int) Math.floor(max[1]);
+		int maxZ = (int) Math.floor(max[2]);
+		
+		this.unitIndex.collectInBox(minX, minY, minZ, maxX, maxY, maxZ, this.boxResult);
+		this.boulderIndex.collectInBox(minX, minY, minZ, maxX, maxY, maxZ, this.boxResult);
+		this.logIndex.collectInBox(minX, minY, minZ, maxX, maxY, maxZ, this.boxResult);
+		
+		// drop dead units and objects on the border cubes that lie outside the box
+		int nbKept = 0;
+		for (int i = 0; i < this.boxResult.size(); i++) {
+			Object object = this.boxResult.get(i);
+			Vector3d position;
+			if (object instanceof Unit) {
+				if (!((Unit) object).isAlive()) {
+					continue;
+				}
+				position = ((Unit) object).getPosition();
+			}
+			else {
+				position = ((GameObject) object).getPosition();
+			}
+			if (liesInBox(position, min, max)) {
+				this.boxResult.set(nbKept++, object);
+			}
+		}
+		this.boxResult.subList(nbKept, this.boxResult.size()).clear();
+		return this.boxResultView;
+	}
+	
+	/*
+	 * Check whether the given position lies in the box from min (inclusive) to max
+	 * (exclusive).
+	 */
+	private static boolean liesInBox(Vector3d position, double[] min, double[] max) {
+		return (min[0] <= position.getX()) && (position.getX() < max[0])
+				&& (min[1] <= position.getY()) && (position.getY() < max[1])
+				&& (min[2] <= position.getZ()) && (position.getZ() < max[2]);
+	}
+	
+	/*
+	 * Move the given unit to the cube containing its current position in the spatial
+	 * index of this world, if it belongs to this world.
+	 */
+	void updateIndex(Unit unit) {
+		if (this.unitIndex.contains(unit)) {
+			this.unitIndex.update(unit, unit.getPositionX(), unit.getPositionY(), unit.getPositionZ());
+		}
+	}
+	
+	/*
+	 * Move the given boulder or log to the cube containing its current position in
+	 * the spatial index of this world, if it belongs to this world.
+	 */
+	void updateIndex(GameObject object) {
+		if ((object instanceof Boulder) && (this.boulderIndex.contains((Boulder) object))) {
+			this.boulderIndex.update((Boulder) object, object.getPosition());
+		}
+		else if ((object instanceof Log) && (this.logIndex.contains((Log) object))) {
+			this.logIndex.update((Log) object, object.getPosition());
+		}
+	}
+	
 	/*
 	 * Reset the selected boulder and log to null.
 	 */
@@ -518,9 +1112,84 @@ public class World {
 		return this.terrainChangeListener;
 	}
 	
+	/**
+	 * Return the random number generator of this world.
+	 */
+	public Random getRandom() {
+		return this.random;
+	}
+	
+	/**
+	 * Check whether a terrain batch is currently open in this world.
+	 */
+	public boolean isInTerrainBatch() {
+		return this.batchDepth > 0;
+	}
+	
+	/**
+	 * Open a terrain batch. Until the matching call to {@link #commitTerrainBatch()},
+	 * cubes destroyed in this world are only changed to air; updating the connections
+	 * to the border and notifying the terrain change listener is postponed until the
+	 * batch is committed. Batches may be nested, only the outermost commit applies
+	 * the changes.
+	 * 
+	 * @post	This world is in a terrain batch.
+	 * 			| new.isInTerrainBatch()
+	 */
+	public void beginTerrainBatch() {
+		this.batchDepth++;
+	}
+	
+	/**
+	 * Close the current terrain batch. If it is the outermost batch, all cubes destroyed
+	 * during the batch are made passable in one combined connectivity pass, and the
+	 * terrain change listener is notified once for every changed cube. The cubes that
+	 * are no longer connected to the border are scheduled to cave in.
+	 * 
+	 * @return	The coordinates of the solid cubes next to the changed cubes that are no
+	 * 			longer connected to the border, as returned by
+	 * 			{@link IndexedConnectedToBorder#changeSolidsToPassable(int[], int)}.
+	 * 			The result is empty if an enclosing batch is still open.
+	 * @throws	IllegalStateException
+	 * 			No terrain batch is open.
+	 * 			| !isInTerrainBatch()
+	 */
+	public List<int[]> commitTerrainBatch() throws IllegalStateException {
+		if (!this.isInTerrainBatch()) {
+			throw new IllegalStateException();
+		}
+		this.batchDepth--;
+		if ((this.isInTerrainBatch()) || (this.pendingCubes.isEmpty())) {
+			return Collections.emptyList();
+		}
+		
+		int[] changed = this.pendingCubes.stream().toArray();
+		this.pendingCubes.clear();
+		List<int[]> disconnected = this.connections.changeSolidsToPassable(changed, changed.length);
+		this.caveIns.addAll(disconnected);
+		// the cubes above disconnected cubes are no longer valid positions, and results
+		// computed while the batch was open saw the changed cubes still supporting the
+		// cubes above them
+		for (int[] cube: disconnected) {
+			this.cubeChanged(cube[0], cube[1], cube[2]);
+		}
+		int nbXY = this.getNbX() * this.getNbY();
+		for (int index: changed) {
+			this.cubeChanged(index % this.getNbX(), (index / this.getNbX()) % this.getNbY(), index / nbXY);
+		}
+		
+		for (int index: changed) {
+			this.getTerrainChangeListener().notifyTerrainChanged(index % this.getNbX(), 
+					(index / this.getNbX()) % this.getNbY(), 
+					index / nbXY);
+		}
+		return disconnected;
+	}
+	
 	/**
 	 * Change the type of the given cube to air and add a log or boulder with a probability of 25%
 	 * if the cube at the given position is respectively a tree of rock.
+	 * If a terrain batch is open, updating the connections is postponed until it is committed.
 	 * 
 	 * @param	cubePos
 	 * 			The position of the cube to be changed.
@@ -528,29 +1197,149 @@ public class World {
 	public void destroyCube(Vector3d cubePos) {
 		int type = this.getCubeType(cubePos);
 		this.setCubeType(cubePos, TYPE_AIR);
-		this.connections.changeSolidToPassable((int) cubePos.getX(), 
-												(int) cubePos.getY(), 
-												(int) cubePos.getZ());
-		this.getTerrainChangeListener().notifyTerrainChanged((int) cubePos.getX(), 
-				(int) cubePos.getY(), 
-				(int) cubePos.getZ());
+		this.beginTerrainBatch();
+		this.pendingCubes.set(this.connections.getIndex((int) cubePos.getX(), 
+														(int) cubePos.getY(), 
+														(int) cubePos.getZ()));
+		this.commitTerrainBatch();
 				
-		double prob = 0.25;
-		boolean spawn = (new Random().nextDouble() <= prob);
+		this.spawnDebris(cubePos, type);
+	}
+	
+	/**
+	 * Return the number of cubes that are still waiting to cave in.
+	 */
+	public int getNbPendingCaveIns() {
+		return this.caveIns.size();
+	}
+	
+	/**
+	 * Return the maximal number of cubes that cave in during a single call to advanceTime.
+	 */
+	public int getMaxCollapsesPerTick() {
+		return this.maxCollapsesPerTick;
+	}
+	
+	/**
+	 * Set the maximal number of cubes that cave in during a single call to advanceTime.
+	 * 
+	 * @param 	max
+	 * 			The new maximal number of collapses per tick.
+	 * @throws	IllegalArgumentException
+	 * 			The given number is not strictly positive.
+	 * 			| max <= 0
+	 */
+	public void setMaxCollapsesPerTick(int max) throws IllegalArgumentException {
+		if (max <= 0) {
+			throw new IllegalArgumentException();
+		}
+		this.maxCollapsesPerTick = max;
+	}
+	
+	/**
+	 * Return the last snapshot published of this world, or null if none has been
+	 * published yet. This method can be called on any thread.
+	 */
+	public WorldSnapshot getSnapshot() {
+		return this.snapshot;
+	}
+	
+	/**
+	 * Publish a snapshot of the current state of this world, for other threads to read
+	 * while this world changes further. This is meant to be called after every call
+	 * to advanceTime, on the same thread.
+	 * 
+	 * @post	| new.getSnapshot().getNumber() ==
+	 * 			|	(getSnapshot() == null ? 0 : getSnapshot().getNumber() + 1)
+	 * @post	The changed cubes of the new snapshot are those that changed since the
+	 * 			previous snapshot, or all cubes for the first snapshot.
+	 */
+	public void publishSnapshot() {
+		WorldSnapshot previous = this.snapshot;
+		if (previous == null) {
+			this.snapshotCubes.set(0, this.getNbX() * this.getNbY() * this.getNbZ());
+		}
+		WorldSnapshot next = new WorldSnapshot(this, previous, this.snapshotCubes);
+		this.snapshotCubes.clear();
+		if (previous != null) {
+			previous.setNext(next);
+		}
+		this.snapshot = next;
+	}
+	
+	/**
+	 * Check whether the units of this world update their own state in parallel.
+	 */
+	public boolean isParallelUnitUpdates() {
+		return this.parallelUnitUpdates;
+	}
+	
+	/**
+	 * Set whether the units of this world update their own state in parallel.
+	 * 
+	 * Only the first phase of a unit update, in which every unit advances its own
+	 * state, runs in parallel. The effects on other units and on the terrain are
+	 * always applied afterwards, one unit at a time in iteration order, so a world
+	 * behaves exactly the same in both modes.
+	 * 
+	 * @param	parallel
+	 * 			Whether the units must be updated in parallel.
+	 * @post	| new.isParallelUnitUpdates() == parallel
+	 */
+	public void setParallelUnitUpdates(boolean parallel) {
+		this.parallelUnitUpdates = parallel;
+	}
+	
+	/**
+	 * Let the cubes that are no longer connected to the border cave in, in the order
+	 * in which they got disconnected, but no more than getMaxCollapsesPerTick() of them.
+	 * The remaining cubes cave in during the next calls.
+	 * 
+	 * @effect	Every cube that caves in is changed to air, the terrain change listener
+	 * 			is notified and a boulder or log is left behind with probability
+	 * 			DEBRIS_PROBABILITY.
+	 * @note	Cubes that have become passable or connected again in the meantime are skipped.
+	 */
+	public void processCaveIns() {
+		int nbCollapses = 0;
+		while ((nbCollapses < this.getMaxCollapsesPerTick()) && (!this.caveIns.isEmpty())) {
+			int[] cube = this.caveIns.poll();
+			int index = this.connections.getIndex(cube[0], cube[1], cube[2]);
+			if ((this.terrain.isPassable(index)) || (this.connections.isSolidConnectedToBorder(index))) {
+				continue;
+			}
+			int type = this.terrain.getType(index);
+			this.setCubeType(cube[0], cube[1], cube[2], TYPE_AIR);
+			this.connections.changeDisconnectedSolidToPassable(index);
+			this.getTerrainChangeListener().notifyTerrainChanged(cube[0], cube[1], cube[2]);
+			this.spawnDebris(new Vector3d(cube), type);
+			nbCollapses++;
+		}
+	}
+	
+	/*
+	 * Add a boulder or log with probability DEBRIS_PROBABILITY, if the given former
+	 * type of the given cube is respectively rock or tree. The debris lands in the
+	 * first valid position below the cube.
+	 */
+	private void spawnDebris(Vector3d cubePos, int type) {
+		boolean spawn = (this.random.nextDouble() <= DEBRIS_PROBABILITY);
 		
 		if (spawn) {
-			Vector3d pos = cubePos.add(0.5);
+			// game objects place themselves in the center of the given cube
+			int[] cube = cubePos.getIntArray();
+			Vector3d pos = new Vector3d(cube[0], cube[1], this.getLandingZ(cube[0], cube[1], cube[2]));
 			
 			if (type == TYPE_ROCK) {
 				try {
-					this.addBoulder(new Boulder(pos));
+					this.addBoulder(new Boulder(pos, this.getRandom()));
 				} catch (OutOfBoundsException e) {
 					e.printStackTrace();
 				}
 			}
 			else if (type == TYPE_TREE) {
 				try {
-					this.addLog(new Log(pos));
+					this.addLog(new Log(pos, this.getRandom()));
 				} catch (OutOfBoundsException e) {
 					e.printStackTrace();
 				}
@@ -0,0 +1,480 @@
+package hillbillies.model;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import be.kuleuven.cs.som.annotate.Basic;
+import be.kuleuven.cs.som.annotate.Immutable;
+
+/**
+ * A class of snapshots of the state of a world after a tick, as it is shown to the
+ * player. A snapshot is immutable, so it can be read on another thread than the one
+ * advancing the world, without locking: the world publishes a new snapshot after
+ * every tick by a single volatile write (see {@link World#publishSnapshot()}).
+ *
+ * The state of the units is kept in parallel arrays, one entry per unit, in the order
+ * of {@link World#getUnits()}. The entry of a unit is found through its identifier,
+ * see {@link #indexOf(Unit)}.
+ *
+ * Rather than the whole terrain, a snapshot holds the cubes that changed since the
+ * previous snapshot, together with their new type and whether they are solid and
+ * connected to the border. Every snapshot links to the next one once that one is
+ * published, so a reader that skipped some snapshots can still apply all changes.
+ *
+ * @author Joris Schrauwen, Wim Schmitz
+ */
+public class WorldSnapshot {
+
+	/**
+	 * Constants reflecting the bits of the flags of a unit.
+	 */
+	public static final int MOVING = 1;
+	public static final int SPRINTING = 2;
+	public static final int WORKING = 4;
+	public static final int ATTACKING = 8;
+	public static final int RESTING = 16;
+	public static final int DEFAULT_BEHAVIOR = 32;
+	public static final int CARRYING_LOG = 64;
+	public static final int CARRYING_BOULDER = 128;
+
+	/*
+	 * Initialize this new snapshot of the given world, following the given snapshot,
+	 * with the cubes set in the given set as the changed cubes.
+	 */
+	WorldSnapshot(World world, WorldSnapshot previous, BitSet changedCubes) {
+		this.number = (previous == null) ? 0 : previous.getNumber() + 1;
+		this.nbX = world.getNbX();
+		this.nbY = world.getNbY();
+		this.nbZ = world.getNbZ();
+
+		UnitRegistry registry = world.getUnitRegistry();
+		this.factions = world.getActiveFactions().toArray(new Faction[0]);
+		int nbUnits = world.getUnits().size();
+		this.units = new Unit[nbUnits];
+		this.indexById = new int[registry.getIdBound()];
+		Arrays.fill(this.indexById, -1);
+		this.positions = new double[3 * nbUnits];
+		this.previousPositions = new double[3 * nbUnits];
+		this.orientations = new float[nbUnits];
+		this.activities = new byte[nbUnits];
+		this.flags = new byte[nbUnits];
+		this.factionIndices = new int[nbUnits];
+		this.names = new String[nbUnits];
+		this.stats = new int[NB_STATS * nbUnits];
+		this.speeds = new double[nbUnits];
+		int index = 0;
+		for (Unit unit: world.getUnits()) {
+			this.units[index] = unit;
+			if (unit.getId() >= 0) {
+				this.indexById[unit.getId()] = index;
+			}
+			this.positions[3 * index] = unit.getPositionX();
+			this.positions[3 * index + 1] = unit.getPositionY();
+			this.positions[3 * index + 2] = unit.getPositionZ();
+			// a unit that was not part of the previous snapshot does not move in between
+			int before = (previous == null) ? -1 : previous.indexOf(unit);
+			if (before < 0) {
+				System.arraycopy(this.positions, 3 * index, this.previousPositions, 3 * index, 3);
+			}
+			else {
+				System.arraycopy(previous.positions, 3 * before, this.previousPositions, 3 * index, 3);
+			}
+			this.orientations[index] = unit.getOrientation();
+			this.activities[index] = (byte) unit.getActivity().ordinal();
+			this.flags[index] = (byte) flagsOf(unit);
+			this.factionIndices[index] = indexOf(this.factions, unit.getFaction());
+			this.names[index] = unit.getName();
+			int stats = NB_STATS * index;
+			this.stats[stats + HITPOINTS] = unit.getHitpoints();
+			this.stats[stats + MAX_HITPOINTS] = unit.getMaxHitpoints();
+			this.stats[stats + STAMINA] = unit.getStamina();
+			this.stats[stats + EXPERIENCE] = unit.getExperience();
+			this.stats[stats + WEIGHT] = unit.getWeight();
+			this.stats[stats + AGILITY] = unit.getAgility();
+			this.stats[stats + STRENGTH] = unit.getStrength();
+			this.stats[stats + TOUGHNESS] = unit.getToughness();
+			this.speeds[index] = unit.getCurrentSpeed();
+			index++;
+		}
+
+		this.boulders = world.getBoulders().toArray(new Boulder[0]);
+		this.boulderPositions = positionsOf(this.boulders);
+		this.logs = world.getLogs().toArray(new Log[0]);
+		this.logPositions = positionsOf(this.logs);
+		this.indexByObject = new IdentityHashMap<GameObject, Integer>(this.boulders.length + this.logs.length);
+		for (int i = 0; i < this.boulders.length; i++) {
+			this.indexByObject.put(this.boulders[i], i);
+		}
+		for (int i = 0; i < this.logs.length; i++) {
+			this.indexByObject.put(this.logs[i], i);
+		}
+
+		this.changedCubes = changedCubes.stream().toArray();
+		this.changedTypes = new byte[this.changedCubes.length];
+		this.changedAnchored = new boolean[this.changedCubes.length];
+		for (int i = 0; i < this.changedCubes.length; i++) {
+			int cube = this.changedCubes[i];
+			int x = cube % this.nbX, y = (cube / this.nbX) % this.nbY, z = cube / (this.nbX * this.nbY);
+			this.changedTypes[i] = (byte) world.getCubeType(x, y, z);
+			this.changedAnchored[i] = world.isSolidConnectedToBorder(x, y, z);
+		}
+	}
+
+	/*
+	 * Return the flags of the given unit.
+	 */
+	private static int flagsOf(Unit unit) {
+		int flags = 0;
+		if (unit.isMoving()) flags |= MOVING;
+		if (unit.isSprinting()) flags |= SPRINTING;
+		if (unit.isWorking()) flags |= WORKING;
+		if (unit.isAttacking()) flags |= ATTACKING;
+		if (unit.isResting()) flags |= RESTING;
+		if (unit.isDefaultBehaviorEnabled()) flags |= DEFAULT_BEHAVIOR;
+		if (unit.isCarryingLog()) flags |= CARRYING_LOG;
+		if (unit.isCarryingBoulder()) flags |= CARRYING_BOULDER;
+		return flags;
+	}
+
+	/*
+	 * Return the index of the given faction among the given factions, or -1 if it is not among them.
+	 */
+	private static int indexOf(Faction[] factions, Faction faction) {
+		for (int i = 0; i < factions.length; i++) {
+			if (factions[i] == faction) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/*
+	 * Return the coordinates of the positions of the given objects, three by three.
+	 */
+	private static double[] positionsOf(GameObject[] objects) {
+		double[] positions = new double[3 * objects.length];
+		for (int i = 0; i < objects.length; i++) {
+			System.arraycopy(objects[i].getPosition().getDoubleArray(), 0, positions, 3 * i, 3);
+		}
+		return positions;
+	}
+
+	/**
+	 * Variable registering the number of this snapshot among those of its world.
+	 */
+	private final long number;
+
+	/**
+	 * Variable registering the next snapshot of the world, once it is published.
+	 */
+	private volatile WorldSnapshot next;
+
+	/**
+	 * Variables registering the number of cubes of the world in every direction.
+	 */
+	private final int nbX;
+	private final int nbY;
+	private final int nbZ;
+
+	/**
+	 * Variables registering the units of the world, and the index of every unit by
+	 * its identifier, or -1 for unused identifiers.
+	 */
+	private final Unit[] units;
+	private final int[] indexById;
+
+	/**
+	 * Variables registering the coordinates of the position of every unit, three by
+	 * three, now and in the previous snapshot.
+	 */
+	private final double[] positions;
+	private final double[] previousPositions;
+
+	/**
+	 * Variables registering the orientation, the ordinal of the activity, the flags
+	 * and the index of the faction among the active factions of every unit.
+	 */
+	private final float[] orientations;
+	private final byte[] activities;
+	private final byte[] flags;
+	private final int[] factionIndices;
+
+	/**
+	 * Variable registering the active factions of the world.
+	 */
+	private final Faction[] factions;
+
+	/**
+	 * Variables registering the name, the speed and the statistics of every unit.
+	 * The statistics are stored NB_STATS by NB_STATS, in the order of the constants below.
+	 */
+	private final String[] names;
+	private final double[] speeds;
+	private final int[] stats;
+
+	private static final int HITPOINTS = 0;
+	private static final int MAX_HITPOINTS = 1;
+	private static final int STAMINA = 2;
+	private static final int EXPERIENCE = 3;
+	private static final int WEIGHT = 4;
+	private static final int AGILITY = 5;
+	private static final int STRENGTH = 6;
+	private static final int TOUGHNESS = 7;
+	private static final int NB_STATS = 8;
+
+	/**
+	 * Variables registering the boulders and logs of the world and their positions,
+	 * three coordinates by three.
+	 */
+	private final Boulder[] boulders;
+	private final double[] boulderPositions;
+	private final Log[] logs;
+	private final double[] logPositions;
+
+	/**
+	 * Variable registering the index of every boulder and log of this snapshot in
+	 * respectively the boulders or the logs.
+	 */
+	private final Map<GameObject, Integer> indexByObject;
+
+	/**
+	 * Variables registering the indices x + y*nbX + z*nbX*nbY of the cubes that changed
+	 * since the previous snapshot, with their new type and whether they are now solid
+	 * and connected to the border.
+	 */
+	private final int[] changedCubes;
+	private final byte[] changedTypes;
+	private final boolean[] changedAnchored;
+
+	/**
+	 * Return the number of this snapshot among those of its world, counting from 0.
+	 */
+	@Basic @Immutable
+	public long getNumber() {
+		return this.number;
+	}
+
+	/**
+	 * Return the snapshot that was published after this one, or null if this is
+	 * still the latest one.
+	 */
+	@Basic
+	public WorldSnapshot getNext() {
+		return this.next;
+	}
+
+	/*
+	 * Set the snapshot that was published after this one.
+	 */
+	void setNext(WorldSnapshot next) {
+		this.next = next;
+	}
+
+	@Basic @Immutable
+	public int getNbX() {
+		return this.nbX;
+	}
+
+	@Basic @Immutable
+	public int getNbY() {
+		return this.nbY;
+	}
+
+	@Basic @Immutable
+	public int getNbZ() {
+		return this.nbZ;
+	}
+
+	/**
+	 * Return the number of units in this snapshot.
+	 */
+	public int getNbUnits() {
+		return this.units.length;
+	}
+
+	/**
+	 * Return the unit with the given index in this snapshot.
+	 */
+	public Unit getUnitAt(int index) {
+		return this.units[index];
+	}
+
+	/**
+	 * Return the index of the given unit in this snapshot, or -1 if it is not part of it.
+	 */
+	public int indexOf(Unit unit) {
+		int id = unit.getId();
+		if ((id < 0) || (id >= this.indexById.length)) {
+			return -1;
+		}
+		int index = this.indexById[id];
+		return ((index >= 0) && (this.units[index] == unit)) ? index : -1;
+	}
+
+	/**
+	 * Return the position of the unit with the given index, interpolated between its
+	 * position in the previous snapshot and its position in this one.
+	 *
+	 * @param	alpha
+	 * 			How far to interpolate, from 0 for the previous position to 1 for this one.
+	 */
+	public double[] getPosition(int index, double alpha) {
+		double[] result = new double[3];
+		for (int i = 0; i < 3; i++) {
+			double previous = this.previousPositions[3 * index + i];
+			result[i] = previous + alpha * (this.positions[3 * index + i] - previous);
+		}
+		return result;
+	}
+
+	public float getOrientation(int index) {
+		return this.orientations[index];
+	}
+
+	public Activity getActivity(int index) {
+		return Activity.fromOrdinal(this.activities[index]);
+	}
+
+	/**
+	 * Check whether the unit with the given index has all of the given flags.
+	 */
+	public boolean hasFlags(int index, int flags) {
+		return (this.flags[index] & flags) == flags;
+	}
+
+	/**
+	 * Return the faction of the unit with the given index, or null if it has no active faction.
+	 */
+	public Faction getFaction(int index) {
+		int faction = this.factionIndices[index];
+		return (faction < 0) ? null : this.factions[faction];
+	}
+
+	public String getName(int index) {
+		return this.names[index];
+	}
+
+	public double getSpeed(int index) {
+		return this.speeds[index];
+	}
+
+	public int getHitpoints(int index) {
+		return this.stats[NB_STATS * index + HITPOINTS];
+	}
+
+	public int getMaxHitpoints(int index) {
+		return this.stats[NB_STATS * index + MAX_HITPOINTS];
+	}
+
+	public int getStamina(int index) {
+		return this.stats[NB_STATS * index + STAMINA];
+	}
+
+	public int getExperience(int index) {
+		return this.stats[NB_STATS * index + EXPERIENCE];
+	}
+
+	public int getWeight(int index) {
+		return this.stats[NB_STATS * index + WEIGHT];
+	}
+
+	public int getAgility(int index) {
+		return this.stats[NB_STATS * index + AGILITY];
+	}
+
+	public int getStrength(int index) {
+		return this.stats[NB_STATS * index + STRENGTH];
+	}
+
+	public int getToughness(int index) {
+		return this.stats[NB_STATS * index + TOUGHNESS];
+	}
+
+	/**
+	 * Return the position of the given boulder, or null if it is not part of this snapshot.
+	 */
+	public double[] getPosition(Boulder boulder) {
+		return positionOf(boulder, this.boulderPositions);
+	}
+
+	/**
+	 * Return the position of the given log, or null if it is not part of this snapshot.
+	 */
+	public double[] getPosition(Log log) {
+		return positionOf(log, this.logPositions);
+	}
+
+	/*
+	 * Return the position of the given object among the given positions of the boulders
+	 * or the logs it belongs to.
+	 */
+	private double[] positionOf(GameObject object, double[] positions) {
+		Integer index = this.indexByObject.get(object);
+		if (index == null) {
+			return null;
+		}
+		return Arrays.copyOfRange(positions, 3 * index, 3 * index + 3);
+	}
+
+	/**
+	 * Add all units, boulders and logs of this snapshot whose position lies in the given
+	 * box, bounds included for the minimum and excluded for the maximum, to the given
+	 * collection, and return that collection. Units are positioned as in this snapshot.
+	 */
+	public <C extends Collection<Object>> C collectInBox(double minX, double minY, double minZ,
+			double maxX, double maxY, double maxZ, C result) {
+		double[] min = {minX, minY, minZ};
+		double[] max = {maxX, maxY, maxZ};
+		collectInBox(this.units, this.positions, min, max, result);
+		collectInBox(this.boulders, this.boulderPositions, min, max, result);
+		collectInBox(this.logs, this.logPositions, min, max, result);
+		return result;
+	}
+
+	/*
+	 * Add the given objects whose position among the given positions lies in the given
+	 * box to the given collection.
+	 */
+	private static void collectInBox(Object[] objects, double[] positions, double[] min, double[] max,
+			Collection<Object> result) {
+		for (int i = 0; i < objects.length; i++) {
+			if ((min[0] <= positions[3 * i]) && (positions[3 * i] < max[0])
+					&& (min[1] <= positions[3 * i + 1]) && (positions[3 * i + 1] < max[1])
+					&& (min[2] <= positions[3 * i + 2]) && (positions[3 * i + 2] < max[2])) {
+				result.add(objects[i]);
+			}
+		}
+	}
+
+	/**
+	 * Return the number of cubes that changed since the previous snapshot.
+	 */
+	public int getNbChangedCubes() {
+		return this.changedCubes.length;
+	}
+
+	/**
+	 * Return the index x + y*getNbX() + z*getNbX()*getNbY() of the changed cube with
+	 * the given number.
+	 */
+	public int getChangedCube(int i) {
+		return this.changedCubes[i];
+	}
+
+	/**
+	 * Return the type of the changed cube with the given number.
+	 */
+	public int getChangedType(int i) {
+		return this.changedTypes[i];
+	}
+
+	/**
+	 * Check whether the changed cube with the given number is solid and connected to the border.
+	 */
+	public boolean isChangedAnchored(int i) {
+		return this.changedAnchored[i];
+	}
+}
@@ -150,7 +150,11 @@ public class Facade implements IFacade {
 	
 	@Override
 	public void moveTo(Unit unit, int[] cube) throws ModelException {
-		unit.moveTo(new Vector3d(cube));
+		try {
+			unit.moveTo(new Vector3d(cube));
+		} catch (IllegalArgumentException e) {
+			throw new ModelException(e);
+		}
 	}
 	
 	@Override
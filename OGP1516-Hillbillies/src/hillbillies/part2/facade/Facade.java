@@ -1,5 +1,6 @@
 package hillbillies.part2.facade;
 
+import java.util.Random;
 import java.util.Set;
 
 import helperclasses.NameException;
@@ -8,6 +9,7 @@ import helperclasses.Vector3d;
 import hillbillies.model.Boulder;
 import hillbillies.model.Faction;
 import hillbillies.model.Log;
+import hillbillies.model.Terrain;
 import hillbillies.model.Unit;
 import hillbillies.model.World;
 import hillbillies.part2.listener.TerrainChangeListener;
@@ -157,7 +159,11 @@ public class Facade implements IFacade {
 	
 	@Override
 	public void moveTo(Unit unit, int[] cube) throws ModelException {
-		unit.moveTo(new Vector3d(cube));
+		try {
+			unit.moveTo(new Vector3d(cube));
+		} catch (IllegalArgumentException e) {
+			throw new ModelException(e);
+		}
 	}
 	
 	@Override
@@ -202,7 +208,11 @@ public class Facade implements IFacade {
 
 	@Override
 	public World createWorld(int[][][] terrainTypes, TerrainChangeListener modelListener) throws ModelException {
-		return new World(terrainTypes, modelListener);
+		try {
+			return new World(new Terrain(terrainTypes), modelListener, new Random());
+		} catch (IllegalArgumentException e) {
+			throw new ModelException(e);
+		}
 	}
 
 	@Override
@@ -224,10 +234,9 @@ public class Facade implements IFacade {
 	public void advanceTime(World world, double dt) throws ModelException {
 		try {
 			world.advanceTime(dt);
-		} catch (InterruptedException e) {
-			e.printStackTrace();
+		} catch (IllegalArgumentException e) {
+			throw new ModelException(e);
 		}
-		
 	}
 
 	@Override
@@ -320,4 +329,9 @@ public class Facade implements IFacade {
 	public Set<Log> getLogs(World world) throws ModelException {
 		return world.getLogs();
 	}
+
+	@Override
+	public Set<?> getObjectsInBox(World world, double[] min, double[] max) throws ModelException {
+		return world.getObjectsInBox(min, max);
+	}
 }
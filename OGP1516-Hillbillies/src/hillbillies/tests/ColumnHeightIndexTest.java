@@ -0,0 +1,145 @@
+package hillbillies.tests;
+
+import static org.junit.Assert.*;
+
+import java.util.BitSet;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import hillbillies.part2.internal.map.ByteMap3D;
+import hillbillies.part2.internal.map.ColumnHeightIndex;
+
+public class ColumnHeightIndexTest {
+
+	private static final byte EMPTY = 0;
+	private static final byte SOLID = 1;
+
+	private ByteMap3D map;
+
+	/*
+	 * A 3x2x130 map, so every column spans three words of the index, without any
+	 * value set.
+	 */
+	@Before
+	public void initiateMap() {
+		map = new ByteMap3D(3, 2, 130);
+	}
+
+	/*
+	 * Return the highest z-coordinate at or below the given one of a solid cell in the
+	 * given column of the map, by scanning the column.
+	 */
+	private int scanHighestSolidZ(int x, int y, int z) {
+		if (!map.isValidIndex(x, y, 0) || (z < 0)) {
+			return -1;
+		}
+		for (int k = Math.min(z, map.getNbZ() - 1); k >= 0; k--) {
+			byte value = map.getValue(x, y, k);
+			if ((value >= 0) && (value != EMPTY)) {
+				return k;
+			}
+		}
+		return -1;
+	}
+
+	private void assertSameAsScan(ColumnHeightIndex index) {
+		for (int x = -1; x <= map.getNbX(); x++) {
+			for (int y = -1; y <= map.getNbY(); y++) {
+				for (int z = -1; z <= map.getNbZ() + 5; z++) {
+					assertEquals(scanHighestSolidZ(x, y, z), index.getHighestSolidZ(x, y, z));
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testGetHighestSolidZ_emptyColumns() {
+		ColumnHeightIndex index = new ColumnHeightIndex(map, EMPTY);
+		assertEquals(-1, index.getHighestSolidZ(1, 1, 129));
+		for (int z = 0; z < map.getNbZ(); z++) {
+			map.setValue(1, 1, z, EMPTY);
+		}
+		index = new ColumnHeightIndex(map, EMPTY);
+		assertEquals(-1, index.getHighestSolidZ(1, 1, 0));
+		assertEquals(-1, index.getHighestSolidZ(1, 1, 64));
+		assertEquals(-1, index.getHighestSolidZ(1, 1, 500));
+		assertSameAsScan(index);
+	}
+
+	@Test
+	public void testGetHighestSolidZ_wordBoundaries() {
+		map.setValue(0, 0, 63, SOLID);
+		map.setValue(1, 0, 64, SOLID);
+		map.setValue(2, 0, 0, SOLID);
+		map.setValue(0, 1, 129, SOLID);
+		map.setValue(1, 1, 127, SOLID);
+		map.setValue(1, 1, 128, SOLID);
+		ColumnHeightIndex index = new ColumnHeightIndex(map, EMPTY);
+
+		assertEquals(-1, index.getHighestSolidZ(0, 0, 62));
+		assertEquals(63, index.getHighestSolidZ(0, 0, 63));
+		assertEquals(63, index.getHighestSolidZ(0, 0, 64));
+		assertEquals(63, index.getHighestSolidZ(0, 0, 129));
+
+		assertEquals(-1, index.getHighestSolidZ(1, 0, 63));
+		assertEquals(64, index.getHighestSolidZ(1, 0, 64));
+		assertEquals(64, index.getHighestSolidZ(1, 0, 127));
+
+		assertEquals(0, index.getHighestSolidZ(2, 0, 0));
+		assertEquals(0, index.getHighestSolidZ(2, 0, 129));
+
+		assertEquals(-1, index.getHighestSolidZ(0, 1, 128));
+		assertEquals(129, index.getHighestSolidZ(0, 1, 129));
+		assertEquals(129, index.getHighestSolidZ(0, 1, 200));
+
+		assertEquals(-1, index.getHighestSolidZ(1, 1, 126));
+		assertEquals(127, index.getHighestSolidZ(1, 1, 127));
+		assertEquals(128, index.getHighestSolidZ(1, 1, 128));
+		assertSameAsScan(index);
+	}
+
+	@Test
+	public void testGetHighestSolidZ_randomColumns() {
+		Random random = new Random(25);
+		for (int z = 0; z < map.getNbZ(); z++) {
+			for (int y = 0; y < map.getNbY(); y++) {
+				for (int x = 0; x < map.getNbX(); x++) {
+					// unset, empty and solid cells, mostly not solid
+					map.setValue(x, y, z, (byte) (random.nextInt(10) < 8 ? random.nextInt(2) - 1 : 2));
+				}
+			}
+		}
+		assertSameAsScan(new ColumnHeightIndex(map, EMPTY));
+	}
+
+	@Test
+	public void testUpdate_afterChanges() {
+		ColumnHeightIndex index = new ColumnHeightIndex(map, EMPTY);
+		map.setValue(2, 1, 64, SOLID);
+		map.setValue(2, 1, 100, SOLID);
+		index.update(2, 1, 64);
+		index.update(2, 1, 100);
+		assertEquals(64, index.getHighestSolidZ(2, 1, 99));
+		assertEquals(100, index.getHighestSolidZ(2, 1, 129));
+
+		map.setValue(2, 1, 100, EMPTY);
+		index.update(2, 1, 100);
+		assertEquals(64, index.getHighestSolidZ(2, 1, 129));
+
+		Random random = new Random(7);
+		for (int round = 0; round < 20; round++) {
+			BitSet changed = new BitSet();
+			for (int i = 0; i < 30; i++) {
+				int x = random.nextInt(map.getNbX());
+				int y = random.nextInt(map.getNbY());
+				int z = random.nextInt(map.getNbZ());
+				map.setValue(x, y, z, random.nextBoolean() ? SOLID : EMPTY);
+				changed.set(x + y * map.getNbX() + z * map.getNbX() * map.getNbY());
+			}
+			index.update(changed);
+			assertSameAsScan(index);
+		}
+	}
+}
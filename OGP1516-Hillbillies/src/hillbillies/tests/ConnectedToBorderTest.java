@@ -0,0 +1,173 @@
+package hillbillies.tests;
+
+import static org.junit.Assert.*;
+
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.junit.Test;
+
+import hillbillies.util.ConnectedToBorder;
+import hillbillies.util.IndexedConnectedToBorder;
+
+public class ConnectedToBorderTest {
+
+	private static final int NB_X = 9;
+	private static final int NB_Y = 8;
+	private static final int NB_Z = 7;
+
+	/*
+	 * Return the changed cubes as a sorted set of flat indices, so results of both
+	 * engines can be compared regardless of their order.
+	 */
+	private static Set<Integer> toIndices(List<int[]> cubes) {
+		Set<Integer> result = new TreeSet<Integer>();
+		for (int[] cube: cubes) {
+			assertTrue(result.add(cube[0] + cube[1] * NB_X + cube[2] * NB_X * NB_Y));
+		}
+		return result;
+	}
+
+	private static void assertSameState(ConnectedToBorder expected, IndexedConnectedToBorder actual) {
+		for (int x = 0; x < NB_X; x++) {
+			for (int y = 0; y < NB_Y; y++) {
+				for (int z = 0; z < NB_Z; z++) {
+					assertEquals(expected.isSolidConnectedToBorder(x, y, z),
+							actual.isSolidConnectedToBorder(x, y, z));
+				}
+			}
+		}
+	}
+
+	private void compareOnRandomMap(long seed, double solidToPassableRatio, int nbChanges) {
+		Random random = new Random(seed);
+		ConnectedToBorder expected = new ConnectedToBorder(NB_X, NB_Y, NB_Z);
+		IndexedConnectedToBorder actual = new IndexedConnectedToBorder(NB_X, NB_Y, NB_Z);
+
+		for (int i = 0; i < nbChanges; i++) {
+			int x = random.nextInt(NB_X);
+			int y = random.nextInt(NB_Y);
+			int z = random.nextInt(NB_Z);
+			if (random.nextDouble() < solidToPassableRatio) {
+				assertEquals(toIndices(expected.changeSolidToPassable(x, y, z)),
+						toIndices(actual.changeSolidToPassable(x, y, z)));
+			}
+			else {
+				assertEquals(toIndices(expected.changePassableToSolid(x, y, z)),
+						toIndices(actual.changePassableToSolid(x, y, z)));
+			}
+			assertSameState(expected, actual);
+		}
+	}
+
+	@Test
+	public void testSolidToPassableOnly() {
+		for (long seed = 0; seed < 10; seed++) {
+			compareOnRandomMap(seed, 1.0, 300);
+		}
+	}
+
+	@Test
+	public void testMixedChanges() {
+		for (long seed = 0; seed < 10; seed++) {
+			compareOnRandomMap(seed, 0.7, 400);
+		}
+	}
+
+	@Test
+	public void testInitializePassable() {
+		for (long seed = 0; seed < 10; seed++) {
+			Random random = new Random(seed);
+			boolean[] passable = new boolean[NB_X * NB_Y * NB_Z];
+			ConnectedToBorder incremental = new ConnectedToBorder(NB_X, NB_Y, NB_Z);
+			for (int x = 0; x < NB_X; x++) {
+				for (int y = 0; y < NB_Y; y++) {
+					for (int z = 0; z < NB_Z; z++) {
+						if (random.nextDouble() < 0.4) {
+							passable[x + y * NB_X + z * NB_X * NB_Y] = true;
+							incremental.changeSolidToPassable(x, y, z);
+						}
+					}
+				}
+			}
+			ConnectedToBorder bulk = new ConnectedToBorder(NB_X, NB_Y, NB_Z);
+			bulk.initializePassable(passable);
+			IndexedConnectedToBorder indexedBulk = new IndexedConnectedToBorder(NB_X, NB_Y, NB_Z);
+			indexedBulk.initializePassable(passable);
+
+			assertSameState(incremental, indexedBulk);
+			for (int x = 0; x < NB_X; x++) {
+				for (int y = 0; y < NB_Y; y++) {
+					for (int z = 0; z < NB_Z; z++) {
+						assertEquals(incremental.isSolidConnectedToBorder(x, y, z),
+								bulk.isSolidConnectedToBorder(x, y, z));
+					}
+				}
+			}
+
+			// both must keep behaving like the incremental engine afterwards
+			for (int i = 0; i < 100; i++) {
+				int x = random.nextInt(NB_X);
+				int y = random.nextInt(NB_Y);
+				int z = random.nextInt(NB_Z);
+				assertEquals(toIndices(incremental.changeSolidToPassable(x, y, z)),
+						toIndices(indexedBulk.changeSolidToPassable(x, y, z)));
+			}
+			assertSameState(incremental, indexedBulk);
+		}
+	}
+
+	@Test
+	public void testChangeSolidsToPassable() {
+		for (long seed = 0; seed < 10; seed++) {
+			Random random = new Random(seed);
+			IndexedConnectedToBorder sequential = new IndexedConnectedToBorder(NB_X, NB_Y, NB_Z);
+			IndexedConnectedToBorder batched = new IndexedConnectedToBorder(NB_X, NB_Y, NB_Z);
+			for (int round = 0; round < 20; round++) {
+				int[] indices = new int[1 + random.nextInt(15)];
+				for (int i = 0; i < indices.length; i++) {
+					int x = random.nextInt(NB_X);
+					int y = random.nextInt(NB_Y);
+					int z = random.nextInt(NB_Z);
+					indices[i] = batched.getIndex(x, y, z);
+					sequential.changeSolidToPassable(x, y, z);
+				}
+				Set<Integer> changed = toIndices(batched.changeSolidsToPassable(indices, indices.length));
+				for (int index: changed) {
+					assertFalse(batched.isSolidConnectedToBorder(index));
+					assertFalse(sequential.isSolidConnectedToBorder(index));
+				}
+				for (int index = 0; index < NB_X * NB_Y * NB_Z; index++) {
+					assertEquals(sequential.isSolidConnectedToBorder(index),
+							batched.isSolidConnectedToBorder(index));
+				}
+			}
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInitializePassableWrongSize() {
+		new IndexedConnectedToBorder(NB_X, NB_Y, NB_Z).initializePassable(new boolean[3]);
+	}
+
+	@Test
+	public void testIsolatedColumn() {
+		IndexedConnectedToBorder connections = new IndexedConnectedToBorder(3, 3, 3);
+		connections.changeSolidToPassable(1, 1, 2);
+		for (int x = 0; x < 3; x++) {
+			for (int y = 0; y < 3; y++) {
+				if ((x != 1) || (y != 1)) {
+					for (int z = 0; z < 3; z++) {
+						connections.changeSolidToPassable(x, y, z);
+					}
+				}
+			}
+		}
+		assertTrue(connections.isSolidConnectedToBorder(1, 1, 0));
+		List<int[]> changed = connections.changeSolidToPassable(1, 1, 0);
+		assertEquals(1, changed.size());
+		assertFalse(connections.isSolidConnectedToBorder(1, 1, 1));
+	}
+}
@@ -0,0 +1,137 @@
+package hillbillies.tests;
+
+import static org.junit.Assert.*;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import helperclasses.Vector3d;
+import hillbillies.model.FlowField;
+import hillbillies.model.FlowFieldCache;
+import hillbillies.model.Simulation;
+import hillbillies.model.Unit;
+import hillbillies.model.World;
+
+public class FlowFieldTest {
+
+	private int[][][] terrain;
+
+	/*
+	 * A 12x12x4 world with a rock floor and a rock wall at x = 6 that only has
+	 * a gap at y = 11.
+	 */
+	@Before
+	public void initiateTerrain() {
+		terrain = TestWorlds.createWallTerrain();
+	}
+
+	@Test
+	public void testDistances_matchPathFinder() {
+		World world = Simulation.createWorld(terrain, 1);
+		FlowField field = new FlowField(world, 9, 2, 1);
+		for (int x = 0; x < 12; x++) {
+			for (int y = 0; y < 12; y++) {
+				if (!world.isValidPosition(x, y, 1)) {
+					assertFalse(field.isReachableFrom(x, y, 1));
+					continue;
+				}
+				int[] path = world.getPathFinder().findPath(x, y, 1, 9, 2, 1);
+				if (path == null) {
+					assertFalse(field.isReachableFrom(x, y, 1));
+					continue;
+				}
+				// following the field gives a path of the same length
+				double length = 0;
+				int[] cube = {x, y, 1};
+				for (int next = field.getNext(x, y, 1); next >= 0; next = field.getNext(cube[0], cube[1], cube[2])) {
+					int[] nextCube = field.getCube(next);
+					assertTrue(world.isValidPosition(nextCube[0], nextCube[1], nextCube[2]));
+					length += Math.sqrt(Math.pow(nextCube[0] - cube[0], 2) + Math.pow(nextCube[1] - cube[1], 2)
+							+ Math.pow(nextCube[2] - cube[2], 2));
+					cube = nextCube;
+				}
+				assertArrayEquals(new int[] {9, 2, 1}, cube);
+				assertEquals(length, field.getDistance(x, y, 1), 1e-4);
+				assertEquals(TestWorlds.getPathLength(world, new int[] {x, y, 1}, path), length, 1e-4);
+			}
+		}
+		assertFalse(field.isReachableFrom(6, 2, 1));
+		assertFalse(field.isReachableFrom(2, 2, 2));
+	}
+
+	@Test
+	public void testCache_onlyPopularGoals() {
+		World world = Simulation.createWorld(terrain, 1);
+		FlowFieldCache cache = world.getFlowFieldCache();
+		assertNull(cache.getFlowField(9, 2, 1));
+		FlowField field = cache.getFlowField(9, 2, 1);
+		assertNotNull(field);
+		assertSame(field, cache.getFlowField(9, 2, 1));
+		assertEquals(1, cache.getNbFlowFields());
+	}
+
+	@Test
+	public void testCache_leastRecentlyUsedEvicted() {
+		World world = Simulation.createWorld(terrain, 1);
+		FlowFieldCache cache = new FlowFieldCache(world, 2);
+		cache.getFlowField(1, 1, 1);
+		FlowField first = cache.getFlowField(1, 1, 1);
+		cache.getFlowField(2, 1, 1);
+		FlowField second = cache.getFlowField(2, 1, 1);
+		cache.getFlowField(1, 1, 1);
+		cache.getFlowField(3, 1, 1);
+		cache.getFlowField(3, 1, 1);
+		assertEquals(2, cache.getNbFlowFields());
+		assertTrue(cache.hasFlowField(1, 1, 1));
+		assertTrue(first.isValid());
+		assertFalse(cache.hasFlowField(2, 1, 1));
+		assertFalse(second.isValid());
+	}
+
+	@Test
+	public void testDestroyCube_invalidatesNearbyFieldsOnly() {
+		terrain[6][11][1] = World.TYPE_TREE;
+		terrain[6][11][2] = World.TYPE_TREE;
+		terrain[6][11][3] = World.TYPE_TREE;
+		World world = Simulation.createWorld(terrain, 1);
+		FlowFieldCache cache = world.getFlowFieldCache();
+		cache.getFlowField(9, 2, 1);
+		FlowField east = cache.getFlowField(9, 2, 1);
+		cache.getFlowField(2, 2, 1);
+		FlowField west = cache.getFlowField(2, 2, 1);
+		assertFalse(west.isReachableFrom(9, 2, 1));
+
+		// the top of the wall cannot be reached from either field
+		world.destroyCube(new Vector3d(6, 2, 3));
+		assertTrue(east.isValid());
+		assertTrue(west.isValid());
+		world.destroyCube(new Vector3d(6, 2, 1));
+		assertFalse(east.isValid());
+		assertFalse(west.isValid());
+
+		cache.getFlowField(2, 2, 1);
+		FlowField opened = cache.getFlowField(2, 2, 1);
+		assertTrue(opened.isReachableFrom(9, 2, 1));
+		assertEquals(7, opened.getDistance(9, 2, 1), 1e-4);
+	}
+
+	@Test
+	public void testMoveTo_groupFollowsField() throws Exception {
+		World world = Simulation.createWorld(terrain, 1);
+		Unit[] units = new Unit[3];
+		for (int i = 0; i < units.length; i++) {
+			units[i] = world.spawnUnit(false);
+			units[i].setPosition(new Vector3d(1.5, 2.5 + 3 * i, 1.5));
+			units[i].moveTo(new Vector3d(9, 2, 1));
+		}
+		assertTrue(world.getFlowFieldCache().hasFlowField(9, 2, 1));
+		Simulation simulation = new Simulation(world, 0.05);
+		for (int i = 0; i < 4000; i++) {
+			simulation.step();
+		}
+		for (Unit unit: units) {
+			assertFalse(unit.isMoving());
+			assertArrayEquals(new int[] {9, 2, 1}, unit.getOccupyingCube());
+		}
+	}
+}
@@ -0,0 +1,123 @@
+package hillbillies.tests;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import helperclasses.Vector3d;
+import hillbillies.model.HierarchicalPathFinder;
+import hillbillies.model.Simulation;
+import hillbillies.model.World;
+
+public class HierarchicalPathFinderTest {
+
+	/*
+	 * Check that the given hierarchical path finder finds a path for the given queries
+	 * whenever the path finder of its world does, and that it is not much longer.
+	 */
+	private static void checkQueries(HierarchicalPathFinder hierarchical, Random random, int nbQueries) {
+		World world = hierarchical.getWorld();
+		for (int query = 0; query < nbQueries; query++) {
+			int[] start = {random.nextInt(world.getNbX()), random.nextInt(world.getNbY()), random.nextInt(world.getNbZ())};
+			int[] goal = {random.nextInt(world.getNbX()), random.nextInt(world.getNbY()), random.nextInt(world.getNbZ())};
+			if (!world.isValidPosition(start[0], start[1], start[2])) {
+				continue;
+			}
+			int[] expected = world.getPathFinder().findPath(start[0], start[1], start[2], goal[0], goal[1], goal[2]);
+			int[] path = hierarchical.findPath(start[0], start[1], start[2], goal[0], goal[1], goal[2]);
+			if (expected == null) {
+				assertNull(path);
+			}
+			else {
+				assertNotNull(path);
+				if (path.length > 0) {
+					assertEquals(world.getPathFinder().getIndex(goal[0], goal[1], goal[2]), path[path.length - 1]);
+				}
+				double shortest = TestWorlds.getPathLength(world, start, expected);
+				double length = TestWorlds.getPathLength(world, start, path);
+				assertTrue(length >= shortest - 1e-9);
+				assertTrue(length <= 1.5 * shortest + 4);
+			}
+		}
+	}
+
+	@Test
+	public void testFindPath_randomTerrain() {
+		Random random = new Random(5);
+		for (int round = 0; round < 4; round++) {
+			World world = Simulation.createWorld(TestWorlds.createHills(random, 20, 20, 5), round);
+			checkQueries(new HierarchicalPathFinder(world, 4), random, 40);
+		}
+	}
+
+	@Test
+	public void testFindPath_sameChunkThroughOtherChunk() {
+		// a U-shaped corridor that leaves the chunk of its two ends
+		int[][][] types = new int[8][8][2];
+		for (int x = 0; x < 8; x++) {
+			for (int y = 0; y < 8; y++) {
+				types[x][y][0] = World.TYPE_ROCK;
+				types[x][y][1] = World.TYPE_ROCK;
+			}
+		}
+		for (int y = 0; y < 7; y++) {
+			types[0][y][1] = World.TYPE_AIR;
+			types[2][y][1] = World.TYPE_AIR;
+		}
+		types[1][6][1] = World.TYPE_AIR;
+		World world = Simulation.createWorld(types, 1);
+		HierarchicalPathFinder hierarchical = new HierarchicalPathFinder(world, 4);
+		assertNull(world.getPathFinder().findPathInBox(0, 0, 1, 2, 0, 1, 0, 0, 0, 3, 3, 1));
+		int[] path = hierarchical.findPath(0, 0, 1, 2, 0, 1);
+		assertNotNull(path);
+		int[] shortest = world.getPathFinder().findPath(0, 0, 1, 2, 0, 1);
+		assertEquals(TestWorlds.getPathLength(world, new int[] {0, 0, 1}, shortest), TestWorlds.getPathLength(world, new int[] {0, 0, 1}, path), 1e-9);
+	}
+
+	@Test
+	public void testDestroyCube_rebuildsAffectedChunksOnly() {
+		Random random = new Random(9);
+		int[][][] types = TestWorlds.createHills(random, 24, 24, 6);
+		World world = Simulation.createWorld(types, 1);
+		world.setChunkSize(4);
+		HierarchicalPathFinder hierarchical = world.getHierarchicalPathFinder();
+		assertTrue(hierarchical.getNbPortals() > 0);
+		assertEquals(0, hierarchical.getNbDirtyChunks());
+
+		for (int i = 0; i < 10; i++) {
+			int x = random.nextInt(24), y = random.nextInt(24);
+			int z = 0;
+			while ((z + 1 < 6) && (world.getCubeType(x, y, z + 1) != World.TYPE_AIR)) {
+				z++;
+			}
+			world.destroyCube(new Vector3d(x, y, z));
+		}
+		// the cube itself and the cube above it, for all cubes that were destroyed or caved in
+		assertTrue(hierarchical.getNbDirtyChunks() > 0);
+		assertTrue(hierarchical.getNbDirtyChunks() <= 2 * (10 + world.getNbPendingCaveIns()));
+		hierarchical.getNbPortals();
+		assertEquals(0, hierarchical.getNbDirtyChunks());
+		checkQueries(hierarchical, random, 40);
+
+		// the same answers as a path finder built from scratch
+		checkQueries(new HierarchicalPathFinder(world, 4), random, 40);
+	}
+
+	@Test
+	public void testWorld_longQueriesUseChunks() throws Exception {
+		int size = 4 * HierarchicalPathFinder.DEFAULT_CHUNK_SIZE;
+		int[][][] types = new int[size][size][3];
+		for (int x = 0; x < size; x++) {
+			for (int y = 0; y < size; y++) {
+				types[x][y][0] = World.TYPE_ROCK;
+			}
+		}
+		World world = Simulation.createWorld(types, 1);
+		int[] path = world.findPath(0, 0, 1, size - 1, size - 1, 1);
+		assertNotNull(path);
+		assertTrue(world.getHierarchicalPathFinder().getNbExpanded() > 0);
+		assertTrue(TestWorlds.getPathLength(world, new int[] {0, 0, 1}, path) <= 1.1 * (size - 1) * Math.sqrt(2));
+	}
+}
@@ -0,0 +1,216 @@
+package hillbillies.tests;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import helperclasses.Vector3d;
+import hillbillies.model.PathFinder;
+import hillbillies.model.Simulation;
+import hillbillies.model.Unit;
+import hillbillies.model.World;
+
+public class PathFinderTest {
+	
+	private int[][][] terrain;
+	
+	/*
+	 * A 12x12x4 world with a rock floor and a rock wall at x = 6 that only has
+	 * a gap at y = 11.
+	 */
+	@Before
+	public void initiateTerrain() {
+		terrain = TestWorlds.createWallTerrain();
+	}
+	
+	/*
+	 * Return the length of a shortest path using plain Dijkstra, or infinity.
+	 */
+	private static double getShortestLength(World world, int[] start, int[] goal) {
+		int nbX = world.getNbX(), nbY = world.getNbY(), nbZ = world.getNbZ();
+		double[] distance = new double[nbX * nbY * nbZ];
+		Arrays.fill(distance, Double.POSITIVE_INFINITY);
+		PriorityQueue<double[]> queue = new PriorityQueue<double[]>((a, b) -> Double.compare(a[0], b[0]));
+		int startIndex = start[0] + start[1] * nbX + start[2] * nbX * nbY;
+		distance[startIndex] = 0;
+		queue.add(new double[] {0, startIndex});
+		while (!queue.isEmpty()) {
+			double[] entry = queue.poll();
+			int index = (int) entry[1];
+			if (entry[0] > distance[index]) {
+				continue;
+			}
+			int x = index % nbX, y = (index / nbX) % nbY, z = index / (nbX * nbY);
+			if ((x == goal[0]) && (y == goal[1]) && (z == goal[2])) {
+				return entry[0];
+			}
+			for (int dx = -1; dx <= 1; dx++) {
+				for (int dy = -1; dy <= 1; dy++) {
+					for (int dz = -1; dz <= 1; dz++) {
+						if (world.isValidPosition(x + dx, y + dy, z + dz)) {
+							int next = index + dx + dy * nbX + dz * nbX * nbY;
+							double cost = entry[0] + Math.sqrt(dx * dx + dy * dy + dz * dz);
+							if (cost < distance[next]) {
+								distance[next] = cost;
+								queue.add(new double[] {cost, next});
+							}
+						}
+					}
+				}
+			}
+		}
+		return Double.POSITIVE_INFINITY;
+	}
+	
+	@Test
+	public void testOctileDistance() {
+		assertEquals(0, PathFinder.getOctileDistance(0, 0, 0), 1e-12);
+		assertEquals(3, PathFinder.getOctileDistance(0, -3, 0), 1e-12);
+		assertEquals(2 * Math.sqrt(2) + 1, PathFinder.getOctileDistance(3, 2, 0), 1e-12);
+		assertEquals(Math.sqrt(3) + Math.sqrt(2) + 2, PathFinder.getOctileDistance(-4, 2, 1), 1e-12);
+	}
+	
+	@Test
+	public void testFindPath_aroundWall() {
+		World world = new World(terrain, null);
+		PathFinder finder = world.getPathFinder();
+		int[] start = {2, 2, 1};
+		int[] path = finder.findPath(2, 2, 1, 9, 2, 1);
+		assertNotNull(path);
+		assertArrayEquals(new int[] {9, 2, 1}, finder.getCube(path[path.length - 1]));
+		assertEquals(getShortestLength(world, start, new int[] {9, 2, 1}), TestWorlds.getPathLength(world, start, path), 1e-9);
+		assertTrue(TestWorlds.getPathLength(world, start, path) > 7 + 8);
+	}
+	
+	@Test
+	public void testFindPath_unreachable() {
+		terrain[6][11][1] = World.TYPE_TREE;
+		terrain[6][11][2] = World.TYPE_TREE;
+		terrain[6][11][3] = World.TYPE_TREE;
+		World world = new World(terrain, null);
+		assertNull(world.getPathFinder().findPath(2, 2, 1, 9, 2, 1));
+		assertNull(world.getPathFinder().findPath(2, 2, 1, 6, 2, 1));
+		assertNull(world.getPathFinder().findPath(2, 2, 1, 2, 2, 2));
+		assertEquals(0, world.getPathFinder().findPath(2, 2, 1, 2, 2, 1).length);
+	}
+	
+	@Test
+	public void testFindPath_randomTerrain() {
+		Random random = new Random(17);
+		for (int round = 0; round < 5; round++) {
+			World world = new World(TestWorlds.createHills(random, 15, 15, 5), null);
+			PathFinder finder = world.getPathFinder();
+			for (int query = 0; query < 20; query++) {
+				int[] start = {random.nextInt(15), random.nextInt(15), random.nextInt(5)};
+				int[] goal = {random.nextInt(15), random.nextInt(15), random.nextInt(5)};
+				if (!world.isValidPosition(start[0], start[1], start[2])) {
+					continue;
+				}
+				int[] path = finder.findPath(start[0], start[1], start[2], goal[0], goal[1], goal[2]);
+				double expected = getShortestLength(world, start, goal);
+				if (path == null) {
+					assertTrue(Double.isInfinite(expected));
+				}
+				else {
+					assertEquals(expected, TestWorlds.getPathLength(world, start, path), 1e-9);
+				}
+			}
+		}
+	}
+	
+	@Test
+	public void testFindPath_largeWorld() {
+		Random random = new Random(3);
+		int[][][] types = new int[80][80][80];
+		for (int x = 0; x < 80; x++) {
+			for (int y = 0; y < 80; y++) {
+				types[x][y][0] = World.TYPE_ROCK;
+				if ((random.nextDouble() < 0.3) && (x > 0) && (y > 0)) {
+					types[x][y][1] = World.TYPE_TREE;
+				}
+			}
+		}
+		types[0][0][1] = World.TYPE_AIR;
+		types[79][79][1] = World.TYPE_AIR;
+		World world = new World(types, null);
+		PathFinder finder = world.getPathFinder();
+		finder.findPath(0, 0, 1, 79, 79, 1);
+		long start = System.nanoTime();
+		int[] path = finder.findPath(0, 0, 1, 79, 79, 1);
+		double milliseconds = (System.nanoTime() - start) / 1e6;
+		assertNotNull(path);
+		assertTrue(milliseconds < 100);
+	}
+	
+	@Test
+	public void testMoveTo_followsPath() throws Exception {
+		World world = Simulation.createWorld(terrain, 1);
+		Unit unit = world.spawnUnit(false);
+		unit.setPosition(new Vector3d(2.5, 2.5, 1.5));
+		unit.moveTo(new Vector3d(9, 2, 1));
+		assertTrue(unit.isMoving());
+		Simulation simulation = new Simulation(world, 0.05);
+		for (int i = 0; (i < 2000) && (unit.isMoving()); i++) {
+			simulation.step();
+			assertTrue(world.isValidPosition(unit.getPosition()));
+		}
+		assertArrayEquals(new int[] {9, 2, 1}, unit.getOccupyingCube());
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void testMoveTo_unreachable() throws Exception {
+		World world = Simulation.createWorld(terrain, 1);
+		Unit unit = world.spawnUnit(false);
+		unit.setPosition(new Vector3d(2.5, 2.5, 1.5));
+		unit.moveTo(new Vector3d(6, 2, 1));
+	}
+	
+	@Test
+	public void testMoveTo_reusesPath() throws Exception {
+		World world = Simulation.createWorld(terrain, 1);
+		Unit unit = world.spawnUnit(false);
+		unit.setPosition(new Vector3d(2.5, 2.5, 1.5));
+		unit.moveTo(new Vector3d(9, 2, 1));
+		assertEquals(1, world.getNbPathSearches());
+		Simulation simulation = new Simulation(world, 0.05);
+		simulation.run(20);
+		
+		// the same order again, and a terrain change away from the path
+		unit.moveTo(new Vector3d(9, 2, 1));
+		long version = world.getTerrainVersion();
+		world.setCubeType(0, 0, 1, World.TYPE_ROCK);
+		assertTrue(world.getTerrainVersion() > version);
+		for (int i = 0; (i < 2000) && (unit.isMoving()); i++) {
+			simulation.step();
+		}
+		assertArrayEquals(new int[] {9, 2, 1}, unit.getOccupyingCube());
+		assertEquals(1, world.getNbPathSearches());
+		assertFalse(world.getFlowFieldCache().hasFlowField(9, 2, 1));
+	}
+	
+	@Test
+	public void testMoveTo_replansWhenPathBlocked() throws Exception {
+		World world = Simulation.createWorld(terrain, 1);
+		Unit unit = world.spawnUnit(false);
+		unit.setPosition(new Vector3d(2.5, 2.5, 1.5));
+		unit.moveTo(new Vector3d(9, 2, 1));
+		// block the gap in the wall and open the wall right next to the goal
+		world.setCubeType(6, 11, 1, World.TYPE_ROCK);
+		world.setCubeType(6, 11, 2, World.TYPE_ROCK);
+		world.setCubeType(6, 2, 1, World.TYPE_AIR);
+		Simulation simulation = new Simulation(world, 0.05);
+		boolean passedOpening = false;
+		for (int i = 0; (i < 2000) && (unit.isMoving()); i++) {
+			simulation.step();
+			assertTrue(world.isValidPosition(unit.getPosition()));
+			passedOpening |= Arrays.equals(new int[] {6, 2, 1}, unit.getOccupyingCube());
+		}
+		assertArrayEquals(new int[] {9, 2, 1}, unit.getOccupyingCube());
+		assertTrue(passedOpening);
+	}
+}
@@ -0,0 +1,102 @@
+package hillbillies.tests;
+
+import static org.junit.Assert.*;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import helperclasses.Vector3d;
+import hillbillies.model.Simulation;
+import hillbillies.model.Unit;
+import hillbillies.model.World;
+
+public class PathRequestServiceTest {
+	
+	private World world;
+	
+	/*
+	 * A 12x12x4 world with a rock floor and a rock wall at x = 6 that only has
+	 * a gap at y = 11, whose units search their paths asynchronously.
+	 */
+	@Before
+	public void initiateWorld() {
+		world = Simulation.createWorld(TestWorlds.createWallTerrain(), 1);
+		world.setAsynchronousPathFinding(true);
+	}
+	
+	@After
+	public void shutdownWorld() {
+		world.getPathRequestService().shutdown();
+	}
+	
+	/*
+	 * Advance the world until the given unit stops moving.
+	 */
+	private void runUntilIdle(Unit unit) {
+		Simulation simulation = new Simulation(world, 0.05);
+		for (int i = 0; (i < 4000) && (unit.isMoving()); i++) {
+			simulation.step();
+			world.getPathRequestService().deliverAll();
+			assertTrue(world.isValidPosition(unit.getPosition()));
+		}
+	}
+	
+	@Test
+	public void testMoveTo_waitsForPath() throws Exception {
+		Unit unit = world.spawnUnit(false);
+		unit.setPosition(new Vector3d(2.5, 2.5, 1.5));
+		unit.moveTo(new Vector3d(9, 2, 1));
+		assertTrue(unit.isMoving());
+		assertEquals(1, world.getPathRequestService().getNbPending());
+		assertEquals(0, world.getNbPathSearches());
+		runUntilIdle(unit);
+		assertArrayEquals(new int[] {9, 2, 1}, unit.getOccupyingCube());
+		assertEquals(0, world.getPathRequestService().getNbPending());
+	}
+	
+	@Test
+	public void testMoveTo_unreachableRejected() throws Exception {
+		Unit unit = world.spawnUnit(false);
+		unit.setPosition(new Vector3d(2.5, 2.5, 1.5));
+		try {
+			unit.moveTo(new Vector3d(6, 2, 1));
+			fail();
+		} catch (IllegalArgumentException e) {
+			// unreachable destinations are known before any search is submitted
+		}
+		assertFalse(unit.isMoving());
+		assertEquals(0, world.getPathRequestService().getNbPending());
+		assertArrayEquals(new int[] {2, 2, 1}, unit.getOccupyingCube());
+	}
+	
+	@Test
+	public void testMoveTo_terrainChangedDuringSearch() throws Exception {
+		Unit unit = world.spawnUnit(false);
+		unit.setPosition(new Vector3d(2.5, 2.5, 1.5));
+		unit.moveTo(new Vector3d(9, 2, 1));
+		// the path is searched in the terrain before the gap is closed
+		world.getPathRequestService().dispatch();
+		world.setCubeType(6, 11, 1, World.TYPE_ROCK);
+		world.setCubeType(6, 11, 2, World.TYPE_ROCK);
+		world.setCubeType(6, 2, 1, World.TYPE_AIR);
+		runUntilIdle(unit);
+		assertArrayEquals(new int[] {9, 2, 1}, unit.getOccupyingCube());
+	}
+	
+	@Test
+	public void testMoveTo_manyUnits() throws Exception {
+		Unit[] units = new Unit[20];
+		for (int i = 0; i < units.length; i++) {
+			units[i] = world.spawnUnit(false);
+			units[i].setPosition(new Vector3d(0.5 + i % 5, 0.5 + i / 5, 1.5));
+			units[i].moveTo(new Vector3d(11 - i % 3, 11 - i % 4, 1));
+		}
+		for (Unit unit: units) {
+			runUntilIdle(unit);
+		}
+		for (int i = 0; i < units.length; i++) {
+			assertArrayEquals(new int[] {11 - i % 3, 11 - i % 4, 1}, units[i].getOccupyingCube());
+		}
+	}
+}
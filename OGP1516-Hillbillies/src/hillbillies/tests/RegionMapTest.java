@@ -0,0 +1,132 @@
+package hillbillies.tests;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import helperclasses.Vector3d;
+import hillbillies.model.RegionMap;
+import hillbillies.model.Simulation;
+import hillbillies.model.Unit;
+import hillbillies.model.World;
+
+public class RegionMapTest {
+
+	/*
+	 * Check that the given region map of the given world answers the given number of
+	 * random queries the same way as the path finder of the world.
+	 */
+	private static void checkQueries(World world, RegionMap regions, Random random, int nbQueries) {
+		for (int query = 0; query < nbQueries; query++) {
+			int[] start = {random.nextInt(world.getNbX()), random.nextInt(world.getNbY()), random.nextInt(world.getNbZ())};
+			int[] goal = {random.nextInt(world.getNbX()), random.nextInt(world.getNbY()), random.nextInt(world.getNbZ())};
+			boolean expected = world.getPathFinder().findPath(start[0], start[1], start[2], goal[0], goal[1], goal[2]) != null;
+			assertEquals(expected, regions.isReachable(start[0], start[1], start[2], goal[0], goal[1], goal[2]));
+		}
+	}
+
+	/*
+	 * Destroy the highest solid cube of the given column.
+	 */
+	private static void digColumn(World world, int x, int y) {
+		int z = 0;
+		while ((z + 1 < world.getNbZ()) && (world.getCubeType(x, y, z + 1) != World.TYPE_AIR)) {
+			z++;
+		}
+		world.destroyCube(new Vector3d(x, y, z));
+	}
+
+	@Test
+	public void testIsReachable_randomTerrain() {
+		Random random = new Random(3);
+		for (int round = 0; round < 4; round++) {
+			World world = Simulation.createWorld(TestWorlds.createHills(random, 16, 16, 5), round);
+			checkQueries(world, new RegionMap(world), random, 200);
+		}
+	}
+
+	@Test
+	public void testIsReachable_wall() {
+		// a rock floor with a wall at x = 4 that only has a gap at y = 7
+		int[][][] types = new int[8][8][4];
+		for (int x = 0; x < 8; x++) {
+			for (int y = 0; y < 8; y++) {
+				types[x][y][0] = World.TYPE_ROCK;
+			}
+		}
+		for (int y = 0; y < 7; y++) {
+			for (int z = 1; z < 4; z++) {
+				types[4][y][z] = World.TYPE_ROCK;
+			}
+		}
+		World world = Simulation.createWorld(types, 1);
+		RegionMap regions = world.getRegionMap();
+		assertTrue(regions.isReachable(1, 1, 1, 6, 1, 1));
+		assertEquals(regions.getRegion(1, 1, 1), regions.getRegion(6, 1, 1));
+		assertEquals(0, regions.getRegion(4, 1, 1));
+		assertFalse(regions.isReachable(1, 1, 1, 4, 1, 1));
+
+		// closing the gap splits the region
+		world.setCubeType(4, 7, 1, World.TYPE_ROCK);
+		world.setCubeType(4, 7, 2, World.TYPE_ROCK);
+		world.setCubeType(4, 7, 3, World.TYPE_ROCK);
+		assertFalse(regions.isReachable(1, 1, 1, 6, 1, 1));
+		assertFalse(world.isReachable(6, 1, 1, 1, 1, 1));
+		assertEquals(4 * 8, regions.getRegionSize(1, 1, 1));
+
+		// opening the wall elsewhere merges them again
+		world.setCubeType(4, 2, 1, World.TYPE_AIR);
+		assertTrue(regions.isReachable(1, 1, 1, 6, 1, 1));
+		assertEquals(4 * 8 + 3 * 8 + 1, regions.getRegionSize(6, 1, 1));
+	}
+
+	@Test
+	public void testDestroyCube_incremental() {
+		Random random = new Random(11);
+		World world = Simulation.createWorld(TestWorlds.createHills(random, 16, 16, 5), 1);
+		RegionMap regions = world.getRegionMap();
+		for (int round = 0; round < 5; round++) {
+			for (int i = 0; i < 10; i++) {
+				digColumn(world, random.nextInt(16), random.nextInt(16));
+			}
+			while (world.getNbPendingCaveIns() > 0) {
+				world.advanceTime(0.2);
+			}
+			checkQueries(world, regions, random, 100);
+		}
+		// the same answers as a region map built from scratch
+		RegionMap fresh = new RegionMap(world);
+		for (int i = 0; i < 200; i++) {
+			int x = random.nextInt(16), y = random.nextInt(16), z = random.nextInt(5);
+			int[] other = {random.nextInt(16), random.nextInt(16), random.nextInt(5)};
+			assertEquals(fresh.isReachable(x, y, z, other[0], other[1], other[2]),
+					regions.isReachable(x, y, z, other[0], other[1], other[2]));
+			assertEquals(fresh.getRegionSize(x, y, z), regions.getRegionSize(x, y, z));
+		}
+	}
+
+	@Test
+	public void testMoveTo_unreachableWithoutSearch() throws Exception {
+		int[][][] types = new int[8][8][5];
+		for (int x = 0; x < 8; x++) {
+			for (int y = 0; y < 8; y++) {
+				types[x][y][0] = World.TYPE_ROCK;
+				types[x][y][3] = World.TYPE_ROCK;
+			}
+		}
+		World world = Simulation.createWorld(types, 1);
+		Unit unit = world.spawnUnit(false);
+		unit.setPosition(new Vector3d(2.5, 2.5, 1.5));
+		// on top of the ceiling, which cannot be climbed
+		try {
+			unit.moveTo(new Vector3d(5, 5, 4));
+			fail();
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+		assertEquals(0, world.getNbPathSearches());
+		assertFalse(unit.isMoving());
+	}
+}
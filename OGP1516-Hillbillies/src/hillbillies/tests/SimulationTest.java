@@ -0,0 +1,126 @@
+package hillbillies.tests;
+
+import static org.junit.Assert.*;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import hillbillies.model.Simulation;
+import hillbillies.model.Unit;
+import hillbillies.model.World;
+
+public class SimulationTest {
+	
+	private int[][][] terrain;
+	
+	@Before
+	public void initiateTerrain() {
+		terrain = new int[10][10][5];
+		for (int x = 0; x < 10; x++) {
+			for (int y = 0; y < 10; y++) {
+				terrain[x][y][0] = World.TYPE_ROCK;
+				terrain[x][y][1] = World.TYPE_ROCK;
+			}
+		}
+		terrain[4][4][2] = World.TYPE_TREE;
+	}
+	
+	private Simulation createSimulation(long seed, int nbUnits) {
+		World world = Simulation.createWorld(terrain, seed);
+		for (int i = 0; i < nbUnits; i++) {
+			world.spawnUnit(true);
+		}
+		return new Simulation(world, 0.05);
+	}
+	
+	/*
+	 * Advance the given simulation by the given number of ticks, checking after every
+	 * tick that all units stand in a valid position.
+	 */
+	private static void runChecked(Simulation simulation, int nbTicks) {
+		World world = simulation.getWorld();
+		for (int tick = 0; tick < nbTicks; tick++) {
+			simulation.run(1);
+			for (Unit unit: world.getUnits()) {
+				assertTrue("tick " + tick, world.isValidPosition(unit.getPosition()));
+			}
+		}
+	}
+	
+	@Test
+	public void testRun_countsTicks() {
+		Simulation simulation = createSimulation(1, 0);
+		simulation.run(250);
+		assertEquals(250, simulation.getNbTicks());
+		assertEquals(12.5, simulation.getSimulatedTime(), 1e-9);
+		simulation.runFor(1);
+		assertEquals(270, simulation.getNbTicks());
+	}
+	
+	@Test
+	public void testRun_fasterThanRealTime() {
+		Simulation simulation = createSimulation(1, 5);
+		assertTrue(simulation.isUnpaced());
+		long start = System.nanoTime();
+		simulation.runFor(60);
+		double wallSeconds = (System.nanoTime() - start) / 1e9;
+		assertTrue(wallSeconds < 60);
+	}
+	
+	@Test
+	public void testRun_deterministic() {
+		Simulation first = createSimulation(9, 8);
+		Simulation second = createSimulation(9, 8);
+		runChecked(first, 2000);
+		runChecked(second, 2000);
+		
+		Unit[] firstUnits = first.getWorld().getUnits().toArray(new Unit[0]);
+		Unit[] secondUnits = second.getWorld().getUnits().toArray(new Unit[0]);
+		assertEquals(firstUnits.length, secondUnits.length);
+		for (int i = 0; i < firstUnits.length; i++) {
+			assertArrayEquals(firstUnits[i].getPosition().getDoubleArray(), 
+					secondUnits[i].getPosition().getDoubleArray(), 0);
+			assertEquals(firstUnits[i].getActivity(), secondUnits[i].getActivity());
+			assertEquals(firstUnits[i].getExperience(), secondUnits[i].getExperience());
+		}
+	}
+	
+	@Test
+	public void testRun_parallelSameAsSequential() {
+		Simulation sequential = createSimulation(3, 20);
+		Simulation parallel = createSimulation(3, 20);
+		parallel.getWorld().setParallelUnitUpdates(true);
+		assertTrue(parallel.getWorld().isParallelUnitUpdates());
+		runChecked(sequential, 2000);
+		runChecked(parallel, 2000);
+		
+		Unit[] sequentialUnits = sequential.getWorld().getUnits().toArray(new Unit[0]);
+		Unit[] parallelUnits = parallel.getWorld().getUnits().toArray(new Unit[0]);
+		assertEquals(sequentialUnits.length, parallelUnits.length);
+		for (int i = 0; i < sequentialUnits.length; i++) {
+			assertArrayEquals(sequentialUnits[i].getPosition().getDoubleArray(), 
+					parallelUnits[i].getPosition().getDoubleArray(), 0);
+			assertEquals(sequentialUnits[i].getActivity(), parallelUnits[i].getActivity());
+			assertEquals(sequentialUnits[i].getExperience(), parallelUnits[i].getExperience());
+			assertEquals(sequentialUnits[i].getHitpoints(), parallelUnits[i].getHitpoints());
+		}
+		for (int x = 0; x < 10; x++) {
+			for (int y = 0; y < 10; y++) {
+				for (int z = 0; z < 5; z++) {
+					assertEquals(sequential.getWorld().getCubeType(x, y, z), 
+							parallel.getWorld().getCubeType(x, y, z));
+				}
+			}
+		}
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void testConstructor_illegalTimeStep() {
+		new Simulation(Simulation.createWorld(terrain, 0), 0.2);
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void testSetSpeedFactor_illegal() {
+		createSimulation(0, 0).setSpeedFactor(0);
+	}
+}
@@ -0,0 +1,101 @@
+package hillbillies.tests;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import helperclasses.Vector3d;
+import hillbillies.model.SpatialIndex;
+
+public class SpatialIndexTest {
+	
+	private SpatialIndex<String> index;
+	
+	@Before
+	public void initiateIndex() {
+		index = new SpatialIndex<String>(6, 5, 4);
+	}
+	
+	@Test
+	public void testUpdate() {
+		assertTrue(index.update("a", new Vector3d(1.5, 2.5, 3.5)));
+		assertTrue(index.update("b", new Vector3d(1.2, 2.9, 3.1)));
+		assertFalse(index.update("a", new Vector3d(1.7, 2.1, 3.9)));
+		assertEquals(2, index.getNbObjects());
+		assertEquals(2, index.getObjectsAt(1, 2, 3).size());
+		assertEquals("a", index.getObjectsAt(1, 2, 3).get(0));
+		
+		assertTrue(index.update("a", new Vector3d(2.5, 2.5, 3.5)));
+		assertEquals(1, index.getObjectsAt(1, 2, 3).size());
+		assertEquals("a", index.getObjectsAt(2, 2, 3).get(0));
+		
+		index.remove("b");
+		assertFalse(index.contains("b"));
+		assertTrue(index.getObjectsAt(1, 2, 3).isEmpty());
+	}
+	
+	@Test
+	public void testRemove_keepsOrderAndReusesSlots() {
+		for (int i = 0; i < 40; i++) {
+			index.update(Integer.toString(i), new Vector3d(0.5, 0.5, 0.5));
+		}
+		for (int i = 0; i < 40; i += 2) {
+			index.remove(Integer.toString(i));
+		}
+		assertEquals(20, index.getNbObjects());
+		List<String> objects = index.getObjectsAt(0, 0, 0);
+		for (int i = 0; i < 20; i++) {
+			assertEquals(Integer.toString(2 * i + 1), objects.get(i));
+		}
+
+		index.update("new", new Vector3d(0.5, 0.5, 0.5));
+		index.update("1", new Vector3d(5.5, 4.5, 3.5));
+		assertEquals("3", index.getObjectsAt(0, 0, 0).get(0));
+		assertEquals("new", index.getObjectsAt(0, 0, 0).get(19));
+		assertEquals(1, index.getObjectsAt(5, 4, 3).size());
+		assertEquals(21, index.collectInBox(0, 0, 0, 5, 4, 3, new TreeSet<String>()).size());
+	}
+
+	@Test
+	public void testOutsideBox() {
+		index.update("far", new Vector3d(20.5, 0.5, 0.5));
+		assertTrue(index.contains("far"));
+		assertTrue(index.getObjectsAt(20, 0, 0).isEmpty());
+		assertTrue(index.collectInBox(0, 0, 0, 30, 30, 30, new ArrayList<String>()).isEmpty());
+	}
+	
+	@Test
+	public void testCollectInBox() {
+		Random random = new Random(11);
+		List<double[]> positions = new ArrayList<double[]>();
+		for (int i = 0; i < 40; i++) {
+			double[] position = {random.nextDouble() * 6, random.nextDouble() * 5, random.nextDouble() * 4};
+			positions.add(position);
+			index.update(Integer.toString(i), new Vector3d(position));
+		}
+		for (int round = 0; round < 50; round++) {
+			int minX = random.nextInt(6) - 1, maxX = minX + random.nextInt(4);
+			int minY = random.nextInt(5) - 1, maxY = minY + random.nextInt(4);
+			int minZ = random.nextInt(4) - 1, maxZ = minZ + random.nextInt(4);
+			
+			Set<String> expected = new TreeSet<String>();
+			for (int i = 0; i < positions.size(); i++) {
+				double[] position = positions.get(i);
+				if ((minX <= (int) position[0]) && ((int) position[0] <= maxX)
+						&& (minY <= (int) position[1]) && ((int) position[1] <= maxY)
+						&& (minZ <= (int) position[2]) && ((int) position[2] <= maxZ)) {
+					expected.add(Integer.toString(i));
+				}
+			}
+			assertEquals(expected, index.collectInBox(minX, minY, minZ, maxX, maxY, maxZ, new TreeSet<String>()));
+		}
+		assertEquals(40, index.collectInBox(0, 0, 0, 5, 4, 3, new TreeSet<String>()).size());
+	}
+}
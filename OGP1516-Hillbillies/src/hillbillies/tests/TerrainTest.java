@@ -0,0 +1,68 @@
+package hillbillies.tests;
+
+import static org.junit.Assert.*;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import hillbillies.model.Terrain;
+import hillbillies.model.World;
+
+public class TerrainTest {
+	
+	private int[][][] types;
+	private Terrain terrain;
+	
+	@Before
+	public void initiateTerrain() {
+		types = new int[4][3][2];
+		types[1][2][0] = World.TYPE_ROCK;
+		types[3][0][1] = World.TYPE_TREE;
+		types[0][1][1] = World.TYPE_WORKSHOP;
+		terrain = new Terrain(types);
+	}
+	
+	@Test
+	public void testTypes() {
+		for (int x = 0; x < 4; x++) {
+			for (int y = 0; y < 3; y++) {
+				for (int z = 0; z < 2; z++) {
+					assertEquals(types[x][y][z], terrain.getType(x, y, z));
+					assertEquals(types[x][y][z], terrain.getType(terrain.getIndex(x, y, z)));
+				}
+			}
+		}
+		assertEquals(4 * 3 * 2, terrain.getNbCubes());
+	}
+	
+	@Test
+	public void testPassable() {
+		assertTrue(terrain.isPassable(0, 0, 0));
+		assertFalse(terrain.isPassable(1, 2, 0));
+		assertFalse(terrain.isPassable(terrain.getIndex(3, 0, 1)));
+		assertTrue(terrain.isPassable(terrain.getIndex(0, 1, 1)));
+	}
+	
+	@Test
+	public void testSetType() {
+		terrain.setType(1, 2, 0, World.TYPE_AIR);
+		assertEquals(World.TYPE_AIR, terrain.getType(1, 2, 0));
+		assertTrue(terrain.isPassable(1, 2, 0));
+	}
+	
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void testGetType_outOfBounds() {
+		terrain.getType(4, 0, 0);
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void testSetType_invalidType() {
+		terrain.setType(0, 0, 0, 7);
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void testConstructor_invalidType() {
+		types[0][0][0] = -1;
+		new Terrain(types);
+	}
+}
@@ -0,0 +1,75 @@
+package hillbillies.tests;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import hillbillies.model.PathFinder;
+import hillbillies.model.World;
+
+/**
+ * Terrains and checks shared by the tests of the path finding of a world.
+ */
+public final class TestWorlds {
+
+	private TestWorlds() {
+	}
+
+	/**
+	 * Return a 12x12x4 terrain with a rock floor and a rock wall at x = 6 that only
+	 * has a gap at y = 11.
+	 */
+	public static int[][][] createWallTerrain() {
+		int[][][] terrain = new int[12][12][4];
+		for (int x = 0; x < 12; x++) {
+			for (int y = 0; y < 12; y++) {
+				terrain[x][y][0] = World.TYPE_ROCK;
+			}
+		}
+		for (int y = 0; y < 11; y++) {
+			for (int z = 1; z < 4; z++) {
+				terrain[6][y][z] = World.TYPE_ROCK;
+			}
+		}
+		return terrain;
+	}
+
+	/**
+	 * Return a terrain of the given size with random rock hills of at most three
+	 * cubes high.
+	 */
+	public static int[][][] createHills(Random random, int nbX, int nbY, int nbZ) {
+		int[][][] types = new int[nbX][nbY][nbZ];
+		for (int x = 0; x < nbX; x++) {
+			for (int y = 0; y < nbY; y++) {
+				int height = random.nextInt(3);
+				for (int z = 0; z <= height; z++) {
+					types[x][y][z] = World.TYPE_ROCK;
+				}
+			}
+		}
+		return types;
+	}
+
+	/**
+	 * Check that the given path of cube indices from the given start only steps
+	 * between adjacent cubes that are valid positions in the given world, and
+	 * return its length.
+	 */
+	public static double getPathLength(World world, int[] start, int[] path) {
+		PathFinder finder = world.getPathFinder();
+		double length = 0;
+		int[] previous = start;
+		for (int index: path) {
+			int[] cube = finder.getCube(index);
+			int dx = cube[0] - previous[0];
+			int dy = cube[1] - previous[1];
+			int dz = cube[2] - previous[2];
+			assertTrue(Math.abs(dx) <= 1 && Math.abs(dy) <= 1 && Math.abs(dz) <= 1);
+			assertTrue(world.isValidPosition(cube[0], cube[1], cube[2]));
+			length += Math.sqrt(dx * dx + dy * dy + dz * dz);
+			previous = cube;
+		}
+		return length;
+	}
+}
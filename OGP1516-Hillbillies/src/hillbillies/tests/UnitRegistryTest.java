@@ -0,0 +1,121 @@
+package hillbillies.tests;
+
+import static org.junit.Assert.*;
+
+import java.util.BitSet;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import helperclasses.Vector3d;
+import hillbillies.model.Faction;
+import hillbillies.model.Simulation;
+import hillbillies.model.Unit;
+import hillbillies.model.UnitRegistry;
+import hillbillies.model.World;
+
+public class UnitRegistryTest {
+
+	private World world;
+
+	/*
+	 * A 10x10x3 world with a rock floor.
+	 */
+	@Before
+	public void initiateWorld() {
+		int[][][] terrain = new int[10][10][3];
+		for (int x = 0; x < 10; x++) {
+			for (int y = 0; y < 10; y++) {
+				terrain[x][y][0] = World.TYPE_ROCK;
+			}
+		}
+		world = Simulation.createWorld(terrain, 1);
+	}
+
+	private static Unit createUnit() throws Exception {
+		return new Unit("Phao", new Vector3d(3, 4, 1), 50, 50, 50, 50, false);
+	}
+
+	@Test
+	public void testSpawnUnit_defaultLimits() {
+		for (int i = 0; i < UnitRegistry.DEFAULT_MAX_NB_UNITS; i++) {
+			assertNotNull(world.spawnUnit(false));
+		}
+		assertNull(world.spawnUnit(false));
+		assertEquals(UnitRegistry.DEFAULT_MAX_NB_UNITS, world.getNbUnits());
+		assertEquals(UnitRegistry.DEFAULT_MAX_NB_FACTIONS, world.getActiveFactions().size());
+		for (Faction faction: world.getActiveFactions()) {
+			assertEquals(20, faction.getNbUnits());
+		}
+	}
+
+	@Test
+	public void testAddUnit_balancesManyUnits() throws Exception {
+		UnitRegistry registry = world.getUnitRegistry();
+		registry.setMaxNbUnits(10000);
+		registry.setMaxNbFactions(16);
+		registry.setMaxNbMembers(625);
+		BitSet ids = new BitSet();
+		for (int i = 0; i < 10000; i++) {
+			Unit unit = createUnit();
+			world.addUnit(unit);
+			assertSame(unit, registry.getUnit(unit.getId()));
+			ids.set(unit.getId());
+		}
+		assertEquals(10000, world.getNbUnits());
+		assertEquals(10000, ids.cardinality());
+		assertEquals(10000, registry.getIdBound());
+		assertEquals(16, world.getActiveFactions().size());
+		for (Faction faction: world.getActiveFactions()) {
+			assertTrue(faction.isFactionFull());
+		}
+		assertFalse(registry.canRegister());
+		Unit unit = createUnit();
+		world.addUnit(unit);
+		assertEquals(-1, unit.getId());
+		assertFalse(world.getUnits().contains(unit));
+	}
+
+	@Test
+	public void testDie_freesIdAndFaction() {
+		Unit first = world.spawnUnit(false);
+		Unit second = world.spawnUnit(false);
+		Faction faction = first.getFaction();
+		int id = first.getId();
+		int[] cube = first.getOccupyingCube();
+		first.setHitpoints(7);
+		first.die();
+		assertFalse(world.getUnits().contains(first));
+		assertFalse(world.getActiveFactions().contains(faction));
+		assertEquals(-1, first.getId());
+		assertEquals(1, world.getNbUnits());
+		assertEquals(1, world.getUnitStore().getNbUnits());
+		assertFalse(world.getUnitsAt(cube[0], cube[1], cube[2]).contains(first));
+		// the state of a dead unit survives its removal
+		assertEquals(7, first.getHitpoints());
+
+		Unit third = world.spawnUnit(false);
+		assertEquals(id, third.getId());
+		assertNotEquals(second.getId(), third.getId());
+	}
+
+	@Test
+	public void testSmallestFaction_afterDeaths() {
+		for (int i = 0; i < 10; i++) {
+			world.spawnUnit(false);
+		}
+		Faction[] factions = world.getActiveFactions().toArray(new Faction[0]);
+		assertSame(factions[0], world.getSmallestFaction());
+		Unit[] members = factions[3].getUnits().toArray(new Unit[0]);
+		members[0].die();
+		assertSame(factions[3], world.getSmallestFaction());
+		Unit unit = world.spawnUnit(false);
+		assertSame(factions[3], unit.getFaction());
+		assertSame(factions[0], world.getSmallestFaction());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testSetMaxNbMembers_invalid() {
+		world.getUnitRegistry().setMaxNbMembers(0);
+	}
+}
@@ -0,0 +1,122 @@
+package hillbillies.tests;
+
+import static org.junit.Assert.*;
+
+import java.lang.management.ManagementFactory;
+
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import helperclasses.Vector3d;
+import hillbillies.model.Activity;
+import hillbillies.model.Simulation;
+import hillbillies.model.Unit;
+import hillbillies.model.UnitStore;
+import hillbillies.model.World;
+
+public class UnitStoreTest {
+
+	private World world;
+
+	/*
+	 * A 10x10x3 world with a rock floor.
+	 */
+	@Before
+	public void initiateWorld() {
+		int[][][] terrain = new int[10][10][3];
+		for (int x = 0; x < 10; x++) {
+			for (int y = 0; y < 10; y++) {
+				terrain[x][y][0] = World.TYPE_ROCK;
+			}
+		}
+		world = Simulation.createWorld(terrain, 1);
+	}
+
+	@Test
+	public void testAddUnit_movesStateIntoWorldStore() throws Exception {
+		Unit unit = new Unit("Phao", new Vector3d(3, 4, 1), 50, 50, 50, 50, false);
+		unit.setHitpoints(7);
+		unit.setActivityProgress(0.25);
+		unit.setActivity(Activity.WORKING);
+		unit.setWaitingTo(Activity.RESTING);
+
+		world.addUnit(unit);
+		UnitStore store = world.getUnitStore();
+		assertEquals(1, store.getNbUnits());
+		assertSame(unit, store.getUnitAt(0));
+		assertEquals(3.5, unit.getPositionX(), 0);
+		assertEquals(4.5, unit.getPositionY(), 0);
+		assertEquals(1.5, unit.getPositionZ(), 0);
+		assertEquals(7, unit.getHitpoints());
+		assertEquals(0.25, unit.getActivityProgress(), 0);
+		assertEquals(Activity.WORKING, unit.getActivity());
+		assertEquals(Activity.RESTING, unit.getWaitingTo());
+	}
+
+	@Test
+	public void testSpawnUnit_slotsAreDense() throws Exception {
+		UnitStore store = world.getUnitStore();
+		int capacity = store.getCapacity();
+		for (int i = 0; i < capacity + 1; i++) {
+			world.spawnUnit(false);
+		}
+		assertEquals(world.getUnits().size(), store.getNbUnits());
+		assertTrue(store.getCapacity() > capacity);
+		int slot = 0;
+		for (Unit unit: world.getUnits()) {
+			assertSame(unit, store.getUnitAt(slot++));
+			assertTrue(world.isValidPosition(unit.getPosition()));
+		}
+	}
+
+	@Test
+	public void testAdvanceTime_unitsKeepOwnState() throws Exception {
+		Unit first = world.spawnUnit(false);
+		Unit second = world.spawnUnit(false);
+		first.setPosition(new Vector3d(1.5, 1.5, 1.5));
+		second.setPosition(new Vector3d(8.5, 8.5, 1.5));
+		first.moveTo(new Vector3d(5, 1, 1));
+		second.startSprinting();
+
+		Simulation simulation = new Simulation(world, 0.05);
+		for (int i = 0; (i < 1000) && (first.isMoving()); i++) {
+			simulation.step();
+		}
+		assertArrayEquals(new int[] {5, 1, 1}, first.getOccupyingCube());
+		assertFalse(first.isSprinting());
+		assertArrayEquals(new int[] {8, 8, 1}, second.getOccupyingCube());
+		assertTrue(second.isSprinting());
+	}
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void testGetUnitAt_emptySlot() throws Exception {
+		world.getUnitStore().getUnitAt(0);
+	}
+
+	@Test
+	public void testMoveTo_noGarbagePerTick() throws Exception {
+		Assume.assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean);
+		com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		Assume.assumeTrue(bean.isThreadAllocatedMemoryEnabled());
+		long thread = Thread.currentThread().getId();
+
+		Unit unit = world.spawnUnit(false);
+		unit.setPosition(new Vector3d(2.5, 0.5, 1.5));
+		unit.moveTo(new Vector3d(2, 9, 1));
+		int nbTicks = 0;
+		for (int i = 0; (i < 2000) && (unit.isMoving()); i++) {
+			long before = bean.getThreadAllocatedBytes(thread);
+			unit.computeIntent(0.05);
+			unit.applyIntent();
+			long allocated = bean.getThreadAllocatedBytes(thread) - before;
+			// walking on, including into the next cube, allocates nothing
+			if ((i > 0) && (unit.isMoving())) {
+				assertEquals(0, allocated);
+				nbTicks++;
+			}
+		}
+		assertArrayEquals(new int[] {2, 9, 1}, unit.getOccupyingCube());
+		assertTrue(nbTicks > 50);
+	}
+}
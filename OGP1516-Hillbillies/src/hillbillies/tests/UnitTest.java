@@ -10,6 +10,7 @@ import org.junit.Test;
 import helperclasses.NameException;
 import helperclasses.OutOfBoundsException;
 import helperclasses.Vector3d;
+import hillbillies.model.Activity;
 import hillbillies.model.Unit;
 
 public class UnitTest {
@@ -262,26 +263,71 @@ public class UnitTest {
 	public void testStartDefaultBehaviour_allCases() throws Exception{
 		
 		//Idle and Default Behaviour is on:
-		testUnit1.setStatus("Idle");
+		testUnit1.setActivity(Activity.IDLE);
 		testUnit1.setDefaultBehaviorEnabled(true);
 		testUnit1.startDefaultBehavior();
 		
 		assertTrue(testUnit1.isMoving() || testUnit1.isWorking() || testUnit1.isInitResting());
 		
 		//Idle and Default Behaviour is off:
-		testUnit1.setStatus("Idle");
+		testUnit1.setActivity(Activity.IDLE);
 		testUnit1.setDefaultBehaviorEnabled(false);
 		testUnit1.startDefaultBehavior();
 		
 		assertTrue(testUnit1.isIdle());
 		
 		//Not Idle:
-		testUnit1.setStatus("Moving");
+		testUnit1.setActivity(Activity.MOVING);
 		testUnit1.startDefaultBehavior();
 		
 		assertTrue(testUnit1.isMoving());
 	}
 	
+	@Test
+	public void testCanBeInterrupted() throws Exception{
+		testUnit1.setActivity(Activity.MOVING);
+		assertTrue(testUnit1.canBeInterrupted(Activity.RESTING));
+		assertFalse(testUnit1.canBeInterrupted(Activity.WORKING));
+		
+		testUnit1.setActivity(Activity.INIT_RESTING);
+		assertTrue(testUnit1.canBeInterrupted(Activity.DEFENDING));
+		assertFalse(testUnit1.canBeInterrupted(Activity.MOVING));
+		
+		testUnit1.setActivity(Activity.DEFENDING);
+		for (Activity activity: Activity.values()) {
+			assertFalse(testUnit1.canBeInterrupted(activity));
+		}
+		testUnit1.setActivity(Activity.IDLE);
+		for (Activity activity: Activity.values()) {
+			assertTrue(testUnit1.canBeInterrupted(activity));
+		}
+	}
+	
+	@Test
+	public void testPackedState() throws Exception{
+		testUnit1.setActivity(Activity.INIT_RESTING);
+		testUnit1.setWaitingTo(Activity.MOVING);
+		testUnit1.startSprinting();
+		byte state = testUnit1.getPackedState();
+		
+		testUnit2.setPackedState(state);
+		assertEquals(Activity.INIT_RESTING, testUnit2.getActivity());
+		assertEquals(Activity.MOVING, testUnit2.getWaitingTo());
+		assertTrue(testUnit2.isSprinting());
+		assertEquals(state, testUnit2.getPackedState());
+		
+		testUnit1.setWaitingTo(null);
+		testUnit1.stopSprinting();
+		testUnit2.setPackedState(testUnit1.getPackedState());
+		assertNull(testUnit2.getWaitingTo());
+		assertFalse(testUnit2.isSprinting());
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void testSetActivity_null() throws Exception{
+		testUnit1.setActivity(null);
+	}
+	
 	////////////////
 	/// FIGHTING ///
 	////////////////
@@ -329,7 +375,7 @@ public class UnitTest {
 	@Test
 	public void testRestNotInteruptable() throws Exception{
 		//Initiation
-		testUnit1.setStatus("Attacking");
+		testUnit1.setActivity(Activity.ATTACKING);
 		testUnit1.rest();
 		
 		//Check
@@ -0,0 +1,150 @@
+package hillbillies.tests;
+
+import static org.junit.Assert.*;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import helperclasses.Vector3d;
+import hillbillies.model.Activity;
+import hillbillies.model.Boulder;
+import hillbillies.model.Log;
+import hillbillies.model.Simulation;
+import hillbillies.model.Unit;
+import hillbillies.model.World;
+import hillbillies.model.WorldSnapshot;
+
+public class WorldSnapshotTest {
+
+	private World world;
+
+	/*
+	 * A 10x10x3 world with a rock floor.
+	 */
+	@Before
+	public void initiateWorld() {
+		int[][][] terrain = new int[10][10][3];
+		for (int x = 0; x < 10; x++) {
+			for (int y = 0; y < 10; y++) {
+				terrain[x][y][0] = World.TYPE_ROCK;
+			}
+		}
+		world = Simulation.createWorld(terrain, 1);
+	}
+
+	@Test
+	public void testPublishSnapshot_unitState() throws Exception {
+		assertNull(world.getSnapshot());
+		Unit unit = world.spawnUnit(false);
+		unit.setPosition(new Vector3d(2.5, 3.5, 1.5));
+		unit.setHitpoints(7);
+		unit.startSprinting();
+		world.publishSnapshot();
+
+		WorldSnapshot snapshot = world.getSnapshot();
+		assertEquals(0, snapshot.getNumber());
+		assertEquals(1, snapshot.getNbUnits());
+		int index = snapshot.indexOf(unit);
+		assertSame(unit, snapshot.getUnitAt(index));
+		assertArrayEquals(new double[] {2.5, 3.5, 1.5}, snapshot.getPosition(index, 1), 0);
+		assertEquals(7, snapshot.getHitpoints(index));
+		assertEquals(unit.getName(), snapshot.getName(index));
+		assertEquals(Activity.IDLE, snapshot.getActivity(index));
+		assertTrue(snapshot.hasFlags(index, WorldSnapshot.SPRINTING));
+		assertFalse(snapshot.hasFlags(index, WorldSnapshot.CARRYING_LOG));
+		assertSame(unit.getFaction(), snapshot.getFaction(index));
+
+		// later changes do not show in a published snapshot
+		unit.setHitpoints(3);
+		assertEquals(7, snapshot.getHitpoints(index));
+	}
+
+	@Test
+	public void testGetPosition_interpolated() throws Exception {
+		Unit unit = world.spawnUnit(false);
+		unit.setPosition(new Vector3d(2.5, 3.5, 1.5));
+		world.publishSnapshot();
+		unit.setPosition(new Vector3d(3.5, 3.5, 1.5));
+		world.publishSnapshot();
+
+		WorldSnapshot snapshot = world.getSnapshot();
+		int index = snapshot.indexOf(unit);
+		assertArrayEquals(new double[] {2.5, 3.5, 1.5}, snapshot.getPosition(index, 0), 0);
+		assertArrayEquals(new double[] {3.0, 3.5, 1.5}, snapshot.getPosition(index, 0.5), 1e-12);
+		assertArrayEquals(new double[] {3.5, 3.5, 1.5}, snapshot.getPosition(index, 1), 0);
+	}
+
+	@Test
+	public void testChangedCubes_chained() throws Exception {
+		world.publishSnapshot();
+		WorldSnapshot first = world.getSnapshot();
+		assertEquals(10 * 10 * 3, first.getNbChangedCubes());
+		assertNull(first.getNext());
+
+		world.setCubeType(4, 5, 2, World.TYPE_ROCK);
+		world.publishSnapshot();
+		world.publishSnapshot();
+		WorldSnapshot second = first.getNext();
+		assertEquals(1, second.getNbChangedCubes());
+		assertEquals(4 + 5 * 10 + 2 * 100, second.getChangedCube(0));
+		assertEquals(World.TYPE_ROCK, second.getChangedType(0));
+		assertFalse(second.isChangedAnchored(0));
+		assertSame(world.getSnapshot(), second.getNext());
+		assertEquals(0, world.getSnapshot().getNbChangedCubes());
+	}
+
+	@Test
+	public void testCollectInBox_unitsAndBoulders() throws Exception {
+		Unit unit = world.spawnUnit(false);
+		unit.setPosition(new Vector3d(2.5, 3.5, 1.5));
+		Boulder boulder = new Boulder(new Vector3d(6, 6, 1));
+		world.addBoulder(boulder);
+		world.publishSnapshot();
+
+		WorldSnapshot snapshot = world.getSnapshot();
+		Set<Object> result = snapshot.collectInBox(0, 0, 0, 5, 5, 3, new HashSet<Object>());
+		assertEquals(1, result.size());
+		assertTrue(result.contains(unit));
+		assertTrue(snapshot.collectInBox(0, 0, 0, 10, 10, 3, new HashSet<Object>()).contains(boulder));
+		assertArrayEquals(boulder.getPosition().getDoubleArray(), snapshot.getPosition(boulder), 0);
+	}
+
+	@Test
+	public void testGetPosition_bouldersAndLogs() throws Exception {
+		Boulder[] boulders = new Boulder[5];
+		Log[] logs = new Log[5];
+		for (int i = 0; i < 5; i++) {
+			boulders[i] = new Boulder(new Vector3d(i, 1, 1));
+			world.addBoulder(boulders[i]);
+			logs[i] = new Log(new Vector3d(i, 2, 1));
+			world.addLog(logs[i]);
+		}
+		world.publishSnapshot();
+		Boulder later = new Boulder(new Vector3d(7, 7, 1));
+		world.addBoulder(later);
+
+		WorldSnapshot snapshot = world.getSnapshot();
+		for (int i = 0; i < 5; i++) {
+			assertArrayEquals(new double[] {i + 0.5, 1.5, 1.5}, snapshot.getPosition(boulders[i]), 0);
+			assertArrayEquals(new double[] {i + 0.5, 2.5, 1.5}, snapshot.getPosition(logs[i]), 0);
+		}
+		assertNull(snapshot.getPosition(later));
+	}
+
+	@Test
+	public void testIndexOf_deadUnit() throws Exception {
+		Unit unit = world.spawnUnit(false);
+		world.publishSnapshot();
+		WorldSnapshot snapshot = world.getSnapshot();
+		unit.die();
+		Unit other = world.spawnUnit(false);
+		// the new unit reuses the identifier of the dead one
+		assertEquals(-1, snapshot.indexOf(other));
+		assertEquals(-1, snapshot.indexOf(unit));
+		world.publishSnapshot();
+		assertEquals(0, world.getSnapshot().indexOf(other));
+	}
+}
@@ -1,5 +1,366 @@
 package hillbillies.tests;
 
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import helperclasses.Vector3d;
+import hillbillies.model.Boulder;
+import hillbillies.model.Log;
+import hillbillies.model.Unit;
+import hillbillies.model.World;
+import hillbillies.part2.listener.TerrainChangeListener;
+
 public class WorldTest {
-	//Moeten we hier een eigen testWereld maken om mee te testen? das toch sick moeilijk?
+	
+	private int[][][] terrain;
+	private int nbNotifications;
+	private TerrainChangeListener countingListener = new TerrainChangeListener() {
+		
+		@Override
+		public void notifyTerrainChanged(int x, int y, int z) {
+			nbNotifications++;
+		}
+	};
+	
+	@Before
+	public void initiateTerrain() {
+		Random random = new Random(42);
+		terrain = new int[10][10][10];
+		for (int x = 0; x < 10; x++) {
+			for (int y = 0; y < 10; y++) {
+				for (int z = 0; z < 10; z++) {
+					terrain[x][y][z] = random.nextInt(3);
+				}
+			}
+		}
+		nbNotifications = 0;
+	}
+	
+	private static void assertSameConnections(World expected, World actual) {
+		for (int x = 0; x < expected.getNbX(); x++) {
+			for (int y = 0; y < expected.getNbY(); y++) {
+				for (int z = 0; z < expected.getNbZ(); z++) {
+					assertEquals(expected.isSolidConnectedToBorder(x, y, z), 
+							actual.isSolidConnectedToBorder(x, y, z));
+					assertEquals(expected.getCubeType(x, y, z), actual.getCubeType(x, y, z));
+				}
+			}
+		}
+	}
+	
+	@Test
+	public void testTerrainBatch_sameAsSequential() {
+		World sequential = new World(copy(terrain), countingListener);
+		World batched = new World(copy(terrain), countingListener);
+		Random random = new Random(7);
+		
+		batched.beginTerrainBatch();
+		assertTrue(batched.isInTerrainBatch());
+		for (int i = 0; i < 60; i++) {
+			Vector3d cube = new Vector3d(1 + random.nextInt(8), 1 + random.nextInt(8), 1 + random.nextInt(8));
+			sequential.destroyCube(cube);
+			batched.destroyCube(cube);
+		}
+		int nbSequential = nbNotifications;
+		nbNotifications = 0;
+		batched.commitTerrainBatch();
+		assertFalse(batched.isInTerrainBatch());
+		
+		assertSameConnections(sequential, batched);
+		assertTrue(nbNotifications <= nbSequential);
+	}
+	
+	@Test
+	public void testTerrainBatch_nested() {
+		World world = new World(copy(terrain), countingListener);
+		world.beginTerrainBatch();
+		world.beginTerrainBatch();
+		world.destroyCube(new Vector3d(5, 5, 5));
+		List<int[]> inner = world.commitTerrainBatch();
+		assertTrue(inner.isEmpty());
+		assertEquals(0, nbNotifications);
+		world.commitTerrainBatch();
+		assertEquals(1, nbNotifications);
+		assertEquals(World.TYPE_AIR, world.getCubeType(5, 5, 5));
+	}
+	
+	@Test(expected = IllegalStateException.class)
+	public void testTerrainBatch_commitWithoutBegin() {
+		new World(copy(terrain), countingListener).commitTerrainBatch();
+	}
+	
+	/*
+	 * Return a 5x5x5 world with a 3x3 rock slab at z = 2 that only rests on 
+	 * a rock pillar at (2, 2, 0) and (2, 2, 1).
+	 */
+	private World createSlabWorld(long seed) {
+		return createSlabWorld(new Random(seed));
+	}
+	
+	private World createSlabWorld(Random random) {
+		int[][][] types = new int[5][5][5];
+		for (int x = 1; x < 4; x++) {
+			for (int y = 1; y < 4; y++) {
+				types[x][y][2] = World.TYPE_ROCK;
+			}
+		}
+		types[2][2][0] = World.TYPE_ROCK;
+		types[2][2][1] = World.TYPE_ROCK;
+		return new World(types, countingListener, random);
+	}
+	
+	/*
+	 * Return a random number generator that lets every destroyed cube leave debris behind.
+	 */
+	private static Random createDebrisRandom() {
+		return new Random() {
+
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			public double nextDouble() {
+				return 0;
+			}
+		};
+	}
+	
+	@Test
+	public void testCaveIn_boundedPerTick() throws InterruptedException {
+		World world = createSlabWorld(3);
+		world.setMaxCollapsesPerTick(4);
+		world.destroyCube(new Vector3d(2, 2, 1));
+		assertEquals(9, world.getNbPendingCaveIns());
+		assertEquals(World.TYPE_ROCK, world.getCubeType(2, 2, 2));
+		
+		world.advanceTime(0.1);
+		assertEquals(5, world.getNbPendingCaveIns());
+		world.advanceTime(0.1);
+		world.advanceTime(0.1);
+		assertEquals(0, world.getNbPendingCaveIns());
+		for (int x = 1; x < 4; x++) {
+			for (int y = 1; y < 4; y++) {
+				assertEquals(World.TYPE_AIR, world.getCubeType(x, y, 2));
+			}
+		}
+		assertEquals(1 + 9, nbNotifications);
+		assertTrue(world.isSolidConnectedToBorder(2, 2, 0));
+	}
+	
+	@Test
+	public void testDestroyCube_debrisAtBorder() {
+		int[][][] types = new int[5][5][5];
+		for (int x = 0; x < 5; x++) {
+			for (int y = 0; y < 5; y++) {
+				types[x][y][0] = World.TYPE_ROCK;
+			}
+		}
+		types[0][3][1] = World.TYPE_TREE;
+		World world = new World(types, countingListener, createDebrisRandom());
+		world.destroyCube(new Vector3d(0, 0, 0));
+		world.destroyCube(new Vector3d(0, 3, 1));
+		assertEquals(1, world.getBoulders().size());
+		assertArrayEquals(new double[] {0.5, 0.5, 0.5},
+				world.getBoulders().iterator().next().getPosition().getDoubleArray(), 0);
+		assertEquals(1, world.getLogs().size());
+		assertArrayEquals(new double[] {0.5, 3.5, 1.5},
+				world.getLogs().iterator().next().getPosition().getDoubleArray(), 0);
+	}
+
+	@Test
+	public void testCaveIn_debrisLandsOnGround() throws Exception {
+		World world = createSlabWorld(createDebrisRandom());
+		world.setMaxCollapsesPerTick(2);
+		// a boulder resting on the slab falls down once the slab caves in
+		Boulder resting = new Boulder(new Vector3d(3, 3, 3));
+		world.addBoulder(resting);
+		world.destroyCube(new Vector3d(2, 2, 1));
+		for (int tick = 0; tick < 40; tick++) {
+			world.advanceTime(0.05);
+		}
+		assertEquals(0, world.getNbPendingCaveIns());
+		assertEquals(1 + 1 + 9, world.getBoulders().size());
+		for (Boulder boulder: world.getBoulders()) {
+			assertTrue(world.isValidPosition(boulder.getPosition()));
+		}
+		for (Log log: world.getLogs()) {
+			assertTrue(world.isValidPosition(log.getPosition()));
+		}
+		assertArrayEquals(new double[] {3.5, 3.5, 0.5}, resting.getPosition().getDoubleArray(), 0);
+	}
+
+	@Test
+	public void testDestroyCube_unitFalls() throws Exception {
+		int[][][] types = new int[5][5][5];
+		for (int x = 0; x < 5; x++) {
+			for (int y = 0; y < 5; y++) {
+				types[x][y][0] = World.TYPE_ROCK;
+			}
+		}
+		types[2][2][1] = World.TYPE_ROCK;
+		World world = new World(types, countingListener, new Random(1));
+		Unit unit = new Unit("Phao", new Vector3d(2, 2, 2), 50, 50, 50, 50, false);
+		world.addUnit(unit);
+		unit.setHitpoints(30);
+		unit.moveTo(new Vector3d(3, 3, 1));
+		
+		world.destroyCube(new Vector3d(2, 2, 1));
+		world.advanceTime(0.05);
+		assertArrayEquals(new double[] {2.5, 2.5, 1.5}, unit.getPosition().getDoubleArray(), 0);
+		assertEquals(20, unit.getHitpoints());
+		assertFalse(unit.isMoving());
+		assertTrue(world.getUnitsAt(2, 2, 1).contains(unit));
+	}
+
+	@Test
+	public void testDestroyCube_unitFallsThroughCavingSlab() throws Exception {
+		World world = createSlabWorld(3);
+		world.setMaxCollapsesPerTick(1);
+		Unit unit = new Unit("Phao", new Vector3d(1, 1, 3), 50, 50, 50, 50, false);
+		world.addUnit(unit);
+		unit.setHitpoints(40);
+
+		world.destroyCube(new Vector3d(2, 2, 1));
+		for (int tick = 0; tick < 10; tick++) {
+			world.advanceTime(0.05);
+			assertTrue(world.isValidPosition(unit.getPosition()));
+		}
+		assertArrayEquals(new double[] {1.5, 1.5, 0.5}, unit.getPosition().getDoubleArray(), 0);
+		assertEquals(10, unit.getHitpoints());
+	}
+
+	@Test
+	public void testCaveIn_deterministic() throws InterruptedException {
+		for (long seed = 0; seed < 5; seed++) {
+			World first = createSlabWorld(seed);
+			World second = createSlabWorld(seed);
+			first.destroyCube(new Vector3d(2, 2, 1));
+			second.destroyCube(new Vector3d(2, 2, 1));
+			for (int tick = 0; (tick < 100) && (first.getNbPendingCaveIns() > 0); tick++) {
+				first.advanceTime(0.1);
+				second.advanceTime(0.1);
+			}
+			assertEquals(0, first.getNbPendingCaveIns());
+			assertEquals(0, second.getNbPendingCaveIns());
+			assertEquals(describeDebris(first), describeDebris(second));
+		}
+	}
+	
+	/*
+	 * Return the type and position of every boulder and log of the given world, sorted.
+	 */
+	private static List<String> describeDebris(World world) {
+		List<String> result = new ArrayList<String>();
+		for (Boulder boulder: world.getBoulders()) {
+			result.add(boulder.getType() + " " + Arrays.toString(boulder.getPosition().getDoubleArray()));
+		}
+		for (Log log: world.getLogs()) {
+			result.add(log.getType() + " " + Arrays.toString(log.getPosition().getDoubleArray()));
+		}
+		Collections.sort(result);
+		return result;
+	}
+	
+	@Test
+	public void testBoulderAvailable_followsMoves() throws Exception {
+		World world = new World(new int[5][5][5], countingListener);
+		Boulder boulder = new Boulder(new Vector3d(2, 2, 3));
+		world.addBoulder(boulder);
+		assertTrue(world.isBoulderAvailable(new Vector3d(2.5, 2.5, 3.5)));
+		assertSame(boulder, world.getSelectedBoulder());
+		
+		boulder.setPosition(new Vector3d(2.5, 2.5, 1.5));
+		assertFalse(world.isBoulderAvailable(new Vector3d(2.5, 2.5, 3.5)));
+		assertTrue(world.isBoulderAvailable(new Vector3d(2.5, 2.5, 1.5)));
+		assertFalse(world.isLogAvailable(new Vector3d(2.5, 2.5, 1.5)));
+	}
+	
+	@Test
+	public void testUnitsAround() {
+		World world = new World(new int[5][5][5], countingListener, new Random(5));
+		for (int i = 0; i < 30; i++) {
+			world.spawnUnit(false);
+		}
+		for (Unit unit: world.getUnits()) {
+			int[] cube = unit.getOccupyingCube();
+			assertTrue(world.getUnitsAt(cube[0], cube[1], cube[2]).contains(unit));
+			List<Unit> around = world.getUnitsAround(cube[0], cube[1], cube[2]);
+			for (Unit other: world.getUnits()) {
+				int[] otherCube = other.getOccupyingCube();
+				boolean near = (Math.abs(cube[0] - otherCube[0]) <= 1) 
+						&& (Math.abs(cube[1] - otherCube[1]) <= 1) 
+						&& (Math.abs(cube[2] - otherCube[2]) <= 1);
+				assertEquals(near, around.contains(other));
+				if (unit.isAdjacentTo(other)) {
+					assertTrue(around.contains(other));
+				}
+			}
+		}
+	}
+	
+	@Test
+	public void testObjectsInBox() throws Exception {
+		World world = new World(new int[6][6][6], countingListener, new Random(8));
+		for (int i = 0; i < 25; i++) {
+			world.spawnUnit(false);
+		}
+		world.addBoulder(new Boulder(new Vector3d(1, 2, 1)));
+		world.addLog(new Log(new Vector3d(4, 4, 1)));
+		Random random = new Random(9);
+		for (int round = 0; round < 50; round++) {
+			double[] min = {random.nextDouble() * 6 - 1, random.nextDouble() * 6 - 1, random.nextDouble() * 2 - 1};
+			double[] max = {min[0] + random.nextDouble() * 4, min[1] + random.nextDouble() * 4, min[2] + 2};
+			Set<Object> expected = new HashSet<Object>();
+			for (Unit unit: world.getUnits()) {
+				if (liesInBox(unit.getPosition(), min, max)) {
+					expected.add(unit);
+				}
+			}
+			for (Boulder boulder: world.getBoulders()) {
+				if (liesInBox(boulder.getPosition(), min, max)) {
+					expected.add(boulder);
+				}
+			}
+			for (Log log: world.getLogs()) {
+				if (liesInBox(log.getPosition(), min, max)) {
+					expected.add(log);
+				}
+			}
+			assertEquals(expected, new HashSet<Object>(world.getObjectsInBox(min, max)));
+		}
+	}
+	
+	private static boolean liesInBox(Vector3d position, double[] min, double[] max) {
+		double[] coordinates = position.getDoubleArray();
+		for (int i = 0; i < 3; i++) {
+			if ((coordinates[i] < min[i]) || (coordinates[i] >= max[i])) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void testSetMaxCollapsesPerTick_illegal() {
+		createSlabWorld(0).setMaxCollapsesPerTick(0);
+	}
+	
+	private static int[][][] copy(int[][][] terrain) {
+		int[][][] result = new int[terrain.length][terrain[0].length][];
+		for (int x = 0; x < terrain.length; x++) {
+			for (int y = 0; y < terrain[0].length; y++) {
+				result[x][y] = terrain[x][y].clone();
+			}
+		}
+		return result;
+	}
 }